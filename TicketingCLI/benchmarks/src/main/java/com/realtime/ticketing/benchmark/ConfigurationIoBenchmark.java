@@ -0,0 +1,116 @@
+package com.realtime.ticketing.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.realtime.ticketing.model.Configuration;
+import com.realtime.ticketing.model.ConfigurationCatalog;
+import com.realtime.ticketing.model.ConfigurationRepository;
+import com.realtime.ticketing.model.ConfigurationStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the JSON round trip of {@link Configuration#saveToJsonFile} followed by
+ * {@link Configuration#loadConfigurationsFromJson} for catalogs of different sizes, the cost of
+ * saving a single changed configuration through a {@link ConfigurationStore}, and the cold start of loading
+ * every configuration into a {@link ConfigurationRepository} from JSON and from a binary {@link ConfigurationCatalog}.
+ *
+ * @author Dharshan
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dticketing.log.level=OFF"})
+public class ConfigurationIoBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int configurationCount;
+
+    private List<Configuration> configurations;
+    private Path configurationFile;
+    private Path storeFile;
+    private ConfigurationStore store;
+    private Path catalogFile;
+    private int nextUpdate = 0;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 1; i <= configurationCount; i++) {
+            if (i > 1) {
+                json.append(',');
+            }
+            json.append("{\"eventTicketId\":").append(i)
+                    .append(",\"vendorName\":\"Vendor ").append(i % 100)
+                    .append("\",\"title\":\"Event ").append(i)
+                    .append("\",\"maxTicketCapacity\":1000,\"ticketReleaseRate\":5,\"customerRetrievalRate\":3")
+                    .append(",\"ticketReleaseInterval\":1000,\"customerRetrievalInterval\":1000")
+                    .append(",\"totalTickets\":1000,\"price\":2500.0,\"vendorCount\":2,\"customerCount\":8}");
+        }
+        json.append(']');
+        configurations = new Gson().fromJson(json.toString(), new TypeToken<List<Configuration>>() {}.getType());
+        configurationFile = Files.createTempFile("ticket-configurations", ".json");
+        storeFile = Files.createTempFile("ticket-store", ".json");
+        store = new ConfigurationStore(storeFile);
+        store.saveAll(configurations);
+        catalogFile = Files.createTempFile("ticket-catalog", ConfigurationCatalog.FILE_EXTENSION);
+        ConfigurationCatalog.write(catalogFile, configurations);
+
+        // saveToJsonFile reports every save on the console; keep that out of the measurement
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(originalOut);
+        Files.deleteIfExists(configurationFile);
+        Files.deleteIfExists(storeFile);
+        Files.deleteIfExists(storeFile.resolveSibling(storeFile.getFileName() + ".log"));
+        Files.deleteIfExists(catalogFile);
+    }
+
+    @Benchmark
+    public List<Configuration> saveAndLoad() throws IOException {
+        Configuration.saveToJsonFile(configurationFile.toString(), configurations);
+        return Configuration.loadConfigurationsFromJson(configurationFile.toString());
+    }
+
+    @Benchmark
+    public ConfigurationRepository loadJson() throws IOException {
+        return new ConfigurationRepository(new ConfigurationStore(storeFile).load());
+    }
+
+    @Benchmark
+    public ConfigurationRepository loadCatalog() throws IOException {
+        return new ConfigurationRepository(new ConfigurationStore(catalogFile).load());
+    }
+
+    @Benchmark
+    public int updateOne() throws IOException {
+        store.put(configurations.get(nextUpdate++ % configurations.size()));
+        return store.getPendingPatches();
+    }
+}
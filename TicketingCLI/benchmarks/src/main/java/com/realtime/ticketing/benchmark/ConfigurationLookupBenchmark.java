@@ -0,0 +1,92 @@
+package com.realtime.ticketing.benchmark;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.realtime.ticketing.model.Configuration;
+import com.realtime.ticketing.model.ConfigurationRepository;
+import com.realtime.ticketing.model.ConfigurationView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares finding a configuration by scanning the list, as the menu used to, with the indexed lookups of
+ * {@link ConfigurationRepository}.
+ *
+ * @author Dharshan
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dticketing.log.level=OFF"})
+public class ConfigurationLookupBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int configurationCount;
+
+    private List<Configuration> configurations;
+    private ConfigurationRepository repository;
+    private int nextLookup = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 1; i <= configurationCount; i++) {
+            if (i > 1) {
+                json.append(',');
+            }
+            json.append("{\"eventTicketId\":").append(i)
+                    .append(",\"vendorName\":\"Vendor ").append(i % 100)
+                    .append("\",\"title\":\"Event ").append(i)
+                    .append("\",\"maxTicketCapacity\":").append(100 + i % 1000)
+                    .append(",\"totalTickets\":").append(100 + i % 1000)
+                    .append(",\"price\":").append(10 + i % 500).append('}');
+        }
+        json.append(']');
+        configurations = new Gson().fromJson(json.toString(), new TypeToken<List<Configuration>>() {}.getType());
+        repository = new ConfigurationRepository(configurations);
+    }
+
+    @Benchmark
+    public Configuration scanById() {
+        int ticketId = nextTicketId();
+        return configurations.stream()
+                .filter(config -> config.getEventTicketId() == ticketId)
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Benchmark
+    public ConfigurationView findById() {
+        return repository.findById(nextTicketId());
+    }
+
+    @Benchmark
+    public List<ConfigurationView> findByTitle() {
+        return repository.findByTitle("Event " + nextTicketId());
+    }
+
+    @Benchmark
+    public List<ConfigurationView> findByPriceRange() {
+        double minPrice = 10 + nextTicketId() % 490;
+        return repository.findByPriceRange(minPrice, minPrice + 10);
+    }
+
+    private int nextTicketId() {
+        return nextLookup++ % configurationCount + 1;
+    }
+}
@@ -0,0 +1,77 @@
+package com.realtime.ticketing.benchmark;
+
+import com.realtime.ticketing.model.JournalDurability;
+import com.realtime.ticketing.model.TicketJournal;
+import com.realtime.ticketing.model.TicketPool;
+import com.realtime.ticketing.model.TicketPoolEngineType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures a release followed by a purchase on a journaled {@link TicketPool}, to show what each
+ * {@link JournalDurability} level adds to the sale path. {@code NONE} runs without a journal.
+ *
+ * <p>The journal is written to a temporary directory, so the results depend on the disk behind it.
+ * Run with {@code -t} greater than 1 to see group commit share flushes between threads.</p>
+ *
+ * @author Dharshan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dticketing.log.level=OFF"})
+public class JournalBenchmark {
+
+    @Param({"NONE", "ASYNC", "GROUP_COMMIT", "SYNC"})
+    public JournalDurability durability;
+
+    private Path directory;
+    private TicketJournal journal;
+    private TicketPool ticketPool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ticketPool = new TicketPool(1, "Benchmark Vendor", 100_000, Integer.MAX_VALUE, 1, 1, "Benchmark", TicketPoolEngineType.RING_BUFFER);
+        if (durability != JournalDurability.NONE) {
+            directory = Files.createTempDirectory("ticket-journal");
+            journal = TicketJournal.open(directory, 1, durability);
+            ticketPool.attachJournal(journal);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (journal != null) {
+            journal.close(true);
+            try (Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public int releaseThenPurchase() {
+        ticketPool.addTickets(1);
+        return ticketPool.purchaseTicket().length;
+    }
+}
@@ -0,0 +1,70 @@
+package com.realtime.ticketing.benchmark;
+
+import com.realtime.ticketing.model.Customer;
+import com.realtime.ticketing.model.TicketPool;
+import com.realtime.ticketing.model.Vendor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a single {@link Vendor#releaseTickets()} and {@link Customer#retrieveTickets()} step, which is
+ * what each participant does once per interval, including the participants' own bookkeeping.
+ *
+ * <p>Vendors and customers run on separate threads; scale them with {@code -tg vendors,customers}.</p>
+ *
+ * @author Dharshan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dticketing.log.level=OFF"})
+public class ParticipantBenchmark {
+
+    @Param({"1", "10"})
+    public int rate;
+
+    private Vendor vendor;
+    private Customer customer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        TicketPool ticketPool = new TicketPool("Benchmark Vendor", 100_000, Integer.MAX_VALUE, rate, rate, "Benchmark");
+        vendor = new Vendor("Vendor-1", ticketPool, rate, 1);
+        customer = new Customer("Customer-1", ticketPool, rate, 1);
+
+        // Start half full so that both sides succeed from the first invocation
+        while (ticketPool.getTicketPoolSize() + rate <= 50_000) {
+            vendor.releaseTickets();
+        }
+    }
+
+    @Benchmark
+    @Group("participants")
+    @GroupThreads(1)
+    public int vendorRelease() {
+        return vendor.releaseTickets();
+    }
+
+    @Benchmark
+    @Group("participants")
+    @GroupThreads(1)
+    public int customerRetrieve() {
+        return customer.retrieveTickets();
+    }
+}
@@ -0,0 +1,80 @@
+package com.realtime.ticketing.benchmark;
+
+import com.realtime.ticketing.model.TicketPool;
+import com.realtime.ticketing.model.TicketPoolEngineType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link TicketPool#addTickets} and {@link TicketPool#purchaseTicket} for every pool engine
+ * across pool sizes from 100 to 10 million tickets.
+ *
+ * <p>The pool starts half full and has an effectively unlimited ticket budget, so releases and purchases
+ * keep succeeding for the whole run. {@code releaseAndPurchase} runs vendors and customers on separate
+ * threads; scale them with {@code -tg vendors,customers}. {@code releaseThenPurchase} does both on one
+ * thread; scale it with {@code -t threads}.</p>
+ *
+ * @author Dharshan
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dticketing.log.level=OFF"})
+public class TicketPoolBenchmark {
+
+    @Param({"RING_BUFFER", "SHARDED", "SYNCHRONIZED"})
+    public TicketPoolEngineType engine;
+
+    @Param({"100", "10000", "1000000", "10000000"})
+    public int poolSize;
+
+    @Param({"1", "10"})
+    public int batchSize;
+
+    private TicketPool ticketPool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ticketPool = new TicketPool("Benchmark Vendor", poolSize, Integer.MAX_VALUE, batchSize, batchSize, "Benchmark", engine);
+
+        // Start half full so that both releases and purchases succeed from the first invocation
+        for (int released = 0; released + batchSize <= poolSize / 2; released += batchSize) {
+            ticketPool.addTickets(batchSize);
+        }
+    }
+
+    @Benchmark
+    @Group("releaseAndPurchase")
+    @GroupThreads(1)
+    public int release() {
+        return ticketPool.addTickets(batchSize);
+    }
+
+    @Benchmark
+    @Group("releaseAndPurchase")
+    @GroupThreads(1)
+    public long[] purchase() {
+        return ticketPool.purchaseTicket();
+    }
+
+    @Benchmark
+    public int releaseThenPurchase() {
+        return ticketPool.addTickets(batchSize) + ticketPool.purchaseTicket().length;
+    }
+}
@@ -1,5 +1,6 @@
 package com.realtime.ticketing;
 
+import com.realtime.ticketing.controller.HeadlessRunner;
 import com.realtime.ticketing.controller.MenuManager;
 
 /**
@@ -12,11 +13,17 @@ public class TicketingApplication {
     /**
      * Main method of the ticketing application.
      * <p>This method serves as the entry point of the application. It initializes the MenuManager
-     * and starts the menu system which handles user input and controls the flow of the application.</p>
+     * and starts the menu system which handles user input and controls the flow of the application.
+     * When arguments are given, it runs a load test with the {@link HeadlessRunner} instead and exits.</p>
      *
-     * @param args Command-line arguments, not used in this application.
+     * @param args Command-line arguments describing a load test, or none for the interactive menu.
      */
     public static void main(String[] args) {
+        // Any arguments describe a load test, which runs without the menu
+        if (args.length > 0) {
+            System.exit(HeadlessRunner.run(args));
+        }
+
         // Instantiate the MenuManager to handle user interaction and menu logic
         MenuManager menuManager = new MenuManager();
 
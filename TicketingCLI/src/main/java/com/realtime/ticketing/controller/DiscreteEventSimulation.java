@@ -0,0 +1,492 @@
+package com.realtime.ticketing.controller;
+
+import com.realtime.ticketing.model.ArrivalProcess;
+import com.realtime.ticketing.model.Configuration;
+import com.realtime.ticketing.model.Customer;
+import com.realtime.ticketing.model.HandoffMode;
+import com.realtime.ticketing.model.TicketPool;
+import com.realtime.ticketing.model.TicketPoolMetrics;
+import com.realtime.ticketing.model.Vendor;
+import com.realtime.ticketing.model.WaitingRoom;
+import com.realtime.ticketing.util.DiscreteEventScheduler;
+import com.realtime.ticketing.util.LatencyHistogram;
+import com.realtime.ticketing.util.TokenBucket;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Simulates an event's on-sale on a virtual clock instead of with running threads, so that it finishes in a
+ * fraction of the time it would take for real and gives the same result every time it is run with the same seed.
+ *
+ * <p>The simulation drives the same {@link TicketPool}, {@link Vendor} and {@link Customer} code as
+ * {@link EventSimulation}, but from a single thread and a {@link DiscreteEventScheduler}: each vendor release and
+ * customer purchase is an action due one interval after the previous one, and the clock jumps from one action to
+ * the next. As with the token buckets of a live simulation, intervals shorter than
+ * {@link TokenBucket#MIN_INTERVAL_NANOS} are paced at that minimum. The pool reads the virtual clock, so its
+ * release-to-sale latencies are in simulated time. The seed sets when within its first interval each vendor and
+ * customer first acts, standing in for the uneven start of real threads.</p>
+ *
+ * <p>The execution mode of the {@link SimulationOptions} does not apply, since nothing runs on threads. With
+ * {@link HandoffMode#BLOCKING}, a vendor waits for room in the pool and a customer for a ticket before acting, as
+ * they do on threads, instead of trying again after their interval.</p>
+ *
+ * <p>Given an {@link ArrivalProcess}, the configured customers are replaced by customers who arrive over time,
+ * each wanting one purchase of the configured retrieval rate. An arriving customer tries to buy straight away and,
+ * while the pool is empty, tries again every retrieval interval, or waits for a release with blocking hand-off,
+ * then leaves once served. The simulation records how long each customer waited to be served, how often a customer
+ * was served while someone who arrived earlier was still waiting, and a second-by-second timeline of arrivals and
+ * sales, so that the opening rush can be studied rather than the steady state.</p>
+ *
+ * <p>With a number of admitted purchasers in the {@link SimulationOptions}, customers queue in a
+ * {@link WaitingRoom} on the virtual clock and only buy once admitted, leaving the room after each purchase and
+ * queuing again for the next. A queued customer checks for its turn every retrieval interval, or, with blocking
+ * hand-off, is woken when admitted.</p>
+ *
+ * <p>The simulation ends when every ticket is sold, when no vendor can release another ticket and the pool is
+ * empty, when a finite arrival process has no customers left to arrive or serve, or when the given length of
+ * virtual time has passed.</p>
+ *
+ * @author Dharshan
+ */
+public class DiscreteEventSimulation {
+    // The counts kept per second of the arrival timeline
+    private static final int ARRIVED = 0;
+    private static final int SERVED = 1;
+    private static final int SOLD = 2;
+    private static final int EMPTY = 3;
+
+    private final Configuration configuration;
+    private final HandoffMode handoffMode;
+    private final long seed;
+    private final DiscreteEventScheduler scheduler = new DiscreteEventScheduler();
+    private final TicketPool ticketPool;
+
+    private final List<Participant> vendors = new ArrayList<>();
+    private final List<Participant> customers = new ArrayList<>();
+    // Vendors and customers waiting for the pool to change, with blocking hand-off
+    private final Deque<Participant> waitingVendors = new ArrayDeque<>();
+    private final Deque<Participant> waitingCustomers = new ArrayDeque<>();
+    // Customers queued in the waiting room, if there is one, by queue number
+    private final WaitingRoom waitingRoom;
+    private final PriorityQueue<Participant> queuedCustomers =
+            new PriorityQueue<>(Comparator.comparingLong(participant -> participant.queueNumber));
+    private int retiredVendors = 0;
+    private long releaseAttempts = 0;
+    private long purchaseAttempts = 0;
+    private boolean started = false;
+
+    // Customers arriving over time, in place of the configured customers, if an arrival process is given
+    private final ArrivalProcess arrivalProcess;
+    private PrimitiveIterator.OfLong arrivals;
+    private boolean arrivalsExhausted = false;
+    private int customersArrived = 0;
+    private long customersServed = 0;
+    private long fifoViolations = 0;
+    // One bit per arrival, set while that customer waits; every bit below the cursor is clear
+    private final BitSet waitingArrivals = new BitSet();
+    private int oldestWaitingCursor = 0;
+    private final LatencyHistogram customerWait = new LatencyHistogram();
+    // Per virtual second: arrivals, customers served, tickets sold and purchases that found the pool empty
+    private final List<long[]> timeline = new ArrayList<>();
+
+    /**
+     * Creates a simulation of the given configuration with its steady customers. Nothing happens until
+     * {@link #run} is called.
+     *
+     * @param configuration the event configuration to simulate
+     * @param options       the hand-off mode and pool engine to simulate with
+     * @param seed          the seed for the vendors' and customers' start times
+     * @throws IllegalArgumentException if the configuration's values are invalid
+     */
+    public DiscreteEventSimulation(Configuration configuration, SimulationOptions options, long seed) {
+        this(configuration, options, seed, null);
+    }
+
+    /**
+     * Creates a simulation of the given configuration, with customers arriving as the given process describes.
+     * Nothing happens until {@link #run} is called.
+     *
+     * @param configuration  the event configuration to simulate
+     * @param options        the hand-off mode and pool engine to simulate with
+     * @param seed           the seed for the vendors' start times and the arrivals
+     * @param arrivalProcess when customers arrive, or null for the configuration's steady customers
+     * @throws IllegalArgumentException if the configuration's values are invalid
+     */
+    public DiscreteEventSimulation(Configuration configuration, SimulationOptions options, long seed,
+                                   ArrivalProcess arrivalProcess) {
+        this.configuration = configuration;
+        this.arrivalProcess = arrivalProcess;
+        this.handoffMode = options.handoffMode();
+        this.seed = seed;
+        this.ticketPool = new TicketPool(
+                configuration.getEventTicketId(),
+                configuration.getVendorName(),
+                configuration.getMaxTicketCapacity(),
+                configuration.getTotalTickets(),
+                configuration.getTicketReleaseRate(),
+                configuration.getCustomerRetrievalRate(),
+                configuration.getTitle(),
+                options.engineType()
+        );
+        ticketPool.useClock(scheduler::now);
+        // A virtual second holds thousands of releases and purchases; logging each would dwarf the simulation
+        ticketPool.useQuietLogging();
+        // Kept out of the pool, so that the simulation rather than each customer does the queuing
+        waitingRoom = options.admittedPurchasers() > 0 ? new WaitingRoom(options.admittedPurchasers(), scheduler::now) : null;
+
+        for (int i = 1; i <= configuration.getVendorCount(); i++) {
+            Vendor vendor = new Vendor("Vendor-" + i, ticketPool, configuration.getTicketReleaseRate(),
+                    configuration.getTicketReleaseInterval(), handoffMode);
+            vendors.add(new Participant(true, vendor::releaseTickets, configuration.getTicketReleaseInterval()));
+        }
+        for (int i = 1; arrivalProcess == null && i <= configuration.getCustomerCount(); i++) {
+            Customer customer = new Customer("Customer-" + i, ticketPool, configuration.getCustomerRetrievalRate(),
+                    configuration.getCustomerRetrievalInterval(), handoffMode);
+            customers.add(new Participant(false, customer::retrieveTickets, configuration.getCustomerRetrievalInterval()));
+        }
+    }
+
+    /**
+     * Runs the simulation to its end. A simulation can only be run once.
+     *
+     * @param maxVirtualNanos the most virtual time to simulate, in nanoseconds
+     * @return the outcome of the simulation
+     * @throws IllegalStateException if the simulation has already been run
+     */
+    public Result run(long maxVirtualNanos) {
+        if (started) {
+            throw new IllegalStateException("A discrete-event simulation can only be run once.");
+        }
+        started = true;
+        long wallStartNanos = System.nanoTime();
+
+        // Spread the first actions over the first interval, in an order set by the seed alone
+        Random random = new Random(seed);
+        for (Participant participant : vendors) {
+            schedule(participant, (long) (random.nextDouble() * participant.intervalNanos));
+        }
+        for (Participant participant : customers) {
+            schedule(participant, (long) (random.nextDouble() * participant.intervalNanos));
+        }
+        if (arrivalProcess != null) {
+            // A stream of its own, so the arrivals do not change with the number of vendors
+            arrivals = arrivalProcess.arrivals(new Random(~seed));
+            scheduleNextArrival();
+        }
+        scheduler.run(maxVirtualNanos, () -> ticketPool.isSimulationComplete() || isStalled()
+                || (arrivalsExhausted && customersServed == customersArrived));
+
+        TicketPoolMetrics metrics = ticketPool.getMetrics();
+        return new Result(configuration.getEventTicketId(), seed, ticketPool.isSimulationComplete(), scheduler.now(),
+                ticketPool.getTicketsSold(), ticketPool.getTotalTickets(), metrics.getTicketsReleased(),
+                releaseAttempts, purchaseAttempts, metrics.getEmptyPoolRejections(), metrics.getFullPoolRejections(),
+                ticketPool.getReleaseToSaleLatency(), arrivalProcess == null ? null : arrivalStats(), waitingRoom,
+                scheduler.getActionsRun(), System.nanoTime() - wallStartNanos);
+    }
+
+    private void scheduleNextArrival() {
+        if (arrivals.hasNext()) {
+            scheduler.scheduleAt(arrivals.nextLong(), this::arrive);
+        } else {
+            arrivalsExhausted = true;
+        }
+    }
+
+    // A customer arrives, tries to buy straight away, and stays until served
+    private void arrive() {
+        if (ticketPool.isSimulationComplete()) {
+            return;
+        }
+        Participant customer = new Participant(false, () -> ticketPool.purchaseTicket(configuration.getCustomerRetrievalRate()).length,
+                configuration.getCustomerRetrievalInterval());
+        customer.arrivalNumber = customersArrived++;
+        customer.arrivalNanos = scheduler.now();
+        waitingArrivals.set(customer.arrivalNumber);
+        secondAt(scheduler.now())[ARRIVED]++;
+
+        scheduleNextArrival();
+        act(customer);
+    }
+
+    private void serve(Participant customer) {
+        customersServed++;
+        customerWait.record(scheduler.now() - customer.arrivalNanos);
+        secondAt(scheduler.now())[SERVED]++;
+
+        int oldestWaiting = waitingArrivals.nextSetBit(oldestWaitingCursor);
+        if (oldestWaiting < customer.arrivalNumber) {
+            fifoViolations++; // Someone who arrived earlier is still waiting
+        }
+        oldestWaitingCursor = oldestWaiting;
+        waitingArrivals.clear(customer.arrivalNumber);
+    }
+
+    // The timeline entry for the virtual second holding the given time
+    private long[] secondAt(long nanos) {
+        int second = (int) TimeUnit.NANOSECONDS.toSeconds(nanos);
+        while (timeline.size() <= second) {
+            timeline.add(new long[4]);
+        }
+        return timeline.get(second);
+    }
+
+    private ArrivalStats arrivalStats() {
+        List<Second> seconds = new ArrayList<>(timeline.size());
+        long waiting = 0;
+        for (int second = 0; second < timeline.size(); second++) {
+            long[] counts = timeline.get(second);
+            waiting += counts[ARRIVED] - counts[SERVED];
+            seconds.add(new Second(second, counts[ARRIVED], counts[SERVED], counts[SOLD], counts[EMPTY], waiting));
+        }
+        return new ArrivalStats(arrivalProcess.describe(), customersArrived, customersServed,
+                customersArrived - customersServed, fifoViolations, customerWait, seconds);
+    }
+
+    private void schedule(Participant participant, long delayNanos) {
+        scheduler.schedule(delayNanos, () -> act(participant));
+    }
+
+    private void act(Participant participant) {
+        if (ticketPool.isSimulationComplete()) {
+            return;
+        }
+        if (participant.vendor && !canRelease()) {
+            retiredVendors++; // Releases are all-or-nothing, so this vendor has nothing left to do
+            return;
+        }
+
+        if (waitingRoom != null && !participant.vendor && !isAdmitted(participant)) {
+            if (handoffMode == HandoffMode.BLOCKING) {
+                queuedCustomers.add(participant); // Woken when its turn comes
+            } else {
+                schedule(participant, participant.intervalNanos);
+            }
+            return;
+        }
+
+        if (handoffMode == HandoffMode.BLOCKING && !canAct(participant.vendor)) {
+            // Wait for the other side to change the pool instead of trying again after the interval
+            (participant.vendor ? waitingVendors : waitingCustomers).add(participant);
+            return;
+        }
+
+        participant.lastActionNanos = scheduler.now();
+        if (participant.vendor) {
+            releaseAttempts++;
+        } else {
+            purchaseAttempts++;
+        }
+        int done = participant.action.getAsInt();
+        if (participant.arrivalNumber >= 0) {
+            long[] second = secondAt(scheduler.now());
+            if (done > 0) {
+                second[SOLD] += done;
+            } else {
+                second[EMPTY]++;
+            }
+        }
+        if (done > 0) {
+            wakeAll(!participant.vendor);
+            if (waitingRoom != null && !participant.vendor) {
+                waitingRoom.leave(participant.queueNumber);
+                participant.queueNumber = -1; // The next purchase queues again
+                admitQueued();
+            }
+            if (participant.arrivalNumber >= 0) {
+                serve(participant);
+                return; // An arriving customer leaves once served
+            }
+        }
+        schedule(participant, participant.intervalNanos);
+    }
+
+    // Queues a customer in the waiting room unless it is already queued, and checks whether it has been admitted
+    private boolean isAdmitted(Participant customer) {
+        if (customer.queueNumber < 0) {
+            customer.queueNumber = waitingRoom.join();
+        }
+        return waitingRoom.isAdmitted(customer.queueNumber);
+    }
+
+    // Wakes the queued customers whose turn has come, no sooner than their interval allows
+    private void admitQueued() {
+        Participant customer;
+        while ((customer = queuedCustomers.peek()) != null && waitingRoom.isAdmitted(customer.queueNumber)) {
+            Participant admitted = queuedCustomers.poll();
+            scheduler.scheduleAt(admitted.lastActionNanos + admitted.intervalNanos, () -> act(admitted));
+        }
+    }
+
+    // Whether the pool has room for a release, for a vendor, or a ticket to sell, for a customer
+    private boolean canAct(boolean vendor) {
+        int poolSize = ticketPool.getTicketPoolSize();
+        return vendor ? configuration.getMaxTicketCapacity() - poolSize >= configuration.getTicketReleaseRate() : poolSize > 0;
+    }
+
+    // Wakes the waiting vendors or customers if they can act now, in the order they started waiting, each no
+    // sooner than its interval allows
+    private void wakeAll(boolean vendors) {
+        Deque<Participant> waiting = vendors ? waitingVendors : waitingCustomers;
+        if (waiting.isEmpty() || !canAct(vendors)) {
+            return;
+        }
+        Participant participant;
+        while ((participant = waiting.poll()) != null) {
+            Participant woken = participant;
+            scheduler.scheduleAt(woken.lastActionNanos + woken.intervalNanos, () -> act(woken));
+        }
+    }
+
+    // A release must fit in the pool and in the tickets left to release, since it is all-or-nothing
+    private boolean canRelease() {
+        long remaining = (long) ticketPool.getTotalTickets() - ticketPool.getMetrics().getTicketsReleased();
+        int releaseRate = configuration.getTicketReleaseRate();
+        return remaining >= releaseRate && releaseRate <= configuration.getMaxTicketCapacity();
+    }
+
+    // Nothing can be sold any more: no vendor can release and the pool is empty
+    private boolean isStalled() {
+        return retiredVendors == vendors.size() && ticketPool.getTicketPoolSize() == 0;
+    }
+
+    /**
+     * Returns the ticket pool being simulated.
+     *
+     * @return the ticket pool
+     */
+    public TicketPool getTicketPool() {
+        return ticketPool;
+    }
+
+    // A vendor or customer, acting once per interval
+    private static final class Participant {
+        private final boolean vendor;
+        private final IntSupplier action;
+        private final long intervalNanos;
+        private long lastActionNanos;
+        // Set for a customer from an arrival process, who leaves once served
+        private int arrivalNumber = -1;
+        private long arrivalNanos;
+        // The customer's number in the waiting room, or -1 if it is not queued
+        private long queueNumber = -1;
+
+        private Participant(boolean vendor, IntSupplier action, int intervalMillis) {
+            this.vendor = vendor;
+            this.action = action;
+            this.intervalNanos = Math.max(TokenBucket.MIN_INTERVAL_NANOS, TimeUnit.MILLISECONDS.toNanos(intervalMillis));
+        }
+    }
+
+    /**
+     * The outcome of a discrete-event simulation. Times are in virtual time unless named otherwise.
+     *
+     * @param eventTicketId         the ID of the simulated event
+     * @param seed                  the seed the simulation was run with
+     * @param soldOut               true if every ticket was sold
+     * @param virtualNanos          the virtual time simulated: the time to sell out, if the event sold out
+     * @param ticketsSold           the tickets sold
+     * @param totalTickets          the tickets the event had for sale
+     * @param ticketsReleased       the tickets released into the pool
+     * @param releaseAttempts       the releases vendors tried, including those rejected
+     * @param purchaseAttempts      the purchases customers tried, including those rejected
+     * @param emptyPoolRejections   purchases that found the pool empty
+     * @param fullPoolRejections    releases that found the pool full
+     * @param releaseToSaleLatency  the time between each ticket being released and sold
+     * @param arrivalStats          how arriving customers fared, or null if the configuration's customers were used
+     * @param waitingRoom           the waiting room customers queued in, or null if there was none
+     * @param actionsRun            the releases and purchases simulated
+     * @param wallNanos             the real time the simulation took
+     */
+    public record Result(int eventTicketId, long seed, boolean soldOut, long virtualNanos, int ticketsSold,
+                         int totalTickets, long ticketsReleased, long releaseAttempts, long purchaseAttempts,
+                         long emptyPoolRejections, long fullPoolRejections,
+                         LatencyHistogram releaseToSaleLatency, ArrivalStats arrivalStats,
+                         WaitingRoom waitingRoom, long actionsRun, long wallNanos) {
+
+        /**
+         * Returns the virtual time simulated.
+         *
+         * @return the virtual time in seconds
+         */
+        public double virtualSeconds() {
+            return virtualNanos / 1_000_000_000.0;
+        }
+
+        /**
+         * Returns the average rate tickets were sold at over the virtual time simulated.
+         *
+         * @return tickets sold per virtual second
+         */
+        public double ticketsSoldPerSecond() {
+            return ticketsSold / Math.max(virtualSeconds(), 1e-9);
+        }
+
+        /**
+         * Returns the share of release attempts that found the pool full.
+         *
+         * @return the ratio, between 0 and 1
+         */
+        public double poolFullRatio() {
+            return releaseAttempts == 0 ? 0 : (double) fullPoolRejections / releaseAttempts;
+        }
+
+        /**
+         * Returns the share of purchase attempts that found the pool empty.
+         *
+         * @return the ratio, between 0 and 1
+         */
+        public double poolEmptyRatio() {
+            return purchaseAttempts == 0 ? 0 : (double) emptyPoolRejections / purchaseAttempts;
+        }
+    }
+
+    /**
+     * How the customers of an arrival process fared. Wait times are from a customer's arrival to the purchase that
+     * served them, in virtual time.
+     *
+     * @param arrivalProcess   the arrival process, as described by {@link ArrivalProcess#describe()}
+     * @param customersArrived the customers who arrived
+     * @param customersServed  the customers who bought their tickets
+     * @param customersWaiting the customers still waiting when the simulation ended
+     * @param fifoViolations   customers served while someone who arrived before them was still waiting
+     * @param waitTime         the time each served customer waited
+     * @param timeline         what happened in each virtual second, from the opening of the sale
+     */
+    public record ArrivalStats(String arrivalProcess, long customersArrived, long customersServed,
+                               long customersWaiting, long fifoViolations, LatencyHistogram waitTime,
+                               List<Second> timeline) {
+
+        /**
+         * Returns the share of served customers who were served ahead of someone who arrived before them.
+         *
+         * @return the ratio, between 0 and 1
+         */
+        public double fifoViolationRatio() {
+            return customersServed == 0 ? 0 : (double) fifoViolations / customersServed;
+        }
+    }
+
+    /**
+     * One second of an arrival timeline.
+     *
+     * @param second              the second since the sale opened
+     * @param arrivals            the customers who arrived
+     * @param customersServed     the customers who bought their tickets
+     * @param ticketsSold         the tickets sold to arriving customers
+     * @param emptyPoolRejections the purchases that found the pool empty
+     * @param customersWaiting    the customers waiting at the end of the second
+     */
+    public record Second(int second, long arrivals, long customersServed, long ticketsSold,
+                         long emptyPoolRejections, long customersWaiting) {
+    }
+}
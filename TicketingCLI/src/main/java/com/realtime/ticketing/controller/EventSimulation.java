@@ -0,0 +1,431 @@
+package com.realtime.ticketing.controller;
+
+import com.realtime.ticketing.model.Configuration;
+import com.realtime.ticketing.model.ConfigurationView;
+import com.realtime.ticketing.model.Customer;
+import com.realtime.ticketing.model.HandoffMode;
+import com.realtime.ticketing.model.JournalDurability;
+import com.realtime.ticketing.model.TicketJournal;
+import com.realtime.ticketing.model.TicketPool;
+import com.realtime.ticketing.model.Vendor;
+import com.realtime.ticketing.model.WaitingRoom;
+import com.realtime.ticketing.util.RateScheduler;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A single running event simulation: one {@link TicketPool} together with the vendors and customers
+ * working against it. Simulations are created and tracked by {@link EventSimulationManager}, which runs
+ * many of them side by side.
+ *
+ * <p>A simulation shuts its workers down as soon as its pool's completion future fires, so nothing keeps
+ * running after the last ticket is sold. {@link #getTermination()} completes once every worker has stopped.</p>
+ *
+ * <p>While it runs, the pool's metrics are published over JMX as
+ * {@code com.realtime.ticketing:type=TicketPool,event=<Event Ticket ID>}.</p>
+ *
+ * <p>Unless the {@code ticketing.journal.durability} system property is {@code NONE}, every release and sale is
+ * written to the event's {@link TicketJournal}. A simulation created for an event whose last sale was cut short
+ * by a crash, or {@link #suspend() suspended}, resumes that sale; one that is stopped or sells out finishes its journal.</p>
+ *
+ * <p>{@link #applyConfiguration} changes the release and retrieval rates and intervals of a running simulation
+ * without restarting it, so the pool, the journal and the sales so far are kept. The other settings only take
+ * effect the next time the event is simulated.</p>
+ *
+ * @author Dharshan
+ */
+public class EventSimulation {
+    private final Configuration configuration;
+    private final SimulationOptions options;
+    private final TicketPool ticketPool;
+    private final TicketJournal journal;
+
+    private final List<Vendor> vendors = new ArrayList<>();
+    private final List<Customer> customers = new ArrayList<>();
+
+    // Workers either run on their own threads or as paced tasks on the shared rate scheduler
+    private ExecutorService workerExecutor;
+    private final List<RateScheduler.PacedTask> scheduledWorkers = new ArrayList<>();
+    private ScheduledFuture<?> reservationSweep;
+
+    // The rates and intervals in effect, which start as the configuration's and change with applyConfiguration
+    private int ticketReleaseRate;
+    private int customerRetrievalRate;
+    private int ticketReleaseInterval;
+    private int customerRetrievalInterval;
+
+    private long startNanos;
+    private volatile boolean active = false;
+    private boolean stopped = false; // Guarded by this; set once, whether or not the simulation was started
+    private final CompletableFuture<EventSimulation> termination = new CompletableFuture<>();
+
+    private ObjectName metricsName;
+
+    // How often expired reservations are put back into the pool
+    private static final long RESERVATION_SWEEP_MS = 100;
+
+    // Longest time stop() waits for worker threads to exit after interrupting them
+    private static final long WORKER_SHUTDOWN_TIMEOUT_MS = 5000;
+
+    /**
+     * Creates a simulation for the given configuration. Nothing runs until {@link #start} is called.
+     *
+     * @param configuration the event configuration to simulate
+     * @param options       how vendors and customers are run
+     * @throws IllegalArgumentException if blocking hand-off is combined with the shared scheduler
+     */
+    public EventSimulation(Configuration configuration, SimulationOptions options) {
+        if (!options.executionMode().usesDedicatedThreads() && options.handoffMode() == HandoffMode.BLOCKING) {
+            // Blocking waits would tie up the bounded scheduler that every event shares
+            throw new IllegalArgumentException("Blocking hand-off needs dedicated threads; it cannot run on the shared scheduler.");
+        }
+        this.configuration = configuration;
+        this.options = options;
+        this.ticketPool = new TicketPool(
+                configuration.getEventTicketId(),
+                configuration.getVendorName(),
+                configuration.getMaxTicketCapacity(),
+                configuration.getTotalTickets(),
+                configuration.getTicketReleaseRate(),
+                configuration.getCustomerRetrievalRate(),
+                configuration.getTitle(),
+                options.engineType()
+        );
+        if (options.admittedPurchasers() > 0) {
+            ticketPool.useWaitingRoom(new WaitingRoom(options.admittedPurchasers()));
+        }
+        this.journal = openJournal();
+        this.ticketReleaseRate = configuration.getTicketReleaseRate();
+        this.customerRetrievalRate = configuration.getCustomerRetrievalRate();
+        this.ticketReleaseInterval = configuration.getTicketReleaseInterval();
+        this.customerRetrievalInterval = configuration.getCustomerRetrievalInterval();
+
+        for (int i = 1; i <= configuration.getVendorCount(); i++) {
+            vendors.add(new Vendor("Vendor-" + i, ticketPool, configuration.getTicketReleaseRate(),
+                    configuration.getTicketReleaseInterval(), options.handoffMode()));
+        }
+        for (int i = 1; i <= configuration.getCustomerCount(); i++) {
+            customers.add(new Customer("Customer-" + i, ticketPool, configuration.getCustomerRetrievalRate(),
+                    configuration.getCustomerRetrievalInterval(), options.handoffMode()));
+        }
+    }
+
+    /**
+     * Starts every vendor and customer and reports how long that took.
+     *
+     * @param scheduler the rate scheduler shared by all simulations, used by {@link ExecutionMode#SHARED_SCHEDULER}
+     */
+    public synchronized void start(RateScheduler scheduler) {
+        ExecutionMode executionMode = options.executionMode();
+        long heapBefore = usedHeapBytes();
+        int platformThreadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        active = true;
+        registerMetrics();
+        startNanos = System.nanoTime();
+        if (executionMode.usesDedicatedThreads()) {
+            workerExecutor = executionMode.newExecutor("event-" + getEventTicketId() + "-worker-");
+            vendors.forEach(workerExecutor::execute);
+            customers.forEach(workerExecutor::execute);
+        } else {
+            // Each vendor and customer is woken whenever its pacer has earned a release or purchase
+            vendors.forEach(vendor -> scheduledWorkers.add(scheduler.schedule(vendor.getPacer(), vendor::releaseTickets)));
+            customers.forEach(customer -> scheduledWorkers.add(scheduler.schedule(customer.getPacer(), customer::retrieveTickets)));
+        }
+        // Return the tickets of abandoned reservations to sale
+        reservationSweep = scheduler.getExecutor().scheduleWithFixedDelay(
+                ticketPool::expireReservations, RESERVATION_SWEEP_MS, RESERVATION_SWEEP_MS, TimeUnit.MILLISECONDS);
+        long startupNanos = System.nanoTime() - startNanos;
+
+        System.out.println("Event " + getEventTicketId() + ": ticket pool created with capacity: " + configuration.getMaxTicketCapacity() + ".");
+        System.out.println(vendors.size() + " vendor(s) and " + customers.size() + " customer(s) started.");
+        System.out.printf("%s: startup %.2f ms, heap +%.2f MB, platform threads +%d.%n%n",
+                options.describe(), startupNanos / 1_000_000.0,
+                (usedHeapBytes() - heapBefore) / (1024.0 * 1024.0),
+                ManagementFactory.getThreadMXBean().getThreadCount() - platformThreadsBefore);
+    }
+
+    /**
+     * Applies the release and retrieval rates and intervals of a changed configuration of this event to the running
+     * simulation. Vendors and customers pick up a new interval at once, whether they wait on their own threads or
+     * on the shared rate scheduler. Settings that cannot change while tickets are on sale, such as
+     * the capacity or the number of vendors, are left as they are until the next simulation.
+     *
+     * @param updated the changed configuration
+     * @return true if any rate or interval changed
+     * @throws IllegalArgumentException if the configuration is for another event
+     */
+    public synchronized boolean applyConfiguration(ConfigurationView updated) {
+        if (updated.getEventTicketId() != getEventTicketId()) {
+            throw new IllegalArgumentException("Configuration " + updated.getEventTicketId()
+                    + " cannot be applied to the simulation of event " + getEventTicketId() + ".");
+        }
+        if (!active) {
+            return false;
+        }
+        if (updated.getTicketReleaseRate() <= 0 || updated.getCustomerRetrievalRate() <= 0
+                || updated.getTicketReleaseInterval() < 0 || updated.getCustomerRetrievalInterval() < 0) {
+            System.err.println("Event " + getEventTicketId() + ": rates must be greater than 0 and intervals not negative; the running simulation was not changed.");
+            return false;
+        }
+
+        boolean ratesChanged = updated.getTicketReleaseRate() != ticketReleaseRate
+                || updated.getCustomerRetrievalRate() != customerRetrievalRate;
+        boolean intervalsChanged = updated.getTicketReleaseInterval() != ticketReleaseInterval
+                || updated.getCustomerRetrievalInterval() != customerRetrievalInterval;
+        if (!ratesChanged && !intervalsChanged) {
+            return false;
+        }
+
+        ticketReleaseRate = updated.getTicketReleaseRate();
+        customerRetrievalRate = updated.getCustomerRetrievalRate();
+        ticketReleaseInterval = updated.getTicketReleaseInterval();
+        customerRetrievalInterval = updated.getCustomerRetrievalInterval();
+        ticketPool.setRates(ticketReleaseRate, customerRetrievalRate);
+        vendors.forEach(vendor -> {
+            vendor.setReleaseRate(ticketReleaseRate);
+            vendor.setReleaseInterval(ticketReleaseInterval);
+        });
+        customers.forEach(customer -> {
+            customer.setRetrievalRate(customerRetrievalRate);
+            customer.setRetrievalInterval(customerRetrievalInterval);
+        });
+        if (intervalsChanged) {
+            // A paced task sleeps for the wait worked out under the old interval unless it is woken
+            scheduledWorkers.forEach(RateScheduler.PacedTask::wakeUp);
+        }
+
+        System.out.println("Event " + getEventTicketId() + ": now releasing " + ticketReleaseRate + " ticket(s) every "
+                + ticketReleaseInterval + " ms and selling " + customerRetrievalRate + " ticket(s) every "
+                + customerRetrievalInterval + " ms.\n");
+        return true;
+    }
+
+    /**
+     * Stops every vendor and customer of this simulation and waits for their threads to exit.
+     * The ticket pool is interrupted unless it has already sold out, and the sale is finished. A simulation that
+     * was never started is stopped too, which closes the journal it opened.
+     */
+    public void stop() {
+        stop(true);
+    }
+
+    /**
+     * Stops the simulation like {@link #stop()}, but snapshots the sale and keeps its journal so that the
+     * next simulation of the event resumes it.
+     */
+    public void suspend() {
+        stop(false);
+    }
+
+    /**
+     * Snapshots the sale so far, so that resuming it after a crash only replays the journal written since.
+     * Does nothing if the sale is not journaled.
+     */
+    public void checkpoint() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.checkpoint();
+        } catch (IOException e) {
+            System.err.println("Event " + getEventTicketId() + ": could not write a snapshot: " + e.getMessage());
+        }
+    }
+
+    private void stop(boolean finishSale) {
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            active = false;
+        }
+
+        if (!ticketPool.isSimulationComplete()) {
+            ticketPool.interruptSimulation();
+        }
+        synchronized (this) {
+            scheduledWorkers.forEach(RateScheduler.PacedTask::cancel);
+            scheduledWorkers.clear();
+        }
+        if (reservationSweep != null) {
+            reservationSweep.cancel(false);
+        }
+        if (workerExecutor != null) {
+            workerExecutor.shutdownNow();
+            try {
+                if (!workerExecutor.awaitTermination(WORKER_SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    System.err.println("Event " + getEventTicketId() + ": some workers did not stop within "
+                            + WORKER_SHUTDOWN_TIMEOUT_MS + " ms.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        unregisterMetrics();
+        if (journal != null) {
+            // A sale that sold out is finished however it was stopped
+            boolean finished = finishSale || ticketPool.getTicketsSold() >= ticketPool.getTotalTickets();
+            if (!finished) {
+                checkpoint();
+            }
+            journal.close(finished);
+        }
+        termination.complete(this);
+    }
+
+    // Opens the event's journal and resumes any sale it recovered; without a journal the sale is only kept in memory
+    private TicketJournal openJournal() {
+        JournalDurability durability = JournalDurability.configured();
+        if (durability == JournalDurability.NONE) {
+            return null;
+        }
+
+        try {
+            TicketJournal opened = TicketJournal.open(TicketJournal.DEFAULT_DIRECTORY, getEventTicketId(), durability);
+            try {
+                ticketPool.attachJournal(opened);
+            } catch (IllegalStateException e) {
+                // The journal was written for a different configuration of this event; start the sale afresh
+                System.err.println("Event " + getEventTicketId() + ": journal does not match the configuration and was discarded.");
+                opened.close(true);
+                opened = TicketJournal.open(TicketJournal.DEFAULT_DIRECTORY, getEventTicketId(), durability);
+                ticketPool.attachJournal(opened);
+            }
+
+            TicketJournal.RecoveredState recovered = opened.getRecoveredState();
+            if (!recovered.isEmpty()) {
+                System.out.println("Event " + getEventTicketId() + ": resuming an interrupted sale - "
+                        + recovered.ticketsSold() + " ticket(s) already sold, " + recovered.ticketsInPool().length + " in the pool.");
+            }
+            return opened;
+        } catch (IOException e) {
+            System.err.println("Event " + getEventTicketId() + ": could not open the ticket journal, sales will not survive a crash: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void registerMetrics() {
+        try {
+            MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.realtime.ticketing:type=TicketPool,event=" + getEventTicketId());
+            if (!mbeanServer.isRegistered(name)) {
+                mbeanServer.registerMBean(ticketPool.getMetrics(), name);
+                metricsName = name;
+            }
+        } catch (JMException e) {
+            System.err.println("Event " + getEventTicketId() + ": could not publish metrics over JMX: " + e.getMessage());
+        }
+    }
+
+    private void unregisterMetrics() {
+        if (metricsName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+        } catch (JMException e) {
+            System.err.println("Event " + getEventTicketId() + ": could not remove JMX metrics: " + e.getMessage());
+        }
+        metricsName = null;
+    }
+
+    /**
+     * Returns a future that completes with this simulation once all of its workers have stopped.
+     *
+     * @return the termination future
+     */
+    public CompletableFuture<EventSimulation> getTermination() {
+        return termination;
+    }
+
+    /**
+     * Prints the overall and per-participant throughput of this simulation so far.
+     */
+    public void printThroughputReport() {
+        double elapsedSeconds = Math.max((System.nanoTime() - startNanos) / 1_000_000_000.0, 1e-9);
+
+        System.out.println("---------------- Simulation Throughput: Event " + getEventTicketId() + " ----------------");
+        System.out.printf("Elapsed time: %.2f s, tickets sold: %d/%d (%.2f tickets/s)%n",
+                elapsedSeconds, ticketPool.getTicketsSold(), ticketPool.getTotalTickets(), ticketPool.getTicketsSold() / elapsedSeconds);
+        vendors.forEach(vendor -> System.out.printf("  %-16s released %8d ticket(s)  %10.2f tickets/s (target %.2f)%n",
+                vendor.getName(), vendor.getTicketsReleased(), vendor.getTicketsReleased() / elapsedSeconds,
+                vendor.getTargetTicketsPerSecond()));
+        customers.forEach(customer -> System.out.printf("  %-16s purchased %7d ticket(s)  %10.2f tickets/s (target %.2f)%n",
+                customer.getName(), customer.getTicketsPurchased(), customer.getTicketsPurchased() / elapsedSeconds,
+                customer.getTargetTicketsPerSecond()));
+        System.out.println("Release-to-sale latency (" + options.handoffMode().getDescription() + "): "
+                + ticketPool.getReleaseToSaleLatency().summary());
+        WaitingRoom waitingRoom = ticketPool.getWaitingRoom();
+        if (waitingRoom != null) {
+            // The last customer to join waits longest, so its estimate is that of the whole queue
+            long estimateNanos = waitingRoom.estimateWaitNanos(waitingRoom.getJoined() - 1);
+            System.out.printf("Waiting room: %d admitted at once, %d admitted so far, %d waiting (peak %d), "
+                            + "estimated wait at the back %s%n",
+                    waitingRoom.getMaxAdmitted(), waitingRoom.getAdmitted(), waitingRoom.getWaiting(),
+                    waitingRoom.getPeakWaiting(), estimateNanos < 0 ? "unknown" : String.format("%.2f s", estimateNanos / 1_000_000_000.0));
+        }
+        System.out.println("-------------------------------------------------------\n");
+    }
+
+    /**
+     * Returns the ID of the event being simulated.
+     *
+     * @return the event ticket ID
+     */
+    public int getEventTicketId() {
+        return configuration.getEventTicketId();
+    }
+
+    /**
+     * Returns the configuration being simulated.
+     *
+     * @return the event configuration
+     */
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Returns the ticket pool of this simulation.
+     *
+     * @return the ticket pool
+     */
+    public TicketPool getTicketPool() {
+        return ticketPool;
+    }
+
+    /**
+     * Returns how the vendors and customers of this simulation are run.
+     *
+     * @return the simulation options
+     */
+    public SimulationOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Checks whether the simulation is still running.
+     *
+     * @return true until the simulation is stopped
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    static long usedHeapBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -1,19 +1,129 @@
 package com.realtime.ticketing.controller;
 
 import com.realtime.ticketing.model.Configuration;
-import com.realtime.ticketing.model.Customer;
-import com.realtime.ticketing.model.TicketPool;
-import com.realtime.ticketing.model.Vendor;
+import com.realtime.ticketing.model.ConfigurationRepository;
+import com.realtime.ticketing.model.ConfigurationView;
+import com.realtime.ticketing.model.HandoffMode;
+import com.realtime.ticketing.model.JournalDurability;
+import com.realtime.ticketing.model.TicketJournal;
+import com.realtime.ticketing.model.TicketPoolEngineType;
+import com.realtime.ticketing.model.TicketPoolMetrics;
+import com.realtime.ticketing.util.RateScheduler;
+import com.realtime.ticketing.util.TokenBucket;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class EventSimulationManager {
 
-    private volatile boolean simulationActive = false;
+    // Threads in the scheduler shared by every running simulation
+    private static final int SCHEDULER_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    // Running simulations keyed by event ticket ID
+    private final Map<Integer, EventSimulation> simulations = new ConcurrentSkipListMap<>();
+    // Held while a simulation is created, so that two launches of one event cannot both open its journal
+    private final Object launchLock = new Object();
+
+    private final ScheduledExecutorService scheduler =
+            Executors.newScheduledThreadPool(SCHEDULER_THREADS, daemonThreadFactory("simulation-scheduler-"));
+
+    // Paces the vendors and customers of every shared-scheduler simulation on the scheduler's threads
+    private final RateScheduler rateScheduler = new RateScheduler(scheduler);
+
+    // Loopback port of the metrics endpoint; set ticketing.metrics.port to 0 to turn it off
+    private static final int METRICS_PORT = Integer.getInteger("ticketing.metrics.port", 9464);
+
+    private final MetricsHttpServer metricsServer;
+
+    // How often running sales are snapshotted; set ticketing.snapshot.intervalMs to 0 to turn snapshots off
+    private static final long SNAPSHOT_INTERVAL_MS = Long.getLong("ticketing.snapshot.intervalMs", 10_000);
+
+    // Snapshots read and write files, so they get a thread of their own rather than a scheduler thread
+    private final ScheduledExecutorService snapshotWriter =
+            Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("snapshot-writer-"));
+
+    public EventSimulationManager() {
+        metricsServer = startMetricsServer();
+        if (SNAPSHOT_INTERVAL_MS > 0) {
+            snapshotWriter.scheduleWithFixedDelay(this::checkpointSimulations,
+                    SNAPSHOT_INTERVAL_MS, SNAPSHOT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+    }
 
-    private TicketPool ticketPool = null;
+    /**
+     * Restarts the simulation of every event whose last sale did not finish, from its latest snapshot and journal,
+     * with the default simulation options. Events without a configuration are reported and left alone.
+     *
+     * @param configurations the loaded event configurations
+     */
+    public void resumeInterruptedSales(ConfigurationRepository configurations) {
+        if (JournalDurability.configured() == JournalDurability.NONE) {
+            return;
+        }
+        List<Integer> events = TicketJournal.findJournaledEvents(TicketJournal.DEFAULT_DIRECTORY);
+        events.sort(null);
+        for (int ticketId : events) {
+            Configuration configuration = configurations.findConfiguration(ticketId);
+            if (configuration == null) {
+                System.out.println("Event " + ticketId + " has an interrupted sale but no configuration; it was not resumed.\n");
+            } else if (!simulations.containsKey(ticketId)) {
+                System.out.println("Resuming the interrupted sale of Event Ticket ID " + ticketId + ".");
+                launch(configuration, SimulationOptions.defaults());
+            }
+        }
+    }
+
+    /**
+     * Keeps running simulations in step with the configurations: whenever a configuration changes, whether it was
+     * updated from the menu or reloaded from a changed file, the simulation of that event takes on its new rates
+     * and intervals without being restarted.
+     *
+     * @param configurations the loaded event configurations
+     */
+    public void followConfigurationChanges(ConfigurationRepository configurations) {
+        configurations.addListener(snapshot -> simulations.values().forEach(simulation -> {
+            ConfigurationView updated = snapshot.findById(simulation.getEventTicketId());
+            if (updated != null) {
+                try {
+                    simulation.applyConfiguration(updated);
+                } catch (RuntimeException e) {
+                    System.err.println("Event " + simulation.getEventTicketId() + ": could not apply the changed configuration: " + e.getMessage());
+                }
+            }
+        }));
+    }
 
-    public void startSimulation(List<Configuration> configurations, Scanner scanner) {
+    // Snapshots every running sale so that a restart replays at most one interval of journal
+    private void checkpointSimulations() {
+        simulations.values().forEach(EventSimulation::checkpoint);
+    }
+
+    private MetricsHttpServer startMetricsServer() {
+        if (METRICS_PORT <= 0) {
+            return null;
+        }
+        try {
+            return new MetricsHttpServer(METRICS_PORT, simulations::values);
+        } catch (IOException e) {
+            System.err.println("Metrics endpoint not started on port " + METRICS_PORT + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void startSimulation(ConfigurationRepository configurations, Scanner scanner) {
         if (configurations.isEmpty()) {
             System.out.println("No configurations available. Please add or load configurations first.\n");
             return;
@@ -23,78 +133,249 @@ public class EventSimulationManager {
         int ticketId = scanner.nextInt();
         scanner.nextLine();
 
-        Configuration selectedConfig = configurations.stream()
-                .filter(config -> config.getEventTicketId() == ticketId)
-                .findFirst()
-                .orElse(null);
+        Configuration selectedConfig = configurations.findConfiguration(ticketId);
 
         if (selectedConfig == null) {
             System.out.println("Invalid Event Ticket ID. Please try again.\n");
             return;
         }
 
-        if (simulationActive) {
-            System.out.println("A simulation is already running. Please stop it before starting a new one.\n");
+        if (simulations.containsKey(ticketId)) {
+            System.out.println("A simulation for Event Ticket ID " + ticketId + " is already running. Please stop it before starting a new one.\n");
             return;
         }
 
-        initializeSimulation(selectedConfig);
+        launch(selectedConfig, promptForOptions(scanner));
+    }
+
+    private void launch(Configuration configuration, SimulationOptions options) {
+        int ticketId = configuration.getEventTicketId();
+        EventSimulation simulation;
+        synchronized (launchLock) {
+            // Checked before the simulation is created, because creating it opens and recovers the event's journal
+            if (simulations.containsKey(ticketId)) {
+                System.out.println("A simulation for Event Ticket ID " + ticketId + " is already running.\n");
+                return;
+            }
+            simulation = new EventSimulation(configuration, options);
+            simulations.put(ticketId, simulation);
+        }
+        // Shut the simulation down the moment its pool sells out, off the customer thread that sold the last ticket
+        simulation.getTicketPool().getCompletion().thenAcceptAsync(soldOut -> {
+            if (soldOut && simulations.remove(ticketId, simulation)) {
+                simulation.stop();
+                System.out.println("All tickets sold out for Event Ticket ID " + ticketId + ". Ending simulation automatically.\n");
+                simulation.printThroughputReport();
+            }
+        }, scheduler);
+        simulation.start(rateScheduler);
     }
 
-    private void initializeSimulation(Configuration config) {
-        ticketPool = new TicketPool(
-                config.getVendorName(),
-                config.getMaxTicketCapacity(),
-                config.getTotalTickets(),
-                config.getTicketReleaseRate(),
-                config.getCustomerRetrievalRate(),
-                config.getTitle()
-        );
+    private SimulationOptions promptForOptions(Scanner scanner) {
+        System.out.print("Select execution mode (1 = Platform threads, 2 = Virtual threads, 3 = Shared scheduler) [3]: ");
+        ExecutionMode executionMode = switch (scanner.nextLine().trim()) {
+            case "1" -> ExecutionMode.PLATFORM;
+            case "2" -> ExecutionMode.VIRTUAL;
+            default -> ExecutionMode.SHARED_SCHEDULER;
+        };
 
-        System.out.println("Ticket pool created with capacity: " + config.getMaxTicketCapacity() + ".");
-        simulationActive = true;
+        // Blocking waits are only offered to participants that have threads of their own
+        HandoffMode handoffMode = HandoffMode.SLEEP_POLL;
+        if (executionMode.usesDedicatedThreads()) {
+            System.out.print("Select hand-off mode (1 = Sleep and poll, 2 = Blocking hand-off) [1]: ");
+            if (scanner.nextLine().trim().equals("2")) {
+                handoffMode = HandoffMode.BLOCKING;
+            }
+        }
 
-        Thread vendorThread = new Thread(new Vendor(ticketPool, config.getTicketReleaseRate(), config.getTicketReleaseInterval()));
-        Thread customerThread = new Thread(new Customer(ticketPool, config.getCustomerRetrievalRate(), config.getCustomerRetrievalInterval()));
+        System.out.print("Select ticket pool (1 = Ring buffer, 2 = Sharded, 3 = Synchronized) [1]: ");
+        TicketPoolEngineType engineType = switch (scanner.nextLine().trim()) {
+            case "2" -> TicketPoolEngineType.SHARDED;
+            case "3" -> TicketPoolEngineType.SYNCHRONIZED;
+            default -> TicketPoolEngineType.RING_BUFFER;
+        };
 
-        vendorThread.start();
-        customerThread.start();
+        System.out.print("Customers admitted at once through a waiting room (0 = no waiting room) [0]: ");
+        int admittedPurchasers;
+        try {
+            admittedPurchasers = Math.max(0, Integer.parseInt(scanner.nextLine().trim()));
+        } catch (NumberFormatException e) {
+            admittedPurchasers = 0;
+        }
+        return new SimulationOptions(executionMode, handoffMode, engineType, admittedPurchasers);
+    }
 
-        System.out.println("Vendor and Customer threads started.\n");
+    public void stopSimulation(Scanner scanner) {
+        if (simulations.isEmpty()) {
+            System.out.println("No active simulation to stop.\n");
+            return;
+        }
 
-        monitorTicketPool();
+        System.out.print("Enter the Event Ticket ID of the simulation to stop: ");
+        int ticketId = scanner.nextInt();
+        scanner.nextLine();
+
+        EventSimulation simulation = simulations.remove(ticketId);
+        if (simulation == null) {
+            System.out.println("No active simulation for Event Ticket ID " + ticketId + ".\n");
+            return;
+        }
+
+        simulation.stop();
+        System.out.println("Simulation for Event Ticket ID " + ticketId + " stopped successfully.\n");
+        simulation.printThroughputReport();
     }
 
-    private void monitorTicketPool() {
-        new Thread(() -> {
-            while (simulationActive) {
-                try {
-                    Thread.sleep(2000);
+    public void listSimulations() {
+        if (simulations.isEmpty()) {
+            System.out.println("No simulations are running.\n");
+            return;
+        }
 
-                    if (ticketPool != null && ticketPool.getTicketPoolSize() == 0 && !ticketPool.isSimulationComplete()) {
-                        ticketPool.stopSimulation();
-                        simulationActive = false;
-                        System.out.println("All tickets sold out. Ending simulation automatically.\n");
-                    }
-                } catch (InterruptedException e) {
-                    System.err.println("Monitor thread interrupted: " + e.getMessage());
-                }
-            }
-        }).start();
+        System.out.println("Running Simulations:\n");
+        simulations.values().forEach(simulation -> System.out.printf("  Event %-6d %-24s %-36s sold %d/%d, pool %d/%d%n",
+                simulation.getEventTicketId(),
+                simulation.getConfiguration().getTitle(),
+                simulation.getOptions().describe(),
+                simulation.getTicketPool().getTicketsSold(),
+                simulation.getTicketPool().getTotalTickets(),
+                simulation.getTicketPool().getTicketPoolSize(),
+                simulation.getConfiguration().getMaxTicketCapacity()));
+        System.out.println();
     }
 
-    public void stopSimulation() {
-        if (!simulationActive) {
-            System.out.println("No active simulation to stop.\n");
+    public void showLiveStatistics(Scanner scanner) {
+        if (simulations.isEmpty()) {
+            System.out.println("No simulations are running.\n");
+            return;
+        }
+        if (metricsServer != null) {
+            System.out.println("Metrics are also available at http://localhost:" + metricsServer.getPort() + "/metrics and over JMX.");
+        }
+        System.out.println("Live statistics refresh every second. Press Enter to return to the menu.\n");
+
+        ScheduledFuture<?> refresh = scheduler.scheduleAtFixedRate(this::printLiveStatistics, 0, 1, TimeUnit.SECONDS);
+        try {
+            scanner.nextLine();
+        } finally {
+            refresh.cancel(false);
+        }
+    }
+
+    private void printLiveStatistics() {
+        System.out.printf("%-7s %10s %10s %9s %9s %8s %8s %11s %11s %11s%n",
+                "Event", "Released/s", "Sold/s", "Sold", "Pool", "Empty", "Full", "Buy p50 us", "Buy p99 us", "Lock p99 us");
+        simulations.values().forEach(simulation -> {
+            TicketPoolMetrics metrics = simulation.getTicketPool().getMetrics();
+            System.out.printf("%-7d %10.1f %10.1f %9d %8.1f%% %8d %8d %11.1f %11.1f %11.1f%n",
+                    simulation.getEventTicketId(),
+                    metrics.getTicketsReleasedPerSecond(),
+                    metrics.getTicketsSoldPerSecond(),
+                    metrics.getTicketsSold(),
+                    metrics.getPoolOccupancyPercent(),
+                    metrics.getEmptyPoolRejections(),
+                    metrics.getFullPoolRejections(),
+                    metrics.getPurchaseLatencyP50Micros(),
+                    metrics.getPurchaseLatencyP99Micros(),
+                    metrics.getLockWaitP99Micros());
+        });
+        System.out.println();
+    }
+
+    public void shutdown() {
+        // Running sales are suspended rather than finished, so they resume the next time the application starts
+        snapshotWriter.shutdownNow();
+        simulations.values().forEach(EventSimulation::suspend);
+        simulations.clear();
+        scheduler.shutdownNow();
+        if (metricsServer != null) {
+            metricsServer.stop();
+        }
+    }
+
+    public void compareExecutionModes(Scanner scanner) {
+        System.out.print("Enter the number of simulated participants to start in each mode: ");
+        int participants = scanner.nextInt();
+        scanner.nextLine();
+
+        if (participants <= 0) {
+            System.out.println("The number of participants must be greater than 0.\n");
             return;
         }
 
-        simulationActive = false;
+        System.out.println("---------------- Execution Mode Comparison ----------------");
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            if (mode == ExecutionMode.VIRTUAL && !ExecutionMode.isVirtualThreadSupported()) {
+                System.out.println("  " + mode.getDescription() + ": not supported by this Java runtime (needs Java 21).");
+                continue;
+            }
+            measureStartup(mode, participants);
+        }
+        System.out.println("-----------------------------------------------------------\n");
+    }
+
+    // Starts idle participants that wait the way Vendor and Customer do between actions,
+    // and reports how long they took to start and how much memory they hold while waiting.
+    // Threads park until released; paced tasks act once and then wait an hour for their next token.
+    private void measureStartup(ExecutionMode mode, int participants) {
+        CountDownLatch started = new CountDownLatch(participants);
+        CountDownLatch release = new CountDownLatch(1);
+        List<RateScheduler.PacedTask> pacedTasks = new ArrayList<>();
 
-        if (ticketPool != null) {
-            ticketPool.interruptSimulation();
+        System.gc();
+        long heapBefore = EventSimulation.usedHeapBytes();
+        int platformThreadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        long startNanos = System.nanoTime();
+
+        ExecutorService executor = mode.usesDedicatedThreads()
+                ? mode.newExecutor("comparison-" + mode.name().toLowerCase() + "-") : null;
+        try {
+            for (int i = 0; i < participants; i++) {
+                if (executor == null) {
+                    pacedTasks.add(rateScheduler.schedule(new TokenBucket(TimeUnit.HOURS.toNanos(1), 1),
+                            started::countDown));
+                    continue;
+                }
+                executor.execute(() -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            started.await();
+            long startupNanos = System.nanoTime() - startNanos;
+
+            System.out.printf("  %-16s startup %10.2f ms   heap +%8.2f MB   platform threads +%d%n",
+                    mode.getDescription(), startupNanos / 1_000_000.0,
+                    (EventSimulation.usedHeapBytes() - heapBefore) / (1024.0 * 1024.0),
+                    ManagementFactory.getThreadMXBean().getThreadCount() - platformThreadsBefore);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (OutOfMemoryError e) {
+            System.out.println("  " + mode.getDescription() + ": ran out of memory starting " + participants + " participants.");
+        } finally {
+            release.countDown();
+            pacedTasks.forEach(RateScheduler.PacedTask::cancel);
+            if (executor != null) {
+                executor.shutdown();
+                try {
+                    executor.awaitTermination(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
         }
+    }
 
-        System.out.println("Simulation stopped successfully.\n");
+    static ThreadFactory daemonThreadFactory(String threadNamePrefix) {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        return runnable -> {
+            Thread thread = new Thread(runnable, threadNamePrefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 }
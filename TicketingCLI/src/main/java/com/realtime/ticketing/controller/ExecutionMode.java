@@ -0,0 +1,111 @@
+package com.realtime.ticketing.controller;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The ways a simulation can run its Vendor and Customer runnables.
+ *
+ * <p>{@link #PLATFORM} gives every participant its own operating system thread, as the simulation
+ * always did. {@link #VIRTUAL} runs every participant on a virtual thread, so participants that spend
+ * their time sleeping between releases or purchases do not each hold an OS thread. The project still builds for
+ * Java 17, so the virtual thread executor is looked up when the program runs: on a Java 21 or later runtime the
+ * mode uses it, and on an older one it falls back to platform threads, saying so once.
+ * {@link #SHARED_SCHEDULER} runs each release and purchase as a paced task on the bounded
+ * {@link com.realtime.ticketing.util.RateScheduler} shared by every running event, so the number of threads
+ * does not grow with the number of events. In every mode the participants are paced by token buckets.</p>
+ *
+ * @author Dharshan
+ */
+public enum ExecutionMode {
+    PLATFORM("Platform threads"),
+    VIRTUAL("Virtual threads"),
+    SHARED_SCHEDULER("Shared scheduler");
+
+    // The virtual mode's fall-back to platform threads is reported once, not for every simulation
+    private static final AtomicBoolean fallbackReported = new AtomicBoolean();
+
+    private final String description;
+
+    ExecutionMode(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Returns a human-readable description of this mode.
+     *
+     * @return the description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Checks whether this mode gives every participant a thread of its own.
+     *
+     * @return true for the platform and virtual thread modes
+     */
+    public boolean usesDedicatedThreads() {
+        return this != SHARED_SCHEDULER;
+    }
+
+    /**
+     * Creates an executor that runs every submitted task on its own thread of this mode.
+     *
+     * @param threadNamePrefix the prefix used to name platform threads
+     * @return a new thread-per-task executor
+     * @throws IllegalStateException if this mode does not use dedicated threads
+     */
+    public ExecutorService newExecutor(String threadNamePrefix) {
+        if (!usesDedicatedThreads()) {
+            throw new IllegalStateException(description + " does not create dedicated threads.");
+        }
+        if (this == VIRTUAL) {
+            ExecutorService virtualExecutor = newVirtualThreadExecutor();
+            if (virtualExecutor != null) {
+                return virtualExecutor;
+            }
+            if (!fallbackReported.getAndSet(true)) {
+                System.out.println("Virtual threads need Java 21 or later; running on Java " + Runtime.version().feature()
+                        + ", so virtual mode uses platform threads.");
+            }
+        }
+        return Executors.newCachedThreadPool(namedThreadFactory(threadNamePrefix));
+    }
+
+    /**
+     * Checks whether the running JVM supports virtual threads.
+     *
+     * @return true if virtual threads are available
+     */
+    public static boolean isVirtualThreadSupported() {
+        ExecutorService executor = newVirtualThreadExecutor();
+        if (executor == null) {
+            return false;
+        }
+        executor.shutdown();
+        return true;
+    }
+
+    /**
+     * Looks up {@code Executors.newVirtualThreadPerTaskExecutor()} reflectively so the project
+     * still compiles and runs on Java 17.
+     *
+     * @return a virtual thread executor, or null if the runtime does not provide one
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory(String threadNamePrefix) {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        return runnable -> new Thread(runnable, threadNamePrefix + threadNumber.getAndIncrement());
+    }
+}
@@ -0,0 +1,651 @@
+package com.realtime.ticketing.controller;
+
+import com.google.gson.stream.JsonWriter;
+import com.realtime.ticketing.model.Configuration;
+import com.realtime.ticketing.model.ConfigurationStore;
+import com.realtime.ticketing.model.ConfigurationView;
+import com.realtime.ticketing.model.JournalDurability;
+import com.realtime.ticketing.model.TicketPool;
+import com.realtime.ticketing.model.TicketPoolMetrics;
+import com.realtime.ticketing.model.WaitingRoom;
+import com.realtime.ticketing.util.LatencyHistogram;
+import com.realtime.ticketing.util.RateScheduler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs a {@link LoadTestScenario} without the menu, for capacity tests that run unattended.
+ *
+ * <p>Every event in the scenario is simulated at once. After the warm-up, the latency histograms are cleared and
+ * the counters noted, so that the results only cover the measured window that follows. The window ends after the
+ * scenario's duration or once every event has sold out, whichever comes first. The results are then written to the
+ * scenario's output file as JSON, with the throughput, latency percentiles and sell-out time of each event.</p>
+ *
+ * <p>A scenario on the {@link LoadTestScenario.Clock#VIRTUAL virtual clock} runs each event as a
+ * {@link DiscreteEventSimulation} instead, to its end, and reports the same figures in simulated time. A scenario
+ * with a sweep runs a {@link ParameterSweep} of each event and writes its results table, as JSON or, for an output
+ * file ending in {@code .csv}, as CSV. A scenario with an arrival process also runs on the virtual clock, and adds
+ * each event's customer wait times, out-of-turn purchases and second-by-second timeline to the results. With a
+ * waiting room, the results also report how many customers queued in it and how long the queue grew.</p>
+ *
+ * <p>Unless the {@code ticketing.journal.durability} system property is given, load tests run without a journal,
+ * so that they neither resume nor finish a sale that the interactive application left unfinished.</p>
+ *
+ * @author Dharshan
+ */
+public class HeadlessRunner {
+    // Threads in the scheduler shared by every simulated event, as in EventSimulationManager
+    private static final int SCHEDULER_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    // Combinations of a sweep printed to the console; the results file has them all
+    private static final int SWEEP_ROWS_PRINTED = 20;
+
+    private final LoadTestScenario scenario;
+    private final List<EventSimulation> simulations = new ArrayList<>();
+    // Nanoseconds from the start of the run to each event selling out, keyed by event ticket ID
+    private final Map<Integer, Long> sellOutNanos = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a runner for the given scenario.
+     *
+     * @param scenario the scenario to run
+     */
+    public HeadlessRunner(LoadTestScenario scenario) {
+        this.scenario = scenario;
+    }
+
+    /**
+     * Runs the load test described by command-line arguments and reports how it went.
+     *
+     * @param args the command-line arguments, as described by {@link LoadTestScenario#USAGE}
+     * @return the process exit status: 0 on success, 1 if the load test failed and 2 if the arguments are invalid
+     */
+    public static int run(String[] args) {
+        if (List.of(args).contains("--help")) {
+            System.out.println(LoadTestScenario.USAGE);
+            return 0;
+        }
+        LoadTestScenario scenario;
+        try {
+            scenario = LoadTestScenario.fromArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(LoadTestScenario.USAGE);
+            return 2;
+        } catch (IOException e) {
+            System.err.println("Error reading the scenario: " + e.getMessage());
+            return 1;
+        }
+
+        if (System.getProperty("ticketing.journal.durability") == null) {
+            System.setProperty("ticketing.journal.durability", JournalDurability.NONE.name());
+        }
+        try {
+            new HeadlessRunner(scenario).runLoadTest();
+            return 0;
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Load test failed: " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Load test interrupted.");
+            return 1;
+        }
+    }
+
+    /**
+     * Runs the scenario and writes its results file.
+     *
+     * @throws IOException              if the configurations cannot be read or the results cannot be written
+     * @throws IllegalArgumentException if the scenario names an event that has no configuration
+     * @throws InterruptedException     if the thread is interrupted while the simulations run
+     */
+    public void runLoadTest() throws IOException, InterruptedException {
+        List<Configuration> configurations = selectConfigurations();
+        if (scenario.isSweep()) {
+            runSweeps(configurations);
+            return;
+        }
+        if (scenario.isVirtual()) {
+            runDiscreteEventSimulations(configurations);
+            return;
+        }
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(SCHEDULER_THREADS,
+                EventSimulationManager.daemonThreadFactory("load-test-scheduler-"));
+        RateScheduler rateScheduler = new RateScheduler(scheduler);
+        try {
+            for (Configuration configuration : configurations) {
+                simulations.add(new EventSimulation(configuration, scenario.getSimulationOptions()));
+            }
+
+            long startNanos = System.nanoTime();
+            for (EventSimulation simulation : simulations) {
+                simulation.getTicketPool().getCompletion().thenAccept(soldOut -> {
+                    if (soldOut) {
+                        sellOutNanos.put(simulation.getEventTicketId(), System.nanoTime() - startNanos);
+                    }
+                });
+                simulation.start(rateScheduler);
+            }
+            CompletableFuture<Void> allSoldOut = CompletableFuture.allOf(simulations.stream()
+                    .map(simulation -> simulation.getTicketPool().getCompletion())
+                    .toArray(CompletableFuture[]::new));
+
+            System.out.printf("Warming up for %.1f s...%n", scenario.getWarmupSeconds());
+            awaitUnlessTimedOut(allSoldOut, scenario.getWarmupSeconds());
+
+            // Measuring starts from here: forget the warm-up's latencies and note the counters to subtract later
+            List<Baseline> baselines = new ArrayList<>();
+            for (EventSimulation simulation : simulations) {
+                baselines.add(Baseline.reset(simulation.getTicketPool()));
+            }
+            long measureStartNanos = System.nanoTime();
+            System.out.printf("Measuring for %.1f s...%n", scenario.getDurationSeconds());
+            awaitUnlessTimedOut(allSoldOut, scenario.getDurationSeconds());
+            long measureEndNanos = System.nanoTime();
+
+            simulations.forEach(EventSimulation::stop);
+            writeResults(Paths.get(scenario.getOutput()), baselines, startNanos, measureStartNanos, measureEndNanos);
+        } finally {
+            // Also stops any simulation left running by a failure above
+            simulations.forEach(EventSimulation::stop);
+            scheduler.shutdownNow();
+        }
+    }
+
+    // Simulates each event on a virtual clock, one after another, and writes their results
+    private void runDiscreteEventSimulations(List<Configuration> configurations) throws IOException {
+        long maxVirtualNanos = (long) (scenario.getMaxVirtualSeconds() * NANOS_PER_SECOND);
+        List<DiscreteEventSimulation.Result> results = new ArrayList<>();
+        for (Configuration configuration : configurations) {
+            DiscreteEventSimulation.Result result = new DiscreteEventSimulation(configuration,
+                    scenario.getSimulationOptions(), scenario.getSeed(), scenario.getArrivalProcess()).run(maxVirtualNanos);
+            results.add(result);
+            System.out.printf("Event %d: %d/%d ticket(s) sold in %.2f s of virtual time (%.2f tickets/s), %s; "
+                            + "%d action(s) simulated in %.1f ms%n",
+                    result.eventTicketId(), result.ticketsSold(), result.totalTickets(), result.virtualSeconds(),
+                    result.ticketsSoldPerSecond(), result.soldOut() ? "sold out" : "not sold out",
+                    result.actionsRun(), result.wallNanos() / 1_000_000.0);
+            DiscreteEventSimulation.ArrivalStats arrivals = result.arrivalStats();
+            if (arrivals != null) {
+                System.out.printf("Event %d: %d of %d arriving customer(s) served, waiting %.1f ms at the median and "
+                                + "%.1f ms at p99; %d served out of turn (%.1f%%)%n",
+                        result.eventTicketId(), arrivals.customersServed(), arrivals.customersArrived(),
+                        arrivals.waitTime().getValueAtPercentile(50) / 1_000_000.0,
+                        arrivals.waitTime().getValueAtPercentile(99) / 1_000_000.0,
+                        arrivals.fifoViolations(), arrivals.fifoViolationRatio() * 100);
+            }
+        }
+
+        Path output = Paths.get(scenario.getOutput());
+        long wallNanos = results.stream().mapToLong(DiscreteEventSimulation.Result::wallNanos).sum();
+        try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8))) {
+            writer.setIndent("  ");
+            writer.beginObject();
+            writer.name("startedAt").value(Instant.now().minusNanos(wallNanos).toString());
+            writeScenario(writer, configurations);
+
+            writer.name("events").beginArray();
+            for (int i = 0; i < results.size(); i++) {
+                DiscreteEventSimulation.Result result = results.get(i);
+                writer.beginObject();
+                writer.name("eventTicketId").value(result.eventTicketId());
+                writer.name("title").value(configurations.get(i).getTitle());
+                writer.name("vendors").value(configurations.get(i).getVendorCount());
+                writer.name("customers").value(configurations.get(i).getCustomerCount());
+                writer.name("ticketsSold").value(result.ticketsSold());
+                writer.name("ticketsReleased").value(result.ticketsReleased());
+                writer.name("totalTickets").value(result.totalTickets());
+                writer.name("ticketsSoldPerSecond").value(result.ticketsSoldPerSecond());
+                writer.name("soldOut").value(result.soldOut());
+                writer.name("sellOutSeconds");
+                if (result.soldOut()) {
+                    writer.value(result.virtualSeconds());
+                } else {
+                    writer.nullValue();
+                }
+                writer.name("virtualSeconds").value(result.virtualSeconds());
+                writer.name("emptyPoolRejections").value(result.emptyPoolRejections());
+                writer.name("fullPoolRejections").value(result.fullPoolRejections());
+                writer.name("releaseToSaleLatencyMillis");
+                writeLatency(writer, result.releaseToSaleLatency(), 1_000_000.0);
+                if (result.arrivalStats() != null) {
+                    writer.name("arrivals");
+                    writeArrivals(writer, result.arrivalStats());
+                }
+                if (result.waitingRoom() != null) {
+                    writer.name("waitingRoom");
+                    writeWaitingRoom(writer, result.waitingRoom());
+                }
+                writer.name("actionsRun").value(result.actionsRun());
+                writer.name("wallMillis").value(result.wallNanos() / 1_000_000.0);
+                writer.endObject();
+            }
+            writer.endArray();
+
+            writer.name("totals").beginObject();
+            writer.name("ticketsSold").value(results.stream().mapToLong(DiscreteEventSimulation.Result::ticketsSold).sum());
+            writer.name("eventsSoldOut").value(results.stream().filter(DiscreteEventSimulation.Result::soldOut).count());
+            writer.name("actionsRun").value(results.stream().mapToLong(DiscreteEventSimulation.Result::actionsRun).sum());
+            writer.name("wallMillis").value(wallNanos / 1_000_000.0);
+            writer.endObject();
+            writer.endObject();
+        }
+        System.out.println("Results written to " + output);
+    }
+
+    // Writes how arriving customers fared, with a timeline of each virtual second
+    private static void writeArrivals(JsonWriter writer, DiscreteEventSimulation.ArrivalStats arrivals) throws IOException {
+        writer.beginObject();
+        writer.name("customersArrived").value(arrivals.customersArrived());
+        writer.name("customersServed").value(arrivals.customersServed());
+        writer.name("customersWaiting").value(arrivals.customersWaiting());
+        writer.name("fifoViolations").value(arrivals.fifoViolations());
+        writer.name("fifoViolationRatio").value(arrivals.fifoViolationRatio());
+        writer.name("waitMillis");
+        writeLatency(writer, arrivals.waitTime(), 1_000_000.0);
+        writer.name("timeline").beginArray();
+        for (DiscreteEventSimulation.Second second : arrivals.timeline()) {
+            writer.beginObject();
+            writer.name("second").value(second.second());
+            writer.name("arrivals").value(second.arrivals());
+            writer.name("customersServed").value(second.customersServed());
+            writer.name("ticketsSold").value(second.ticketsSold());
+            writer.name("emptyPoolRejections").value(second.emptyPoolRejections());
+            writer.name("customersWaiting").value(second.customersWaiting());
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+
+    // Writes how many customers went through a waiting room and how long its queue grew
+    private static void writeWaitingRoom(JsonWriter writer, WaitingRoom waitingRoom) throws IOException {
+        writer.beginObject();
+        writer.name("maxAdmitted").value(waitingRoom.getMaxAdmitted());
+        writer.name("joined").value(waitingRoom.getJoined());
+        writer.name("admitted").value(waitingRoom.getAdmitted());
+        writer.name("waiting").value(waitingRoom.getWaiting());
+        writer.name("peakWaiting").value(waitingRoom.getPeakWaiting());
+        writer.endObject();
+    }
+
+    // Sweeps each event over the scenario's ranges on a fork-join pool and writes one results table
+    private void runSweeps(List<Configuration> configurations) throws IOException {
+        Map<ParameterSweep.Parameter, int[]> ranges = scenario.getSweepRanges();
+        long maxVirtualNanos = (long) (scenario.getMaxVirtualSeconds() * NANOS_PER_SECOND);
+        List<ParameterSweep> sweeps = new ArrayList<>();
+        for (Configuration configuration : configurations) {
+            sweeps.add(new ParameterSweep(configuration, ranges, scenario.getSimulationOptions(), scenario.getSeed(),
+                    scenario.getReplications(), maxVirtualNanos, scenario.getArrivalProcess()));
+        }
+
+        List<List<ParameterSweep.Row>> tables = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(ParameterSweep.DEFAULT_PARALLELISM);
+        long wallStartNanos = System.nanoTime();
+        try {
+            for (ParameterSweep sweep : sweeps) {
+                System.out.printf("Event %d: sweeping %d combination(s) x %d replication(s) on %d worker(s)...%n",
+                        sweep.getBase().getEventTicketId(), sweep.getCombinations(), scenario.getReplications(),
+                        pool.getParallelism());
+                long sweepStartNanos = System.nanoTime();
+                List<ParameterSweep.Row> rows = sweep.run(pool);
+                tables.add(rows);
+                System.out.printf("Event %d: swept in %.2f s.%n", sweep.getBase().getEventTicketId(),
+                        (System.nanoTime() - sweepStartNanos) / NANOS_PER_SECOND);
+                printSweepTable(rows);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        double wallSeconds = (System.nanoTime() - wallStartNanos) / NANOS_PER_SECOND;
+
+        Path output = Paths.get(scenario.getOutput());
+        if (output.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv")) {
+            writeSweepCsv(output, sweeps, tables);
+        } else {
+            writeSweepJson(output, sweeps, tables, configurations, wallSeconds);
+        }
+        System.out.println("Results written to " + output);
+    }
+
+    // Prints the rows that sold out fastest, as a table
+    private static void printSweepTable(List<ParameterSweep.Row> rows) {
+        int shown = Math.min(rows.size(), SWEEP_ROWS_PRINTED);
+        System.out.printf("%9s %8s %8s %9s %9s %6s %10s %12s %7s %7s%n", "capacity", "release", "retrieve",
+                "releaseMs", "retrieveMs", "sold", "sellOut s", "tickets/s", "full", "empty");
+        rows.stream()
+                .sorted(Comparator.comparingDouble((ParameterSweep.Row row) -> -(double) row.soldOutRuns() / row.runs())
+                        .thenComparingDouble(row -> Double.isNaN(row.meanSellOutSeconds()) ? Double.MAX_VALUE : row.meanSellOutSeconds()))
+                .limit(shown)
+                .forEach(row -> System.out.printf("%9d %8d %8d %9d %9d %3d/%-2d %10.2f %12.2f %6.1f%% %6.1f%%%n",
+                        row.get(ParameterSweep.Parameter.MAX_TICKET_CAPACITY),
+                        row.get(ParameterSweep.Parameter.TICKET_RELEASE_RATE),
+                        row.get(ParameterSweep.Parameter.CUSTOMER_RETRIEVAL_RATE),
+                        row.get(ParameterSweep.Parameter.TICKET_RELEASE_INTERVAL),
+                        row.get(ParameterSweep.Parameter.CUSTOMER_RETRIEVAL_INTERVAL),
+                        row.soldOutRuns(), row.runs(), row.meanSellOutSeconds(), row.ticketsSoldPerSecond(),
+                        row.poolFullRatio() * 100, row.poolEmptyRatio() * 100));
+        if (rows.size() > shown) {
+            System.out.println("... " + (rows.size() - shown) + " more combination(s) in the results file.");
+        }
+        System.out.println();
+    }
+
+    private void writeSweepJson(Path output, List<ParameterSweep> sweeps, List<List<ParameterSweep.Row>> tables,
+                                List<Configuration> configurations, double wallSeconds) throws IOException {
+        try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8))) {
+            writer.setIndent("  ");
+            writer.beginObject();
+            writer.name("startedAt").value(Instant.now().minusNanos((long) (wallSeconds * NANOS_PER_SECOND)).toString());
+            writeScenario(writer, configurations);
+            writer.name("wallSeconds").value(wallSeconds);
+
+            writer.name("sweeps").beginArray();
+            for (int i = 0; i < sweeps.size(); i++) {
+                Configuration base = sweeps.get(i).getBase();
+                writer.beginObject();
+                writer.name("eventTicketId").value(base.getEventTicketId());
+                writer.name("title").value(base.getTitle());
+                writer.name("totalTickets").value(base.getTotalTickets());
+                writer.name("vendors").value(base.getVendorCount());
+                writer.name("customers").value(base.getCustomerCount());
+                writer.name("combinations").value(sweeps.get(i).getCombinations());
+                writer.name("rows").beginArray();
+                for (ParameterSweep.Row row : tables.get(i)) {
+                    writer.beginObject();
+                    for (ParameterSweep.Parameter parameter : ParameterSweep.Parameter.values()) {
+                        writer.name(parameter.getKey()).value(row.get(parameter));
+                    }
+                    writer.name("runs").value(row.runs());
+                    writer.name("soldOutRuns").value(row.soldOutRuns());
+                    writeNullable(writer, "meanSellOutSeconds", row.meanSellOutSeconds());
+                    writeNullable(writer, "maxSellOutSeconds", row.maxSellOutSeconds());
+                    writer.name("ticketsSoldPerSecond").value(row.ticketsSoldPerSecond());
+                    writer.name("poolFullRatio").value(row.poolFullRatio());
+                    writer.name("poolEmptyRatio").value(row.poolEmptyRatio());
+                    writer.name("releaseToSaleP99Millis").value(row.releaseToSaleP99Millis());
+                    if (scenario.getArrivalProcess() != null) {
+                        writer.name("customerWaitP99Millis").value(row.customerWaitP99Millis());
+                        writer.name("fifoViolationRatio").value(row.fifoViolationRatio());
+                    }
+                    writer.endObject();
+                }
+                writer.endArray();
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        }
+    }
+
+    // One line per combination, with the event in the first column, for spreadsheets
+    private static void writeSweepCsv(Path output, List<ParameterSweep> sweeps, List<List<ParameterSweep.Row>> tables)
+            throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            StringBuilder header = new StringBuilder("eventTicketId");
+            for (ParameterSweep.Parameter parameter : ParameterSweep.Parameter.values()) {
+                header.append(',').append(parameter.getKey());
+            }
+            header.append(",runs,soldOutRuns,meanSellOutSeconds,maxSellOutSeconds,ticketsSoldPerSecond,"
+                    + "poolFullRatio,poolEmptyRatio,releaseToSaleP99Millis,customerWaitP99Millis,fifoViolationRatio");
+            writer.write(header.toString());
+            writer.newLine();
+
+            for (int i = 0; i < sweeps.size(); i++) {
+                int eventTicketId = sweeps.get(i).getBase().getEventTicketId();
+                for (ParameterSweep.Row row : tables.get(i)) {
+                    StringBuilder line = new StringBuilder().append(eventTicketId);
+                    for (ParameterSweep.Parameter parameter : ParameterSweep.Parameter.values()) {
+                        line.append(',').append(row.get(parameter));
+                    }
+                    line.append(',').append(row.runs())
+                            .append(',').append(row.soldOutRuns())
+                            .append(',').append(Double.isNaN(row.meanSellOutSeconds()) ? "" : row.meanSellOutSeconds())
+                            .append(',').append(Double.isNaN(row.maxSellOutSeconds()) ? "" : row.maxSellOutSeconds())
+                            .append(',').append(row.ticketsSoldPerSecond())
+                            .append(',').append(row.poolFullRatio())
+                            .append(',').append(row.poolEmptyRatio())
+                            .append(',').append(row.releaseToSaleP99Millis())
+                            .append(',').append(Double.isNaN(row.customerWaitP99Millis()) ? "" : row.customerWaitP99Millis())
+                            .append(',').append(Double.isNaN(row.fifoViolationRatio()) ? "" : row.fifoViolationRatio());
+                    writer.write(line.toString());
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+    // Writes a number, or null when it is NaN, which JSON cannot hold
+    private static void writeNullable(JsonWriter writer, String name, double value) throws IOException {
+        writer.name(name);
+        if (Double.isNaN(value)) {
+            writer.nullValue();
+        } else {
+            writer.value(value);
+        }
+    }
+
+    private List<Configuration> selectConfigurations() throws IOException {
+        Map<Integer, ConfigurationView> available = new LinkedHashMap<>();
+        for (ConfigurationView configuration : new ConfigurationStore(Paths.get(scenario.getConfigurationFile())).load()) {
+            available.put(configuration.getEventTicketId(), configuration);
+        }
+
+        List<ConfigurationView> selected = new ArrayList<>();
+        if (scenario.getEvents().isEmpty()) {
+            selected.addAll(available.values());
+        } else {
+            for (int eventTicketId : scenario.getEvents()) {
+                ConfigurationView configuration = available.get(eventTicketId);
+                if (configuration == null) {
+                    throw new IllegalArgumentException("No configuration found with Event Ticket ID " + eventTicketId + ".");
+                }
+                selected.add(configuration);
+            }
+        }
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("No configurations found in " + scenario.getConfigurationFile() + ".");
+        }
+
+        List<Configuration> configurations = new ArrayList<>();
+        for (ConfigurationView view : selected) {
+            Configuration configuration = view.toConfiguration();
+            if (scenario.getVendors() > 0 || scenario.getCustomers() > 0) {
+                configuration = configuration.withParticipants(
+                        scenario.getVendors() > 0 ? scenario.getVendors() : configuration.getVendorCount(),
+                        scenario.getCustomers() > 0 ? scenario.getCustomers() : configuration.getCustomerCount());
+            }
+            configurations.add(configuration);
+        }
+        return configurations;
+    }
+
+    // Waits for the future, giving up quietly once the time is up
+    private static void awaitUnlessTimedOut(CompletableFuture<?> future, double seconds) throws InterruptedException {
+        try {
+            future.get((long) (seconds * NANOS_PER_SECOND), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // The usual outcome: the time ran out before everything sold out
+        } catch (ExecutionException e) {
+            System.err.println("A simulation ended with an error: " + e.getCause().getMessage());
+        }
+    }
+
+    private void writeResults(Path output, List<Baseline> baselines, long startNanos,
+                              long measureStartNanos, long measureEndNanos) throws IOException {
+        long totalSold = 0;
+        long totalReleased = 0;
+        double measuredSeconds = (measureEndNanos - measureStartNanos) / NANOS_PER_SECOND;
+
+        try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(output, StandardCharsets.UTF_8))) {
+            writer.setIndent("  ");
+            writer.beginObject();
+            writer.name("startedAt").value(Instant.now().minusNanos(System.nanoTime() - startNanos).toString());
+            writeScenario(writer, simulations.stream().map(EventSimulation::getConfiguration).toList());
+            writer.name("measuredSeconds").value(measuredSeconds);
+
+            writer.name("events").beginArray();
+            for (int i = 0; i < simulations.size(); i++) {
+                EventSimulation simulation = simulations.get(i);
+                TicketPool pool = simulation.getTicketPool();
+                TicketPoolMetrics metrics = pool.getMetrics();
+                Baseline baseline = baselines.get(i);
+                Long sellOut = sellOutNanos.get(simulation.getEventTicketId());
+
+                // An event that sold out during the window was only measured until then
+                long eventEndNanos = sellOut == null ? measureEndNanos : Math.min(measureEndNanos, startNanos + sellOut);
+                double eventSeconds = Math.max((eventEndNanos - measureStartNanos) / NANOS_PER_SECOND, 1e-9);
+                long sold = metrics.getTicketsSold() - baseline.ticketsSold;
+                long released = metrics.getTicketsReleased() - baseline.ticketsReleased;
+                totalSold += sold;
+                totalReleased += released;
+
+                writer.beginObject();
+                writer.name("eventTicketId").value(simulation.getEventTicketId());
+                writer.name("title").value(simulation.getConfiguration().getTitle());
+                writer.name("vendors").value(simulation.getConfiguration().getVendorCount());
+                writer.name("customers").value(simulation.getConfiguration().getCustomerCount());
+                writer.name("ticketsSold").value(sold);
+                writer.name("ticketsReleased").value(released);
+                writer.name("ticketsSoldPerSecond").value(sold / eventSeconds);
+                writer.name("ticketsReleasedPerSecond").value(released / eventSeconds);
+                writer.name("totalTicketsSold").value(pool.getTicketsSold());
+                writer.name("totalTickets").value(pool.getTotalTickets());
+                writer.name("soldOut").value(sellOut != null);
+                writer.name("sellOutSeconds");
+                if (sellOut == null) {
+                    writer.nullValue();
+                } else {
+                    writer.value(sellOut / NANOS_PER_SECOND);
+                }
+                writer.name("emptyPoolRejections").value(metrics.getEmptyPoolRejections() - baseline.emptyPoolRejections);
+                writer.name("fullPoolRejections").value(metrics.getFullPoolRejections() - baseline.fullPoolRejections);
+                writer.name("purchaseLatencyMicros");
+                writeLatency(writer, metrics.getPurchaseLatency(), 1_000.0);
+                writer.name("releaseLatencyMicros");
+                writeLatency(writer, metrics.getReleaseLatency(), 1_000.0);
+                writer.name("releaseToSaleLatencyMillis");
+                writeLatency(writer, pool.getReleaseToSaleLatency(), 1_000_000.0);
+                if (pool.getWaitingRoom() != null) {
+                    writer.name("waitingRoom");
+                    writeWaitingRoom(writer, pool.getWaitingRoom());
+                }
+                writer.endObject();
+
+                System.out.printf("Event %d: %d ticket(s) sold in the window (%.2f tickets/s), purchase p99 %.1f us, %s%n",
+                        simulation.getEventTicketId(), sold, sold / eventSeconds,
+                        metrics.getPurchaseLatency().getValueAtPercentile(99) / 1_000.0,
+                        sellOut == null ? "not sold out" : String.format("sold out after %.2f s", sellOut / NANOS_PER_SECOND));
+            }
+            writer.endArray();
+
+            double windowSeconds = Math.max(measuredSeconds, 1e-9);
+            writer.name("totals").beginObject();
+            writer.name("ticketsSold").value(totalSold);
+            writer.name("ticketsReleased").value(totalReleased);
+            writer.name("ticketsSoldPerSecond").value(totalSold / windowSeconds);
+            writer.name("ticketsReleasedPerSecond").value(totalReleased / windowSeconds);
+            writer.name("eventsSoldOut").value(sellOutNanos.size());
+            writer.endObject();
+            writer.endObject();
+        }
+        System.out.printf("Total: %d ticket(s) sold in %.2f s. Results written to %s%n", totalSold, measuredSeconds, output);
+    }
+
+    private void writeScenario(JsonWriter writer, List<Configuration> configurations) throws IOException {
+        SimulationOptions options = scenario.getSimulationOptions();
+        boolean virtual = scenario.isVirtual();
+        writer.name("scenario").beginObject();
+        writer.name("configurationFile").value(scenario.getConfigurationFile());
+        writer.name("clock").value(virtual ? LoadTestScenario.Clock.VIRTUAL.name() : LoadTestScenario.Clock.REAL.name());
+        if (!virtual) {
+            writer.name("executionMode").value(options.executionMode().name());
+        }
+        writer.name("handoffMode").value(options.handoffMode().name());
+        writer.name("engineType").value(options.engineType().name());
+        writer.name("waitingRoom").value(options.admittedPurchasers());
+        writer.name("events").beginArray();
+        for (Configuration configuration : configurations) {
+            writer.value(configuration.getEventTicketId());
+        }
+        writer.endArray();
+        writer.name("vendors").value(scenario.getVendors());
+        writer.name("customers").value(scenario.getCustomers());
+        if (virtual) {
+            writer.name("seed").value(scenario.getSeed());
+            writer.name("maxVirtualSeconds").value(scenario.getMaxVirtualSeconds());
+            if (scenario.getArrivalProcess() != null) {
+                writer.name("arrivals").value(scenario.getArrivalProcess().describe());
+            }
+            if (scenario.isSweep()) {
+                writer.name("replications").value(scenario.getReplications());
+                writer.name("sweep").beginObject();
+                for (Map.Entry<ParameterSweep.Parameter, int[]> range : scenario.getSweepRanges().entrySet()) {
+                    writer.name(range.getKey().getKey()).beginArray();
+                    for (int value : range.getValue()) {
+                        writer.value(value);
+                    }
+                    writer.endArray();
+                }
+                writer.endObject();
+            }
+        } else {
+            writer.name("journalDurability").value(JournalDurability.configured().name());
+            writer.name("warmupSeconds").value(scenario.getWarmupSeconds());
+            writer.name("durationSeconds").value(scenario.getDurationSeconds());
+        }
+        writer.endObject();
+    }
+
+    // Writes the count, mean and percentiles of a histogram, converted from nanoseconds by the given divisor
+    private static void writeLatency(JsonWriter writer, LatencyHistogram histogram, double divisor) throws IOException {
+        writer.beginObject();
+        writer.name("count").value(histogram.getCount());
+        writer.name("mean").value(histogram.getMeanNanos() / divisor);
+        writer.name("p50").value(histogram.getValueAtPercentile(50) / divisor);
+        writer.name("p90").value(histogram.getValueAtPercentile(90) / divisor);
+        writer.name("p99").value(histogram.getValueAtPercentile(99) / divisor);
+        writer.name("p999").value(histogram.getValueAtPercentile(99.9) / divisor);
+        writer.name("max").value(histogram.getMaxNanos() / divisor);
+        writer.endObject();
+    }
+
+    // The counters of one event at the start of the measured window
+    private record Baseline(long ticketsSold, long ticketsReleased, long emptyPoolRejections, long fullPoolRejections) {
+
+        // Notes the pool's counters and clears its latency histograms
+        static Baseline reset(TicketPool pool) {
+            TicketPoolMetrics metrics = pool.getMetrics();
+            metrics.getPurchaseLatency().reset();
+            metrics.getReleaseLatency().reset();
+            metrics.getEngineLockWait().reset();
+            metrics.getHandoffLockWait().reset();
+            pool.getReleaseToSaleLatency().reset();
+            return new Baseline(metrics.getTicketsSold(), metrics.getTicketsReleased(),
+                    metrics.getEmptyPoolRejections(), metrics.getFullPoolRejections());
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.realtime.ticketing.controller;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.realtime.ticketing.model.ArrivalProcess;
+import com.realtime.ticketing.model.ConfigurationManager;
+import com.realtime.ticketing.model.HandoffMode;
+import com.realtime.ticketing.model.TicketPoolEngineType;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a {@link HeadlessRunner} load test runs: which configurations, how they are simulated, and for how long.
+ *
+ * <p>A scenario is read from a JSON file whose fields have the names below, and command-line options override
+ * the file one field at a time. Every field has a default, so an empty scenario runs every configuration in the
+ * configuration file with the default simulation options for a 10 second warm-up and a 60 second measurement.</p>
+ *
+ * <pre>
+ * {
+ *   "configurationFile": "ticket-configurations.json",
+ *   "events": [1, 2],
+ *   "executionMode": "SHARED_SCHEDULER",
+ *   "handoffMode": "SLEEP_POLL",
+ *   "engineType": "RING_BUFFER",
+ *   "vendors": 50,
+ *   "customers": 500,
+ *   "warmupSeconds": 10,
+ *   "durationSeconds": 60,
+ *   "output": "load-test-results.json"
+ * }
+ * </pre>
+ *
+ * <p>With {@code "clock": "VIRTUAL"}, each event is run as a {@link DiscreteEventSimulation} instead, from its
+ * first release until it sells out or {@code maxVirtualSeconds} of simulated time have passed, with the given
+ * {@code seed}. The warm-up, duration and execution mode do not apply.</p>
+ *
+ * <p>A {@code sweep} maps configuration fields to ranges of values, for example
+ * {@code "sweep": {"ticketReleaseRate": "5:50:5", "maxTicketCapacity": "100,500,1000"}}. Each event is then run as
+ * a {@link ParameterSweep} over every combination, with {@code replications} seeds per combination, on the virtual
+ * clock whatever {@code clock} says.</p>
+ *
+ * <p>{@code arrivals} replaces each event's customers with customers who arrive over time and leave once served,
+ * as described by {@link ArrivalProcess#parse}, for example {@code "arrivals": "burst:5000:10:200"} for a flash
+ * crowd of 5000 customers a second for the first 10 seconds. Arrivals are simulated on the virtual clock whatever
+ * {@code clock} says, and can be combined with a sweep.</p>
+ *
+ * <p>{@code waitingRoom} puts a {@link com.realtime.ticketing.model.WaitingRoom} in front of each event's pool that
+ * admits that many customers at once, in the order they queued; 0, the default, lets every customer at the pool.</p>
+ *
+ * @author Dharshan
+ */
+public class LoadTestScenario {
+    /** Describes the command-line options, for printing when they are wrong. */
+    public static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: TicketingApplication [--scenario <file>] [options] | --help",
+            "Runs a load test without the menu and writes the results as JSON.",
+            "  --scenario <file>     JSON scenario; the options below override its fields",
+            "  --config <file>       configuration file (default: the application's)",
+            "  --events <ids>        comma-separated Event Ticket IDs (default: every configuration)",
+            "  --mode <mode>         PLATFORM, VIRTUAL or SHARED_SCHEDULER",
+            "  --handoff <mode>      SLEEP_POLL or BLOCKING",
+            "  --engine <type>       RING_BUFFER, SHARDED or SYNCHRONIZED",
+            "  --vendors <n>         vendors per event (default: as configured)",
+            "  --customers <n>       customers per event (default: as configured)",
+            "  --warmup <seconds>    time before measuring starts (default: 10)",
+            "  --duration <seconds>  time measured, unless every event sells out first (default: 60)",
+            "  --output <file>       results file (default: load-test-results.json)",
+            "  --clock <clock>       REAL, or VIRTUAL for a discrete-event simulation (default: REAL)",
+            "  --seed <n>            seed of a discrete-event simulation (default: 1)",
+            "  --max-virtual <secs>  simulated time after which a discrete-event simulation stops (default: 86400)",
+            "  --sweep <field>=<range>  sweep maxTicketCapacity, ticketReleaseRate, customerRetrievalRate,",
+            "                        ticketReleaseInterval or customerRetrievalInterval over min:max[:step] or a,b,c;",
+            "                        repeat for several fields",
+            "  --replications <n>    seeds simulated per sweep combination (default: 1)",
+            "  --arrivals <process>  customers arriving over time, on the virtual clock: poisson:<rate>,",
+            "                        burst:<peak rate>:<seconds>:<rate after> or trace:<csv file>",
+            "  --waiting-room <n>    customers admitted to each pool at once, in queue order (default: 0, no waiting room)");
+
+    /**
+     * Whether a load test runs in real time or as a discrete-event simulation.
+     */
+    public enum Clock {
+        /** The events run on threads in real time, as they do from the menu. */
+        REAL,
+        /** Each event runs as a {@link DiscreteEventSimulation} on a virtual clock. */
+        VIRTUAL
+    }
+
+    // Field names are the scenario file's keys; Gson leaves the defaults in place for missing keys
+    private String configurationFile = ConfigurationManager.getConfigurationFile().toString();
+    private List<Integer> events = new ArrayList<>();
+    private ExecutionMode executionMode = SimulationOptions.defaults().executionMode();
+    private HandoffMode handoffMode = SimulationOptions.defaults().handoffMode();
+    private TicketPoolEngineType engineType = SimulationOptions.defaults().engineType();
+    private int vendors = 0;    // 0 keeps the configured number
+    private int customers = 0;  // 0 keeps the configured number
+    private double warmupSeconds = 10;
+    private double durationSeconds = 60;
+    private String output = "load-test-results.json";
+    private Clock clock = Clock.REAL;
+    private long seed = 1;
+    private double maxVirtualSeconds = TimeUnit.DAYS.toSeconds(1);
+    private Map<String, String> sweep = new LinkedHashMap<>();
+    private int replications = 1;
+    private String arrivals;    // null keeps the configured customers
+    private int waitingRoom = 0; // 0 lets every customer at the pool
+    // Parsed from arrivals when validated, so that a trace file is read once
+    private transient ArrivalProcess arrivalProcess;
+
+    /**
+     * Builds a scenario from command-line arguments, starting from the scenario file if one is named.
+     *
+     * @param args the command-line arguments
+     * @return the scenario
+     * @throws IllegalArgumentException if an argument is unknown or its value is invalid
+     * @throws IOException              if the scenario file or an arrival trace cannot be read
+     */
+    public static LoadTestScenario fromArguments(String[] args) throws IOException {
+        LoadTestScenario scenario = new LoadTestScenario();
+        // The scenario file comes first wherever it is given, so that the other options override it
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("--scenario")) {
+                scenario = read(Paths.get(args[i + 1]));
+            }
+        }
+
+        for (int i = 0; i < args.length; i += 2) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option + ".");
+            }
+            String value = args[i + 1];
+            switch (option) {
+                case "--scenario" -> { } // Already read
+                case "--config" -> scenario.configurationFile = value;
+                case "--events" -> scenario.events = parseEvents(value);
+                case "--mode" -> scenario.executionMode = parseEnum(ExecutionMode.class, option, value);
+                case "--handoff" -> scenario.handoffMode = parseEnum(HandoffMode.class, option, value);
+                case "--engine" -> scenario.engineType = parseEnum(TicketPoolEngineType.class, option, value);
+                case "--vendors" -> scenario.vendors = parseInt(option, value);
+                case "--customers" -> scenario.customers = parseInt(option, value);
+                case "--warmup" -> scenario.warmupSeconds = parseDouble(option, value);
+                case "--duration" -> scenario.durationSeconds = parseDouble(option, value);
+                case "--output" -> scenario.output = value;
+                case "--clock" -> scenario.clock = parseEnum(Clock.class, option, value);
+                case "--seed" -> scenario.seed = parseLong(option, value);
+                case "--max-virtual" -> scenario.maxVirtualSeconds = parseDouble(option, value);
+                case "--sweep" -> {
+                    int equals = value.indexOf('=');
+                    if (equals < 0) {
+                        throw new IllegalArgumentException("Invalid value for --sweep: " + value + "; expected <field>=<range>.");
+                    }
+                    scenario.sweep.put(value.substring(0, equals).trim(), value.substring(equals + 1));
+                }
+                case "--replications" -> scenario.replications = parseInt(option, value);
+                case "--arrivals" -> scenario.arrivals = value;
+                case "--waiting-room" -> scenario.waitingRoom = parseInt(option, value);
+                default -> throw new IllegalArgumentException("Unknown option " + option + ".");
+            }
+        }
+        scenario.validate();
+        return scenario;
+    }
+
+    /**
+     * Reads a scenario from a JSON file.
+     *
+     * @param file the scenario file
+     * @return the scenario
+     * @throws IOException if the file cannot be read or is not a valid scenario
+     */
+    public static LoadTestScenario read(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file)) {
+            LoadTestScenario scenario = new Gson().fromJson(reader, LoadTestScenario.class);
+            if (scenario == null) {
+                throw new IOException("Scenario file " + file + " is empty.");
+            }
+            if (scenario.events == null) {
+                scenario.events = new ArrayList<>();
+            }
+            if (scenario.sweep == null) {
+                scenario.sweep = new LinkedHashMap<>();
+            }
+            return scenario;
+        } catch (JsonParseException e) {
+            throw new IOException("Scenario file " + file + " is not valid: " + e.getMessage(), e);
+        }
+    }
+
+    private void validate() throws IOException {
+        if (configurationFile == null || output == null) {
+            throw new IllegalArgumentException("The configuration and output files must be given.");
+        }
+        if (executionMode == null || handoffMode == null || engineType == null || clock == null) {
+            throw new IllegalArgumentException("The execution mode, hand-off mode, engine and clock must be given.");
+        }
+        if (!(maxVirtualSeconds > 0)) {
+            throw new IllegalArgumentException("The maximum virtual time must be greater than 0.");
+        }
+        if (replications < 1) {
+            throw new IllegalArgumentException("The number of replications must be at least 1.");
+        }
+        // Two simulations of one event would share its journal
+        if (new HashSet<>(events).size() < events.size()) {
+            throw new IllegalArgumentException("Each Event Ticket ID may only be given once: " + events + ".");
+        }
+        getSweepRanges(); // Rejects unknown fields and malformed ranges
+        arrivalProcess = arrivals == null ? null : ArrivalProcess.parse(arrivals);
+        if (vendors < 0 || customers < 0) {
+            throw new IllegalArgumentException("The number of vendors and customers must not be negative.");
+        }
+        if (waitingRoom < 0) {
+            throw new IllegalArgumentException("The number of customers admitted by the waiting room must not be negative.");
+        }
+        if (!(warmupSeconds >= 0) || !(durationSeconds > 0)) {
+            throw new IllegalArgumentException("The warm-up must not be negative and the duration must be greater than 0.");
+        }
+        // Checked here too so that a bad combination fails before anything has started
+        if (!isVirtual() && !executionMode.usesDedicatedThreads() && handoffMode == HandoffMode.BLOCKING) {
+            throw new IllegalArgumentException("Blocking hand-off needs dedicated threads; it cannot run on the shared scheduler.");
+        }
+    }
+
+    private static List<Integer> parseEvents(String value) {
+        List<Integer> events = new ArrayList<>();
+        for (String id : value.split(",")) {
+            events.add(parseInt("--events", id.trim()));
+        }
+        return events;
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String option, String value) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid value for " + option + ": " + value + ".");
+        }
+    }
+
+    private static int parseInt(String option, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + option + ": " + value + ".");
+        }
+    }
+
+    private static long parseLong(String option, String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + option + ": " + value + ".");
+        }
+    }
+
+    private static double parseDouble(String option, String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + option + ": " + value + ".");
+        }
+    }
+
+    /**
+     * Returns the simulation options the events are run with.
+     *
+     * @return the simulation options
+     */
+    public SimulationOptions getSimulationOptions() {
+        return new SimulationOptions(executionMode, handoffMode, engineType, waitingRoom);
+    }
+
+    /**
+     * Returns the configuration file the events are read from.
+     *
+     * @return the configuration file
+     */
+    public String getConfigurationFile() {
+        return configurationFile;
+    }
+
+    /**
+     * Returns the Event Ticket IDs to run; empty means every configuration.
+     *
+     * @return the Event Ticket IDs
+     */
+    public List<Integer> getEvents() {
+        return events;
+    }
+
+    /**
+     * Returns the number of vendors per event, or 0 to keep each configuration's own.
+     *
+     * @return the number of vendors
+     */
+    public int getVendors() {
+        return vendors;
+    }
+
+    /**
+     * Returns the number of customers per event, or 0 to keep each configuration's own.
+     *
+     * @return the number of customers
+     */
+    public int getCustomers() {
+        return customers;
+    }
+
+    /**
+     * Returns how long the events run before measuring starts.
+     *
+     * @return the warm-up, in seconds
+     */
+    public double getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    /**
+     * Returns how long the events are measured for, unless they all sell out first.
+     *
+     * @return the duration, in seconds
+     */
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    /**
+     * Returns whether the events run in real time or as discrete-event simulations.
+     *
+     * @return the clock
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Returns the seed discrete-event simulations are run with.
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Returns the simulated time after which a discrete-event simulation stops, if the event has not sold out.
+     *
+     * @return the maximum virtual time, in seconds
+     */
+    public double getMaxVirtualSeconds() {
+        return maxVirtualSeconds;
+    }
+
+    /**
+     * Checks whether the events are simulated on the virtual clock, as they are for a sweep or an arrival process
+     * whatever the clock says.
+     *
+     * @return true if the events run as discrete-event simulations
+     */
+    public boolean isVirtual() {
+        return clock == Clock.VIRTUAL || isSweep() || arrivalProcess != null;
+    }
+
+    /**
+     * Returns when customers arrive, in place of each event's configured customers.
+     *
+     * @return the arrival process, or null to keep the configured customers
+     */
+    public ArrivalProcess getArrivalProcess() {
+        return arrivalProcess;
+    }
+
+    /**
+     * Checks whether the scenario is a parameter sweep.
+     *
+     * @return true if any field is swept
+     */
+    public boolean isSweep() {
+        return !sweep.isEmpty();
+    }
+
+    /**
+     * Returns the values to try for each swept field.
+     *
+     * @return the ranges, in the order given
+     * @throws IllegalArgumentException if a field cannot be swept or its range is malformed
+     */
+    public Map<ParameterSweep.Parameter, int[]> getSweepRanges() {
+        Map<ParameterSweep.Parameter, int[]> ranges = new LinkedHashMap<>();
+        sweep.forEach((key, range) -> {
+            ParameterSweep.Parameter parameter = ParameterSweep.Parameter.fromKey(key);
+            ranges.put(parameter, parameter.parseRange(range));
+        });
+        return ranges;
+    }
+
+    /**
+     * Returns how many seeds each combination of a sweep is simulated with.
+     *
+     * @return the replications
+     */
+    public int getReplications() {
+        return replications;
+    }
+
+    /**
+     * Returns the file the results are written to.
+     *
+     * @return the results file
+     */
+    public String getOutput() {
+        return output;
+    }
+}
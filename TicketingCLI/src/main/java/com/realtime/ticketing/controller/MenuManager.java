@@ -1,8 +1,11 @@
 package com.realtime.ticketing.controller;
 
 import com.realtime.ticketing.model.ConfigurationManager;
+import com.realtime.ticketing.model.ConfigurationRepository;
+import com.realtime.ticketing.model.ConfigurationView;
 
 import java.util.InputMismatchException;
+import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -22,12 +25,15 @@ public class MenuManager {
 
     /**
      * Constructor initializes the handler instances and scanner for user input.
-     * It creates new instances of ConfigurationManager, EventSimulationManager, and Scanner.
+     * It creates new instances of ConfigurationManager, EventSimulationManager, and Scanner,
+     * then resumes any sale that was interrupted the last time the application ran.
      */
     public MenuManager() {
         configurationManager = new ConfigurationManager();
         eventSimulationManager = new EventSimulationManager();
         scanner = new Scanner(System.in);
+        eventSimulationManager.followConfigurationChanges(configurationManager.getConfigurations()); // Push changed rates into running sales
+        eventSimulationManager.resumeInterruptedSales(configurationManager.getConfigurations()); // Pick up sales cut short last time
     }
 
     /**
@@ -53,11 +59,19 @@ public class MenuManager {
                     case 2 -> configurationManager.loadConfigurations(); // Load saved configurations
                     case 3 -> configurationManager.displayConfigurations(); // Display all configurations
                     case 4 -> eventSimulationManager.startSimulation(configurationManager.getConfigurations(), scanner); // Start a simulation
-                    case 5 -> eventSimulationManager.stopSimulation(); // Stop a running simulation
+                    case 5 -> eventSimulationManager.stopSimulation(scanner); // Stop a running simulation by ticket ID
                     case 6 -> removeConfiguration(); // Remove a configuration by ticket ID
                     case 7 -> updateConfiguration(); // Update a configuration by ticket ID
-                    case 8 -> {
-                        // Exit message and exit the loop
+                    case 8 -> eventSimulationManager.listSimulations(); // List running simulations
+                    case 9 -> eventSimulationManager.compareExecutionModes(scanner); // Compare platform threads, virtual threads and the shared scheduler
+                    case 10 -> eventSimulationManager.showLiveStatistics(scanner); // Watch live metrics of running simulations
+                    case 11 -> searchConfigurations(); // Find configurations by ID, vendor, title, price or capacity
+                    case 12 -> importConfigurations(); // Import configurations from a JSON file
+                    case 13 -> exportConfigurations(); // Export configurations to a JSON file
+                    case 14 -> {
+                        // Stop every running simulation, then exit the loop
+                        configurationManager.stopWatching();
+                        eventSimulationManager.shutdown();
                         System.out.println("Thank you for using the Ticket Management System. Goodbye!");
                         exit = true;
                     }
@@ -86,9 +100,15 @@ public class MenuManager {
         System.out.println(" 5. Stop Ticket Simulation                       ");
         System.out.println(" 6. Remove Ticket Configuration                  ");
         System.out.println(" 7. Update Ticket Configuration                  ");
-        System.out.println(" 8. Exit from the System                         ");
+        System.out.println(" 8. List Running Simulations                     ");
+        System.out.println(" 9. Compare Thread Execution Modes               ");
+        System.out.println(" 10. Live Statistics                             ");
+        System.out.println(" 11. Search Ticket Configurations                ");
+        System.out.println(" 12. Import Configurations from JSON             ");
+        System.out.println(" 13. Export Configurations to JSON               ");
+        System.out.println(" 14. Exit from the System                        ");
         System.out.println("---------------------------------------------------");
-        System.out.print(" Please select an option (1-8): ");
+        System.out.print(" Please select an option (1-14): ");
     }
 
     /**
@@ -105,7 +125,7 @@ public class MenuManager {
         } catch (InputMismatchException e) {
             // Catch invalid input (e.g., non-integer input)
             scanner.nextLine(); // Clear the scanner buffer
-            System.out.println("Invalid input. Please enter a number between 1 and 9.\n");
+            System.out.println("Invalid input. Please enter a number between 1 and 14.\n");
             return -1; // Return an invalid number to trigger the default case
         }
     }
@@ -129,4 +149,73 @@ public class MenuManager {
         int ticketId = getValidatedInput();  // Get ticket ID from user
         configurationManager.updateConfiguration(ticketId); // Update the configuration
     }
+
+    /**
+     * Prompts the user for the path of a JSON file and imports the configurations it holds.
+     */
+    private void importConfigurations() {
+        System.out.print("Enter the path of the JSON file to import: ");
+        configurationManager.importConfigurations(scanner.nextLine().trim());
+    }
+
+    /**
+     * Prompts the user for the path of a JSON file and exports every configuration to it.
+     */
+    private void exportConfigurations() {
+        System.out.print("Enter the path of the JSON file to export to: ");
+        configurationManager.exportConfigurations(scanner.nextLine().trim());
+    }
+
+    /**
+     * Prompts the user for a search criterion and displays the matching configurations. Each search
+     * is answered from the indexes of the ConfigurationRepository instead of scanning every configuration.
+     */
+    private void searchConfigurations() {
+        System.out.println("Search by: 1. Event Ticket ID  2. Vendor Name  3. Event Title  4. Price Range  5. Capacity Range");
+        System.out.print("Select a search (1-5): ");
+        int search = getValidatedInput();
+        ConfigurationRepository configurations = configurationManager.getConfigurations();
+
+        try {
+            List<ConfigurationView> matches;
+            switch (search) {
+                case 1 -> {
+                    System.out.print("Enter Event Ticket ID: ");
+                    ConfigurationView match = configurations.findById(Integer.parseInt(scanner.nextLine().trim()));
+                    matches = match == null ? List.of() : List.of(match);
+                }
+                case 2 -> {
+                    System.out.print("Enter Vendor Name: ");
+                    matches = configurations.findByVendor(scanner.nextLine());
+                }
+                case 3 -> {
+                    System.out.print("Enter Event Title: ");
+                    matches = configurations.findByTitle(scanner.nextLine());
+                }
+                case 4 -> {
+                    System.out.print("Enter Minimum Price: ");
+                    double minPrice = Double.parseDouble(scanner.nextLine().trim());
+                    System.out.print("Enter Maximum Price: ");
+                    double maxPrice = Double.parseDouble(scanner.nextLine().trim());
+                    matches = configurations.findByPriceRange(minPrice, maxPrice);
+                }
+                case 5 -> {
+                    System.out.print("Enter Minimum Capacity: ");
+                    int minCapacity = Integer.parseInt(scanner.nextLine().trim());
+                    System.out.print("Enter Maximum Capacity: ");
+                    int maxCapacity = Integer.parseInt(scanner.nextLine().trim());
+                    matches = configurations.findByCapacityRange(minCapacity, maxCapacity);
+                }
+                default -> {
+                    System.out.println("Invalid search. Please select a number between 1 and 5.\n");
+                    return;
+                }
+            }
+            System.out.println(matches.size() + " matching configuration(s) found.");
+            configurationManager.displayConfigurations(matches);
+        } catch (NumberFormatException e) {
+            // Handle non-numeric IDs, prices and capacities without leaving the menu
+            System.out.println("Invalid number. Please try again.\n");
+        }
+    }
 }
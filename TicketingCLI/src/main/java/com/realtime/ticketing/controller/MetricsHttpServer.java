@@ -0,0 +1,150 @@
+package com.realtime.ticketing.controller;
+
+import com.realtime.ticketing.model.TicketPoolMetrics;
+import com.realtime.ticketing.util.LatencyHistogram;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Serves the live metrics of every running simulation at {@code http://localhost:<port>/metrics}
+ * in the Prometheus text format, so a slow on-sale can be watched from a browser, {@code curl} or a scraper.
+ *
+ * <p>The server only listens on the loopback interface and answers from a single daemon thread; each request
+ * reads the counters and histograms directly and never touches the simulations' threads.</p>
+ *
+ * @author Dharshan
+ */
+public class MetricsHttpServer {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Supplier<Collection<EventSimulation>> simulations;
+
+    /**
+     * Starts a server on the given port.
+     *
+     * @param port        the loopback port to listen on, or 0 for any free port
+     * @param simulations supplies the simulations that are running when a request arrives
+     * @throws IOException if the port cannot be bound
+     */
+    public MetricsHttpServer(int port, Supplier<Collection<EventSimulation>> simulations) throws IOException {
+        this.simulations = simulations;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-http-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/metrics", this::handleMetrics);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return the bound port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server immediately.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = render(simulations.get()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * Renders the metrics of the given simulations in the Prometheus text format.
+     *
+     * @param simulations the simulations to report
+     * @return the metrics text
+     */
+    static String render(Collection<EventSimulation> simulations) {
+        StringBuilder out = new StringBuilder(1024 + simulations.size() * 2048);
+
+        metric(out, simulations, "ticketing_tickets_released_total", "counter", "Tickets released into the pool.", TicketPoolMetrics::getTicketsReleased);
+        metric(out, simulations, "ticketing_tickets_sold_total", "counter", "Tickets sold from the pool.", TicketPoolMetrics::getTicketsSold);
+        metric(out, simulations, "ticketing_tickets_released_per_second", "gauge", "Tickets released per second, averaged over the last few seconds.", TicketPoolMetrics::getTicketsReleasedPerSecond);
+        metric(out, simulations, "ticketing_tickets_sold_per_second", "gauge", "Tickets sold per second, averaged over the last few seconds.", TicketPoolMetrics::getTicketsSoldPerSecond);
+        metric(out, simulations, "ticketing_pool_size", "gauge", "Tickets currently in the pool.", TicketPoolMetrics::getPoolSize);
+        metric(out, simulations, "ticketing_pool_capacity", "gauge", "Maximum number of tickets the pool can hold.", TicketPoolMetrics::getPoolCapacity);
+        metric(out, simulations, "ticketing_empty_pool_rejections_total", "counter", "Purchases rejected because the pool was empty.", TicketPoolMetrics::getEmptyPoolRejections);
+        metric(out, simulations, "ticketing_reserved_tickets", "gauge", "Tickets held by open reservations.", TicketPoolMetrics::getReservedTickets);
+        metric(out, simulations, "ticketing_expired_reservations_total", "counter", "Reservations that timed out and went back into the pool.", TicketPoolMetrics::getExpiredReservations);
+        metric(out, simulations, "ticketing_full_pool_rejections_total", "counter", "Releases rejected because the pool was full.", TicketPoolMetrics::getFullPoolRejections);
+
+        summary(out, simulations, "ticketing_purchase_latency_seconds", "Time taken by a successful purchase.", TicketPoolMetrics::getPurchaseLatency);
+        summary(out, simulations, "ticketing_release_latency_seconds", "Time taken by a successful release.", TicketPoolMetrics::getReleaseLatency);
+        summary(out, simulations, "ticketing_engine_lock_wait_seconds", "Time spent waiting for the ticket pool engine lock.", TicketPoolMetrics::getEngineLockWait);
+        summary(out, simulations, "ticketing_handoff_lock_wait_seconds", "Time spent waiting for the blocking hand-off lock.", TicketPoolMetrics::getHandoffLockWait);
+        return out.toString();
+    }
+
+    private static void metric(StringBuilder out, Collection<EventSimulation> simulations, String name, String type, String help,
+                              ToDoubleFunction<TicketPoolMetrics> value) {
+        header(out, name, type, help);
+        for (EventSimulation simulation : simulations) {
+            sample(out, name, simulation, "", value.applyAsDouble(simulation.getTicketPool().getMetrics()));
+        }
+    }
+
+    private static void summary(StringBuilder out, Collection<EventSimulation> simulations, String name, String help,
+                                Function<TicketPoolMetrics, LatencyHistogram> histogram) {
+        header(out, name, "summary", help);
+        for (EventSimulation simulation : simulations) {
+            LatencyHistogram latency = histogram.apply(simulation.getTicketPool().getMetrics());
+            for (double quantile : QUANTILES) {
+                sample(out, name, simulation, ",quantile=\"" + quantile + "\"", latency.getValueAtPercentile(quantile * 100) / 1e9);
+            }
+            sample(out, name + "_sum", simulation, "", latency.getSumNanos() / 1e9);
+            sample(out, name + "_count", simulation, "", latency.getCount());
+        }
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, EventSimulation simulation, String extraLabels, double value) {
+        out.append(name).append("{event=\"").append(simulation.getEventTicketId()).append('"').append(extraLabels).append("} ");
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+}
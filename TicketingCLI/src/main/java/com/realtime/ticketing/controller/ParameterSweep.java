@@ -0,0 +1,342 @@
+package com.realtime.ticketing.controller;
+
+import com.realtime.ticketing.model.ArrivalProcess;
+import com.realtime.ticketing.model.Configuration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Simulates one event with every combination of a set of pool capacities, release and retrieval rates and
+ * intervals, to find the schedule that sells it out best.
+ *
+ * <p>Each combination is run as one or more {@link DiscreteEventSimulation}s. Those are independent and
+ * single-threaded, so the sweep splits the combinations between the workers of a {@link ForkJoinPool}, halving
+ * the range of combinations until each task has one to simulate. Idle workers steal the halves still waiting, which
+ * keeps every core busy even though combinations with slow rates take far longer to simulate than fast ones.</p>
+ *
+ * <p>With more than one replication, each combination is simulated once per seed, starting from the given seed,
+ * and the results are combined into one {@link Row}. The rows come back in a fixed order, so a sweep gives the same
+ * table however many workers run it.</p>
+ *
+ * <p>Given an {@link ArrivalProcess}, every simulation replaces the configured customers with arriving ones, and
+ * the rows also report how long customers waited and how often they were served out of turn.</p>
+ *
+ * @author Dharshan
+ */
+public class ParameterSweep {
+    /** Workers used unless told otherwise; set with {@code ticketing.sweep.parallelism}. */
+    public static final int DEFAULT_PARALLELISM =
+            Math.max(1, Integer.getInteger("ticketing.sweep.parallelism", Runtime.getRuntime().availableProcessors()));
+
+    // Largest number of combinations a sweep accepts
+    private static final int MAX_COMBINATIONS = 1_000_000;
+
+    /**
+     * The configuration fields a sweep can vary, named as in the configuration file.
+     */
+    public enum Parameter {
+        MAX_TICKET_CAPACITY("maxTicketCapacity", 1),
+        TICKET_RELEASE_RATE("ticketReleaseRate", 1),
+        CUSTOMER_RETRIEVAL_RATE("customerRetrievalRate", 1),
+        TICKET_RELEASE_INTERVAL("ticketReleaseInterval", 0),
+        CUSTOMER_RETRIEVAL_INTERVAL("customerRetrievalInterval", 0);
+
+        private final String key;
+        private final int minimum;
+
+        Parameter(String key, int minimum) {
+            this.key = key;
+            this.minimum = minimum;
+        }
+
+        /**
+         * Returns the name of the field in the configuration file.
+         *
+         * @return the field name
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Returns the parameter with the given configuration field name.
+         *
+         * @param key the field name
+         * @return the parameter
+         * @throws IllegalArgumentException if no parameter has that name
+         */
+        public static Parameter fromKey(String key) {
+            for (Parameter parameter : values()) {
+                if (parameter.key.equals(key)) {
+                    return parameter;
+                }
+            }
+            throw new IllegalArgumentException("Cannot sweep " + key + "; choose one of " + Arrays.stream(values())
+                    .map(Parameter::getKey).toList() + ".");
+        }
+
+        /**
+         * Parses a range of values for this parameter: {@code min:max:step}, {@code min:max} for a step of 1,
+         * a comma-separated list, or a single value.
+         *
+         * @param range the range
+         * @return the values, in the order given
+         * @throws IllegalArgumentException if the range is malformed or has a value this parameter cannot take
+         */
+        public int[] parseRange(String range) {
+            int[] parsed;
+            try {
+                String[] bounds = range.split(":");
+                if (bounds.length >= 2 && bounds.length <= 3) {
+                    int min = Integer.parseInt(bounds[0].trim());
+                    int max = Integer.parseInt(bounds[1].trim());
+                    int step = bounds.length == 3 ? Integer.parseInt(bounds[2].trim()) : 1;
+                    if (step <= 0 || min > max) {
+                        throw new IllegalArgumentException("Invalid range for " + key + ": " + range
+                                + "; the minimum must not exceed the maximum and the step must be greater than 0.");
+                    }
+                    if ((long) max - min > (long) step * MAX_COMBINATIONS) {
+                        throw new IllegalArgumentException("Range for " + key + " has too many values: " + range + ".");
+                    }
+                    parsed = new int[(int) (((long) max - min) / step) + 1];
+                    for (int i = 0; i < parsed.length; i++) {
+                        parsed[i] = min + i * step;
+                    }
+                } else {
+                    parsed = Arrays.stream(range.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid range for " + key + ": " + range + ".");
+            }
+            for (int value : parsed) {
+                if (value < minimum) {
+                    throw new IllegalArgumentException("Every " + key + " must be at least " + minimum + ".");
+                }
+            }
+            return parsed;
+        }
+
+        private int valueIn(Configuration configuration) {
+            return switch (this) {
+                case MAX_TICKET_CAPACITY -> configuration.getMaxTicketCapacity();
+                case TICKET_RELEASE_RATE -> configuration.getTicketReleaseRate();
+                case CUSTOMER_RETRIEVAL_RATE -> configuration.getCustomerRetrievalRate();
+                case TICKET_RELEASE_INTERVAL -> configuration.getTicketReleaseInterval();
+                case CUSTOMER_RETRIEVAL_INTERVAL -> configuration.getCustomerRetrievalInterval();
+            };
+        }
+    }
+
+    private final Configuration base;
+    // The values tried for each parameter, indexed by ordinal; a parameter not swept keeps the base value
+    private final int[][] values = new int[Parameter.values().length][];
+    private final int combinations;
+    private final SimulationOptions options;
+    private final long seed;
+    private final int replications;
+    private final long maxVirtualNanos;
+    private final ArrivalProcess arrivalProcess;
+
+    /**
+     * Creates a sweep of one event. Nothing is simulated until {@link #run} is called.
+     *
+     * @param base            the event's configuration, which supplies every value not swept
+     * @param ranges          the values to try for each swept parameter
+     * @param options         the hand-off mode and pool engine to simulate with
+     * @param seed            the seed of the first replication of every combination
+     * @param replications    how many times each combination is simulated, with consecutive seeds
+     * @param maxVirtualNanos the most virtual time each simulation runs for, in nanoseconds
+     * @param arrivalProcess  when customers arrive, or null for the configuration's steady customers
+     * @throws IllegalArgumentException if a range is empty, there are too many combinations, or fewer than one
+     *                                  replication is asked for
+     */
+    public ParameterSweep(Configuration base, Map<Parameter, int[]> ranges, SimulationOptions options, long seed,
+                          int replications, long maxVirtualNanos, ArrivalProcess arrivalProcess) {
+        if (replications < 1) {
+            throw new IllegalArgumentException("A sweep needs at least one replication.");
+        }
+        long count = 1;
+        for (Parameter parameter : Parameter.values()) {
+            int[] range = ranges.getOrDefault(parameter, new int[]{parameter.valueIn(base)});
+            if (range.length == 0) {
+                throw new IllegalArgumentException("The range for " + parameter.getKey() + " is empty.");
+            }
+            values[parameter.ordinal()] = range.clone();
+            count *= range.length;
+            if (count > MAX_COMBINATIONS) {
+                throw new IllegalArgumentException("A sweep can try at most " + MAX_COMBINATIONS + " combinations.");
+            }
+        }
+        this.base = base;
+        this.combinations = (int) count;
+        this.options = options;
+        this.seed = seed;
+        this.replications = replications;
+        this.maxVirtualNanos = maxVirtualNanos;
+        this.arrivalProcess = arrivalProcess;
+    }
+
+    /**
+     * Simulates every combination on the given pool and waits for them all.
+     *
+     * @param pool the fork-join pool to run the simulations on
+     * @return one row per combination, with the first parameter varying slowest
+     */
+    public List<Row> run(ForkJoinPool pool) {
+        return pool.invoke(new SweepTask(0, combinations));
+    }
+
+    /**
+     * Returns the number of combinations the sweep tries.
+     *
+     * @return the combinations
+     */
+    public int getCombinations() {
+        return combinations;
+    }
+
+    /**
+     * Returns the configuration the sweep varies.
+     *
+     * @return the base configuration
+     */
+    public Configuration getBase() {
+        return base;
+    }
+
+    // Simulates the combination with the given index, read as a number whose digits pick each parameter's value
+    private Row simulate(int index) {
+        int[] chosen = new int[values.length];
+        for (int i = values.length - 1; i >= 0; i--) {
+            chosen[i] = values[i][index % values[i].length];
+            index /= values[i].length;
+        }
+        Configuration configuration = base.withSchedule(
+                chosen[Parameter.MAX_TICKET_CAPACITY.ordinal()],
+                chosen[Parameter.TICKET_RELEASE_RATE.ordinal()],
+                chosen[Parameter.CUSTOMER_RETRIEVAL_RATE.ordinal()],
+                chosen[Parameter.TICKET_RELEASE_INTERVAL.ordinal()],
+                chosen[Parameter.CUSTOMER_RETRIEVAL_INTERVAL.ordinal()]);
+
+        int soldOutRuns = 0;
+        double sellOutSeconds = 0;
+        double maxSellOutSeconds = 0;
+        double ticketsSoldPerSecond = 0;
+        long releaseAttempts = 0;
+        long fullPoolRejections = 0;
+        long purchaseAttempts = 0;
+        long emptyPoolRejections = 0;
+        double releaseToSaleP99Millis = 0;
+        double customerWaitP99Millis = 0;
+        long customersServed = 0;
+        long fifoViolations = 0;
+        for (int replication = 0; replication < replications; replication++) {
+            DiscreteEventSimulation simulation =
+                    new DiscreteEventSimulation(configuration, options, seed + replication, arrivalProcess);
+            simulation.getTicketPool().useSilentLogging();
+            DiscreteEventSimulation.Result result = simulation.run(maxVirtualNanos);
+            if (result.soldOut()) {
+                soldOutRuns++;
+                sellOutSeconds += result.virtualSeconds();
+                maxSellOutSeconds = Math.max(maxSellOutSeconds, result.virtualSeconds());
+            }
+            ticketsSoldPerSecond += result.ticketsSoldPerSecond();
+            releaseAttempts += result.releaseAttempts();
+            fullPoolRejections += result.fullPoolRejections();
+            purchaseAttempts += result.purchaseAttempts();
+            emptyPoolRejections += result.emptyPoolRejections();
+            releaseToSaleP99Millis = Math.max(releaseToSaleP99Millis,
+                    result.releaseToSaleLatency().getValueAtPercentile(99) / 1_000_000.0);
+            if (result.arrivalStats() != null) {
+                customerWaitP99Millis = Math.max(customerWaitP99Millis,
+                        result.arrivalStats().waitTime().getValueAtPercentile(99) / 1_000_000.0);
+                customersServed += result.arrivalStats().customersServed();
+                fifoViolations += result.arrivalStats().fifoViolations();
+            }
+        }
+
+        Map<Parameter, Integer> parameters = new EnumMap<>(Parameter.class);
+        for (Parameter parameter : Parameter.values()) {
+            parameters.put(parameter, chosen[parameter.ordinal()]);
+        }
+        return new Row(parameters, replications, soldOutRuns,
+                soldOutRuns == 0 ? Double.NaN : sellOutSeconds / soldOutRuns,
+                soldOutRuns == 0 ? Double.NaN : maxSellOutSeconds,
+                ticketsSoldPerSecond / replications,
+                releaseAttempts == 0 ? 0 : (double) fullPoolRejections / releaseAttempts,
+                purchaseAttempts == 0 ? 0 : (double) emptyPoolRejections / purchaseAttempts,
+                releaseToSaleP99Millis,
+                arrivalProcess == null ? Double.NaN : customerWaitP99Millis,
+                arrivalProcess == null ? Double.NaN : customersServed == 0 ? 0 : (double) fifoViolations / customersServed);
+    }
+
+    // Simulates a range of combinations, splitting it in half until one combination is left
+    private final class SweepTask extends RecursiveTask<List<Row>> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        private SweepTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Row> compute() {
+            if (to - from <= 1) {
+                List<Row> rows = new ArrayList<>(1);
+                if (to > from) {
+                    rows.add(simulate(from));
+                }
+                return rows;
+            }
+            int middle = (from + to) >>> 1;
+            SweepTask firstHalf = new SweepTask(from, middle);
+            firstHalf.fork();
+            List<Row> secondHalf = new SweepTask(middle, to).compute();
+            List<Row> rows = new ArrayList<>(firstHalf.join());
+            rows.addAll(secondHalf);
+            return rows;
+        }
+    }
+
+    /**
+     * The combined results of one combination of the sweep.
+     *
+     * @param parameters             the value of every parameter in this combination
+     * @param runs                   the simulations run, one per replication
+     * @param soldOutRuns            the simulations in which the event sold out
+     * @param meanSellOutSeconds     the average virtual time to sell out, over the runs that sold out, or NaN if none did
+     * @param maxSellOutSeconds      the longest virtual time to sell out, or NaN if no run sold out
+     * @param ticketsSoldPerSecond   the average rate tickets were sold at, in tickets per virtual second
+     * @param poolFullRatio          the share of release attempts that found the pool full
+     * @param poolEmptyRatio         the share of purchase attempts that found the pool empty
+     * @param releaseToSaleP99Millis the worst 99th percentile release-to-sale latency of the runs, in virtual milliseconds
+     * @param customerWaitP99Millis  the worst 99th percentile wait of arriving customers, in virtual milliseconds, or
+     *                               NaN without an arrival process
+     * @param fifoViolationRatio     the share of served customers served ahead of someone who arrived earlier, or NaN
+     *                               without an arrival process
+     */
+    public record Row(Map<Parameter, Integer> parameters, int runs, int soldOutRuns, double meanSellOutSeconds,
+                      double maxSellOutSeconds, double ticketsSoldPerSecond, double poolFullRatio,
+                      double poolEmptyRatio, double releaseToSaleP99Millis, double customerWaitP99Millis,
+                      double fifoViolationRatio) {
+
+        /**
+         * Returns the value a parameter had in this combination.
+         *
+         * @param parameter the parameter
+         * @return its value
+         */
+        public int get(Parameter parameter) {
+            return parameters.get(parameter);
+        }
+    }
+}
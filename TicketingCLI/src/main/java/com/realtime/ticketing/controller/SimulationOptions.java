@@ -0,0 +1,60 @@
+package com.realtime.ticketing.controller;
+
+import com.realtime.ticketing.model.HandoffMode;
+import com.realtime.ticketing.model.TicketPoolEngineType;
+import com.realtime.ticketing.model.WaitingRoom;
+
+/**
+ * Runtime choices for a single simulation that are not part of the event's saved configuration.
+ *
+ * @param executionMode      how vendors and customers are run
+ * @param handoffMode        how vendors and customers wait when the pool is full or empty
+ * @param engineType         how the ticket pool stores its tickets
+ * @param admittedPurchasers the most customers a {@link WaitingRoom} in front of the pool admits at once, or 0
+ *                           for no waiting room
+ * @author Dharshan
+ */
+public record SimulationOptions(ExecutionMode executionMode, HandoffMode handoffMode, TicketPoolEngineType engineType,
+                                int admittedPurchasers) {
+
+    /**
+     * Creates options without a waiting room.
+     *
+     * @param executionMode how vendors and customers are run
+     * @param handoffMode   how vendors and customers wait when the pool is full or empty
+     * @param engineType    how the ticket pool stores its tickets
+     */
+    public SimulationOptions(ExecutionMode executionMode, HandoffMode handoffMode, TicketPoolEngineType engineType) {
+        this(executionMode, handoffMode, engineType, 0);
+    }
+
+    /**
+     * Checks the number of admitted purchasers.
+     *
+     * @throws IllegalArgumentException if the number of admitted purchasers is negative
+     */
+    public SimulationOptions {
+        if (admittedPurchasers < 0) {
+            throw new IllegalArgumentException("The number of admitted purchasers must not be negative.");
+        }
+    }
+
+    /**
+     * Returns the options used when nothing else is chosen.
+     *
+     * @return the default options
+     */
+    public static SimulationOptions defaults() {
+        return new SimulationOptions(ExecutionMode.SHARED_SCHEDULER, HandoffMode.SLEEP_POLL, TicketPoolEngineType.RING_BUFFER);
+    }
+
+    /**
+     * Returns a one-line description of these options.
+     *
+     * @return the description
+     */
+    public String describe() {
+        return executionMode.getDescription() + ", " + handoffMode.getDescription() + ", " + engineType.getDescription() + " pool"
+                + (admittedPurchasers == 0 ? "" : ", waiting room admitting " + admittedPurchasers);
+    }
+}
@@ -0,0 +1,72 @@
+package com.realtime.ticketing.model;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+/**
+ * When customers arrive at an on-sale, as an alternative to a fixed set of customers buying at a steady rate for
+ * as long as the sale lasts.
+ *
+ * <p>Each arrival is one customer who wants a single purchase. Implementations produce arrival times from the
+ * moment the sale opens, so the same process can be run many times, each run drawing from its own
+ * {@link Random}.</p>
+ *
+ * @author Dharshan
+ */
+public interface ArrivalProcess {
+
+    /**
+     * Starts a new run of arrivals.
+     *
+     * @param random the source of randomness for this run
+     * @return the arrival times in nanoseconds since the sale opened, in ascending order; may be endless
+     */
+    PrimitiveIterator.OfLong arrivals(Random random);
+
+    /**
+     * Returns a short description of this process, in the form {@link #parse} accepts.
+     *
+     * @return the description
+     */
+    String describe();
+
+    /**
+     * Creates an arrival process from a description:
+     * <ul>
+     *     <li>{@code poisson:<customers per second>}: arrivals at random at a steady average rate</li>
+     *     <li>{@code burst:<customers per second at opening>:<seconds>:<customers per second after>}: a flash
+     *     crowd at opening that drops to a lower rate after the given time, both at random</li>
+     *     <li>{@code trace:<file>}: the arrival times recorded in a CSV file, in seconds since the sale opened</li>
+     * </ul>
+     *
+     * @param description the description
+     * @return the arrival process
+     * @throws IllegalArgumentException if the description is malformed
+     * @throws IOException              if a trace file cannot be read
+     */
+    static ArrivalProcess parse(String description) throws IOException {
+        String[] parts = description.split(":", 2);
+        String arguments = parts.length == 2 ? parts[1] : "";
+        try {
+            return switch (parts[0].trim().toLowerCase(Locale.ROOT)) {
+                case "poisson" -> new PoissonArrivals(Double.parseDouble(arguments.trim()));
+                case "burst" -> {
+                    String[] values = arguments.split(":");
+                    if (values.length != 3) {
+                        throw new IllegalArgumentException("A burst is described as burst:<peak per second>:<seconds>:<per second after>.");
+                    }
+                    yield new BurstArrivals(Double.parseDouble(values[0].trim()), Double.parseDouble(values[1].trim()),
+                            Double.parseDouble(values[2].trim()));
+                }
+                case "trace" -> TraceArrivals.read(Paths.get(arguments.trim()));
+                default -> throw new IllegalArgumentException("Unknown arrival process " + description
+                        + "; use poisson:<rate>, burst:<peak>:<seconds>:<rate> or trace:<file>.");
+            };
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid arrival process " + description + ".");
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.realtime.ticketing.model;
+
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+/**
+ * A flash crowd: customers arrive at random at a high rate from the moment the sale opens, then at a lower rate
+ * once the burst is over. The process never ends.
+ *
+ * <p>Both phases are Poisson processes. A gap that would run past the end of the burst is drawn again from the
+ * end of the burst at the lower rate, which is exact because the time to the next arrival of a Poisson process
+ * does not depend on how long it has already waited.</p>
+ *
+ * @author Dharshan
+ */
+public class BurstArrivals implements ArrivalProcess {
+    private final double peakRatePerSecond;
+    private final double burstSeconds;
+    private final double ratePerSecondAfter;
+
+    /**
+     * Creates a burst.
+     *
+     * @param peakRatePerSecond  the average number of customers arriving per second during the burst
+     * @param burstSeconds       how long the burst lasts after the sale opens
+     * @param ratePerSecondAfter the average number of customers arriving per second after the burst
+     * @throws IllegalArgumentException if a rate or the length of the burst is not greater than 0
+     */
+    public BurstArrivals(double peakRatePerSecond, double burstSeconds, double ratePerSecondAfter) {
+        if (!(peakRatePerSecond > 0) || !(burstSeconds > 0) || !(ratePerSecondAfter > 0)) {
+            throw new IllegalArgumentException("The arrival rates and the length of the burst must be greater than 0.");
+        }
+        this.peakRatePerSecond = peakRatePerSecond;
+        this.burstSeconds = burstSeconds;
+        this.ratePerSecondAfter = ratePerSecondAfter;
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong arrivals(Random random) {
+        return new PrimitiveIterator.OfLong() {
+            private double nowSeconds = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public long nextLong() {
+                if (nowSeconds < burstSeconds) {
+                    double next = nowSeconds + PoissonArrivals.nextGapSeconds(random, peakRatePerSecond);
+                    if (next < burstSeconds) {
+                        nowSeconds = next;
+                        return toNanos(nowSeconds);
+                    }
+                    nowSeconds = burstSeconds; // The burst ended before the next arrival; carry on at the lower rate
+                }
+                nowSeconds += PoissonArrivals.nextGapSeconds(random, ratePerSecondAfter);
+                return toNanos(nowSeconds);
+            }
+        };
+    }
+
+    @Override
+    public String describe() {
+        return "burst:" + peakRatePerSecond + ":" + burstSeconds + ":" + ratePerSecondAfter;
+    }
+
+    private static long toNanos(double seconds) {
+        return (long) (seconds * 1_000_000_000.0);
+    }
+}
@@ -1,10 +1,9 @@
 package com.realtime.ticketing.model;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import java.io.*;
-import java.lang.reflect.Type;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents a configuration for an event ticketing system. This class stores details
@@ -12,13 +11,15 @@ import java.util.*;
  * retrieval rate, and various time intervals. It also provides methods to validate inputs,
  * save configurations to a JSON file, and load configurations from a JSON file.
  *
- * <p>Each configuration has a unique event ticket ID generated sequentially.</p>
+ * <p>Each configuration has a unique event ticket ID generated sequentially. Once a configuration has been added
+ * to a {@link ConfigurationRepository} it is shared with running simulations and must not change; to edit one,
+ * edit a copy and add that in its place.</p>
  *
  * @author Dharshan
  */
-public class Configuration implements Serializable {
-    // Static variable to generate unique eventTicketId for each configuration
-    private static int ticketIdCounter = 1;
+public class Configuration implements Serializable, ConfigurationView {
+    // Generates a unique eventTicketId for each configuration, safely across threads
+    private static final AtomicInteger ticketIdCounter = new AtomicInteger(1);
     private final int eventTicketId; // Unique ticket ID for the event
     private String vendorName;
     private String title;
@@ -29,19 +30,64 @@ public class Configuration implements Serializable {
     private int customerRetrievalInterval; // Time interval for customer retrieval in milliseconds
     private int totalTickets; // Total number of tickets for the event
     private double price;
+    private int vendorCount = 1; // Number of vendor threads releasing tickets during a simulation
+    private int customerCount = 1; // Number of customer threads purchasing tickets during a simulation
 
     /**
      * Constructor that initializes the eventTicketId. The eventTicketId is auto-incremented
      * with each new instance of Configuration.
      */
     public Configuration() {
-        this.eventTicketId = ticketIdCounter++; // Increment ticketIdCounter for each new Configuration
+        this.eventTicketId = ticketIdCounter.getAndIncrement(); // Increment ticketIdCounter for each new Configuration
+    }
+
+    /**
+     * Constructor for a configuration read from a file, whose fields are filled in afterwards. It does not
+     * use up an eventTicketId.
+     */
+    Configuration(int eventTicketId) {
+        this.eventTicketId = eventTicketId;
+    }
+
+    /**
+     * Copy constructor, used to edit a configuration without changing the instance that running
+     * simulations share. The copy keeps the eventTicketId of the original.
+     */
+    Configuration(ConfigurationView original) {
+        this(original.getEventTicketId(), original.getVendorName(), original.getTitle(),
+                original.getMaxTicketCapacity(), original.getTicketReleaseRate(), original.getCustomerRetrievalRate(),
+                original.getTicketReleaseInterval(), original.getCustomerRetrievalInterval(),
+                original.getTotalTickets(), original.getPrice(), original.getVendorCount(), original.getCustomerCount());
+    }
+
+    /**
+     * Constructor that rebuilds a saved configuration with its existing eventTicketId, for configurations
+     * decoded from a {@link ConfigurationCatalog}. The ticket ID counter is left unchanged.
+     */
+    Configuration(int eventTicketId, String vendorName, String title, int maxTicketCapacity, int ticketReleaseRate,
+                  int customerRetrievalRate, int ticketReleaseInterval, int customerRetrievalInterval,
+                  int totalTickets, double price, int vendorCount, int customerCount) {
+        this.eventTicketId = eventTicketId;
+        this.vendorName = vendorName;
+        this.title = title;
+        this.maxTicketCapacity = maxTicketCapacity;
+        this.ticketReleaseRate = ticketReleaseRate;
+        this.customerRetrievalRate = customerRetrievalRate;
+        this.ticketReleaseInterval = ticketReleaseInterval;
+        this.customerRetrievalInterval = customerRetrievalInterval;
+        this.totalTickets = totalTickets;
+        this.price = price;
+        this.vendorCount = vendorCount;
+        this.customerCount = customerCount;
     }
 
     // ANSI escape codes for colored output (red text for error messages)
     private static final String RED_TEXT = "\033[31m"; // Red text
     private static final String RESET_TEXT = "\033[0m"; // Reset text color
 
+    // Upper bound for the number of vendors or customers in a single simulation
+    private static final int MAX_PARTICIPANTS = 100_000;
+
     /**
      * Prompts the user to input configuration details for the event, including ticket title, vendor name,
      * total tickets, maximum ticket capacity, release rate, retrieval rate, and time intervals for ticket
@@ -88,8 +134,15 @@ public class Configuration implements Serializable {
         System.out.print("Enter Customer Retrieval Interval (in milliseconds): ");
         this.customerRetrievalInterval = validateIntegerInput(scanner, "Customer Retrieval Interval", 1, Integer.MAX_VALUE);
 
+        // Number of concurrent vendors and customers used when simulating this event
+        System.out.print("Enter Number of Vendors: ");
+        this.vendorCount = validateIntegerInput(scanner, "Number of Vendors", 1, MAX_PARTICIPANTS);
+
+        System.out.print("Enter Number of Customers: ");
+        this.customerCount = validateIntegerInput(scanner, "Number of Customers", 1, MAX_PARTICIPANTS);
+
         System.out.print("Enter Price: ");
-        double price = validateDoubleInput(scanner, "Price", 1.00, 50000.00);
+        this.price = validateDoubleInput(scanner, "Price", 1.00, 50000.00);
     }
 
     /**
@@ -268,6 +321,84 @@ public class Configuration implements Serializable {
         return price;
     }
 
+    /**
+     * Gets the number of vendors that release tickets concurrently during a simulation.
+     * Configurations saved before this setting existed default to a single vendor.
+     *
+     * @return The number of vendors.
+     */
+    public int getVendorCount() {
+        return Math.max(vendorCount, 1);
+    }
+
+    /**
+     * Gets the number of customers that purchase tickets concurrently during a simulation.
+     * Configurations saved before this setting existed default to a single customer.
+     *
+     * @return The number of customers.
+     */
+    public int getCustomerCount() {
+        return Math.max(customerCount, 1);
+    }
+
+    /**
+     * Returns a copy of this configuration with a different number of vendors and customers, leaving this
+     * configuration unchanged. Used to run the same event at another level of concurrency.
+     *
+     * @param vendorCount   The number of vendors.
+     * @param customerCount The number of customers.
+     * @return The copy.
+     * @throws IllegalArgumentException if either count is less than 1.
+     */
+    public Configuration withParticipants(int vendorCount, int customerCount) {
+        if (vendorCount < 1 || customerCount < 1) {
+            throw new IllegalArgumentException("The number of vendors and customers must be at least 1.");
+        }
+        Configuration copy = new Configuration(this);
+        copy.vendorCount = vendorCount;
+        copy.customerCount = customerCount;
+        return copy;
+    }
+
+    /**
+     * Returns a copy of this configuration with a different pool capacity and release and retrieval schedule,
+     * leaving this configuration unchanged. Used to try the same event with other rates and intervals.
+     *
+     * @param maxTicketCapacity         The maximum number of tickets in the pool.
+     * @param ticketReleaseRate         The tickets each vendor releases at a time.
+     * @param customerRetrievalRate     The tickets each customer buys at a time.
+     * @param ticketReleaseInterval     The time between releases, in milliseconds.
+     * @param customerRetrievalInterval The time between purchases, in milliseconds.
+     * @return The copy.
+     * @throws IllegalArgumentException if the capacity or a rate is less than 1, or an interval is negative.
+     */
+    public Configuration withSchedule(int maxTicketCapacity, int ticketReleaseRate, int customerRetrievalRate,
+                                      int ticketReleaseInterval, int customerRetrievalInterval) {
+        if (maxTicketCapacity < 1 || ticketReleaseRate < 1 || customerRetrievalRate < 1) {
+            throw new IllegalArgumentException("The capacity and rates must be at least 1.");
+        }
+        if (ticketReleaseInterval < 0 || customerRetrievalInterval < 0) {
+            throw new IllegalArgumentException("The intervals must not be negative.");
+        }
+        Configuration copy = new Configuration(this);
+        copy.maxTicketCapacity = maxTicketCapacity;
+        copy.ticketReleaseRate = ticketReleaseRate;
+        copy.customerRetrievalRate = customerRetrievalRate;
+        copy.ticketReleaseInterval = ticketReleaseInterval;
+        copy.customerRetrievalInterval = customerRetrievalInterval;
+        return copy;
+    }
+
+    /**
+     * A configuration is already editable, so it is returned as it is.
+     *
+     * @return This configuration.
+     */
+    @Override
+    public Configuration toConfiguration() {
+        return this;
+    }
+
     /**
      * Returns a string representation of this configuration, including details about
      * the event ticket such as the title, ticket ID, vendor name, total tickets,
@@ -287,27 +418,38 @@ public class Configuration implements Serializable {
                 "Customer Retrieval Rate: " + customerRetrievalRate + " customers/sec\n" +
                 "Ticket Release Interval: " + ticketReleaseInterval + " ms\n" +
                 "Customer Retrieval Interval: " + customerRetrievalInterval + " ms\n" +
+                "Vendors               : " + getVendorCount() + "\n" +
+                "Customers             : " + getCustomerCount() + "\n" +
                 "=========================================";
     }
 
+    /**
+     * Moves the ticket ID counter past the given ID, once configurations up to that ID have been loaded.
+     * The counter never moves back, so an ID is not handed out twice even when loads and new
+     * configurations race.
+     *
+     * @param eventTicketId the highest event ticket ID in use
+     */
+    static void continueTicketIdsAfter(int eventTicketId) {
+        ticketIdCounter.accumulateAndGet(eventTicketId + 1, Math::max);
+    }
+
     /**
      * Saves a list of configurations to a specified JSON file. This method serializes
-     * the configurations into JSON format and writes them to the provided file path.
+     * the configurations into JSON format one at a time through a buffered writer, and replaces
+     * the file atomically so that a crash never leaves it half written.
      *
      * @param filename The name of the file to save the configurations to.
      * @param configurations The list of Configuration objects to be saved.
      * @throws IOException If an I/O error occurs while writing to the file.
      */
     public static void saveToJsonFile(String filename, List<Configuration> configurations) throws IOException {
-        Gson gson = new Gson();
-        try (Writer writer = new FileWriter(filename)) {
-            gson.toJson(configurations, writer); // Serialize the list of configurations to JSON
-            System.out.println("Saving configurations to: " + filename);
-        }
+        ConfigurationStore.writeAll(Paths.get(filename), configurations); // Stream the configurations to JSON
+        System.out.println("Saving configurations to: " + filename);
     }
 
     /**
-     * Loads a list of configurations from a specified JSON file. This method deserializes
+     * Loads a list of configurations from a specified JSON file. This method streams
      * the JSON data from the file into a list of Configuration objects and updates the
      * ticket ID counter based on the maximum event ticket ID found in the loaded configurations.
      *
@@ -316,19 +458,12 @@ public class Configuration implements Serializable {
      * @throws IOException If an I/O error occurs while reading the file.
      */
     public static List<Configuration> loadConfigurationsFromJson(String filePath) throws IOException {
-        Gson gson = new Gson();
-        List<Configuration> ticketConfigs;
-        try (Reader reader = new FileReader(filePath)) {
-            // Define the type of the List<Configuration> to deserialize JSON into
-            Type listType = new TypeToken<List<Configuration>>() {}.getType();
-            ticketConfigs = gson.fromJson(reader, listType);
-        }
+        // Read the configurations one at a time instead of parsing the whole file into a tree
+        List<Configuration> ticketConfigs = ConfigurationStore.readAll(Paths.get(filePath));
 
-        // Update the ticketIdCounter based on the loaded configurations
-        if (!ticketConfigs.isEmpty()) {
-            // Find the maximum eventTicketId and set the counter to the next available ID
-            ticketIdCounter = ticketConfigs.stream().mapToInt(Configuration::getEventTicketId).max().orElse(0) + 1;
-        }
+        // Move the ticketIdCounter past the maximum eventTicketId of the loaded configurations
+        ticketConfigs.stream().mapToInt(Configuration::getEventTicketId).max()
+                .ifPresent(Configuration::continueTicketIdsAfter);
 
         return ticketConfigs;
     }
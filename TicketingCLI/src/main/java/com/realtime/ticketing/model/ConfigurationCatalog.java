@@ -0,0 +1,369 @@
+package com.realtime.ticketing.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary file of event configurations, read through a memory-mapped buffer.
+ *
+ * <p>The file starts with a header, followed by one fixed-width record per configuration, sorted by event
+ * ticket ID, and a string table holding each distinct vendor name and title once:</p>
+ * <pre>
+ * header:       [int magic][int version][int recordCount][int stringCount][long stringTableOffset]
+ * record:       [int eventTicketId][int vendorName][int title][int maxTicketCapacity][int totalTickets]
+ *               [int ticketReleaseRate][int customerRetrievalRate][int ticketReleaseInterval]
+ *               [int customerRetrievalInterval][int vendorCount][int customerCount][double price]
+ * string table: [int offset] per string, then per string [int length][UTF-8 bytes]
+ * </pre>
+ *
+ * <p>Vendor names and titles are stored as positions in the string table, or -1 when missing. Opening a catalog
+ * only maps the file and checks the header. A {@link Record} reads a setting from the mapping when it is asked
+ * for, and a string is decoded the first time any record asks for it, so listing, searching and finding an
+ * event by ID (a binary search over the sorted records) never build {@link Configuration} objects for the
+ * events they skip. The file is only ever replaced atomically; a catalog that is already open keeps reading
+ * the file it mapped.</p>
+ *
+ * <p>Windows does not allow replacing a file while it is mapped, and a mapping lasts until its buffer is garbage
+ * collected, so there {@link #write} fails for as long as records of the old catalog are still in use. On other
+ * systems the old mapping simply keeps the replaced file alive.</p>
+ *
+ * @author Dharshan
+ */
+public class ConfigurationCatalog {
+    /** File name extension that marks a configuration file as a binary catalog. */
+    public static final String FILE_EXTENSION = ".bin";
+
+    private static final int MAGIC = 0x544B4331; // "TKC1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES + Long.BYTES;
+
+    // Field offsets within a record
+    private static final int EVENT_TICKET_ID = 0;
+    private static final int VENDOR_NAME = 4;
+    private static final int TITLE = 8;
+    private static final int MAX_TICKET_CAPACITY = 12;
+    private static final int TOTAL_TICKETS = 16;
+    private static final int TICKET_RELEASE_RATE = 20;
+    private static final int CUSTOMER_RETRIEVAL_RATE = 24;
+    private static final int TICKET_RELEASE_INTERVAL = 28;
+    private static final int CUSTOMER_RETRIEVAL_INTERVAL = 32;
+    private static final int VENDOR_COUNT = 36;
+    private static final int CUSTOMER_COUNT = 40;
+    private static final int PRICE = 44;
+    private static final int RECORD_BYTES = 52;
+
+    private static final int NO_STRING = -1;
+
+    private final ByteBuffer data;
+    private final int recordCount;
+    private final int stringCount;
+    private final int stringOffsets; // Position of the string offset table
+    private final int stringData;    // Position of the first string
+    private final String[] strings;  // Strings decoded so far
+
+    private ConfigurationCatalog(Path file, ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.limit() < HEADER_BYTES || data.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a configuration catalog.");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException(file + " has unsupported catalog version " + data.getInt(4) + ".");
+        }
+        recordCount = data.getInt(8);
+        stringCount = data.getInt(12);
+        long stringTableOffset = data.getLong(16);
+        if (recordCount < 0 || stringCount < 0
+                || stringTableOffset != HEADER_BYTES + (long) recordCount * RECORD_BYTES
+                || stringTableOffset + (long) stringCount * Integer.BYTES > data.limit()) {
+            throw new IOException("Configuration catalog " + file + " is truncated or corrupt.");
+        }
+        stringOffsets = (int) stringTableOffset;
+        stringData = stringOffsets + stringCount * Integer.BYTES;
+        strings = new String[stringCount];
+    }
+
+    /**
+     * Maps a catalog file for reading. Only the header is read.
+     *
+     * @param file the catalog file
+     * @return the catalog
+     * @throws IOException if the file cannot be mapped or is not a catalog
+     */
+    public static ConfigurationCatalog open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Configuration catalog " + file + " is too large.");
+            }
+            return new ConfigurationCatalog(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Checks whether a configuration file is a binary catalog, going by its extension.
+     *
+     * @param file the configuration file
+     * @return true if the file name ends with {@value #FILE_EXTENSION}
+     */
+    public static boolean isCatalogFile(Path file) {
+        return file.getFileName().toString().endsWith(FILE_EXTENSION);
+    }
+
+    /**
+     * Writes configurations to a catalog file. The file is written to a temporary file, flushed to disk and then
+     * moved over the target in one step. Configurations that share an event ticket ID are written once, keeping
+     * the last one.
+     *
+     * @param target         the file to write
+     * @param configurations the configurations to write
+     * @throws IOException if the file cannot be written, or on Windows if the target is mapped by a catalog that is
+     *                     still in use; the previous contents are kept
+     */
+    public static void write(Path target, Collection<? extends ConfigurationView> configurations) throws IOException {
+        Map<Integer, ConfigurationView> byId = new HashMap<>();
+        configurations.forEach(configuration -> byId.put(configuration.getEventTicketId(), configuration));
+        List<ConfigurationView> records = new ArrayList<>(byId.values());
+        records.sort(Comparator.comparingInt(ConfigurationView::getEventTicketId));
+
+        // Each distinct vendor name and title is stored once
+        Map<String, Integer> stringIndex = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int stringBytes = 0;
+        for (ConfigurationView record : records) {
+            for (String value : new String[] {record.getVendorName(), record.getTitle()}) {
+                if (value != null && !stringIndex.containsKey(value)) {
+                    byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                    stringIndex.put(value, strings.size());
+                    strings.add(encoded);
+                    stringBytes += Integer.BYTES + encoded.length;
+                }
+            }
+        }
+
+        long stringTableOffset = HEADER_BYTES + (long) records.size() * RECORD_BYTES;
+        long size = stringTableOffset + (long) strings.size() * Integer.BYTES + stringBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Too many configurations for one catalog file.");
+        }
+
+        ByteBuffer data = ByteBuffer.allocate((int) size);
+        data.putInt(MAGIC).putInt(VERSION).putInt(records.size()).putInt(strings.size()).putLong(stringTableOffset);
+        for (ConfigurationView record : records) {
+            data.putInt(record.getEventTicketId());
+            data.putInt(stringIndex.getOrDefault(record.getVendorName(), NO_STRING));
+            data.putInt(stringIndex.getOrDefault(record.getTitle(), NO_STRING));
+            data.putInt(record.getMaxTicketCapacity());
+            data.putInt(record.getTotalTickets());
+            data.putInt(record.getTicketReleaseRate());
+            data.putInt(record.getCustomerRetrievalRate());
+            data.putInt(record.getTicketReleaseInterval());
+            data.putInt(record.getCustomerRetrievalInterval());
+            data.putInt(record.getVendorCount());
+            data.putInt(record.getCustomerCount());
+            data.putDouble(record.getPrice());
+        }
+        int offset = 0;
+        for (byte[] encoded : strings) {
+            data.putInt(offset);
+            offset += Integer.BYTES + encoded.length;
+        }
+        for (byte[] encoded : strings) {
+            data.putInt(encoded.length).put(encoded);
+        }
+        data.flip();
+
+        Path parent = target.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (FileSystemException e) {
+                throw new IOException("Could not replace " + target + "; on Windows a catalog cannot be replaced while"
+                        + " an open catalog still maps it: " + e.getMessage(), e);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Returns the number of configurations in the catalog.
+     *
+     * @return the number of records
+     */
+    public int size() {
+        return recordCount;
+    }
+
+    /**
+     * Returns the record at a position in the catalog. Records are sorted by event ticket ID.
+     *
+     * @param index the position, from 0
+     * @return the record
+     */
+    public Record record(int index) {
+        if (index < 0 || index >= recordCount) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + recordCount);
+        }
+        return new Record(this, HEADER_BYTES + index * RECORD_BYTES);
+    }
+
+    /**
+     * Returns every record, in event ticket ID order. Records are created as the list is read.
+     *
+     * @return the records
+     */
+    public List<Record> records() {
+        return new AbstractList<>() {
+            @Override
+            public Record get(int index) {
+                return record(index);
+            }
+
+            @Override
+            public int size() {
+                return recordCount;
+            }
+        };
+    }
+
+    /**
+     * Finds a configuration by its event ticket ID with a binary search over the records.
+     *
+     * @param eventTicketId the event ticket ID
+     * @return the record, or null if the catalog has none with that ID
+     */
+    public Record find(int eventTicketId) {
+        int low = 0;
+        int high = recordCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int id = data.getInt(HEADER_BYTES + middle * RECORD_BYTES + EVENT_TICKET_ID);
+            if (id < eventTicketId) {
+                low = middle + 1;
+            } else if (id > eventTicketId) {
+                high = middle - 1;
+            } else {
+                return record(middle);
+            }
+        }
+        return null;
+    }
+
+    // Decodes a string the first time it is needed; racing threads decode the same immutable value
+    private String string(int index) {
+        if (index == NO_STRING) {
+            return null;
+        }
+        String value = strings[index];
+        if (value == null) {
+            int position = stringData + data.getInt(stringOffsets + index * Integer.BYTES);
+            byte[] encoded = new byte[data.getInt(position)];
+            data.get(position + Integer.BYTES, encoded);
+            value = new String(encoded, StandardCharsets.UTF_8);
+            strings[index] = value;
+        }
+        return value;
+    }
+
+    /**
+     * One configuration in a catalog. Every getter reads its field from the mapped file.
+     */
+    public static final class Record implements ConfigurationView {
+        private final ConfigurationCatalog catalog;
+        private final int position;
+
+        private Record(ConfigurationCatalog catalog, int position) {
+            this.catalog = catalog;
+            this.position = position;
+        }
+
+        @Override
+        public int getEventTicketId() {
+            return intField(EVENT_TICKET_ID);
+        }
+
+        @Override
+        public String getVendorName() {
+            return catalog.string(intField(VENDOR_NAME));
+        }
+
+        @Override
+        public String getTitle() {
+            return catalog.string(intField(TITLE));
+        }
+
+        @Override
+        public int getMaxTicketCapacity() {
+            return intField(MAX_TICKET_CAPACITY);
+        }
+
+        @Override
+        public int getTotalTickets() {
+            return intField(TOTAL_TICKETS);
+        }
+
+        @Override
+        public int getTicketReleaseRate() {
+            return intField(TICKET_RELEASE_RATE);
+        }
+
+        @Override
+        public int getCustomerRetrievalRate() {
+            return intField(CUSTOMER_RETRIEVAL_RATE);
+        }
+
+        @Override
+        public int getTicketReleaseInterval() {
+            return intField(TICKET_RELEASE_INTERVAL);
+        }
+
+        @Override
+        public int getCustomerRetrievalInterval() {
+            return intField(CUSTOMER_RETRIEVAL_INTERVAL);
+        }
+
+        @Override
+        public int getVendorCount() {
+            return intField(VENDOR_COUNT);
+        }
+
+        @Override
+        public int getCustomerCount() {
+            return intField(CUSTOMER_COUNT);
+        }
+
+        @Override
+        public double getPrice() {
+            return catalog.data.getDouble(position + PRICE);
+        }
+
+        @Override
+        public Configuration toConfiguration() {
+            return new Configuration(this);
+        }
+
+        private int intField(int offset) {
+            return catalog.data.getInt(position + offset);
+        }
+    }
+}
@@ -1,9 +1,10 @@
 package com.realtime.ticketing.model;
 
 import java.io.*;
-import java.util.ArrayList;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * Manages the configurations for the ticketing system. This class handles loading, adding,
@@ -11,25 +12,96 @@ import java.util.Optional;
  * configuration file (in JSON format) and provides methods to maintain and modify the configurations.
  *
  * <p>The ConfigurationManager ensures that configurations are properly loaded from and saved to a file,
- * and it handles directory creation if necessary.</p>
+ * and it handles directory creation if necessary. Configurations are kept in a {@link ConfigurationStore},
+ * so adding, updating or removing one configuration appends a single patch instead of rewriting the file.
+ * In memory they are held in a {@link ConfigurationRepository}, so finding one by ID, vendor, title, price
+ * or capacity does not scan every configuration.</p>
+ *
+ * <p>The repository is copy-on-write, so running simulations read configurations without locking while the
+ * menu changes them. A configuration is never edited in place: updating one edits a copy, which then replaces
+ * the original. Running simulations listen to the repository and take on a changed configuration's rates and
+ * intervals at once. Reloading replaces the loaded configurations instead of adding to them, so loading twice does
+ * not duplicate anything.</p>
+ *
+ * <p>Unless the {@code ticketing.config.watch} system property is {@code false}, a {@link ConfigurationWatcher}
+ * reloads the configurations whenever another program changes the configuration file or its patch log, so settings
+ * can be edited in the file during a sale.</p>
  *
  * @author Dharshan
  */
 public class ConfigurationManager {
-    // Path to the JSON file where configurations are stored in the backend
-    private static final String CONFIG_FILE_PATH = "D:\\personal\\real-time-booking-system\\Backend\\Configurations\\ticket-configurations.json";
+    // Path to the JSON file where configurations are stored in the backend; override it with ticketing.config.file,
+    // and give the file a .bin extension to keep it as a binary ConfigurationCatalog
+    private static final String CONFIG_FILE_PATH = System.getProperty("ticketing.config.file",
+            "D:\\personal\\real-time-booking-system\\Backend\\Configurations\\ticket-configurations.json");
+
+    /**
+     * Returns the configuration file the application uses, as set with the {@code ticketing.config.file}
+     * system property.
+     *
+     * @return the path of the configuration file
+     */
+    public static Path getConfigurationFile() {
+        return Paths.get(CONFIG_FILE_PATH);
+    }
+
+    // Streams the configuration file and logs individual changes next to it
+    private final ConfigurationStore store = new ConfigurationStore(Paths.get(CONFIG_FILE_PATH));
 
-    // List to store all loaded configurations
-    private final List<Configuration> configurations;
+    // All loaded configurations, indexed by ID, vendor, title, price and capacity
+    private final ConfigurationRepository configurations;
+
+    // Reloads the configurations when the file is changed from outside; null when watching is turned off or failed
+    private ConfigurationWatcher watcher;
 
     /**
-     * Constructor initializes the list of configurations and loads existing configurations
+     * Constructor initializes the configuration repository and loads existing configurations
      * from the configuration file. It ensures that the configurations are available as soon
      * as the ConfigurationManager instance is created.
      */
     public ConfigurationManager() {
-        configurations = new ArrayList<>();
+        configurations = new ConfigurationRepository();
         loadConfigurations(); // Load configurations when an instance is created
+        if (Boolean.parseBoolean(System.getProperty("ticketing.config.watch", "true"))) {
+            startWatching();
+        }
+    }
+
+    // Watches the configuration file for changes made by other programs
+    private void startWatching() {
+        try {
+            watcher = new ConfigurationWatcher(store, this::reloadChangedConfigurations);
+        } catch (IOException | UnsupportedOperationException e) {
+            System.err.println("Configuration file changes will not be picked up automatically: " + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Reloads the configurations if the configuration file or its patch log was changed by another program,
+     * replacing the loaded configurations in one step. Changes this manager saved itself are skipped.
+     * If the file cannot be read, for example because it is still being written, the loaded configurations are kept.
+     */
+    public void reloadChangedConfigurations() {
+        if (!store.hasChangedOnDisk()) {
+            return;
+        }
+        try {
+            List<ConfigurationView> loadedConfigurations = store.load();
+            configurations.replaceAll(loadedConfigurations);
+            System.out.println("Configuration file changed: " + loadedConfigurations.size() + " configuration(s) reloaded.\n");
+        } catch (IOException e) {
+            System.err.println("Error reloading changed configurations: " + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Stops watching the configuration file for changes.
+     */
+    public void stopWatching() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
     }
 
     /**
@@ -40,19 +112,20 @@ public class ConfigurationManager {
         // Create a new Configuration object and prompt the user for input
         Configuration config = new Configuration();
         config.promptForInput();  // Get the configuration details from the user
-        configurations.add(config); // Add the configuration to the list
-        saveConfigurations(); // Save the updated list to the file
+        configurations.add(config); // Add the configuration to the repository
+        saveConfiguration(config); // Log the new configuration
     }
 
     /**
-     * Loads configurations from the JSON file. This method deserializes the JSON data and adds
-     * the configurations to the list. If an error occurs, it prints an error message.
+     * Loads configurations from the configuration file. This method deserializes the saved data and
+     * replaces the configurations in the repository with it in one step, so reloading is idempotent.
+     * If an error occurs, it prints an error message and keeps the configurations already loaded.
      */
     public void loadConfigurations() {
         try {
             // Try to load the configurations from the file
-            List<Configuration> loadedConfigurations = Configuration.loadConfigurationsFromJson(CONFIG_FILE_PATH);
-            configurations.addAll(loadedConfigurations); // Add the loaded configurations to the list
+            List<ConfigurationView> loadedConfigurations = store.load();
+            configurations.replaceAll(loadedConfigurations); // Replace the loaded configurations in one step
             System.out.println("Configurations loaded successfully.\n");
         } catch (IOException e) {
             // Handle the case where the configurations cannot be loaded
@@ -66,11 +139,21 @@ public class ConfigurationManager {
      * available, it prints a message indicating that there are no configurations.
      */
     public void displayConfigurations() {
-        if (configurations.isEmpty()) {
+        displayConfigurations(configurations.getAll());
+    }
+
+    /**
+     * Displays the given configurations, such as the results of a search, in the same format as
+     * {@link #displayConfigurations()}.
+     *
+     * @param matches The configurations to display.
+     */
+    public void displayConfigurations(List<? extends ConfigurationView> matches) {
+        if (matches.isEmpty()) {
             System.out.println("No configurations available.\n");
         } else {
             System.out.println("Available Event Configurations:\n");
-            configurations.forEach(config -> {
+            matches.forEach(config -> {
                 System.out.println("========================================");
                 System.out.println("Event Ticket ID: " + config.getEventTicketId());
                 System.out.println("Vendor Name: " + config.getVendorName());
@@ -81,6 +164,8 @@ public class ConfigurationManager {
                 System.out.println("Customer Retrieval Rate: " + config.getCustomerRetrievalRate() + " tickets/interval");
                 System.out.println("Ticket Release Interval: " + config.getTicketReleaseInterval() + " ms");
                 System.out.println("Customer Retrieval Interval: " + config.getCustomerRetrievalInterval() + " ms");
+                System.out.println("Vendors: " + config.getVendorCount());
+                System.out.println("Customers: " + config.getCustomerCount());
                 System.out.println("Ticket Price: " + config.getPrice());
                 System.out.println("========================================\n");
             });
@@ -88,15 +173,15 @@ public class ConfigurationManager {
     }
 
     /**
-     * Saves the current list of configurations to the JSON file. It serializes the configurations
-     * into JSON format and writes them to the specified file path. If an error occurs while saving,
-     * it prints an error message.
+     * Saves the current list of configurations to the JSON file. It streams the configurations
+     * into JSON format, replaces the file atomically and clears the patch log. If an error occurs
+     * while saving, it prints an error message.
      */
     public void saveConfigurations() {
 //        ensureDirectoryExists(); // Ensure that the config directory exists
         try {
             // Save configurations to the JSON file
-            Configuration.saveToJsonFile(CONFIG_FILE_PATH, configurations);
+            store.saveAll(configurations.getAll());
             System.out.println("Configurations saved successfully.\n");
         } catch (IOException e) {
             // Handle errors that might occur while saving the configurations
@@ -104,6 +189,59 @@ public class ConfigurationManager {
         }
     }
 
+    /**
+     * Saves a single new or changed configuration by appending it to the patch log, without
+     * rewriting the other configurations. If an error occurs while saving, it prints an error message.
+     *
+     * @param config The configuration to save.
+     */
+    private void saveConfiguration(Configuration config) {
+        try {
+            store.put(config);
+            System.out.println("Configurations saved successfully.\n");
+        } catch (IOException e) {
+            System.err.println("Error saving configurations: " + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Imports the configurations held in a JSON file, replacing any loaded configuration with the same
+     * ticket ID, and saves them. This also converts a JSON file into the binary catalog format when the
+     * configuration file is a catalog. If an error occurs, it prints an error message.
+     *
+     * @param filePath The path of the JSON file to import.
+     */
+    public void importConfigurations(String filePath) {
+        try {
+            List<Configuration> imported = ConfigurationStore.readAll(Paths.get(filePath));
+            configurations.addAll(imported);
+            store.saveAll(configurations.getAll()); // One rewrite instead of a patch per configuration
+            configurations.getAll().stream().mapToInt(ConfigurationView::getEventTicketId).max()
+                    .ifPresent(Configuration::continueTicketIdsAfter); // New configurations must not reuse imported IDs
+            System.out.println(imported.size() + " configuration(s) imported from " + filePath + ".\n");
+        } catch (IOException | InvalidPathException e) {
+            System.err.println("Error importing configurations: " + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Exports every configuration to a JSON file, which is replaced atomically. If an error occurs,
+     * it prints an error message.
+     *
+     * @param filePath The path of the JSON file to write.
+     */
+    public void exportConfigurations(String filePath) {
+        try {
+            List<Configuration> exported = configurations.getAll().stream()
+                    .map(ConfigurationView::toConfiguration) // Decode catalog records for Gson
+                    .toList();
+            ConfigurationStore.writeAll(Paths.get(filePath), exported);
+            System.out.println(exported.size() + " configuration(s) exported to " + filePath + ".\n");
+        } catch (IOException | InvalidPathException e) {
+            System.err.println("Error exporting configurations: " + e.getMessage() + "\n");
+        }
+    }
+
     /**
      * Ensures that the "config" directory exists. If it does not exist, it creates the directory.
      * This method is called before saving configurations to ensure the directory is available.
@@ -124,15 +262,14 @@ public class ConfigurationManager {
      * @param ticketId The ticket ID of the configuration to be removed.
      */
     public void removeConfiguration(int ticketId) {
-        // Search for the configuration with the given ticket ID
-        Optional<Configuration> toRemove = configurations.stream()
-                .filter(config -> config.getEventTicketId() == ticketId)
-                .findFirst(); // Return an Optional object to handle absence gracefully
-
-        if (toRemove.isPresent()) {
-            // If found, remove the configuration from the list and save the updated list
-            configurations.remove(toRemove.get());
-            saveConfigurations();
+        // Remove the configuration with the given ticket ID straight from the index
+        if (configurations.remove(ticketId) != null) {
+            // If found, log the removal
+            try {
+                store.remove(ticketId); // Log the removal
+            } catch (IOException e) {
+                System.err.println("Error saving configurations: " + e.getMessage() + "\n");
+            }
             System.out.println("Configuration with Ticket ID " + ticketId + " has been removed.\n");
         } else {
             // If not found, notify the user
@@ -142,22 +279,22 @@ public class ConfigurationManager {
 
     /**
      * Updates an existing configuration by its ticket ID. If a configuration with the specified
-     * ticket ID is found, the user is prompted to input new details, and the configuration is updated.
-     * The updated configuration list is then saved to the file.
+     * ticket ID is found, the user is prompted to input new details for a copy of it, and the copy
+     * replaces the configuration. The updated configuration is then saved to the file.
      *
      * @param ticketId The ticket ID of the configuration to be updated.
      */
     public void updateConfiguration(int ticketId) {
-        // Search for the configuration with the given ticket ID
-        Optional<Configuration> toUpdate = configurations.stream()
-                .filter(config -> config.getEventTicketId() == ticketId)
-                .findFirst(); // Return an Optional object to handle absence gracefully
+        // Look up the configuration with the given ticket ID
+        ConfigurationView current = configurations.findById(ticketId);
 
-        if (toUpdate.isPresent()) {
-            // If found, prompt the user for new input to update the configuration
+        if (current != null) {
+            // If found, prompt the user for new input on a copy, which running simulations cannot see yet
             System.out.println("Updating configuration for Ticket ID: " + ticketId);
-            toUpdate.get().promptForInput();  // Get new details from the user
-            saveConfigurations(); // Save the updated configuration list
+            Configuration toUpdate = new Configuration(current);
+            toUpdate.promptForInput();  // Get new details from the user
+            configurations.add(toUpdate); // Publish the updated copy; a running simulation takes on its rates and intervals
+            saveConfiguration(toUpdate); // Log the updated configuration
             System.out.println("Configuration for Ticket ID " + ticketId + " has been updated.\n");
         } else {
             // If not found, notify the user
@@ -166,11 +303,11 @@ public class ConfigurationManager {
     }
 
     /**
-     * Getter method to return the list of all configurations.
+     * Getter method to return the indexed configurations.
      *
-     * @return The list of all event configurations.
+     * @return The repository holding all event configurations.
      */
-    public List<Configuration> getConfigurations() {
-        return configurations; // Return the list of configurations
+    public ConfigurationRepository getConfigurations() {
+        return configurations; // Return the indexed configurations
     }
 }
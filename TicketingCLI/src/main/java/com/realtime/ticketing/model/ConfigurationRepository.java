@@ -0,0 +1,437 @@
+package com.realtime.ticketing.model;
+
+import com.realtime.ticketing.util.IntHashMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Holds the loaded event configurations in memory, indexed so that lookups do not scan every configuration.
+ *
+ * <ul>
+ *     <li>Event ticket IDs are kept in a primitive {@link IntHashMap}, so finding an event by ID is a single
+ *     hash probe without boxing the ID.</li>
+ *     <li>Vendor names and event titles are kept in hash indexes, matched exactly but ignoring case and
+ *     surrounding spaces.</li>
+ *     <li>Prices and maximum ticket capacities are kept in sorted indexes, so a range query only visits the
+ *     configurations inside the range.</li>
+ * </ul>
+ *
+ * <p>The repository is copy-on-write. Its contents are an immutable, versioned {@link Snapshot}, published
+ * through a volatile field. Readers, such as running simulations, never lock: each lookup reads the current
+ * snapshot, and {@link #snapshot()} hands out one snapshot for several consistent lookups. Writers take a lock,
+ * copy the current snapshot, apply their change and publish the copy with the next version number, so a reader
+ * never sees half a change. Configurations themselves must not change once added; an edit adds a changed copy
+ * in place of the original.</p>
+ *
+ * <p>The secondary indexes of a snapshot are built the first time it is searched, so loading a large catalog
+ * only fills the ID index. Vendor and title matches are sorted by event ticket ID; range matches are sorted by
+ * the ranged value. Configurations loaded from a binary {@link ConfigurationCatalog} stay views onto the mapped
+ * file until {@link #findConfiguration} decodes one.</p>
+ *
+ * <p>Listeners added with {@link #addListener} are handed every new snapshot as soon as it is published, in version
+ * order, which is how running simulations pick up changed settings.</p>
+ *
+ * @author Dharshan
+ */
+public class ConfigurationRepository {
+    private final Object writeLock = new Object();
+    private volatile Snapshot current = new Snapshot(0, new IntHashMap<>(), List.of());
+    private final List<Consumer<Snapshot>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates an empty repository.
+     */
+    public ConfigurationRepository() {
+    }
+
+    /**
+     * Creates a repository holding the given configurations.
+     *
+     * @param configurations the configurations to add
+     */
+    public ConfigurationRepository(Collection<? extends ConfigurationView> configurations) {
+        addAll(configurations);
+    }
+
+    /**
+     * Returns the current contents. The snapshot never changes, so several lookups on it agree with each other
+     * even while the repository is being changed.
+     *
+     * @return the current snapshot
+     */
+    public Snapshot snapshot() {
+        return current;
+    }
+
+    /**
+     * Registers a listener that is handed each snapshot published from now on. Listeners run on the thread that
+     * made the change, one change at a time, so they should be quick.
+     *
+     * @param listener the listener to call after every change
+     */
+    public void addListener(Consumer<Snapshot> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Returns the version of the current contents, which goes up by one with every change.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return current.version;
+    }
+
+    /**
+     * Adds a configuration, replacing any configuration with the same event ticket ID.
+     *
+     * @param configuration the configuration to add
+     */
+    public void add(ConfigurationView configuration) {
+        addAll(List.of(configuration));
+    }
+
+    /**
+     * Adds several configurations as one change, each replacing any configuration with the same event ticket ID.
+     *
+     * @param newConfigurations the configurations to add
+     */
+    public void addAll(Collection<? extends ConfigurationView> newConfigurations) {
+        synchronized (writeLock) {
+            Snapshot snapshot = current;
+            IntHashMap<ConfigurationView> byId = new IntHashMap<>(snapshot.byId);
+            Map<Integer, ConfigurationView> ordered = inOrder(snapshot);
+            for (ConfigurationView configuration : newConfigurations) {
+                byId.put(configuration.getEventTicketId(), configuration);
+                ordered.put(configuration.getEventTicketId(), configuration);
+            }
+            publish(snapshot, byId, ordered);
+        }
+    }
+
+    /**
+     * Replaces every configuration with the given ones as one change, so that loading the same configurations
+     * again leaves the repository as it was.
+     *
+     * @param newConfigurations the configurations to hold
+     */
+    public void replaceAll(Collection<? extends ConfigurationView> newConfigurations) {
+        synchronized (writeLock) {
+            IntHashMap<ConfigurationView> byId = new IntHashMap<>(newConfigurations.size());
+            Map<Integer, ConfigurationView> ordered = new LinkedHashMap<>();
+            for (ConfigurationView configuration : newConfigurations) {
+                byId.put(configuration.getEventTicketId(), configuration);
+                ordered.put(configuration.getEventTicketId(), configuration);
+            }
+            publish(current, byId, ordered);
+        }
+    }
+
+    /**
+     * Removes the configuration with the given event ticket ID.
+     *
+     * @param eventTicketId the ID of the configuration to remove
+     * @return the removed configuration, or null if there was none
+     */
+    public ConfigurationView remove(int eventTicketId) {
+        synchronized (writeLock) {
+            Snapshot snapshot = current;
+            if (!snapshot.byId.containsKey(eventTicketId)) {
+                return null;
+            }
+            IntHashMap<ConfigurationView> byId = new IntHashMap<>(snapshot.byId);
+            Map<Integer, ConfigurationView> ordered = inOrder(snapshot);
+            ordered.remove(eventTicketId);
+            ConfigurationView removed = byId.remove(eventTicketId);
+            publish(snapshot, byId, ordered);
+            return removed;
+        }
+    }
+
+    /**
+     * Removes every configuration.
+     */
+    public void clear() {
+        replaceAll(List.of());
+    }
+
+    /**
+     * Finds a configuration by its event ticket ID, without decoding it.
+     *
+     * @param eventTicketId the event ticket ID
+     * @return the configuration, or null if there is none
+     */
+    public ConfigurationView findById(int eventTicketId) {
+        return current.findById(eventTicketId);
+    }
+
+    /**
+     * Finds a configuration by its event ticket ID as a {@link Configuration}, decoding it if it is a catalog
+     * record. The result may be shared and must not be changed.
+     *
+     * @param eventTicketId the event ticket ID
+     * @return the configuration, or null if there is none
+     */
+    public Configuration findConfiguration(int eventTicketId) {
+        return current.findConfiguration(eventTicketId);
+    }
+
+    /**
+     * Finds the configurations of a vendor, ignoring case and surrounding spaces.
+     *
+     * @param vendorName the vendor name
+     * @return the matching configurations
+     */
+    public List<ConfigurationView> findByVendor(String vendorName) {
+        return current.findByVendor(vendorName);
+    }
+
+    /**
+     * Finds the configurations with an event title, ignoring case and surrounding spaces.
+     *
+     * @param title the event title
+     * @return the matching configurations
+     */
+    public List<ConfigurationView> findByTitle(String title) {
+        return current.findByTitle(title);
+    }
+
+    /**
+     * Finds the configurations whose ticket price lies in a range, cheapest first.
+     *
+     * @param minPrice the lowest price, inclusive
+     * @param maxPrice the highest price, inclusive
+     * @return the matching configurations
+     */
+    public List<ConfigurationView> findByPriceRange(double minPrice, double maxPrice) {
+        return current.findByPriceRange(minPrice, maxPrice);
+    }
+
+    /**
+     * Finds the configurations whose maximum ticket capacity lies in a range, smallest first.
+     *
+     * @param minCapacity the lowest capacity, inclusive
+     * @param maxCapacity the highest capacity, inclusive
+     * @return the matching configurations
+     */
+    public List<ConfigurationView> findByCapacityRange(int minCapacity, int maxCapacity) {
+        return current.findByCapacityRange(minCapacity, maxCapacity);
+    }
+
+    /**
+     * Returns every configuration, in the order they were added.
+     *
+     * @return the configurations, which cannot be modified
+     */
+    public List<ConfigurationView> getAll() {
+        return current.getAll();
+    }
+
+    /**
+     * Returns the number of configurations.
+     *
+     * @return the size
+     */
+    public int size() {
+        return current.size();
+    }
+
+    /**
+     * Checks whether there are no configurations.
+     *
+     * @return true if the repository is empty
+     */
+    public boolean isEmpty() {
+        return current.size() == 0;
+    }
+
+    // The configurations of a snapshot by ID, in order, for a writer to change; a replaced one keeps its place
+    private static Map<Integer, ConfigurationView> inOrder(Snapshot snapshot) {
+        Map<Integer, ConfigurationView> ordered = new LinkedHashMap<>();
+        snapshot.ordered.forEach(configuration -> ordered.put(configuration.getEventTicketId(), configuration));
+        return ordered;
+    }
+
+    private void publish(Snapshot previous, IntHashMap<ConfigurationView> byId,
+                         Map<Integer, ConfigurationView> ordered) {
+        Snapshot published = new Snapshot(previous.version + 1, byId, List.copyOf(ordered.values()));
+        current = published;
+        // Still under the write lock, so listeners see the snapshots in version order
+        listeners.forEach(listener -> listener.accept(published));
+    }
+
+    /**
+     * One immutable version of the repository's contents. Any number of threads may read it without locking.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final IntHashMap<ConfigurationView> byId; // Never changed once the snapshot is published
+        private final List<ConfigurationView> ordered;
+        private volatile SecondaryIndexes secondaryIndexes; // Built on the first search
+
+        private Snapshot(long version, IntHashMap<ConfigurationView> byId, List<ConfigurationView> ordered) {
+            this.version = version;
+            this.byId = byId;
+            this.ordered = ordered;
+        }
+
+        /**
+         * Returns the version of this snapshot.
+         *
+         * @return the version
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Finds a configuration by its event ticket ID, without decoding it.
+         *
+         * @param eventTicketId the event ticket ID
+         * @return the configuration, or null if there is none
+         */
+        public ConfigurationView findById(int eventTicketId) {
+            return byId.get(eventTicketId);
+        }
+
+        /**
+         * Finds a configuration by its event ticket ID as a {@link Configuration}, decoding it if it is a catalog
+         * record. The result may be shared and must not be changed.
+         *
+         * @param eventTicketId the event ticket ID
+         * @return the configuration, or null if there is none
+         */
+        public Configuration findConfiguration(int eventTicketId) {
+            ConfigurationView configuration = byId.get(eventTicketId);
+            return configuration == null ? null : configuration.toConfiguration();
+        }
+
+        /**
+         * Finds the configurations of a vendor, ignoring case and surrounding spaces.
+         *
+         * @param vendorName the vendor name
+         * @return the matching configurations
+         */
+        public List<ConfigurationView> findByVendor(String vendorName) {
+            return sortedById(secondaryIndexes().byVendor.get(normalize(vendorName)));
+        }
+
+        /**
+         * Finds the configurations with an event title, ignoring case and surrounding spaces.
+         *
+         * @param title the event title
+         * @return the matching configurations
+         */
+        public List<ConfigurationView> findByTitle(String title) {
+            return sortedById(secondaryIndexes().byTitle.get(normalize(title)));
+        }
+
+        /**
+         * Finds the configurations whose ticket price lies in a range, cheapest first.
+         *
+         * @param minPrice the lowest price, inclusive
+         * @param maxPrice the highest price, inclusive
+         * @return the matching configurations
+         */
+        public List<ConfigurationView> findByPriceRange(double minPrice, double maxPrice) {
+            if (minPrice > maxPrice) {
+                return new ArrayList<>();
+            }
+            return flatten(secondaryIndexes().byPrice.subMap(minPrice, true, maxPrice, true).values());
+        }
+
+        /**
+         * Finds the configurations whose maximum ticket capacity lies in a range, smallest first.
+         *
+         * @param minCapacity the lowest capacity, inclusive
+         * @param maxCapacity the highest capacity, inclusive
+         * @return the matching configurations
+         */
+        public List<ConfigurationView> findByCapacityRange(int minCapacity, int maxCapacity) {
+            if (minCapacity > maxCapacity) {
+                return new ArrayList<>();
+            }
+            return flatten(secondaryIndexes().byCapacity.subMap(minCapacity, true, maxCapacity, true).values());
+        }
+
+        /**
+         * Returns every configuration, in the order they were added.
+         *
+         * @return the configurations, which cannot be modified
+         */
+        public List<ConfigurationView> getAll() {
+            return ordered;
+        }
+
+        /**
+         * Returns the number of configurations.
+         *
+         * @return the size
+         */
+        public int size() {
+            return ordered.size();
+        }
+
+        // Threads that search a new snapshot at the same time may each build the indexes; the results are identical
+        private SecondaryIndexes secondaryIndexes() {
+            SecondaryIndexes indexes = secondaryIndexes;
+            if (indexes == null) {
+                indexes = new SecondaryIndexes(ordered);
+                secondaryIndexes = indexes;
+            }
+            return indexes;
+        }
+    }
+
+    // The vendor, title, price and capacity indexes of one snapshot
+    private static final class SecondaryIndexes {
+        private final Map<String, List<ConfigurationView>> byVendor = new HashMap<>();
+        private final Map<String, List<ConfigurationView>> byTitle = new HashMap<>();
+        private final NavigableMap<Double, List<ConfigurationView>> byPrice = new TreeMap<>();
+        private final NavigableMap<Integer, List<ConfigurationView>> byCapacity = new TreeMap<>();
+
+        private SecondaryIndexes(List<ConfigurationView> configurations) {
+            for (ConfigurationView configuration : configurations) {
+                add(byVendor, normalize(configuration.getVendorName()), configuration);
+                add(byTitle, normalize(configuration.getTitle()), configuration);
+                add(byPrice, configuration.getPrice(), configuration);
+                add(byCapacity, configuration.getMaxTicketCapacity(), configuration);
+            }
+        }
+
+        private static <K> void add(Map<K, List<ConfigurationView>> index, K key, ConfigurationView configuration) {
+            index.computeIfAbsent(key, unused -> new ArrayList<>()).add(configuration);
+        }
+    }
+
+    private static List<ConfigurationView> sortedById(List<ConfigurationView> matches) {
+        if (matches == null) {
+            return new ArrayList<>();
+        }
+        List<ConfigurationView> sorted = new ArrayList<>(matches);
+        sorted.sort(Comparator.comparingInt(ConfigurationView::getEventTicketId));
+        return sorted;
+    }
+
+    private static List<ConfigurationView> flatten(Collection<List<ConfigurationView>> groups) {
+        List<ConfigurationView> matches = new ArrayList<>();
+        groups.forEach(matches::addAll);
+        return matches;
+    }
+
+    // Configurations saved without a vendor or title are indexed under the empty string
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
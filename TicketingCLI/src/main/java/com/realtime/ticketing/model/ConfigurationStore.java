@@ -0,0 +1,372 @@
+package com.realtime.ticketing.model;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.InstanceCreator;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores event configurations in a JSON file plus an append-only patch log next to it, so that adding,
+ * updating or removing one configuration costs one short append instead of rewriting every configuration.
+ *
+ * <p>The JSON file holds an array of configurations and is read and written with Gson's streaming API through
+ * buffered streams, one configuration at a time. It is only ever replaced atomically: the new contents go to a
+ * temporary file, which is flushed to disk and then moved over the old one, so a crash leaves either the old or
+ * the new file, never a mix. Each change is appended to the patch log ({@code <file>.log}) as one JSON line and
+ * flushed to disk. Loading reads the file and applies the log on top; a line torn by a crash ends the log.
+ * Once the log holds {@code ticketing.config.compactAfter} patches (default 1000), the current configurations
+ * are written to the file and the log is cleared. Applying a patch twice has the same effect as applying it once,
+ * so a crash between those two steps is harmless.</p>
+ *
+ * <p>A file whose name ends with {@value ConfigurationCatalog#FILE_EXTENSION} is kept as a binary
+ * {@link ConfigurationCatalog} instead of JSON. Loading it only maps the file, and the configurations it holds are
+ * returned as views that read their settings from the mapping. If the catalog does not exist yet but a JSON file
+ * with the same base name does, the JSON configurations are imported into a new catalog.</p>
+ *
+ * <p>The store remembers the size and modification time of the file and the log as of its own last read or
+ * write, so {@link #hasChangedOnDisk()} can tell a change made by another program from one it made itself.</p>
+ *
+ * @author Dharshan
+ */
+public class ConfigurationStore {
+    // Patches kept in the log before it is folded into the JSON file
+    private static final int COMPACT_AFTER = Integer.getInteger("ticketing.config.compactAfter", 1000);
+
+    // Gson is thread-safe and expensive to create, so every store shares one. Configurations read from a file
+    // already have their ID, so they are created without using up a new one.
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Configuration.class, (InstanceCreator<Configuration>) type -> new Configuration(0))
+            .create();
+
+    private final Path file;
+    private final Path patchLog;
+
+    // The configurations as of the last load or change, keyed by event ticket ID, in insertion order
+    private final Map<Integer, ConfigurationView> configurations = new LinkedHashMap<>();
+    private int patchCount = 0;
+    private boolean patchLogTorn = false;
+    // The file and the log as this store last left them
+    private DiskState lastKnownState = DiskState.MISSING;
+
+    /**
+     * Creates a store for the given JSON file. Nothing is read until {@link #load()} is called.
+     *
+     * @param file the JSON file holding the configurations
+     */
+    public ConfigurationStore(Path file) {
+        this.file = file;
+        this.patchLog = file.resolveSibling(file.getFileName() + ".log");
+    }
+
+    /**
+     * Reads the configurations from the file and applies every patch logged since it was last written.
+     * Configurations in a binary catalog that no patch has changed are returned as catalog records.
+     *
+     * @return the configurations, in the order they were added
+     * @throws IOException if the file exists but cannot be read
+     */
+    public synchronized List<ConfigurationView> load() throws IOException {
+        Map<Integer, ConfigurationView> previous = new LinkedHashMap<>(configurations);
+        configurations.clear();
+        try {
+            if (ConfigurationCatalog.isCatalogFile(file)) {
+                loadCatalog();
+            } else if (Files.exists(file)) {
+                readAll(file).forEach(configuration -> configurations.put(configuration.getEventTicketId(), configuration));
+            }
+            patchCount = applyPatches();
+        } catch (IOException e) {
+            // A file caught half-written by another program must not wipe what was loaded before
+            configurations.clear();
+            configurations.putAll(previous);
+            throw e;
+        }
+        if (patchLogTorn) {
+            compact(); // Later appends would land after the torn line and never be read back
+        }
+        configurations.keySet().stream().mapToInt(Integer::intValue).max()
+                .ifPresent(Configuration::continueTicketIdsAfter);
+        lastKnownState = DiskState.read(file, patchLog);
+        return new ArrayList<>(configurations.values());
+    }
+
+    /**
+     * Saves a new or changed configuration by appending it to the patch log.
+     *
+     * @param configuration the configuration to save
+     * @throws IOException if the patch cannot be written
+     */
+    public synchronized void put(Configuration configuration) throws IOException {
+        appendPatch(writer -> {
+            writer.name("op").value("put");
+            writer.name("configuration");
+            GSON.toJson(configuration, Configuration.class, writer);
+        });
+        configurations.put(configuration.getEventTicketId(), configuration);
+        compactIfDue();
+        lastKnownState = DiskState.read(file, patchLog);
+    }
+
+    /**
+     * Removes a configuration by appending its removal to the patch log.
+     *
+     * @param eventTicketId the ID of the configuration to remove
+     * @throws IOException if the patch cannot be written
+     */
+    public synchronized void remove(int eventTicketId) throws IOException {
+        appendPatch(writer -> writer.name("op").value("remove").name("eventTicketId").value(eventTicketId));
+        configurations.remove(eventTicketId);
+        compactIfDue();
+        lastKnownState = DiskState.read(file, patchLog);
+    }
+
+    /**
+     * Replaces the stored configurations with the given ones, writing them to the JSON file and clearing the log.
+     *
+     * @param newConfigurations the configurations to store
+     * @throws IOException if the JSON file cannot be written; the previous contents are kept
+     */
+    public synchronized void saveAll(Collection<? extends ConfigurationView> newConfigurations) throws IOException {
+        configurations.clear();
+        newConfigurations.forEach(configuration -> configurations.put(configuration.getEventTicketId(), configuration));
+        compact();
+        lastKnownState = DiskState.read(file, patchLog);
+    }
+
+    /**
+     * Checks whether the file or the patch log has been changed by something other than this store since the
+     * store last read or wrote them.
+     *
+     * @return true if the configurations should be loaded again
+     */
+    public synchronized boolean hasChangedOnDisk() {
+        return !DiskState.read(file, patchLog).equals(lastKnownState);
+    }
+
+    /**
+     * Returns the file holding the configurations.
+     *
+     * @return the JSON or catalog file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the log that changes are appended to between rewrites of the file.
+     *
+     * @return the patch log
+     */
+    public Path getPatchLog() {
+        return patchLog;
+    }
+
+    /**
+     * Returns the number of patches logged since the JSON file was last written.
+     *
+     * @return the pending patches
+     */
+    public synchronized int getPendingPatches() {
+        return patchCount;
+    }
+
+    /**
+     * Writes configurations to a JSON file as an array, one configuration at a time through a buffered writer.
+     * The file is replaced atomically once it has been written and flushed to disk.
+     *
+     * @param target         the file to write
+     * @param configurations the configurations to write
+     * @throws IOException if the file cannot be written; the previous contents are kept
+     */
+    public static void writeAll(Path target, Collection<Configuration> configurations) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        try {
+            try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(temporary, StandardCharsets.UTF_8))) {
+                writer.beginArray();
+                for (Configuration configuration : configurations) {
+                    GSON.toJson(configuration, Configuration.class, writer);
+                }
+                writer.endArray();
+            }
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Reads a JSON array of configurations one configuration at a time, without holding the whole file in memory.
+     *
+     * @param source the file to read
+     * @return the configurations, in file order
+     * @throws IOException if the file cannot be read or is not a JSON array of configurations
+     */
+    public static List<Configuration> readAll(Path source) throws IOException {
+        List<Configuration> loaded = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(source, StandardCharsets.UTF_8))) {
+            if (reader.peek() == JsonToken.END_DOCUMENT) {
+                return loaded; // An empty file holds no configurations
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                loaded.add(GSON.fromJson(reader, Configuration.class));
+            }
+            reader.endArray();
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Invalid configuration file " + source + ": " + e.getMessage(), e);
+        }
+        return loaded;
+    }
+
+    private void loadCatalog() throws IOException {
+        if (Files.exists(file)) {
+            ConfigurationCatalog.open(file).records()
+                    .forEach(record -> configurations.put(record.getEventTicketId(), record));
+            return;
+        }
+
+        // First use of a catalog: start from the JSON file it replaces, if there is one
+        String name = file.getFileName().toString();
+        String baseName = name.substring(0, name.length() - ConfigurationCatalog.FILE_EXTENSION.length());
+        Path json = file.resolveSibling(baseName + ".json");
+        if (Files.exists(json)) {
+            readAll(json).forEach(configuration -> configurations.put(configuration.getEventTicketId(), configuration));
+            ConfigurationCatalog.write(file, configurations.values());
+        }
+    }
+
+    private void compactIfDue() throws IOException {
+        if (patchCount >= COMPACT_AFTER) {
+            compact();
+        }
+    }
+
+    // Writes the current configurations to the file first, so the log is only dropped once it is redundant
+    private void compact() throws IOException {
+        if (ConfigurationCatalog.isCatalogFile(file)) {
+            ConfigurationCatalog.write(file, configurations.values());
+        } else {
+            writeAll(file, configurations.values().stream().map(ConfigurationView::toConfiguration).toList());
+        }
+        Files.deleteIfExists(patchLog);
+        patchCount = 0;
+    }
+
+    private int applyPatches() throws IOException {
+        if (!Files.exists(patchLog)) {
+            return 0;
+        }
+
+        int applied = 0;
+        patchLogTorn = false;
+        try (BufferedReader lines = Files.newBufferedReader(patchLog, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (!applyPatch(line)) {
+                    patchLogTorn = true;
+                    break; // Torn by a crash while it was being appended; nothing after it was acknowledged
+                }
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    private boolean applyPatch(String line) {
+        try (JsonReader reader = new JsonReader(new StringReader(line))) {
+            String op = null;
+            Configuration configuration = null;
+            Integer eventTicketId = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "op" -> op = reader.nextString();
+                    case "configuration" -> configuration = GSON.fromJson(reader, Configuration.class);
+                    case "eventTicketId" -> eventTicketId = reader.nextInt();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if ("put".equals(op) && configuration != null) {
+                configurations.put(configuration.getEventTicketId(), configuration);
+                return true;
+            }
+            if ("remove".equals(op) && eventTicketId != null) {
+                configurations.remove(eventTicketId);
+                return true;
+            }
+            return false;
+        } catch (IOException | JsonParseException | IllegalStateException | NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private void appendPatch(PatchWriter body) throws IOException {
+        StringWriter line = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(line)) {
+            writer.beginObject();
+            body.write(writer);
+            writer.endObject();
+        }
+        line.write('\n');
+
+        // One write and one flush to disk per change, however many configurations there are
+        ByteBuffer bytes = ByteBuffer.wrap(line.toString().getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(patchLog, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        }
+        patchCount++;
+    }
+
+    // Writes the fields of one patch
+    @FunctionalInterface
+    private interface PatchWriter {
+        void write(JsonWriter writer) throws IOException;
+    }
+
+    // Size and modification time of the file and the log; a missing file has size -1
+    private record DiskState(long fileSize, FileTime fileModified, long logSize, FileTime logModified) {
+        static final DiskState MISSING = new DiskState(-1, null, -1, null);
+
+        static DiskState read(Path file, Path patchLog) {
+            try {
+                boolean hasFile = Files.exists(file);
+                boolean hasLog = Files.exists(patchLog);
+                return new DiskState(hasFile ? Files.size(file) : -1, hasFile ? Files.getLastModifiedTime(file) : null,
+                        hasLog ? Files.size(patchLog) : -1, hasLog ? Files.getLastModifiedTime(patchLog) : null);
+            } catch (IOException e) {
+                return MISSING; // Deleted while being looked at; the next look settles it
+            }
+        }
+    }
+}
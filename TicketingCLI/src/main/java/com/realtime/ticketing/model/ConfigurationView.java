@@ -0,0 +1,102 @@
+package com.realtime.ticketing.model;
+
+/**
+ * Read-only access to the settings of an event configuration. A {@link Configuration} is its own view;
+ * a {@link ConfigurationCatalog.Record} reads each setting straight from a memory-mapped catalog file when it
+ * is asked for, so configurations can be listed and searched without decoding every one of them.
+ *
+ * @author Dharshan
+ */
+public interface ConfigurationView {
+
+    /**
+     * Gets the event ticket ID.
+     *
+     * @return the event ticket ID
+     */
+    int getEventTicketId();
+
+    /**
+     * Gets the vendor name.
+     *
+     * @return the vendor name, or null if none was saved
+     */
+    String getVendorName();
+
+    /**
+     * Gets the event title.
+     *
+     * @return the event title, or null if none was saved
+     */
+    String getTitle();
+
+    /**
+     * Gets the maximum ticket capacity of the pool.
+     *
+     * @return the maximum ticket capacity
+     */
+    int getMaxTicketCapacity();
+
+    /**
+     * Gets the total number of tickets for the event.
+     *
+     * @return the total number of tickets
+     */
+    int getTotalTickets();
+
+    /**
+     * Gets the number of tickets each vendor releases at a time.
+     *
+     * @return the ticket release rate
+     */
+    int getTicketReleaseRate();
+
+    /**
+     * Gets the number of tickets each customer buys at a time.
+     *
+     * @return the customer retrieval rate
+     */
+    int getCustomerRetrievalRate();
+
+    /**
+     * Gets the time between releases, in milliseconds.
+     *
+     * @return the ticket release interval
+     */
+    int getTicketReleaseInterval();
+
+    /**
+     * Gets the time between purchases, in milliseconds.
+     *
+     * @return the customer retrieval interval
+     */
+    int getCustomerRetrievalInterval();
+
+    /**
+     * Gets the number of vendors that release tickets during a simulation.
+     *
+     * @return the number of vendors
+     */
+    int getVendorCount();
+
+    /**
+     * Gets the number of customers that purchase tickets during a simulation.
+     *
+     * @return the number of customers
+     */
+    int getCustomerCount();
+
+    /**
+     * Gets the ticket price.
+     *
+     * @return the ticket price
+     */
+    double getPrice();
+
+    /**
+     * Returns these settings as an editable configuration, decoding them if necessary.
+     *
+     * @return a configuration with these settings
+     */
+    Configuration toConfiguration();
+}
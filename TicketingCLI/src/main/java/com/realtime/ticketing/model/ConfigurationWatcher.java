@@ -0,0 +1,104 @@
+package com.realtime.ticketing.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the files of a {@link ConfigurationStore} with an NIO {@link WatchService} and runs an action when
+ * they change.
+ *
+ * <p>A watch service reports directories, so the watcher registers the directory holding the configuration file
+ * and ignores every other file in it. Saving a file usually fires several events in a row (a temporary file being
+ * moved into place, then the patch log being cleared), so after the first event the watcher waits until the
+ * directory has been quiet for a short while and runs the action once for the whole burst. The action runs on the
+ * watcher's own daemon thread.</p>
+ *
+ * @author Dharshan
+ */
+public class ConfigurationWatcher implements Closeable {
+    // How long the directory must stay quiet before a burst of events counts as one change
+    private static final long SETTLE_MS = 200;
+
+    private final WatchService watchService;
+    private final Set<Path> watchedNames;
+    private final Runnable onChange;
+
+    /**
+     * Starts watching the configuration file and patch log of a store.
+     *
+     * @param store    the store whose files are watched
+     * @param onChange the action to run after the files change
+     * @throws IOException if the directory holding the files cannot be watched
+     */
+    public ConfigurationWatcher(ConfigurationStore store, Runnable onChange) throws IOException {
+        Path directory = store.getFile().toAbsolutePath().getParent();
+        this.watchedNames = Set.of(store.getFile().getFileName(), store.getPatchLog().getFileName());
+        this.onChange = onChange;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        try {
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+
+        Thread watchThread = new Thread(this::watch, "configuration-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                boolean changed = drain(watchService.take());
+                // Gather the rest of the burst before acting on it
+                WatchKey key;
+                while ((key = watchService.poll(SETTLE_MS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(key);
+                }
+                if (changed) {
+                    try {
+                        onChange.run();
+                    } catch (RuntimeException e) {
+                        System.err.println("Error applying changed configurations: " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed; stop watching
+        }
+    }
+
+    // Reads the events of one key and reports whether any concerned the watched files
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            // An overflow means events were lost, and any of them may have been for the watched files
+            changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || watchedNames.contains((Path) event.context());
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Stops watching. An action that is already running is allowed to finish.
+     */
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Error closing the configuration watcher: " + e.getMessage());
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.realtime.ticketing.model;
 
 import com.realtime.ticketing.util.LoggerUtil;
+import com.realtime.ticketing.util.TokenBucket;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 /**
@@ -10,7 +13,14 @@ import java.util.logging.Logger;
  * to simulate real-time customer interactions with the ticket pool.
  *
  * <p>The Customer retrieves tickets from the shared TicketPool at a specified rate
- * and interval. The thread continues running until it is interrupted.</p>
+ * and interval. The thread continues running until it is interrupted or the simulation ends.
+ * Purchases are paced by a {@link TokenBucket} that earns one purchase per interval, so the configured rate holds
+ * however long each purchase takes, and an interval of 0 does not spin. The rate and interval can be changed while
+ * the customer runs.</p>
+ *
+ * <p>If the pool has a {@link WaitingRoom}, the customer joins its queue before each purchase and only buys from
+ * the pool once admitted, leaving the room when the purchase succeeds. A purchase tried while still queued buys
+ * nothing and leaves the pool alone.</p>
  *
  * <p>Each Customer thread interacts with the TicketPool in a synchronized manner
  * to ensure thread safety when accessing the shared resource.</p>
@@ -21,39 +31,78 @@ public class Customer implements Runnable {
     // Logger instance for logging customer actions and events
     //private static final Logger logger = LoggerUtil.getLogger(Customer.class);
 
+    // Longest single wait for tickets before the customer re-checks its state
+    private static final long HANDOFF_TIMEOUT_MS = 1000;
+
+    // The name identifying this customer in simulation reports
+    private final String name;
     // The shared TicketPool that the Customer interacts with
     private final TicketPool ticketPool;
     // The rate at which tickets will be retrieved by the customer
-    private final int retrievalRate;
+    private volatile int retrievalRate;
     // The time interval between each retrieval action (in milliseconds)
-    private final int retrievalInterval;
+    private volatile int retrievalInterval;
+    // Earns one purchase per retrieval interval
+    private final TokenBucket pacer;
+    // How the customer behaves when the pool is empty
+    private final HandoffMode handoffMode;
+    // The number of tickets this customer has purchased, read by the simulation report
+    private final AtomicLong ticketsPurchased = new AtomicLong();
+    // This customer's number in the pool's waiting room, or -1 if it is not queued
+    private volatile long queueNumber = -1;
 
     /**
-     * Constructor to initialize the customer with the TicketPool and retrieval settings.
+     * Constructor to initialize a customer named "Customer" with the TicketPool and retrieval settings.
      *
      * @param ticketPool The shared TicketPool from which tickets are retrieved.
      * @param retrievalRate The rate at which tickets are retrieved.
      * @param retrievalInterval The time interval (in milliseconds) between each retrieval.
      *
-     * @throws IllegalArgumentException if the retrieval rate or interval is less than or equal to 0.
+     * @throws IllegalArgumentException if the retrieval rate is less than or equal to 0 or the interval is negative.
      */
     public Customer(TicketPool ticketPool, int retrievalRate, int retrievalInterval) {
-        // Validate that retrieval rate and interval are greater than 0
-        if (retrievalRate <= 0) {
-            throw new IllegalArgumentException("Retrieval rate must be greater than 0.");
-        }
-        if (retrievalInterval <= 0) {
-            throw new IllegalArgumentException("Retrieval interval must be greater than 0.");
-        }
-        // Initialize the fields with provided values
+        this("Customer", ticketPool, retrievalRate, retrievalInterval);
+    }
+
+    /**
+     * Constructor to initialize the customer with the TicketPool and retrieval settings.
+     *
+     * @param name The name identifying this customer in simulation reports.
+     * @param ticketPool The shared TicketPool from which tickets are retrieved.
+     * @param retrievalRate The rate at which tickets are retrieved.
+     * @param retrievalInterval The time interval (in milliseconds) between each retrieval.
+     *
+     * @throws IllegalArgumentException if the retrieval rate is less than or equal to 0 or the interval is negative.
+     */
+    public Customer(String name, TicketPool ticketPool, int retrievalRate, int retrievalInterval) {
+        this(name, ticketPool, retrievalRate, retrievalInterval, HandoffMode.SLEEP_POLL);
+    }
+
+    /**
+     * Constructor to initialize the customer with a hand-off mode. With {@link HandoffMode#BLOCKING} the customer
+     * waits on the pool while it is empty and wakes as soon as a vendor releases tickets.
+     *
+     * @param name The name identifying this customer in simulation reports.
+     * @param ticketPool The shared TicketPool from which tickets are retrieved.
+     * @param retrievalRate The rate at which tickets are retrieved.
+     * @param retrievalInterval The time interval (in milliseconds) between each retrieval.
+     * @param handoffMode How the customer behaves when the pool is empty.
+     *
+     * @throws IllegalArgumentException if the retrieval rate is less than or equal to 0 or the interval is negative.
+     */
+    public Customer(String name, TicketPool ticketPool, int retrievalRate, int retrievalInterval, HandoffMode handoffMode) {
+        // Initialize the fields with provided values, rejecting a rate that is not greater than 0
+        this.name = name;
         this.ticketPool = ticketPool;
-        this.retrievalRate = retrievalRate;
+        setRetrievalRate(retrievalRate);
+        this.pacer = new TokenBucket(retrievalInterval); // Rejects a negative interval
         this.retrievalInterval = retrievalInterval;
+        this.handoffMode = handoffMode;
     }
 
     /**
      * The main method that runs in the Customer thread. This method keeps running
-     * until the thread is interrupted. It attempts to retrieve tickets from the
+     * until the thread is interrupted or the simulation ends. It attempts to retrieve tickets from the
      * TicketPool at the specified rate and interval.
      *
      * <p>The method synchronizes access to the TicketPool and logs success or
@@ -63,13 +112,150 @@ public class Customer implements Runnable {
     @Override
     public void run() {
         try {
-            while (!Thread.currentThread().isInterrupted()) {
-                // Use the purchaseTickets method from TicketPool
-                ticketPool.purchaseTicket();
-                Thread.sleep(retrievalInterval);
+            while (!Thread.currentThread().isInterrupted() && !ticketPool.isSimulationComplete()) {
+                if (handoffMode == HandoffMode.BLOCKING && !awaitAdmission()) {
+                    continue; // Still queued in the waiting room
+                }
+                if (handoffMode == HandoffMode.BLOCKING && !ticketPool.awaitTickets(HANDOFF_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    continue; // Nothing released yet; keep waiting for a vendor
+                }
+                // Wait for the next purchase to be due, then use the purchaseTickets method from TicketPool
+                pacer.acquire();
+                retrieveTickets();
             }
         } catch (InterruptedException e) {
             System.out.println("Customer thread interrupted.");
         }
     }
+
+    /**
+     * Performs a single purchase of up to {@code retrievalRate} tickets from the pool.
+     * {@link #run()} calls this once per interval; a scheduler can call it directly instead, paced by
+     * {@link #getPacer()}.
+     * Successful purchases are timed into the pool's {@link TicketPoolMetrics}.
+     *
+     * @return The number of tickets purchased.
+     */
+    public int retrieveTickets() {
+        WaitingRoom waitingRoom = ticketPool.getWaitingRoom();
+        if (waitingRoom != null && !waitingRoom.isAdmitted(queueNumber(waitingRoom))) {
+            return 0; // Not this customer's turn yet
+        }
+        long startNanos = System.nanoTime();
+        int purchased = ticketPool.purchaseTicket(retrievalRate).length;
+        if (purchased > 0) {
+            ticketPool.getMetrics().recordPurchaseLatency(System.nanoTime() - startNanos);
+            ticketsPurchased.addAndGet(purchased);
+            if (waitingRoom != null) {
+                waitingRoom.leave(queueNumber);
+                queueNumber = -1; // The next purchase queues again
+            }
+        }
+        return purchased;
+    }
+
+    // Joins the waiting room unless this customer is already queued, and returns its queue number
+    private long queueNumber(WaitingRoom waitingRoom) {
+        if (queueNumber < 0) {
+            queueNumber = waitingRoom.join();
+        }
+        return queueNumber;
+    }
+
+    // Waits for this customer's turn in the pool's waiting room, if it has one
+    private boolean awaitAdmission() throws InterruptedException {
+        WaitingRoom waitingRoom = ticketPool.getWaitingRoom();
+        return waitingRoom == null
+                || waitingRoom.awaitAdmission(queueNumber(waitingRoom), HANDOFF_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns this customer's place in the pool's waiting room.
+     *
+     * @return 0 if admitted or not queued, otherwise the customer's position in the queue
+     */
+    public long getQueuePosition() {
+        WaitingRoom waitingRoom = ticketPool.getWaitingRoom();
+        long number = queueNumber;
+        return waitingRoom == null || number < 0 ? 0 : waitingRoom.getPosition(number);
+    }
+
+    /**
+     * Returns the rate at which this customer retrieves tickets.
+     *
+     * @return The retrieval rate.
+     */
+    public int getRetrievalRate() {
+        return retrievalRate;
+    }
+
+    /**
+     * Changes the rate at which this customer retrieves tickets, starting with its next purchase.
+     *
+     * @param retrievalRate The new retrieval rate.
+     * @throws IllegalArgumentException if the retrieval rate is less than or equal to 0.
+     */
+    public void setRetrievalRate(int retrievalRate) {
+        if (retrievalRate <= 0) {
+            throw new IllegalArgumentException("Retrieval rate must be greater than 0.");
+        }
+        this.retrievalRate = retrievalRate;
+    }
+
+    /**
+     * Returns the interval (in milliseconds) between purchases.
+     *
+     * @return The retrieval interval.
+     */
+    public int getRetrievalInterval() {
+        return retrievalInterval;
+    }
+
+    /**
+     * Changes the interval between purchases. A customer running on its own thread picks it up at once; one run by
+     * a {@link com.realtime.ticketing.util.RateScheduler} picks it up when its task is woken.
+     *
+     * @param retrievalInterval The new retrieval interval, in milliseconds.
+     * @throws IllegalArgumentException if the retrieval interval is negative.
+     */
+    public void setRetrievalInterval(int retrievalInterval) {
+        pacer.setInterval(retrievalInterval);
+        this.retrievalInterval = retrievalInterval;
+    }
+
+    /**
+     * Returns the token bucket that paces this customer's purchases.
+     *
+     * @return The pacer.
+     */
+    public TokenBucket getPacer() {
+        return pacer;
+    }
+
+    /**
+     * Returns the number of tickets per second this customer is paced to purchase while tickets are available.
+     *
+     * @return The target retrieval rate.
+     */
+    public double getTargetTicketsPerSecond() {
+        return retrievalRate * pacer.getRatePerSecond();
+    }
+
+    /**
+     * Returns the name identifying this customer.
+     *
+     * @return The customer name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of tickets this customer has purchased so far.
+     *
+     * @return The number of tickets purchased.
+     */
+    public long getTicketsPurchased() {
+        return ticketsPurchased.get();
+    }
 }
@@ -0,0 +1,28 @@
+package com.realtime.ticketing.model;
+
+/**
+ * How vendors and customers react when the ticket pool cannot serve them right away.
+ *
+ * @author Dharshan
+ */
+public enum HandoffMode {
+    /** Try the pool, and if it is empty (or full) log a warning and sleep until the next interval. */
+    SLEEP_POLL("Sleep and poll"),
+    /** Wait on the pool until a vendor releases tickets (or a customer frees space), then act at once. */
+    BLOCKING("Blocking hand-off");
+
+    private final String description;
+
+    HandoffMode(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Returns a human-readable description of this mode.
+     *
+     * @return the description
+     */
+    public String getDescription() {
+        return description;
+    }
+}
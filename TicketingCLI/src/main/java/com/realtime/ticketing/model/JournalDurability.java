@@ -0,0 +1,46 @@
+package com.realtime.ticketing.model;
+
+/**
+ * How hard a {@link TicketJournal} works to get each record onto disk before the sale that wrote it completes.
+ *
+ * <p>Records are always written to a memory-mapped file, so they survive the JVM crashing as soon as they
+ * are written; the levels differ in what it takes to survive the whole machine going down.</p>
+ *
+ * @author Dharshan
+ */
+public enum JournalDurability {
+    /** No journal is kept; sales are lost if the application stops. */
+    NONE("No journal"),
+    /** Records are forced to disk in the background every flush interval; nothing waits for the disk. */
+    ASYNC("Asynchronous flush"),
+    /** Each release and sale waits for a disk flush, but one flush covers every record written while the previous one ran. */
+    GROUP_COMMIT("Group commit"),
+    /** Every record is forced to disk on its own before the release or sale completes. */
+    SYNC("Flush every record");
+
+    private final String description;
+
+    JournalDurability(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Returns a human-readable description of this level.
+     *
+     * @return the description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns the level set with the {@code ticketing.journal.durability} system property, or
+     * {@link #GROUP_COMMIT} if none is set.
+     *
+     * @return the configured durability level
+     * @throws IllegalArgumentException if the property does not name a level
+     */
+    public static JournalDurability configured() {
+        return valueOf(System.getProperty("ticketing.journal.durability", GROUP_COMMIT.name()).trim().toUpperCase());
+    }
+}
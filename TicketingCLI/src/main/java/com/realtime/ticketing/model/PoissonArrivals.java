@@ -0,0 +1,55 @@
+package com.realtime.ticketing.model;
+
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+/**
+ * Customers arriving independently at a steady average rate, so the time between arrivals is exponentially
+ * distributed. The process never ends.
+ *
+ * @author Dharshan
+ */
+public class PoissonArrivals implements ArrivalProcess {
+    private final double ratePerSecond;
+
+    /**
+     * Creates a Poisson process.
+     *
+     * @param ratePerSecond the average number of customers arriving per second
+     * @throws IllegalArgumentException if the rate is not greater than 0
+     */
+    public PoissonArrivals(double ratePerSecond) {
+        if (!(ratePerSecond > 0)) {
+            throw new IllegalArgumentException("The arrival rate must be greater than 0.");
+        }
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong arrivals(Random random) {
+        return new PrimitiveIterator.OfLong() {
+            private double nowSeconds = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public long nextLong() {
+                nowSeconds += nextGapSeconds(random, ratePerSecond);
+                return (long) (nowSeconds * 1_000_000_000.0);
+            }
+        };
+    }
+
+    @Override
+    public String describe() {
+        return "poisson:" + ratePerSecond;
+    }
+
+    // Draws the exponentially distributed time to the next arrival
+    static double nextGapSeconds(Random random, double ratePerSecond) {
+        return -Math.log(1.0 - random.nextDouble()) / ratePerSecond;
+    }
+}
@@ -0,0 +1,118 @@
+package com.realtime.ticketing.model;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A hold on specific tickets taken out of a {@link TicketPool} by {@link TicketPool#reserve}.
+ *
+ * <p>While a reservation is held its tickets cannot be bought by anyone else and still occupy room in
+ * the pool. The holder either {@link #commit() commits} it, which sells the tickets, or {@link #release()
+ * releases} it, which puts them back into the pool. A reservation that is neither committed nor released
+ * before its time-to-live runs out expires, and its tickets go back into the pool. A reservation ends
+ * exactly once: whichever of commit, release and expiry happens first wins.</p>
+ *
+ * @author Dharshan
+ */
+public class Reservation {
+
+    /**
+     * The life cycle of a reservation.
+     */
+    public enum State {
+        /** The tickets are held and waiting to be committed or released. */
+        HELD,
+        /** The tickets were sold. */
+        COMMITTED,
+        /** The tickets were put back into the pool by the holder. */
+        RELEASED,
+        /** The tickets were put back into the pool because the reservation timed out. */
+        EXPIRED
+    }
+
+    private final long reservationId;
+    private final TicketPool ticketPool;
+    private final long[] ticketIds;
+    private final long expiresAtNanos;
+    private final AtomicReference<State> state = new AtomicReference<>(State.HELD);
+
+    Reservation(long reservationId, TicketPool ticketPool, long[] ticketIds, long expiresAtNanos) {
+        this.reservationId = reservationId;
+        this.ticketPool = ticketPool;
+        this.ticketIds = ticketIds;
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    /**
+     * Sells the reserved tickets.
+     *
+     * @return true if the tickets were sold, false if the reservation had already ended or has expired
+     */
+    public boolean commit() {
+        return ticketPool.commit(this);
+    }
+
+    /**
+     * Puts the reserved tickets back into the pool.
+     *
+     * @return true if the tickets were put back, false if the reservation had already ended
+     */
+    public boolean release() {
+        return ticketPool.release(this, State.RELEASED);
+    }
+
+    /**
+     * Returns the ID of this reservation, unique within its pool.
+     *
+     * @return the reservation ID
+     */
+    public long getReservationId() {
+        return reservationId;
+    }
+
+    /**
+     * Returns the IDs of the reserved tickets.
+     *
+     * @return a copy of the ticket IDs
+     */
+    public long[] getTicketIds() {
+        return ticketIds.clone();
+    }
+
+    /**
+     * Returns the number of tickets held by this reservation.
+     *
+     * @return the ticket count
+     */
+    public int getTicketCount() {
+        return ticketIds.length;
+    }
+
+    /**
+     * Returns the current state of this reservation.
+     *
+     * @return the state
+     */
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Checks whether the reservation's time-to-live has run out at the given time.
+     *
+     * @param nanoTime a reading of the pool's clock, which is {@link System#nanoTime()} unless the pool runs on virtual time
+     * @return true if the reservation is past its expiry time
+     */
+    public boolean isExpiredAt(long nanoTime) {
+        return nanoTime - expiresAtNanos >= 0;
+    }
+
+    // The ticket IDs without copying, for the pool that owns them
+    long[] ticketIds() {
+        return ticketIds;
+    }
+
+    // Ends a held reservation; only the first caller succeeds
+    boolean end(State endState) {
+        return state.compareAndSet(State.HELD, endState);
+    }
+}
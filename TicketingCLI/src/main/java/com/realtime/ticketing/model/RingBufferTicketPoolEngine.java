@@ -0,0 +1,221 @@
+package com.realtime.ticketing.model;
+
+import com.realtime.ticketing.util.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free {@link TicketPoolEngine} backed by a bounded ring buffer of primitive 64-bit ticket IDs.
+ *
+ * <p>Any number of vendors and customers can use the engine at the same time. A release or purchase
+ * first claims its share of the pool with a compare-and-set on a counter, then claims a contiguous
+ * range of ring positions with a single {@code getAndAdd}. Each slot carries a sequence number that tells
+ * a producer when the slot is free and a consumer when its ticket has been published, so no monitor is
+ * ever taken. A consumer may briefly spin on a slot whose producer has claimed it but not yet written it, and a
+ * producer on a slot whose previous ticket is still being read. After a short spin the waiting thread yields, so
+ * that with more threads than processors the thread it waits for gets to run.</p>
+ *
+ * <p>Releases and purchases are O(batch size) regardless of how many tickets are in the pool.</p>
+ *
+ * @author Dharshan
+ */
+public class RingBufferTicketPoolEngine implements TicketPoolEngine {
+    // Largest pool the ring can hold; the slot count is rounded up to a power of two
+    private static final int MAX_CAPACITY = 1 << 30;
+    // Spins on a slot before yielding the processor to the thread that is due to fill or free it
+    private static final int SPINS_BEFORE_YIELD = 100;
+
+    private final int maxTicketCapacity;
+    private final int totalTickets;
+
+    // Ring storage: slot contents and the position each slot is waiting for
+    private final long[] buffer;
+    private final AtomicIntegerArray sequences;
+    private final int mask;
+
+    // Next ring positions to write and to read
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    // Capacity not yet claimed by a release, and tickets published but not yet claimed by a purchase or reservation
+    private final AtomicInteger freeSpace;
+    private final AtomicInteger available = new AtomicInteger();
+
+    // Tickets released to the pool so far (including those since sold), tickets reserved and tickets sold
+    private final AtomicInteger released = new AtomicInteger();
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final AtomicInteger sold = new AtomicInteger();
+
+    // There is no lock to wait for, so this stays empty
+    private final LatencyHistogram lockWait = new LatencyHistogram();
+
+    /**
+     * Constructs an empty engine.
+     *
+     * @param maxTicketCapacity the maximum number of tickets the pool can hold
+     * @param totalTickets      the total number of tickets to be sold for the event
+     * @throws IllegalArgumentException if the capacity is larger than the ring can hold
+     */
+    public RingBufferTicketPoolEngine(int maxTicketCapacity, int totalTickets) {
+        if (maxTicketCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Max ticket capacity must not exceed " + MAX_CAPACITY + ".");
+        }
+
+        this.maxTicketCapacity = maxTicketCapacity;
+        this.totalTickets = totalTickets;
+
+        int slots = Integer.highestOneBit(Math.max(1, maxTicketCapacity - 1)) << 1;
+        this.buffer = new long[slots];
+        this.sequences = new AtomicIntegerArray(slots);
+        this.mask = slots - 1;
+        for (int i = 0; i < slots; i++) {
+            sequences.set(i, i); // Slot i is free for position i
+        }
+
+        this.freeSpace = new AtomicInteger(maxTicketCapacity);
+    }
+
+    @Override
+    public boolean offer(long[] ticketIds, int count) {
+        if (count <= 0) {
+            return false;
+        }
+
+        // Claim the tickets from the event's release budget
+        int releasedSoFar;
+        do {
+            releasedSoFar = released.get();
+            if (count > totalTickets - releasedSoFar) {
+                return false;
+            }
+        } while (!released.compareAndSet(releasedSoFar, releasedSoFar + count));
+
+        // Claim room in the pool, giving the budget back if the pool is full
+        int space;
+        do {
+            space = freeSpace.get();
+            if (count > space) {
+                released.addAndGet(-count);
+                return false;
+            }
+        } while (!freeSpace.compareAndSet(space, space - count));
+
+        publish(ticketIds, 0, count);
+        return true;
+    }
+
+    // Writes tickets into the ring and makes them available; the caller must already hold room for them
+    private void publish(long[] ticketIds, int offset, int count) {
+        // Space is reserved, so every claimed slot is free or about to be freed by a consumer
+        long start = tail.getAndAdd(count);
+        for (int i = 0; i < count; i++) {
+            long position = start + i;
+            int index = (int) position & mask;
+            for (int spins = 0; sequences.get(index) != (int) position; spins++) {
+                backOff(spins);
+            }
+            buffer[index] = ticketIds[offset + i];
+            sequences.set(index, (int) (position + 1)); // Publish the ticket
+        }
+
+        available.addAndGet(count);
+    }
+
+    @Override
+    public int reserve(long[] destination, int minTickets, int maxTickets) {
+        if (maxTickets <= 0 || minTickets > maxTickets) {
+            return 0;
+        }
+
+        // Claim a share of the published tickets, or nothing if fewer than the minimum are available
+        int ticketsAvailable;
+        int ticketsReserved;
+        do {
+            ticketsAvailable = available.get();
+            if (ticketsAvailable == 0 || ticketsAvailable < minTickets) {
+                return 0;
+            }
+            ticketsReserved = Math.min(ticketsAvailable, maxTickets);
+        } while (!available.compareAndSet(ticketsAvailable, ticketsAvailable - ticketsReserved));
+
+        long start = head.getAndAdd(ticketsReserved);
+        for (int i = 0; i < ticketsReserved; i++) {
+            long position = start + i;
+            int index = (int) position & mask;
+            for (int spins = 0; sequences.get(index) != (int) (position + 1); spins++) {
+                backOff(spins); // The producer of this slot has not written it yet
+            }
+            destination[i] = buffer[index];
+            sequences.set(index, (int) (position + buffer.length)); // Free the slot for the next lap
+        }
+
+        reserved.addAndGet(ticketsReserved);
+        return ticketsReserved;
+    }
+
+    // Spins while the wait is likely to be short, then yields, in case the other thread is not running at all
+    private static void backOff(int spins) {
+        if (spins < SPINS_BEFORE_YIELD) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+    }
+
+    @Override
+    public void commit(int ticketCount) {
+        sold.addAndGet(ticketCount);
+        reserved.addAndGet(-ticketCount);
+        freeSpace.addAndGet(ticketCount);
+    }
+
+    @Override
+    public void requeue(long[] ticketIds, int offset, int ticketCount) {
+        // The reservation still holds its room in the pool, so the tickets can be published without claiming space
+        publish(ticketIds, offset, ticketCount);
+        reserved.addAndGet(-ticketCount);
+    }
+
+    @Override
+    public void restore(long[] ticketIds, int ticketCount, int ticketsSold) {
+        if (ticketCount > maxTicketCapacity || (long) ticketCount + ticketsSold > totalTickets) {
+            throw new IllegalStateException("Restored tickets do not fit the pool or the event's total.");
+        }
+        released.set(ticketsSold + ticketCount);
+        sold.set(ticketsSold);
+        freeSpace.addAndGet(-ticketCount);
+        publish(ticketIds, 0, ticketCount);
+    }
+
+    @Override
+    public int size() {
+        return available.get();
+    }
+
+    @Override
+    public int reserved() {
+        return reserved.get();
+    }
+
+    @Override
+    public int capacity() {
+        return maxTicketCapacity;
+    }
+
+    @Override
+    public int ticketsSold() {
+        return sold.get();
+    }
+
+    @Override
+    public int ticketsRemainingToBeReleased() {
+        return totalTickets - released.get();
+    }
+
+    @Override
+    public LatencyHistogram getLockWait() {
+        return lockWait;
+    }
+}
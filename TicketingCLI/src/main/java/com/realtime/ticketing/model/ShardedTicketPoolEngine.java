@@ -0,0 +1,297 @@
+package com.realtime.ticketing.model;
+
+import com.realtime.ticketing.util.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link TicketPoolEngine} that splits the pool's capacity across several independently locked shards,
+ * so vendors and customers of a busy event mostly take different locks instead of queuing on one.
+ *
+ * <p>Every thread has a home shard chosen from its thread ID. A vendor releases into its home shard and
+ * spills into the following shards when it is full; a customer buys from its home shard and steals from the
+ * following shards when it runs out. Only one shard lock is held at a time.</p>
+ *
+ * <p>The event-wide invariants are kept exactly by atomic counters outside the shards: a release first
+ * claims its tickets from the event's release budget and then claims room in the pool as a whole, so it can
+ * never overfill the pool or release more than the event's total tickets, and it always finds room in some
+ * shard. A purchase likewise claims its tickets from the count of available tickets before visiting the
+ * shards, so an all-or-nothing reservation never ends up holding part of a group.
+ * Tickets are sold first-in first-out within a shard but not across shards.</p>
+ *
+ * <p>A purchase can get round every shard before the tickets it claimed have all been placed, and a release before
+ * the room it claimed has been freed. Each lap that makes no progress spins briefly and later yields, so that with
+ * more threads than processors the thread being waited for gets to run.</p>
+ *
+ * @author Dharshan
+ */
+public class ShardedTicketPoolEngine implements TicketPoolEngine {
+    // Laps round the shards without progress before yielding the processor to the thread being waited for
+    private static final int LAPS_BEFORE_YIELD = 100;
+
+    private final int maxTicketCapacity;
+    private final int totalTickets;
+    private final Shard[] shards;
+
+    // Capacity not yet claimed by a release, and tickets placed in a shard but not yet claimed, across every shard
+    private final AtomicInteger freeSpace;
+    private final AtomicInteger available = new AtomicInteger();
+
+    // Tickets released to the pool so far (including those since sold), tickets reserved and tickets sold
+    private final AtomicInteger released = new AtomicInteger();
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final AtomicInteger sold = new AtomicInteger();
+
+    // Time spent waiting for any shard lock held by another thread
+    private final LatencyHistogram lockWait = new LatencyHistogram();
+
+    /**
+     * Constructs an empty engine.
+     *
+     * @param maxTicketCapacity the maximum number of tickets the pool can hold
+     * @param totalTickets      the total number of tickets to be sold for the event
+     * @param shardCount        the number of shards; limited to the pool's capacity
+     * @throws IllegalArgumentException if the shard count is less than 1
+     */
+    public ShardedTicketPoolEngine(int maxTicketCapacity, int totalTickets, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be greater than 0.");
+        }
+
+        this.maxTicketCapacity = maxTicketCapacity;
+        this.totalTickets = totalTickets;
+        this.freeSpace = new AtomicInteger(maxTicketCapacity);
+
+        // Split the capacity as evenly as possible; the first shards take the remainder
+        int shardTotal = Math.min(shardCount, maxTicketCapacity);
+        this.shards = new Shard[shardTotal];
+        for (int i = 0; i < shardTotal; i++) {
+            shards[i] = new Shard(maxTicketCapacity / shardTotal + (i < maxTicketCapacity % shardTotal ? 1 : 0));
+        }
+    }
+
+    @Override
+    public boolean offer(long[] ticketIds, int count) {
+        if (count <= 0) {
+            return false;
+        }
+
+        // Claim the tickets from the event's release budget
+        int releasedSoFar;
+        do {
+            releasedSoFar = released.get();
+            if (count > totalTickets - releasedSoFar) {
+                return false;
+            }
+        } while (!released.compareAndSet(releasedSoFar, releasedSoFar + count));
+
+        // Claim room in the pool, giving the budget back if the pool is full
+        int space;
+        do {
+            space = freeSpace.get();
+            if (count > space) {
+                released.addAndGet(-count);
+                return false;
+            }
+        } while (!freeSpace.compareAndSet(space, space - count));
+
+        place(ticketIds, 0, count);
+        return true;
+    }
+
+    @Override
+    public int reserve(long[] destination, int minTickets, int maxTickets) {
+        if (maxTickets <= 0 || minTickets > maxTickets) {
+            return 0;
+        }
+
+        // Claim a share of the placed tickets, or nothing if fewer than the minimum are available
+        int ticketsAvailable;
+        int ticketsReserved;
+        do {
+            ticketsAvailable = available.get();
+            if (ticketsAvailable == 0 || ticketsAvailable < minTickets) {
+                return 0;
+            }
+            ticketsReserved = Math.min(ticketsAvailable, maxTickets);
+        } while (!available.compareAndSet(ticketsAvailable, ticketsAvailable - ticketsReserved));
+
+        // The claimed tickets are guaranteed to be in the shards; take them from the home shard first,
+        // then steal from the others, going round again if another customer got to a shard first
+        int home = homeShard();
+        int taken = 0;
+        int takenAtLapStart = 0;
+        int idleLaps = 0;
+        for (int shard = home; taken < ticketsReserved; ) {
+            taken += shards[shard].remove(destination, taken, ticketsReserved - taken);
+            shard = (shard + 1) % shards.length;
+            if (shard == home && taken < ticketsReserved) {
+                idleLaps = taken == takenAtLapStart ? idleLaps + 1 : 0;
+                takenAtLapStart = taken;
+                backOff(idleLaps);
+            }
+        }
+
+        reserved.addAndGet(ticketsReserved);
+        return ticketsReserved;
+    }
+
+    @Override
+    public void commit(int ticketCount) {
+        sold.addAndGet(ticketCount);
+        reserved.addAndGet(-ticketCount);
+        freeSpace.addAndGet(ticketCount);
+    }
+
+    @Override
+    public void requeue(long[] ticketIds, int offset, int ticketCount) {
+        // The reservation still holds its room in the pool, so the shards have space for every ticket
+        place(ticketIds, offset, ticketCount);
+        reserved.addAndGet(-ticketCount);
+    }
+
+    @Override
+    public void restore(long[] ticketIds, int ticketCount, int ticketsSold) {
+        if (ticketCount > maxTicketCapacity || (long) ticketCount + ticketsSold > totalTickets) {
+            throw new IllegalStateException("Restored tickets do not fit the pool or the event's total.");
+        }
+        released.set(ticketsSold + ticketCount);
+        sold.set(ticketsSold);
+        freeSpace.addAndGet(-ticketCount);
+        place(ticketIds, 0, ticketCount);
+    }
+
+    @Override
+    public int size() {
+        return available.get();
+    }
+
+    @Override
+    public int reserved() {
+        return reserved.get();
+    }
+
+    @Override
+    public int capacity() {
+        return maxTicketCapacity;
+    }
+
+    @Override
+    public int ticketsSold() {
+        return sold.get();
+    }
+
+    @Override
+    public int ticketsRemainingToBeReleased() {
+        return totalTickets - released.get();
+    }
+
+    @Override
+    public LatencyHistogram getLockWait() {
+        return lockWait;
+    }
+
+    /**
+     * Returns the number of shards the pool is split into.
+     *
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // Places tickets in the shards and makes them available; the caller must already hold room for them
+    private void place(long[] ticketIds, int offset, int count) {
+        // Other releases may be filling the same shards, so keep going round until every ticket is placed
+        int home = homeShard();
+        int placed = 0;
+        int placedAtLapStart = 0;
+        int idleLaps = 0;
+        for (int shard = home; placed < count; ) {
+            placed += shards[shard].add(ticketIds, offset + placed, count - placed);
+            shard = (shard + 1) % shards.length;
+            if (shard == home && placed < count) {
+                idleLaps = placed == placedAtLapStart ? idleLaps + 1 : 0;
+                placedAtLapStart = placed;
+                backOff(idleLaps);
+            }
+        }
+        available.addAndGet(count);
+    }
+
+    // Spins after a lap without progress while the wait is likely to be short, then yields, as the ring buffer does
+    private static void backOff(int idleLaps) {
+        if (idleLaps == 0) {
+            return; // The last lap got somewhere; go straight round again
+        }
+        if (idleLaps < LAPS_BEFORE_YIELD) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+    }
+
+    // Thread IDs are handed out in sequence, so consecutive workers land on consecutive shards
+    private int homeShard() {
+        return (int) (Thread.currentThread().getId() % shards.length);
+    }
+
+    /**
+     * One independently locked part of the pool: a fixed-size circular queue of ticket IDs.
+     */
+    private final class Shard {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long[] tickets;
+        private int head = 0;
+        private volatile int size = 0; // Written under the lock, read without it to skip empty shards
+
+        Shard(int capacity) {
+            this.tickets = new long[capacity];
+        }
+
+        // Adds as many of the given tickets as fit and returns how many were added
+        int add(long[] ticketIds, int offset, int count) {
+            lock();
+            try {
+                int added = Math.min(count, tickets.length - size);
+                for (int i = 0; i < added; i++) {
+                    tickets[(head + size + i) % tickets.length] = ticketIds[offset + i];
+                }
+                size += added;
+                return added;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Removes up to count tickets into the destination and returns how many were removed
+        int remove(long[] destination, int offset, int count) {
+            if (size == 0) {
+                return 0; // Nothing to steal; do not contend for the lock
+            }
+            lock();
+            try {
+                int removed = Math.min(count, size);
+                for (int i = 0; i < removed; i++) {
+                    destination[offset + i] = tickets[head];
+                    head = (head + 1) % tickets.length;
+                }
+                size -= removed;
+                return removed;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Acquires the shard lock, timing the wait only when another thread holds it
+        private void lock() {
+            if (lock.tryLock()) {
+                return;
+            }
+            long waitStart = System.nanoTime();
+            lock.lock();
+            lockWait.record(System.nanoTime() - waitStart);
+        }
+    }
+}
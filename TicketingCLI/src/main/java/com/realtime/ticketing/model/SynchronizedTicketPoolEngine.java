@@ -0,0 +1,183 @@
+package com.realtime.ticketing.model;
+
+import com.realtime.ticketing.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reference {@link TicketPoolEngine} that keeps tickets in an {@link ArrayList} guarded by a single lock.
+ *
+ * <p>This is the original pool implementation and is kept for comparison with the lock-free engines.
+ * Every purchase removes from the head of the list, so it is O(n) in the pool size, and all vendors
+ * and customers serialize on the same lock. Time spent waiting for that lock is recorded in
+ * {@link #getLockWait()}; an uncontended acquire is not timed.</p>
+ *
+ * @author Dharshan
+ */
+public class SynchronizedTicketPoolEngine implements TicketPoolEngine {
+    private final int maxTicketCapacity;
+    private final int totalTickets;
+
+    private final List<Long> ticketPool;
+    private int ticketsReserved = 0;
+    private int ticketsSold = 0;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LatencyHistogram lockWait = new LatencyHistogram();
+
+    /**
+     * Constructs an empty engine.
+     *
+     * @param maxTicketCapacity the maximum number of tickets the pool can hold
+     * @param totalTickets      the total number of tickets to be sold for the event
+     */
+    public SynchronizedTicketPoolEngine(int maxTicketCapacity, int totalTickets) {
+        this.maxTicketCapacity = maxTicketCapacity;
+        this.totalTickets = totalTickets;
+        this.ticketPool = new ArrayList<>();
+    }
+
+    @Override
+    public boolean offer(long[] ticketIds, int count) {
+        lock();
+        try {
+            int ticketsRemainingToBeReleased = totalTickets - ticketsSold - ticketsReserved - ticketPool.size();
+            int availableSpace = maxTicketCapacity - ticketsReserved - ticketPool.size();
+
+            if (count <= 0 || count > availableSpace || count > ticketsRemainingToBeReleased) {
+                return false;
+            }
+
+            for (int i = 0; i < count; i++) {
+                ticketPool.add(ticketIds[i]);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int reserve(long[] destination, int minTickets, int maxTickets) {
+        lock();
+        try {
+            if (maxTickets <= 0 || minTickets > maxTickets || ticketPool.isEmpty() || ticketPool.size() < minTickets) {
+                return 0;
+            }
+
+            // Copy the whole batch, then close the gap at the head of the list once
+            int reservedCount = Math.min(ticketPool.size(), maxTickets);
+            List<Long> batch = ticketPool.subList(0, reservedCount);
+            for (int i = 0; i < reservedCount; i++) {
+                destination[i] = batch.get(i);
+            }
+            batch.clear();
+            ticketsReserved += reservedCount;
+            return reservedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void commit(int ticketCount) {
+        lock();
+        try {
+            ticketsReserved -= ticketCount;
+            ticketsSold += ticketCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void requeue(long[] ticketIds, int offset, int ticketCount) {
+        lock();
+        try {
+            for (int i = 0; i < ticketCount; i++) {
+                ticketPool.add(ticketIds[offset + i]);
+            }
+            ticketsReserved -= ticketCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void restore(long[] ticketIds, int ticketCount, int ticketsSold) {
+        lock();
+        try {
+            if (ticketCount > maxTicketCapacity || (long) ticketCount + ticketsSold > totalTickets) {
+                throw new IllegalStateException("Restored tickets do not fit the pool or the event's total.");
+            }
+            for (int i = 0; i < ticketCount; i++) {
+                ticketPool.add(ticketIds[i]);
+            }
+            this.ticketsSold = ticketsSold;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock();
+        try {
+            return ticketPool.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int reserved() {
+        lock();
+        try {
+            return ticketsReserved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return maxTicketCapacity;
+    }
+
+    @Override
+    public int ticketsSold() {
+        lock();
+        try {
+            return ticketsSold;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int ticketsRemainingToBeReleased() {
+        lock();
+        try {
+            return totalTickets - ticketsSold - ticketsReserved - ticketPool.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public LatencyHistogram getLockWait() {
+        return lockWait;
+    }
+
+    // Acquires the lock, timing the wait only when another thread holds it
+    private void lock() {
+        if (lock.tryLock()) {
+            return;
+        }
+        long waitStart = System.nanoTime();
+        lock.lock();
+        lockWait.record(System.nanoTime() - waitStart);
+    }
+}
@@ -0,0 +1,641 @@
+package com.realtime.ticketing.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, memory-mapped write-ahead journal of the tickets an event releases and sells, so that a sale
+ * interrupted by a crash can carry on where it stopped.
+ *
+ * <p>The journal is a series of fixed-size segment files in a directory per event. Each record holds the IDs
+ * of one release or one sale and a CRC-32, so a record torn by a crash is recognised and ignored. Writing a
+ * record is a copy into mapped memory under a short lock; flushing to disk is done by a background thread, and
+ * how long a release or sale waits for that flush is set by the {@link JournalDurability}. With
+ * {@link JournalDurability#GROUP_COMMIT} one flush covers every record written while the previous flush was
+ * running, so a busy event pays for far fewer flushes than it writes records.</p>
+ *
+ * <p>When a journal is opened its segments are replayed into a {@link RecoveredState}. Replay works on sets of
+ * ticket IDs rather than on record order, so a sale journaled just before the release of the same ticket, which
+ * can happen when a customer buys a ticket the moment it is published, is still matched correctly. A sale that
+ * ends normally writes a closing record and deletes its segments, so only interrupted sales are recovered.</p>
+ *
+ * <p>{@link #checkpoint()} keeps recovery fast during a long sale: it switches to a new segment, folds the
+ * finished segments into a compact binary snapshot of the sale (sold count and the IDs still in the pool), and
+ * deletes the segments and older snapshots the new snapshot replaces. Opening the journal then loads the latest
+ * snapshot and replays only the segments written after it. Snapshots are written to a temporary file and moved
+ * into place atomically, so a crash while writing one leaves the previous snapshot in charge.</p>
+ *
+ * <p>The location and flushing are configured with system properties: {@code ticketing.journal.dir} (default
+ * {@code journal}), {@code ticketing.journal.segmentBytes} (default 16 MB) and
+ * {@code ticketing.journal.flushIntervalMs}, the flush interval for {@link JournalDurability#ASYNC} (default 100).</p>
+ *
+ * @author Dharshan
+ */
+public class TicketJournal implements AutoCloseable {
+    /** Directory that holds the journals of every event. */
+    public static final Path DEFAULT_DIRECTORY = Paths.get(System.getProperty("ticketing.journal.dir", "journal"));
+
+    private static final int SEGMENT_BYTES = Integer.getInteger("ticketing.journal.segmentBytes", 16 * 1024 * 1024);
+    private static final long FLUSH_INTERVAL_MS = Long.getLong("ticketing.journal.flushIntervalMs", 100);
+
+    // Record types
+    private static final byte RELEASE = 1;
+    private static final byte SALE = 2;
+    private static final byte CLOSED = 3;
+
+    // Length prefix, type, ticket count and CRC around the ticket IDs of every record
+    private static final int RECORD_OVERHEAD = Integer.BYTES + Byte.BYTES + Integer.BYTES + Integer.BYTES;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    // Identifies a snapshot file ("TKS1")
+    private static final int SNAPSHOT_MAGIC = 0x544B5331;
+
+    private final Path directory;
+    private final int eventTicketId;
+    private final JournalDurability durability;
+    private final RecoveredState recoveredState;
+
+    // Everything below is guarded by appendLock
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition flushRequested = appendLock.newCondition();
+    private final Condition flushed = appendLock.newCondition();
+    private final CRC32 crc = new CRC32();
+    private MappedByteBuffer segment;
+    private int segmentIndex;
+    private int segmentFlushed;  // Bytes of the current segment already on disk
+    private long bytesWritten;   // Bytes written to the journal since it was opened
+    private long bytesFlushed;   // Bytes of those known to be on disk
+    private boolean closed = false;
+    private boolean failed = false;
+
+    private final Thread flusher;
+
+    // Held while checkpointing or closing, so a snapshot is never written for a sale that has finished
+    private final Object checkpointLock = new Object();
+    private int snapshotSegment; // First segment not covered by the latest snapshot, 0 if there is none
+
+    /**
+     * The state of an interrupted sale, rebuilt from its journal.
+     *
+     * @param ticketsInPool the IDs of the tickets released but not sold, in release order
+     * @param ticketsSold   the number of tickets sold
+     * @param lastSequence  the highest ticket sequence number issued, see {@link TicketIdGenerator#sequenceOf}
+     */
+    public record RecoveredState(long[] ticketsInPool, int ticketsSold, long lastSequence) {
+        /**
+         * Checks whether there was anything to recover.
+         *
+         * @return true if no ticket was released or sold
+         */
+        public boolean isEmpty() {
+            return ticketsInPool.length == 0 && ticketsSold == 0;
+        }
+    }
+
+    private TicketJournal(Path directory, int eventTicketId, JournalDurability durability, RecoveredState recoveredState,
+                          int segmentIndex, int snapshotSegment) throws IOException {
+        this.directory = directory;
+        this.eventTicketId = eventTicketId;
+        this.durability = durability;
+        this.recoveredState = recoveredState;
+        this.segmentIndex = segmentIndex;
+        this.snapshotSegment = snapshotSegment;
+        this.segment = mapSegment(segmentIndex, SEGMENT_BYTES);
+
+        this.flusher = new Thread(this::flushLoop, "event-" + eventTicketId + "-journal");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Opens the journal of an event, restoring whatever an earlier, interrupted sale left behind from the latest
+     * snapshot and the segments written after it. New records always go into a new segment, so a record torn by
+     * a crash is never appended to.
+     *
+     * @param baseDirectory the directory holding the journals of every event
+     * @param eventTicketId the ID of the event
+     * @param durability    how long releases and sales wait for the disk; must not be {@link JournalDurability#NONE}
+     * @return the open journal
+     * @throws IOException if the journal cannot be read or created
+     */
+    public static TicketJournal open(Path baseDirectory, int eventTicketId, JournalDurability durability) throws IOException {
+        if (durability == JournalDurability.NONE) {
+            throw new IllegalArgumentException("A journal needs a durability level other than NONE.");
+        }
+
+        Path directory = baseDirectory.resolve("event-" + eventTicketId);
+        Files.createDirectories(directory);
+        List<Path> snapshots = listFiles(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        List<Path> segments = listFiles(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+
+        Replay replay = new Replay();
+        int snapshotSegment = 0;
+        if (!snapshots.isEmpty()) {
+            Path latest = snapshots.get(snapshots.size() - 1);
+            replay.loadSnapshot(latest, eventTicketId);
+            snapshotSegment = fileNumber(latest, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        }
+        int lastSegment = 0;
+        for (Path segmentFile : segments) {
+            lastSegment = fileNumber(segmentFile, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            if (lastSegment >= snapshotSegment) {
+                replay.read(segmentFile);
+            }
+        }
+
+        if (replay.closed && deleteJournal(snapshots, segments)) {
+            // The last sale ended normally; start again from the first segment
+            return new TicketJournal(directory, eventTicketId, durability, replay.toState(), 1, 0);
+        }
+        int nextSegment = Math.max(lastSegment + 1, Math.max(snapshotSegment, 1));
+        return new TicketJournal(directory, eventTicketId, durability, replay.toState(), nextSegment, snapshotSegment);
+    }
+
+    /**
+     * Lists the IDs of the events that have a journal in the given directory, that is, events whose last sale
+     * was interrupted and will be resumed when they are started again.
+     *
+     * @param baseDirectory the directory holding the journals of every event
+     * @return the event ticket IDs, in no particular order
+     */
+    public static List<Integer> findJournaledEvents(Path baseDirectory) {
+        List<Integer> events = new ArrayList<>();
+        if (!Files.isDirectory(baseDirectory)) {
+            return events;
+        }
+        try (DirectoryStream<Path> directories = Files.newDirectoryStream(baseDirectory, "event-*")) {
+            for (Path directory : directories) {
+                if (!listFiles(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX).isEmpty()
+                        || !listFiles(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).isEmpty()) {
+                    events.add(Integer.parseInt(directory.getFileName().toString().substring("event-".length())));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Could not list ticket journals in " + baseDirectory + ": " + e.getMessage());
+        }
+        return events;
+    }
+
+    /**
+     * Returns the state rebuilt from the journal when it was opened.
+     *
+     * @return the recovered state, empty if there was nothing to resume
+     */
+    public RecoveredState getRecoveredState() {
+        return recoveredState;
+    }
+
+    /**
+     * Returns the durability level of this journal.
+     *
+     * @return the durability level
+     */
+    public JournalDurability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Journals the release of the given tickets.
+     *
+     * @param ticketIds the array holding the released ticket IDs
+     * @param count     the number of IDs from the array that were released
+     */
+    public void recordRelease(long[] ticketIds, int count) {
+        append(RELEASE, ticketIds, count);
+    }
+
+    /**
+     * Journals the sale of the given tickets.
+     *
+     * @param ticketIds the array holding the sold ticket IDs
+     * @param count     the number of IDs from the array that were sold
+     */
+    public void recordSale(long[] ticketIds, int count) {
+        append(SALE, ticketIds, count);
+    }
+
+    /**
+     * Writes a snapshot of the sale up to now and deletes the segments and snapshots it replaces. Releases and
+     * sales carry on while the snapshot is written; they only wait while the journal switches to a new segment.
+     *
+     * @return true if a snapshot was written, false if nothing was journaled since the last one or the journal is closed
+     * @throws IOException if the snapshot cannot be written; the previous snapshot and segments are kept
+     */
+    public boolean checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            // Everything before the boundary segment is finished and will not change while it is read
+            int boundary;
+            appendLock.lock();
+            try {
+                if (closed || failed || (segment.position() > 0 && !roll(0))) {
+                    return false;
+                }
+                boundary = segmentIndex;
+            } finally {
+                appendLock.unlock();
+            }
+            if (boundary == snapshotSegment) {
+                return false;
+            }
+
+            List<Path> snapshots = listFiles(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            List<Path> segments = listFiles(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            Replay replay = new Replay();
+            if (snapshotSegment > 0) {
+                replay.loadSnapshot(directory.resolve(fileName(SNAPSHOT_PREFIX, snapshotSegment, SNAPSHOT_SUFFIX)), eventTicketId);
+            }
+            for (Path segmentFile : segments) {
+                int number = fileNumber(segmentFile, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+                if (number >= snapshotSegment && number < boundary) {
+                    replay.read(segmentFile);
+                }
+            }
+            replay.writeSnapshot(directory, fileName(SNAPSHOT_PREFIX, boundary, SNAPSHOT_SUFFIX), eventTicketId);
+            snapshotSegment = boundary;
+
+            // Compact: the new snapshot replaces every older snapshot and segment
+            for (Path snapshot : snapshots) {
+                Files.deleteIfExists(snapshot);
+            }
+            for (Path segmentFile : segments) {
+                if (fileNumber(segmentFile, SEGMENT_PREFIX, SEGMENT_SUFFIX) < boundary) {
+                    deleteIfUnmapped(segmentFile);
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Closes the journal without marking the sale as finished, so it is resumed the next time the event starts.
+     */
+    @Override
+    public void close() {
+        close(false);
+    }
+
+    /**
+     * Closes the journal. When the sale has finished, the journal records that and deletes its segments, so the
+     * next sale of the event starts from scratch; if a segment cannot be deleted, the closing record makes replay
+     * ignore everything before it.
+     *
+     * @param saleFinished true if the sale ended normally and must not be resumed
+     */
+    public void close(boolean saleFinished) {
+        synchronized (checkpointLock) {
+            closeJournal(saleFinished);
+        }
+    }
+
+    private void closeJournal(boolean saleFinished) {
+        if (saleFinished) {
+            append(CLOSED, new long[0], 0);
+        }
+
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flushRequested.signal();
+        } finally {
+            appendLock.unlock();
+        }
+
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        appendLock.lock();
+        try {
+            segment.force();
+            bytesFlushed = bytesWritten;
+            flushed.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+
+        if (saleFinished) {
+            try {
+                deleteJournal(listFiles(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX), listFiles(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX));
+            } catch (IOException e) {
+                System.err.println("Event " + eventTicketId + ": could not remove the finished journal: " + e.getMessage());
+            }
+        }
+    }
+
+    private void append(byte type, long[] ticketIds, int count) {
+        int length = RECORD_OVERHEAD + count * Long.BYTES;
+
+        appendLock.lock();
+        try {
+            if (closed || failed) {
+                return;
+            }
+            // Leave room for the zero length that marks the end of the segment
+            if (segment.remaining() < length + Integer.BYTES && !roll(length)) {
+                return;
+            }
+
+            int start = segment.position();
+            segment.putInt(length - Integer.BYTES);
+            segment.put(type);
+            segment.putInt(count);
+            for (int i = 0; i < count; i++) {
+                segment.putLong(ticketIds[i]);
+            }
+            crc.reset();
+            crc.update(segment.duplicate().limit(segment.position()).position(start + Integer.BYTES));
+            segment.putInt((int) crc.getValue());
+            bytesWritten += length;
+
+            switch (durability) {
+                case SYNC -> {
+                    segment.force(segmentFlushed, segment.position() - segmentFlushed);
+                    segmentFlushed = segment.position();
+                    bytesFlushed = bytesWritten;
+                }
+                case GROUP_COMMIT -> {
+                    // Wait for the flusher; whoever else writes in the meantime shares the same flush
+                    long written = bytesWritten;
+                    flushRequested.signal();
+                    while (bytesFlushed < written && !closed && !failed) {
+                        flushed.awaitUninterruptibly();
+                    }
+                }
+                default -> {
+                    // ASYNC: the flusher picks the record up on its next round
+                }
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Flushes the full segment and maps the next one; called with the lock held
+    private boolean roll(int recordLength) {
+        try {
+            segment.force();
+            bytesFlushed = bytesWritten;
+            flushed.signalAll();
+
+            segment = mapSegment(segmentIndex + 1, Math.max(SEGMENT_BYTES, recordLength + Integer.BYTES));
+            segmentIndex++;
+            segmentFlushed = 0;
+            return true;
+        } catch (IOException e) {
+            failed = true;
+            flushed.signalAll();
+            System.err.println("Event " + eventTicketId + ": ticket journal disabled, sales will not survive a crash: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void flushLoop() {
+        appendLock.lock();
+        try {
+            while (!closed) {
+                // Group commit flushes as soon as somebody waits; asynchronous flushing batches up a whole interval
+                if (durability == JournalDurability.ASYNC || bytesFlushed == bytesWritten) {
+                    flushRequested.await(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                }
+                if (bytesFlushed == bytesWritten || closed) {
+                    continue;
+                }
+
+                MappedByteBuffer target = segment;
+                int from = segmentFlushed;
+                int to = segment.position();
+                long written = bytesWritten;
+
+                // Flush without the lock so releases and sales can keep writing into the next batch
+                appendLock.unlock();
+                try {
+                    target.force(from, to - from);
+                } finally {
+                    appendLock.lock();
+                }
+
+                if (target == segment) {
+                    segmentFlushed = Math.max(segmentFlushed, to);
+                }
+                bytesFlushed = Math.max(bytesFlushed, written);
+                flushed.signalAll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private MappedByteBuffer mapSegment(int index, int size) throws IOException {
+        Path path = directory.resolve(fileName(SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed; new files read as zeros, which ends replay
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private static String fileName(String prefix, int number, String suffix) {
+        return String.format("%s%08d%s", prefix, number, suffix);
+    }
+
+    private static List<Path> listFiles(Path directory, String prefix, String suffix) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            entries.forEach(files::add);
+        }
+        // Numbers are zero-padded, so name order is number order
+        files.sort(null);
+        return files;
+    }
+
+    private static int fileNumber(Path file, String prefix, String suffix) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(prefix.length(), name.length() - suffix.length()));
+    }
+
+    // Deletes a finished sale: snapshots first, then segments oldest first, stopping at the first failure so the
+    // newest segment, which holds the closing record, is never left behind without it
+    private static boolean deleteJournal(List<Path> snapshots, List<Path> segments) {
+        try {
+            for (Path snapshot : snapshots) {
+                Files.deleteIfExists(snapshot);
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        for (Path segmentFile : segments) {
+            if (!deleteIfUnmapped(segmentFile)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean deleteIfUnmapped(Path segmentFile) {
+        try {
+            Files.deleteIfExists(segmentFile);
+            return true;
+        } catch (IOException e) {
+            return false; // Still mapped, which Windows does not allow deleting
+        }
+    }
+
+    /**
+     * Rebuilds the pool's state from journal records.
+     */
+    private static final class Replay {
+        private final Set<Long> ticketsInPool = new LinkedHashSet<>();
+        private final Set<Long> soldBeforeRelease = new HashSet<>();
+        private final CRC32 crc = new CRC32();
+        private int ticketsSold = 0;
+        private long lastSequence = 0;
+        private boolean closed = false;
+
+        // Starts from a snapshot written by writeSnapshot
+        void loadSnapshot(Path snapshot, int eventTicketId) throws IOException {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+            if (data.remaining() < Integer.BYTES) {
+                throw new IOException("Snapshot " + snapshot + " is truncated.");
+            }
+            crc.reset();
+            crc.update(data.duplicate().limit(data.limit() - Integer.BYTES));
+            if (data.getInt(data.limit() - Integer.BYTES) != (int) crc.getValue()
+                    || data.getInt() != SNAPSHOT_MAGIC || data.getInt() != eventTicketId) {
+                throw new IOException("Snapshot " + snapshot + " is corrupt or belongs to another event.");
+            }
+
+            ticketsSold = data.getInt();
+            lastSequence = data.getLong();
+            for (int i = data.getInt(); i > 0; i--) {
+                soldBeforeRelease.add(data.getLong());
+            }
+            for (int i = data.getInt(); i > 0; i--) {
+                ticketsInPool.add(data.getLong());
+            }
+            closed = false;
+        }
+
+        // Writes the state to a temporary file, flushes it, then moves it into place in one step
+        void writeSnapshot(Path directory, String fileName, int eventTicketId) throws IOException {
+            int size = 4 * Integer.BYTES + Long.BYTES + Integer.BYTES
+                    + (soldBeforeRelease.size() + ticketsInPool.size()) * Long.BYTES + Integer.BYTES;
+            ByteBuffer data = ByteBuffer.allocate(size);
+            data.putInt(SNAPSHOT_MAGIC);
+            data.putInt(eventTicketId);
+            data.putInt(ticketsSold);
+            data.putLong(lastSequence);
+            data.putInt(soldBeforeRelease.size());
+            soldBeforeRelease.forEach(data::putLong);
+            data.putInt(ticketsInPool.size());
+            ticketsInPool.forEach(data::putLong);
+            crc.reset();
+            crc.update(data.duplicate().flip());
+            data.putInt((int) crc.getValue());
+            data.flip();
+
+            Path temporary = directory.resolve(fileName + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, directory.resolve(fileName), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        void read(Path segmentFile) throws IOException {
+            ByteBuffer records;
+            try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+                records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+
+            while (records.remaining() >= Integer.BYTES) {
+                int start = records.position();
+                int length = records.getInt();
+                // A zero length is the unwritten end of the segment; anything that does not add up is a torn record
+                if (length < RECORD_OVERHEAD - Integer.BYTES || length > records.remaining()) {
+                    return;
+                }
+                byte type = records.get();
+                int count = records.getInt();
+                if (count < 0 || length != RECORD_OVERHEAD - Integer.BYTES + count * Long.BYTES) {
+                    return;
+                }
+
+                crc.reset();
+                crc.update(records.duplicate().limit(start + length).position(start + Integer.BYTES));
+                records.position(start + length);
+                if (records.getInt() != (int) crc.getValue()) {
+                    return;
+                }
+
+                records.position(start + Integer.BYTES + Byte.BYTES + Integer.BYTES);
+                apply(type, records, count);
+                records.position(start + Integer.BYTES + length);
+            }
+        }
+
+        private void apply(byte type, ByteBuffer records, int count) {
+            if (type == CLOSED) {
+                // Everything before belongs to a finished sale
+                ticketsInPool.clear();
+                soldBeforeRelease.clear();
+                ticketsSold = 0;
+                lastSequence = 0;
+                closed = true;
+                return;
+            }
+
+            closed = false;
+            for (int i = 0; i < count; i++) {
+                long ticketId = records.getLong();
+                lastSequence = Math.max(lastSequence, TicketIdGenerator.sequenceOf(ticketId));
+                if (type == RELEASE) {
+                    if (!soldBeforeRelease.remove(ticketId)) {
+                        ticketsInPool.add(ticketId);
+                    }
+                } else if (type == SALE) {
+                    ticketsSold++;
+                    if (!ticketsInPool.remove(ticketId)) {
+                        soldBeforeRelease.add(ticketId);
+                    }
+                }
+            }
+        }
+
+        RecoveredState toState() {
+            if (closed) {
+                return new RecoveredState(new long[0], 0, 0);
+            }
+            return new RecoveredState(ticketsInPool.stream().mapToLong(Long::longValue).toArray(), ticketsSold, lastSequence);
+        }
+    }
+}
@@ -1,38 +1,104 @@
 package com.realtime.ticketing.model;
 
+import com.realtime.ticketing.util.LatencyHistogram;
 import com.realtime.ticketing.util.LoggerUtil;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * The TicketPool class manages the pool of tickets for an event.
- * It handles adding and retrieving tickets, tracking simulation state, and ensures
- * thread-safe access to the ticket pool through synchronization.
+ * It handles adding and retrieving tickets and tracking simulation state. The tickets themselves
+ * are stored in a pluggable {@link TicketPoolEngine}, which provides thread-safe access to the pool.
  *
- * <p>This version includes fixes for remaining tickets, synchronization, and simulation state handling.</p>
+ * <p>Every released ticket gets a unique 64-bit ID from the event's {@link TicketIdGenerator}, and
+ * {@link #purchaseTicket(int)} returns the IDs it sold, so sales can be reconciled ticket by ticket.</p>
+ *
+ * <p>Group bookings use {@link #reserve} and {@link #reserveBatch}, which hold exact tickets in a
+ * {@link Reservation} until it is committed, released or expires. A batch of reservations is taken from
+ * the engine in a single step, and can be made all-or-nothing.</p>
+ *
+ * <p>A pool with a {@link TicketJournal} attached journals every release and sale before reporting it,
+ * and starts from whatever an interrupted sale of the same event left in the journal.</p>
+ *
+ * <p>By default the pool uses the lock-free {@link RingBufferTicketPoolEngine}; the original
+ * synchronized list is available as {@link TicketPoolEngineType#SYNCHRONIZED}.</p>
+ *
+ * <p>The release and retrieval rates can be changed with {@link #setRates} while the simulation runs.</p>
+ *
+ * <p>Vendors and customers using {@link HandoffMode#BLOCKING} wait in {@link #awaitSpace} and
+ * {@link #awaitTickets} and are woken as soon as the pool changes. The wait lock is only taken when
+ * somebody is actually waiting, so releases and purchases stay lock-free otherwise.</p>
  *
  * @author Dharshan
  */
 public class TicketPool {
     private static final Logger logger = LoggerUtil.getLogger(TicketPool.class);
 
+    // Returned by purchaseTicket when nothing was sold
+    private static final long[] NO_TICKETS = new long[0];
+
     private final String vendor;
     private final int maxTicketCapacity;
     private final int totalTickets;
-    private final int ticketReleaseRate;
-    private final int customerRetrievalRate;
+    private volatile int ticketReleaseRate;
+    private volatile int customerRetrievalRate;
     private final String title;
 
-    private final List<Integer> ticketPool;
-    private boolean simulationComplete = false;
-    private int ticketsSold = 0;
-    private int customers = 0;
+    private final TicketPoolEngine engine;
+    private final TicketIdGenerator ticketIdGenerator;
+    // Per-thread scratch array for the IDs of a release; the engine copies them, so it is reused
+    private final ThreadLocal<long[]> releaseBuffer;
+    private final TicketPoolMetrics metrics;
+    // Set before the simulation starts, if sales are journaled
+    private TicketJournal journal;
+    // Time source for release-to-sale latencies and reservation expiry; virtual in a discrete-event simulation
+    private LongSupplier clock = System::nanoTime;
+    // Set before the simulation starts, if customers queue to be admitted
+    private WaitingRoom waitingRoom;
+    // False once the pool stops logging each release, purchase and reservation
+    private boolean logActions = true;
+    // False once the pool stops logging altogether
+    private boolean logSale = true;
+    private volatile boolean simulationComplete = false;
+    private final AtomicInteger customers = new AtomicInteger();
+
+    // Completed once the simulation ends: true when every ticket was sold, false when it was interrupted
+    private final CompletableFuture<Boolean> completion = new CompletableFuture<>();
+
+    // Signalling for blocking hand-off; only touched when a vendor or customer is waiting
+    private final ReentrantLock handoffLock = new ReentrantLock();
+    private final Condition ticketsAvailable = handoffLock.newCondition();
+    private final Condition spaceAvailable = handoffLock.newCondition();
+    private final AtomicInteger waitingCustomers = new AtomicInteger();
+    private final AtomicInteger waitingVendors = new AtomicInteger();
+
+    // Reservations that are still held, so that expired ones can be found and put back
+    private final Map<Long, Reservation> openReservations = new ConcurrentHashMap<>();
+    private final AtomicLong reservationSequence = new AtomicLong();
+
+    // Release-to-sale latency: release times keyed by the release sequence number that ends each batch
+    private final LatencyHistogram releaseToSaleLatency = new LatencyHistogram();
+    private final ConcurrentSkipListMap<Long, Long> releaseTimes = new ConcurrentSkipListMap<>();
+    private final AtomicLong releaseSequence = new AtomicLong();
+    private final AtomicLong saleSequence = new AtomicLong();
 
     /**
-     * Constructs a TicketPool object with the specified vendor, maximum ticket capacity,
-     * total number of tickets, ticket release rate, customer retrieval rate, and event title.
+     * Constructs a TicketPool object backed by the default ring buffer engine.
      *
      * @param vendor                 the vendor managing the tickets
      * @param maxTicketCapacity     the maximum capacity of tickets that can be in the pool
@@ -43,6 +109,43 @@ public class TicketPool {
      * @throws IllegalArgumentException if any of the capacity, ticket, or rate values are less than or equal to zero
      */
     public TicketPool(String vendor, int maxTicketCapacity, int totalTickets, int ticketReleaseRate, int customerRetrievalRate, String title) {
+        this(vendor, maxTicketCapacity, totalTickets, ticketReleaseRate, customerRetrievalRate, title, TicketPoolEngineType.RING_BUFFER);
+    }
+
+    /**
+     * Constructs a TicketPool object with the specified vendor, maximum ticket capacity,
+     * total number of tickets, ticket release rate, customer retrieval rate, event title and storage engine.
+     *
+     * @param vendor                 the vendor managing the tickets
+     * @param maxTicketCapacity     the maximum capacity of tickets that can be in the pool
+     * @param totalTickets           the total number of tickets to be sold
+     * @param ticketReleaseRate      the rate at which tickets are released to the pool
+     * @param customerRetrievalRate  the rate at which customers retrieve tickets from the pool
+     * @param title                  the title of the event for which tickets are being sold
+     * @param engineType             the engine used to store the tickets
+     * @throws IllegalArgumentException if any of the capacity, ticket, or rate values are less than or equal to zero
+     */
+    public TicketPool(String vendor, int maxTicketCapacity, int totalTickets, int ticketReleaseRate, int customerRetrievalRate, String title,
+                      TicketPoolEngineType engineType) {
+        this(0, vendor, maxTicketCapacity, totalTickets, ticketReleaseRate, customerRetrievalRate, title, engineType);
+    }
+
+    /**
+     * Constructs a TicketPool object for the given event. The event ticket ID forms the upper half of every
+     * ticket ID the pool issues, so tickets from different events never share an ID.
+     *
+     * @param eventTicketId          the ID of the event the tickets belong to
+     * @param vendor                 the vendor managing the tickets
+     * @param maxTicketCapacity     the maximum capacity of tickets that can be in the pool
+     * @param totalTickets           the total number of tickets to be sold
+     * @param ticketReleaseRate      the rate at which tickets are released to the pool
+     * @param customerRetrievalRate  the rate at which customers retrieve tickets from the pool
+     * @param title                  the title of the event for which tickets are being sold
+     * @param engineType             the engine used to store the tickets
+     * @throws IllegalArgumentException if any of the capacity, ticket, or rate values are less than or equal to zero
+     */
+    public TicketPool(int eventTicketId, String vendor, int maxTicketCapacity, int totalTickets, int ticketReleaseRate, int customerRetrievalRate,
+                      String title, TicketPoolEngineType engineType) {
         if (maxTicketCapacity <= 0 || totalTickets <= 0 || ticketReleaseRate <= 0 || customerRetrievalRate <= 0) {
             throw new IllegalArgumentException("All capacity, ticket, and rate values must be greater than 0.");
         }
@@ -53,80 +156,507 @@ public class TicketPool {
         this.ticketReleaseRate = ticketReleaseRate;
         this.customerRetrievalRate = customerRetrievalRate;
         this.title = title;
-        this.ticketPool = new ArrayList<>();
+        this.engine = engineType.create(maxTicketCapacity, totalTickets);
+        this.metrics = new TicketPoolMetrics(engine);
+        this.ticketIdGenerator = new TicketIdGenerator(eventTicketId);
+        this.releaseBuffer = ThreadLocal.withInitial(() -> new long[ticketReleaseRate]);
     }
 
     /**
      * Adds a specified number of tickets to the pool.
      * The number of tickets added is constrained by the available space in the pool,
      * the total tickets to be released, and the maximum ticket capacity.
-     * This method is synchronized to ensure thread-safe access.
+     * The engine makes the release atomic: either every ticket is added or none is.
+     * Each ticket gets the next unique ID from the event's {@link TicketIdGenerator}; the IDs of a rejected
+     * release are handed back so they are not skipped.
      *
      * @param ticketCount the number of tickets to add to the pool
+     * @return the number of tickets added, or 0 if the release was rejected
      */
-    public synchronized void addTickets(int ticketCount) {
-        if (simulationComplete) return;
+    public int addTickets(int ticketCount) {
+        if (simulationComplete) return 0;
 
-        // Calculate remaining tickets to release
-        int ticketsRemainingToBeReleased = totalTickets - ticketsSold - ticketPool.size();
-        int availableSpace = maxTicketCapacity - ticketPool.size();
+        long[] ticketIds = releaseBuffer.get();
+        if (ticketIds.length < ticketCount) {
+            ticketIds = new long[ticketCount];
+            releaseBuffer.set(ticketIds);
+        }
+        if (ticketCount > 0) {
+            ticketIdGenerator.nextIds(ticketIds, ticketCount);
+        }
 
-        if (ticketCount <= 0 || ticketCount > availableSpace || ticketCount > ticketsRemainingToBeReleased) {
-            logger.warning("Cannot release tickets: Invalid count, pool full, or no tickets remaining.");
-            return;
+        if (!engine.offer(ticketIds, ticketCount)) {
+            ticketIdGenerator.rollback(ticketCount);
+            if (ticketCount > 0 && engine.ticketsRemainingToBeReleased() >= ticketCount) {
+                metrics.recordFullPool();
+            }
+            // Logged as INFO: vendors retry every interval, and an asynchronous log may drop these under load
+            logAction(Level.INFO, () -> "Cannot release tickets: Invalid count, pool full, or no tickets remaining.");
+            return 0;
         }
 
-        for (int i = 0; i < ticketCount; i++) {
-            ticketPool.add((int) (Math.random() * 1000)); // Simulating ticket ID
+        if (journal != null) {
+            journal.recordRelease(ticketIds, ticketCount);
         }
+        metrics.recordRelease(ticketCount);
+        releaseTimes.put(releaseSequence.addAndGet(ticketCount), clock.getAsLong());
+        signal(waitingCustomers, ticketsAvailable);
 
-        logger.info("Tickets remaining to be released: " + (ticketsRemainingToBeReleased - ticketCount));
-        logger.info("Vendor [" + vendor + "] released " + ticketCount + " " + title + " ticket(s).");
-        logger.info("Current pool size: " + ticketPool.size() + "/" + maxTicketCapacity + ".");
+        long firstTicketId = ticketIds[0];
+        long lastTicketId = ticketIds[ticketCount - 1];
+        logAction(Level.INFO, () -> "Vendor [" + vendor + "] released " + ticketCount + " " + title + " ticket(s) "
+                + "(" + TicketIdGenerator.format(firstTicketId) + " to " + TicketIdGenerator.format(lastTicketId) + "). "
+                + "Current pool size: " + engine.size() + "/" + maxTicketCapacity + ". "
+                + "Tickets remaining to be released: " + engine.ticketsRemainingToBeReleased() + ".");
+        return ticketCount;
     }
 
     /**
-     * Allows a customer to retrieve tickets from the pool based on the retrieval rate.
+     * Allows a customer to retrieve up to a specified number of tickets from the pool.
      * The method removes tickets from the pool, updates the number of tickets sold, and tracks the number of customers.
      * If all tickets are sold, it will stop the simulation.
-     * This method is synchronized to ensure thread-safe access.
+     *
+     * @param ticketCount the most tickets to retrieve, normally the customer's retrieval rate
+     * @return the IDs of the tickets retrieved, or an empty array if the pool was empty
      */
-    public synchronized void purchaseTicket() {
-        if (simulationComplete) return;
+    public long[] purchaseTicket(int ticketCount) {
+        if (simulationComplete) return NO_TICKETS;
 
-        // Check if tickets are available in the pool
-        if (ticketPool.isEmpty() && ticketsSold < totalTickets) {
-            logger.warning("The ticket pool is empty, but tickets are still available for release.");
-            return;
+        // Check if tickets were available in the pool, before allocating room for them
+        if (engine.size() == 0) {
+            return emptyPool();
         }
 
-        int ticketsRetrieved = 0;
-
         // Retrieve tickets based on the customer's retrieval rate
-        while (!ticketPool.isEmpty() && ticketsRetrieved < customerRetrievalRate) {
-            ticketPool.remove(0);
-            ticketsRetrieved++;
-            ticketsSold++;
+        long[] ticketIds = new long[ticketCount];
+        int ticketsRetrieved = engine.poll(ticketIds, ticketIds.length);
+        if (ticketsRetrieved == 0) {
+            return emptyPool(); // Other customers bought them first
         }
 
-        customers++;
-        logger.info("Customer [" + customers + "] retrieved " + ticketsRetrieved + " " + title + " ticket(s).");
-        logger.info("Current pool size: " + ticketPool.size() + "/" + maxTicketCapacity + ".");
+        if (journal != null) {
+            journal.recordSale(ticketIds, ticketsRetrieved);
+        }
+        recordSale(ticketsRetrieved);
+
+        long[] purchased = ticketsRetrieved == ticketIds.length ? ticketIds : Arrays.copyOf(ticketIds, ticketsRetrieved);
+        int customer = customers.incrementAndGet();
+        logAction(Level.INFO, () -> "Customer [" + customer + "] retrieved " + ticketsRetrieved + " " + title + " ticket(s) "
+                + Arrays.stream(purchased).mapToObj(TicketIdGenerator::format).toList() + ". "
+                + "Current pool size: " + engine.size() + "/" + maxTicketCapacity + ".");
 
         // Stop simulation only if all tickets are sold
-        if (ticketsSold >= totalTickets) {
+        if (engine.ticketsSold() >= totalTickets) {
+            stopSimulation();
+        }
+        return purchased;
+    }
+
+    /**
+     * Reserves up to {@code ticketCount} tickets, or exactly {@code ticketCount} in all-or-nothing mode.
+     * The tickets are taken out of the pool in one step and held until the reservation is committed,
+     * released or expires.
+     *
+     * @param ticketCount  the number of tickets wanted
+     * @param ttl          how long the reservation is held before it expires
+     * @param unit         the unit of the time-to-live
+     * @param allOrNothing true to reserve nothing unless every ticket is available
+     * @return the reservation, or null if no tickets could be reserved
+     * @throws IllegalArgumentException if the ticket count is less than or equal to zero, or is more than the pool
+     *                                  can ever hold in all-or-nothing mode
+     */
+    public Reservation reserve(int ticketCount, long ttl, TimeUnit unit, boolean allOrNothing) {
+        List<Reservation> reservations = reserveBatch(new int[]{ticketCount}, ttl, unit, allOrNothing);
+        return reservations.isEmpty() ? null : reservations.get(0);
+    }
+
+    /**
+     * Reserves tickets for several groups at once, taking every group's tickets out of the pool in a
+     * single engine operation instead of one per group.
+     *
+     * <p>In all-or-nothing mode either every group gets all of its tickets or nothing is reserved.
+     * Otherwise groups are served in order, each receiving all of its tickets, until the next group no
+     * longer fits; the tickets left over for that group are put straight back.</p>
+     *
+     * @param ticketCounts the number of tickets wanted by each group
+     * @param ttl          how long the reservations are held before they expire
+     * @param unit         the unit of the time-to-live
+     * @param allOrNothing true to reserve nothing unless every group can be served
+     * @return one reservation for each group served, in the order requested
+     * @throws IllegalArgumentException if any ticket count is less than or equal to zero, or if the tickets that
+     *                                  must be reserved together (every group in all-or-nothing mode, otherwise
+     *                                  the first group) are more than the pool can ever hold
+     */
+    public List<Reservation> reserveBatch(int[] ticketCounts, long ttl, TimeUnit unit, boolean allOrNothing) {
+        long totalRequested = 0;
+        for (int ticketCount : ticketCounts) {
+            if (ticketCount <= 0) {
+                throw new IllegalArgumentException("Every reservation must be for at least one ticket.");
+            }
+            totalRequested += ticketCount;
+        }
+        if (ticketCounts.length > 0 && (allOrNothing ? totalRequested : ticketCounts[0]) > maxTicketCapacity) {
+            // Such a batch could never be served, however long the caller kept trying
+            throw new IllegalArgumentException("A reservation cannot hold more than the pool's capacity of "
+                    + maxTicketCapacity + " tickets.");
+        }
+        if (simulationComplete || ticketCounts.length == 0) {
+            return List.of();
+        }
+
+        int requested = (int) Math.min(totalRequested, maxTicketCapacity);
+        long[] ticketIds = new long[requested];
+        int ticketsReserved = engine.reserve(ticketIds, allOrNothing ? (int) totalRequested : ticketCounts[0], requested);
+        if (ticketsReserved == 0) {
+            // Fewer tickets than the batch needs is not the same as an empty pool
+            if (engine.size() == 0) {
+                metrics.recordEmptyPool();
+            }
+            return List.of();
+        }
+
+        // Hand out whole groups in order; anything left over goes straight back into the pool
+        List<Reservation> reservations = new ArrayList<>(ticketCounts.length);
+        int offset = 0;
+        for (int ticketCount : ticketCounts) {
+            if (ticketCount > ticketsReserved - offset) {
+                break;
+            }
+            Reservation reservation = new Reservation(reservationSequence.incrementAndGet(), this,
+                    Arrays.copyOfRange(ticketIds, offset, offset + ticketCount), clock.getAsLong() + unit.toNanos(ttl));
+            openReservations.put(reservation.getReservationId(), reservation);
+            reservations.add(reservation);
+            offset += ticketCount;
+        }
+        if (offset < ticketsReserved) {
+            engine.requeue(ticketIds, offset, ticketsReserved - offset);
+            signal(waitingCustomers, ticketsAvailable);
+        }
+
+        logAction(Level.INFO, () -> reservations.size() + " reservation(s) for " + reservations.stream().mapToInt(Reservation::getTicketCount).sum()
+                + " " + title + " ticket(s) taken. Current pool size: " + engine.size() + "/" + maxTicketCapacity + ".");
+        return reservations;
+    }
+
+    /**
+     * Puts the tickets of every reservation whose time-to-live has run out back into the pool.
+     * Expired reservations are also detected when their holder tries to commit them; calling this
+     * periodically returns abandoned tickets to sale.
+     *
+     * @return the number of reservations that expired
+     */
+    public int expireReservations() {
+        if (openReservations.isEmpty()) {
+            return 0;
+        }
+
+        long now = clock.getAsLong();
+        int expired = 0;
+        for (Reservation reservation : openReservations.values()) {
+            if (reservation.isExpiredAt(now) && release(reservation, Reservation.State.EXPIRED)) {
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Returns the number of reservations that are still held.
+     *
+     * @return the open reservations
+     */
+    public int getOpenReservations() {
+        return openReservations.size();
+    }
+
+    boolean commit(Reservation reservation) {
+        if (reservation.isExpiredAt(clock.getAsLong())) {
+            release(reservation, Reservation.State.EXPIRED);
+            return false;
+        }
+        if (simulationComplete) {
+            // The sale is over, but the tickets must not stay held by a reservation nobody can end any more
+            release(reservation, Reservation.State.RELEASED);
+            return false;
+        }
+        if (!reservation.end(Reservation.State.COMMITTED)) {
+            return false;
+        }
+        openReservations.remove(reservation.getReservationId());
+
+        int ticketCount = reservation.getTicketCount();
+        engine.commit(ticketCount);
+        if (journal != null) {
+            journal.recordSale(reservation.ticketIds(), ticketCount);
+        }
+        recordSale(ticketCount);
+        logAction(Level.INFO, () -> "Reservation [" + reservation.getReservationId() + "] bought " + ticketCount + " " + title + " ticket(s). "
+                + "Current pool size: " + engine.size() + "/" + maxTicketCapacity + ".");
+
+        if (engine.ticketsSold() >= totalTickets) {
             stopSimulation();
         }
+        return true;
+    }
+
+    // Records a purchase that found the pool empty
+    private long[] emptyPool() {
+        if (engine.ticketsSold() < totalTickets) {
+            metrics.recordEmptyPool();
+            // Logged as INFO: customers retry every interval, and an asynchronous log may drop these under load
+            logAction(Level.INFO, () -> "The ticket pool is empty, but tickets are still available for release.");
+        }
+        return NO_TICKETS;
+    }
+
+    // Logs a single release, purchase or reservation, unless the pool is quiet
+    private void logAction(Level level, Supplier<String> message) {
+        if (logActions) {
+            logger.log(level, message);
+        }
+    }
+
+    boolean release(Reservation reservation, Reservation.State endState) {
+        if (!reservation.end(endState)) {
+            return false;
+        }
+        openReservations.remove(reservation.getReservationId());
+
+        engine.requeue(reservation.ticketIds(), 0, reservation.getTicketCount());
+        if (endState == Reservation.State.EXPIRED) {
+            metrics.recordExpiredReservation();
+        }
+        signal(waitingCustomers, ticketsAvailable);
+        return true;
+    }
+
+    /**
+     * Waits until the pool holds at least one ticket.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return true if tickets are available, false if the wait timed out or the simulation ended
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public boolean awaitTickets(long timeout, TimeUnit unit) throws InterruptedException {
+        if (engine.size() > 0) {
+            return true;
+        }
+
+        long remainingNanos = unit.toNanos(timeout);
+        lockHandoff();
+        waitingCustomers.incrementAndGet();
+        try {
+            // Re-check after registering, so a release that raced with us is not missed
+            while (engine.size() == 0 && !simulationComplete) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = ticketsAvailable.awaitNanos(remainingNanos);
+            }
+            return engine.size() > 0;
+        } finally {
+            waitingCustomers.decrementAndGet();
+            handoffLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the pool has room for the given number of tickets.
+     *
+     * @param ticketCount the number of tickets that need room
+     * @param timeout     the maximum time to wait
+     * @param unit        the unit of the timeout
+     * @return true if there is room, false if the wait timed out or the simulation ended
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public boolean awaitSpace(int ticketCount, long timeout, TimeUnit unit) throws InterruptedException {
+        if (freeSpace() >= ticketCount) {
+            return true;
+        }
+
+        long remainingNanos = unit.toNanos(timeout);
+        lockHandoff();
+        waitingVendors.incrementAndGet();
+        try {
+            while (freeSpace() < ticketCount && !simulationComplete) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = spaceAvailable.awaitNanos(remainingNanos);
+            }
+            return freeSpace() >= ticketCount;
+        } finally {
+            waitingVendors.decrementAndGet();
+            handoffLock.unlock();
+        }
+    }
+
+    /**
+     * Journals every subsequent release and sale, after restoring the tickets and sales an interrupted sale
+     * of this event left in the journal. Must be called before any vendor or customer uses the pool.
+     *
+     * @param journal the journal of this pool's event
+     * @throws IllegalStateException if the recovered state does not fit this pool's capacity or total tickets
+     */
+    public void attachJournal(TicketJournal journal) {
+        TicketJournal.RecoveredState state = journal.getRecoveredState();
+        if (!state.isEmpty()) {
+            long[] ticketIds = state.ticketsInPool();
+            engine.restore(ticketIds, ticketIds.length, state.ticketsSold());
+            ticketIdGenerator.skipPast(state.lastSequence());
+
+            // Restored tickets count as released now for release-to-sale latency
+            saleSequence.set(state.ticketsSold());
+            releaseSequence.set(state.ticketsSold() + ticketIds.length);
+            releaseTimes.put(releaseSequence.get(), clock.getAsLong());
+            logger.info(() -> "Restored " + title + " from its journal: " + state.ticketsSold() + " ticket(s) sold, "
+                    + ticketIds.length + " in the pool.");
+        }
+        this.journal = journal;
+    }
+
+    /**
+     * Makes the pool read the time from the given clock instead of {@link System#nanoTime()}, for release-to-sale
+     * latencies and reservation expiry. A discrete-event simulation uses this to run the pool on its virtual clock.
+     * Must be called before any vendor or customer uses the pool.
+     *
+     * @param clock the clock, returning nanoseconds
+     */
+    public void useClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Stops this pool from logging each release, purchase and reservation, and each attempt on a full or empty
+     * pool; the start and end of the sale are still logged. A discrete-event simulation makes these calls far
+     * faster than the log can write them, and the warnings would make it wait for the log. Must be called before
+     * any vendor or customer uses the pool.
+     */
+    public void useQuietLogging() {
+        this.logActions = false;
+    }
+
+    /**
+     * Stops this pool from logging anything, including the start and end of the sale. A parameter sweep runs
+     * thousands of simulated sales, whose completion messages would only bury its results.
+     * Must be called before any vendor or customer uses the pool.
+     */
+    public void useSilentLogging() {
+        this.logActions = false;
+        this.logSale = false;
+    }
+
+    /**
+     * Puts a waiting room in front of this pool: customers then queue in it and only buy once admitted, so that
+     * only the room's few admitted customers contend for the pool. Must be called before any customer uses the
+     * pool.
+     *
+     * @param waitingRoom the waiting room
+     */
+    public void useWaitingRoom(WaitingRoom waitingRoom) {
+        this.waitingRoom = waitingRoom;
+    }
+
+    /**
+     * Returns the waiting room in front of this pool.
+     *
+     * @return the waiting room, or null if customers buy without queuing
+     */
+    public WaitingRoom getWaitingRoom() {
+        return waitingRoom;
+    }
+
+    /**
+     * Returns the live metrics of this pool.
+     *
+     * @return the pool metrics
+     */
+    public TicketPoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the distribution of time between a ticket being released and being sold.
+     * Tickets are matched to releases in release order, which is the order the pool hands them out.
+     *
+     * @return the release-to-sale latency histogram
+     */
+    public LatencyHistogram getReleaseToSaleLatency() {
+        return releaseToSaleLatency;
+    }
+
+    // Room left in the pool; reserved tickets still take up room until they are sold or put back
+    private int freeSpace() {
+        return maxTicketCapacity - engine.size() - engine.reserved();
+    }
+
+    private void recordSale(int ticketCount) {
+        metrics.recordSale(ticketCount);
+        recordReleaseToSaleLatency(ticketCount);
+        signal(waitingVendors, spaceAvailable);
+    }
+
+    private void recordReleaseToSaleLatency(int ticketCount) {
+        long now = clock.getAsLong();
+        long firstSale = saleSequence.getAndAdd(ticketCount);
+        for (long sale = firstSale; sale < firstSale + ticketCount; sale++) {
+            Map.Entry<Long, Long> release = releaseTimes.higherEntry(sale);
+            if (release != null) {
+                releaseToSaleLatency.record(now - release.getValue());
+            }
+        }
+        // Releases a full pool behind this sale can no longer be matched by any purchase
+        releaseTimes.headMap(firstSale - maxTicketCapacity).clear();
+    }
+
+    // Acquires the hand-off lock, timing the wait only when another thread holds it
+    private void lockHandoff() {
+        if (handoffLock.tryLock()) {
+            return;
+        }
+        long waitStart = System.nanoTime();
+        handoffLock.lock();
+        metrics.recordHandoffLockWait(System.nanoTime() - waitStart);
+    }
+
+    private void signal(AtomicInteger waiters, Condition condition) {
+        if (waiters.get() == 0) {
+            return;
+        }
+        lockHandoff();
+        try {
+            condition.signalAll();
+        } finally {
+            handoffLock.unlock();
+        }
+    }
+
+    private void signalAllWaiters() {
+        lockHandoff();
+        try {
+            ticketsAvailable.signalAll();
+            spaceAvailable.signalAll();
+        } finally {
+            handoffLock.unlock();
+        }
+        if (waitingRoom != null) {
+            waitingRoom.close();
+        }
     }
 
     /**
      * Stops the ticket-selling simulation if all tickets have been sold.
-     * This method is synchronized to ensure thread-safe access.
+     * This method is synchronized so that completion is only reported once.
      */
     public synchronized void stopSimulation() {
-        if (!simulationComplete && ticketsSold >= totalTickets) {
+        if (!simulationComplete && engine.ticketsSold() >= totalTickets) {
             simulationComplete = true;
-            logger.info("Simulation completed. All tickets sold.");
+            if (logSale) {
+                logger.info("Simulation completed. All tickets sold.");
+            }
+            signalAllWaiters();
+            completion.complete(true);
         }
     }
 
@@ -135,8 +665,61 @@ public class TicketPool {
      *
      * @return the size of the ticket pool
      */
-    public synchronized int getTicketPoolSize() {
-        return ticketPool.size();
+    public int getTicketPoolSize() {
+        return engine.size();
+    }
+
+    /**
+     * Returns the number of tickets sold so far.
+     *
+     * @return the number of tickets sold
+     */
+    public int getTicketsSold() {
+        return engine.ticketsSold();
+    }
+
+    /**
+     * Returns the total number of tickets to be sold for the event.
+     *
+     * @return the total number of tickets
+     */
+    public int getTotalTickets() {
+        return totalTickets;
+    }
+
+    /**
+     * Returns the number of tickets a vendor releases at a time.
+     *
+     * @return the ticket release rate
+     */
+    public int getTicketReleaseRate() {
+        return ticketReleaseRate;
+    }
+
+    /**
+     * Returns the number of tickets the event's customers are configured to buy at a time. Each purchase is for
+     * as many tickets as its {@link Customer} asks for.
+     *
+     * @return the customer retrieval rate
+     */
+    public int getCustomerRetrievalRate() {
+        return customerRetrievalRate;
+    }
+
+    /**
+     * Records new release and retrieval rates while the simulation runs. The number of tickets each release and
+     * purchase takes is set on each {@link Vendor} and {@link Customer}.
+     *
+     * @param ticketReleaseRate     the new ticket release rate
+     * @param customerRetrievalRate the new customer retrieval rate
+     * @throws IllegalArgumentException if either rate is less than or equal to zero
+     */
+    public void setRates(int ticketReleaseRate, int customerRetrievalRate) {
+        if (ticketReleaseRate <= 0 || customerRetrievalRate <= 0) {
+            throw new IllegalArgumentException("Release and retrieval rates must be greater than 0.");
+        }
+        this.ticketReleaseRate = ticketReleaseRate;
+        this.customerRetrievalRate = customerRetrievalRate;
     }
 
     /**
@@ -154,6 +737,23 @@ public class TicketPool {
      */
     public synchronized void interruptSimulation() {
         simulationComplete = true;
-        logger.warning("Simulation interrupted.");
+        if (logSale) {
+            logger.warning("Simulation interrupted.");
+        }
+        signalAllWaiters();
+        completion.complete(false);
+    }
+
+    /**
+     * Returns a future that completes when the simulation ends, either because every ticket was sold
+     * ({@code true}) or because it was interrupted ({@code false}).
+     *
+     * <p>Callbacks attached with the non-async methods run on the thread that ended the simulation,
+     * which is usually a customer thread; attach them with an executor if they do any real work.</p>
+     *
+     * @return the completion future
+     */
+    public CompletableFuture<Boolean> getCompletion() {
+        return completion;
     }
 }
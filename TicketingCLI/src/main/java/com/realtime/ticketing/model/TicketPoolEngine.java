@@ -0,0 +1,125 @@
+package com.realtime.ticketing.model;
+
+import com.realtime.ticketing.util.LatencyHistogram;
+
+/**
+ * Storage engine behind a {@link TicketPool}. An engine owns the tickets currently in the pool
+ * together with the counters needed to enforce the pool's invariants: the pool never holds more
+ * than its capacity, and no more than the event's total number of tickets is ever released.
+ *
+ * <p>Implementations must be safe for concurrent use by any number of vendor and customer threads.
+ * The {@link TicketPool} layers simulation state and logging on top of the engine, so engines
+ * do not log and never block on I/O.</p>
+ *
+ * @author Dharshan
+ */
+public interface TicketPoolEngine {
+
+    /**
+     * Adds the first {@code count} ticket IDs from the given array to the pool. The release is
+     * all-or-nothing: if the pool does not have room for every ticket, or fewer than {@code count}
+     * tickets remain to be released for the event, nothing is added.
+     *
+     * @param ticketIds the ticket IDs to add
+     * @param count     the number of IDs from the array to add
+     * @return true if the tickets were added, false if the release was rejected
+     */
+    boolean offer(long[] ticketIds, int count);
+
+    /**
+     * Removes up to {@code maxTickets} tickets from the pool and records them as sold.
+     *
+     * @param destination the array that receives the removed ticket IDs
+     * @param maxTickets  the maximum number of tickets to remove
+     * @return the number of tickets removed, or 0 if the pool is empty
+     */
+    default int poll(long[] destination, int maxTickets) {
+        int ticketsRetrieved = reserve(destination, 1, maxTickets);
+        if (ticketsRetrieved > 0) {
+            commit(ticketsRetrieved);
+        }
+        return ticketsRetrieved;
+    }
+
+    /**
+     * Removes between {@code minTickets} and {@code maxTickets} tickets from the pool without selling them.
+     * If fewer than {@code minTickets} tickets are available, nothing is removed. Reserved tickets keep their
+     * room in the pool until they are either {@link #commit committed} or {@link #requeue requeued}.
+     *
+     * @param destination the array that receives the reserved ticket IDs
+     * @param minTickets  the fewest tickets worth reserving, at least 1
+     * @param maxTickets  the most tickets to reserve
+     * @return the number of tickets reserved, or 0 if fewer than {@code minTickets} were available
+     */
+    int reserve(long[] destination, int minTickets, int maxTickets);
+
+    /**
+     * Records previously reserved tickets as sold and frees their room in the pool.
+     *
+     * @param ticketCount the number of reserved tickets sold
+     */
+    void commit(int ticketCount);
+
+    /**
+     * Puts previously reserved tickets back into the pool so they can be bought again.
+     *
+     * @param ticketIds   the array holding the reserved ticket IDs
+     * @param offset      the index of the first ID to put back
+     * @param ticketCount the number of IDs to put back
+     */
+    void requeue(long[] ticketIds, int offset, int ticketCount);
+
+    /**
+     * Loads the state of an interrupted sale into a new, empty engine: the given tickets go into the pool,
+     * and they and {@code ticketsSold} count as already released. Must be called before the engine is shared.
+     *
+     * @param ticketIds   the tickets that were in the pool, in the order they were released
+     * @param ticketCount the number of IDs from the array to restore
+     * @param ticketsSold the number of tickets already sold
+     * @throws IllegalStateException if the tickets do not fit in the pool or exceed the event's total
+     */
+    void restore(long[] ticketIds, int ticketCount, int ticketsSold);
+
+    /**
+     * Returns the number of tickets currently in the pool and available to buy. Reserved tickets are not counted.
+     *
+     * @return the pool size
+     */
+    int size();
+
+    /**
+     * Returns the number of tickets reserved but not yet sold or put back.
+     *
+     * @return the reserved tickets
+     */
+    int reserved();
+
+    /**
+     * Returns the maximum number of tickets the pool can hold at once.
+     *
+     * @return the pool capacity
+     */
+    int capacity();
+
+    /**
+     * Returns the number of tickets sold so far.
+     *
+     * @return the tickets sold
+     */
+    int ticketsSold();
+
+    /**
+     * Returns the number of tickets that have not yet been released to the pool.
+     *
+     * @return the tickets remaining to be released
+     */
+    int ticketsRemainingToBeReleased();
+
+    /**
+     * Returns how long callers have waited to acquire the engine's lock. Lock-free engines never
+     * wait, so their histogram stays empty.
+     *
+     * @return the lock-wait histogram
+     */
+    LatencyHistogram getLockWait();
+}
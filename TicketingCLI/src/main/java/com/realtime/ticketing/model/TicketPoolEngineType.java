@@ -0,0 +1,52 @@
+package com.realtime.ticketing.model;
+
+/**
+ * The storage engines available to a {@link TicketPool}.
+ *
+ * <p>The number of shards used by {@link #SHARDED} can be set with the {@code ticketing.pool.shards}
+ * system property.</p>
+ *
+ * @author Dharshan
+ */
+public enum TicketPoolEngineType {
+    /** Lock-free bounded ring buffer of primitive ticket IDs. */
+    RING_BUFFER("Ring buffer"),
+    /** Capacity split across independently locked shards, with customers stealing from other shards. */
+    SHARDED("Sharded"),
+    /** Original ArrayList guarded by a single lock, kept as a reference implementation. */
+    SYNCHRONIZED("Synchronized");
+
+    // Shards used by SHARDED pools; defaults to one per available processor
+    private static final int SHARD_COUNT =
+            Integer.getInteger("ticketing.pool.shards", Runtime.getRuntime().availableProcessors());
+
+    private final String description;
+
+    TicketPoolEngineType(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Returns a human-readable description of this engine.
+     *
+     * @return the description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Creates a new, empty engine of this type.
+     *
+     * @param maxTicketCapacity the maximum number of tickets the pool can hold
+     * @param totalTickets      the total number of tickets to be sold for the event
+     * @return the new engine
+     */
+    public TicketPoolEngine create(int maxTicketCapacity, int totalTickets) {
+        return switch (this) {
+            case RING_BUFFER -> new RingBufferTicketPoolEngine(maxTicketCapacity, totalTickets);
+            case SHARDED -> new ShardedTicketPoolEngine(maxTicketCapacity, totalTickets, Math.max(1, SHARD_COUNT));
+            case SYNCHRONIZED -> new SynchronizedTicketPoolEngine(maxTicketCapacity, totalTickets);
+        };
+    }
+}
@@ -0,0 +1,203 @@
+package com.realtime.ticketing.model;
+
+import com.realtime.ticketing.util.LatencyHistogram;
+import com.realtime.ticketing.util.RateMeter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live metrics of one {@link TicketPool}: release and sale rates, pool occupancy, release and purchase
+ * latency, rejected releases and purchases, reservations, and time spent waiting for locks.
+ *
+ * <p>The pool counts tickets and rejections; {@link Vendor} and {@link Customer} time each release and
+ * purchase they make. Every update is a counter increment or a histogram bucket increment, so metrics stay
+ * on all the time. The same numbers are shown by the "Live Statistics" menu, served over HTTP by
+ * {@code MetricsHttpServer} and published over JMX through {@link TicketPoolMetricsMXBean}.</p>
+ *
+ * @author Dharshan
+ */
+public class TicketPoolMetrics implements TicketPoolMetricsMXBean {
+    private final TicketPoolEngine engine;
+
+    private final RateMeter ticketsReleased = new RateMeter();
+    private final RateMeter ticketsSold = new RateMeter();
+    private final LongAdder emptyPoolRejections = new LongAdder();
+    private final LongAdder fullPoolRejections = new LongAdder();
+    private final LongAdder expiredReservations = new LongAdder();
+
+    private final LatencyHistogram purchaseLatency = new LatencyHistogram();
+    private final LatencyHistogram releaseLatency = new LatencyHistogram();
+    private final LatencyHistogram handoffLockWait = new LatencyHistogram();
+
+    /**
+     * Creates the metrics for a pool stored in the given engine.
+     *
+     * @param engine the engine whose occupancy and lock waits are reported
+     */
+    TicketPoolMetrics(TicketPoolEngine engine) {
+        this.engine = engine;
+    }
+
+    void recordRelease(int ticketCount) {
+        ticketsReleased.mark(ticketCount);
+    }
+
+    void recordSale(int ticketCount) {
+        ticketsSold.mark(ticketCount);
+    }
+
+    void recordEmptyPool() {
+        emptyPoolRejections.increment();
+    }
+
+    void recordFullPool() {
+        fullPoolRejections.increment();
+    }
+
+    void recordExpiredReservation() {
+        expiredReservations.increment();
+    }
+
+    void recordHandoffLockWait(long nanos) {
+        handoffLockWait.record(nanos);
+    }
+
+    /**
+     * Records how long one successful purchase took, as seen by the customer.
+     *
+     * @param nanos the purchase latency in nanoseconds
+     */
+    public void recordPurchaseLatency(long nanos) {
+        purchaseLatency.record(nanos);
+    }
+
+    /**
+     * Records how long one successful release took, as seen by the vendor.
+     *
+     * @param nanos the release latency in nanoseconds
+     */
+    public void recordReleaseLatency(long nanos) {
+        releaseLatency.record(nanos);
+    }
+
+    /**
+     * Returns the distribution of purchase latencies.
+     *
+     * @return the purchase latency histogram
+     */
+    public LatencyHistogram getPurchaseLatency() {
+        return purchaseLatency;
+    }
+
+    /**
+     * Returns the distribution of release latencies.
+     *
+     * @return the release latency histogram
+     */
+    public LatencyHistogram getReleaseLatency() {
+        return releaseLatency;
+    }
+
+    /**
+     * Returns the time spent waiting for the engine's lock.
+     *
+     * @return the engine lock-wait histogram, empty for lock-free engines
+     */
+    public LatencyHistogram getEngineLockWait() {
+        return engine.getLockWait();
+    }
+
+    /**
+     * Returns the time spent waiting for the blocking hand-off lock.
+     *
+     * @return the hand-off lock-wait histogram
+     */
+    public LatencyHistogram getHandoffLockWait() {
+        return handoffLockWait;
+    }
+
+    @Override
+    public long getTicketsReleased() {
+        return ticketsReleased.getCount();
+    }
+
+    @Override
+    public long getTicketsSold() {
+        return ticketsSold.getCount();
+    }
+
+    @Override
+    public double getTicketsReleasedPerSecond() {
+        return ticketsReleased.getRatePerSecond();
+    }
+
+    @Override
+    public double getTicketsSoldPerSecond() {
+        return ticketsSold.getRatePerSecond();
+    }
+
+    @Override
+    public int getPoolSize() {
+        return engine.size();
+    }
+
+    @Override
+    public int getPoolCapacity() {
+        return engine.capacity();
+    }
+
+    @Override
+    public double getPoolOccupancyPercent() {
+        return 100.0 * (engine.size() + engine.reserved()) / engine.capacity();
+    }
+
+    @Override
+    public long getEmptyPoolRejections() {
+        return emptyPoolRejections.sum();
+    }
+
+    @Override
+    public long getFullPoolRejections() {
+        return fullPoolRejections.sum();
+    }
+
+    @Override
+    public long getExpiredReservations() {
+        return expiredReservations.sum();
+    }
+
+    @Override
+    public int getReservedTickets() {
+        return engine.reserved();
+    }
+
+    @Override
+    public double getPurchaseLatencyP50Micros() {
+        return purchaseLatency.getValueAtPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getPurchaseLatencyP99Micros() {
+        return purchaseLatency.getValueAtPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getPurchaseLatencyMaxMicros() {
+        return purchaseLatency.getMaxNanos() / 1e3;
+    }
+
+    @Override
+    public double getReleaseLatencyP99Micros() {
+        return releaseLatency.getValueAtPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getLockWaitP99Micros() {
+        return Math.max(engine.getLockWait().getValueAtPercentile(99), handoffLockWait.getValueAtPercentile(99)) / 1e3;
+    }
+
+    @Override
+    public double getLockWaitTotalMillis() {
+        return (engine.getLockWait().getSumNanos() + handoffLockWait.getSumNanos()) / 1e6;
+    }
+}
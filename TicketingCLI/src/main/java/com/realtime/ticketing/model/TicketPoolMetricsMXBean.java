@@ -0,0 +1,46 @@
+package com.realtime.ticketing.model;
+
+/**
+ * JMX view of the live metrics of one {@link TicketPool}. Each running event registers one instance
+ * under {@code com.realtime.ticketing:type=TicketPool,event=<Event Ticket ID>}.
+ *
+ * <p>Rates are averaged over the last few whole seconds; latencies are in microseconds.</p>
+ *
+ * @author Dharshan
+ */
+public interface TicketPoolMetricsMXBean {
+
+    long getTicketsReleased();
+
+    long getTicketsSold();
+
+    double getTicketsReleasedPerSecond();
+
+    double getTicketsSoldPerSecond();
+
+    int getPoolSize();
+
+    int getPoolCapacity();
+
+    double getPoolOccupancyPercent();
+
+    long getEmptyPoolRejections();
+
+    long getFullPoolRejections();
+
+    long getExpiredReservations();
+
+    int getReservedTickets();
+
+    double getPurchaseLatencyP50Micros();
+
+    double getPurchaseLatencyP99Micros();
+
+    double getPurchaseLatencyMaxMicros();
+
+    double getReleaseLatencyP99Micros();
+
+    double getLockWaitP99Micros();
+
+    double getLockWaitTotalMillis();
+}
@@ -0,0 +1,96 @@
+package com.realtime.ticketing.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+/**
+ * Replays the arrival times recorded during a real on-sale. Every run replays the same arrivals and ends after
+ * the last one.
+ *
+ * <p>The trace is a CSV file with one arrival per line, whose first column is the time in seconds since the sale
+ * opened. Other columns, blank lines, lines starting with {@code #} and a header line are ignored. The times are
+ * kept as a sorted array of primitives, so a trace of millions of arrivals takes 8 bytes per arrival.</p>
+ *
+ * @author Dharshan
+ */
+public class TraceArrivals implements ArrivalProcess {
+    private final Path file;
+    private final long[] arrivalNanos;
+
+    private TraceArrivals(Path file, long[] arrivalNanos) {
+        this.file = file;
+        this.arrivalNanos = arrivalNanos;
+    }
+
+    /**
+     * Reads a trace from a CSV file.
+     *
+     * @param file the trace file
+     * @return the trace
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if a line other than the first does not start with a time, a time is
+     *                                  negative, or the file holds no arrivals
+     */
+    public static TraceArrivals read(Path file) throws IOException {
+        long[] times = new long[1024];
+        int count = 0;
+        int lineNumber = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String field = line.split(",", 2)[0].trim();
+                if (field.isEmpty() || field.startsWith("#")) {
+                    continue;
+                }
+                double seconds;
+                try {
+                    seconds = Double.parseDouble(field);
+                } catch (NumberFormatException e) {
+                    if (lineNumber == 1) {
+                        continue; // A header
+                    }
+                    throw new IllegalArgumentException("Line " + lineNumber + " of " + file + " does not start with a time: " + line);
+                }
+                if (!(seconds >= 0)) {
+                    throw new IllegalArgumentException("Line " + lineNumber + " of " + file + " has a negative time: " + line);
+                }
+                if (count == times.length) {
+                    times = Arrays.copyOf(times, times.length * 2);
+                }
+                times[count++] = (long) (seconds * 1_000_000_000.0);
+            }
+        }
+        if (count == 0) {
+            throw new IllegalArgumentException("The trace " + file + " holds no arrivals.");
+        }
+        long[] arrivals = Arrays.copyOf(times, count);
+        Arrays.sort(arrivals);
+        return new TraceArrivals(file, arrivals);
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong arrivals(Random random) {
+        return Arrays.stream(arrivalNanos).iterator();
+    }
+
+    @Override
+    public String describe() {
+        return "trace:" + file;
+    }
+
+    /**
+     * Returns the number of arrivals in the trace.
+     *
+     * @return the arrivals
+     */
+    public int size() {
+        return arrivalNanos.length;
+    }
+}
@@ -1,7 +1,10 @@
 package com.realtime.ticketing.model;
 
 import com.realtime.ticketing.util.LoggerUtil;
+import com.realtime.ticketing.util.TokenBucket;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 /**
@@ -11,54 +14,97 @@ import java.util.logging.Logger;
  * <p>This class is used in a simulation where tickets are added to the ticket pool at regular intervals,
  * and the vendor can be interrupted or handle unexpected errors gracefully.</p>
  *
+ * <p>Releases are paced by a {@link TokenBucket} that earns one release per interval, so the vendor keeps to its
+ * configured rate however long each release takes, and an interval of 0 is paced at the bucket's minimum instead
+ * of spinning. The release rate and interval can be changed while the vendor runs; the next release uses the
+ * new values.</p>
+ *
  * @author Dharshan
  */
 public class Vendor implements Runnable {
     // Logger instance for logging events related to the vendor
     private static final Logger logger = LoggerUtil.getLogger(Vendor.class);
 
+    // Longest single wait for room in the pool before the vendor re-checks its state
+    private static final long HANDOFF_TIMEOUT_MS = 1000;
+
     // Fields defining the ticket release parameters and the associated ticket pool
+    private final String name;
     private final TicketPool ticketPool;
-    private final int releaseRate;
-    private final int releaseInterval; // in milliseconds
+    private volatile int releaseRate;
+    private volatile int releaseInterval; // in milliseconds
+    private final TokenBucket pacer;
+    private final HandoffMode handoffMode;
+
+    // Number of tickets this vendor has released, read by the simulation report
+    private final AtomicLong ticketsReleased = new AtomicLong();
 
     /**
-     * Constructor to initialize the Vendor.
+     * Constructor to initialize a Vendor named "Vendor".
      *
      * @param ticketPool The shared ticket pool to which the vendor will add tickets.
      * @param releaseRate The number of tickets to add to the pool at each interval.
      * @param releaseInterval The interval (in milliseconds) between each ticket release.
      *
-     * @throws IllegalArgumentException if the release rate or interval is less than or equal to 0.
+     * @throws IllegalArgumentException if the release rate is less than or equal to 0 or the interval is negative.
      */
     public Vendor(TicketPool ticketPool, int releaseRate, int releaseInterval) {
-        // Validate that the release rate and interval are greater than 0
-        if (releaseRate <= 0) {
-            throw new IllegalArgumentException("Release rate must be greater than 0.");
-        }
-        if (releaseInterval <= 0) {
-            throw new IllegalArgumentException("Release interval must be greater than 0.");
-        }
+        this("Vendor", ticketPool, releaseRate, releaseInterval);
+    }
+
+    /**
+     * Constructor to initialize the Vendor.
+     *
+     * @param name The name identifying this vendor in simulation reports.
+     * @param ticketPool The shared ticket pool to which the vendor will add tickets.
+     * @param releaseRate The number of tickets to add to the pool at each interval.
+     * @param releaseInterval The interval (in milliseconds) between each ticket release.
+     *
+     * @throws IllegalArgumentException if the release rate is less than or equal to 0 or the interval is negative.
+     */
+    public Vendor(String name, TicketPool ticketPool, int releaseRate, int releaseInterval) {
+        this(name, ticketPool, releaseRate, releaseInterval, HandoffMode.SLEEP_POLL);
+    }
 
-        // Initialize the ticket pool and release parameters
+    /**
+     * Constructor to initialize the Vendor with a hand-off mode. With {@link HandoffMode#BLOCKING} the vendor
+     * waits for room in the pool instead of attempting a release that would be rejected.
+     *
+     * @param name The name identifying this vendor in simulation reports.
+     * @param ticketPool The shared ticket pool to which the vendor will add tickets.
+     * @param releaseRate The number of tickets to add to the pool at each interval.
+     * @param releaseInterval The interval (in milliseconds) between each ticket release.
+     * @param handoffMode How the vendor behaves when the pool is full.
+     *
+     * @throws IllegalArgumentException if the release rate is less than or equal to 0 or the interval is negative.
+     */
+    public Vendor(String name, TicketPool ticketPool, int releaseRate, int releaseInterval, HandoffMode handoffMode) {
+        // Initialize the ticket pool and release parameters, rejecting a rate that is not greater than 0
+        this.name = name;
         this.ticketPool = ticketPool;
-        this.releaseRate = releaseRate;
+        setReleaseRate(releaseRate);
+        this.pacer = new TokenBucket(releaseInterval); // Rejects a negative interval
         this.releaseInterval = releaseInterval;
+        this.handoffMode = handoffMode;
     }
 
     /**
      * The run method simulates adding tickets to the pool at regular intervals.
-     * This method runs in a separate thread and keeps adding tickets until the thread is interrupted.
+     * This method runs in a separate thread and keeps adding tickets until the thread is interrupted
+     * or the simulation ends. Between releases it waits for the next token from its pacer.
      *
      * @see Thread#interrupt() for interrupt handling
      */
     @Override
     public void run() {
         try {
-            // Loop that continues releasing tickets until the thread is interrupted
-            while (!Thread.currentThread().isInterrupted()) {
-                ticketPool.addTickets(releaseRate);
-                Thread.sleep(releaseInterval);
+            // Loop that continues releasing tickets until the thread is interrupted or the pool sells out
+            while (!Thread.currentThread().isInterrupted() && !ticketPool.isSimulationComplete()) {
+                if (handoffMode == HandoffMode.BLOCKING && !ticketPool.awaitSpace(releaseRate, HANDOFF_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    continue; // No room yet; keep waiting for a customer to free some
+                }
+                pacer.acquire();
+                releaseTickets();
             }
         } catch (InterruptedException e) {
             // Properly handle interruption
@@ -66,4 +112,101 @@ public class Vendor implements Runnable {
             Thread.currentThread().interrupt();
         }
     }
+
+    /**
+     * Performs a single release of {@code releaseRate} tickets into the pool.
+     * {@link #run()} calls this once per interval; a scheduler can call it directly instead, paced by
+     * {@link #getPacer()}.
+     * Successful releases are timed into the pool's {@link TicketPoolMetrics}.
+     *
+     * @return The number of tickets released.
+     */
+    public int releaseTickets() {
+        long startNanos = System.nanoTime();
+        int released = ticketPool.addTickets(releaseRate);
+        if (released > 0) {
+            ticketPool.getMetrics().recordReleaseLatency(System.nanoTime() - startNanos);
+            ticketsReleased.addAndGet(released);
+        }
+        return released;
+    }
+
+    /**
+     * Returns the number of tickets added to the pool at each release.
+     *
+     * @return The release rate.
+     */
+    public int getReleaseRate() {
+        return releaseRate;
+    }
+
+    /**
+     * Changes the number of tickets added at each release, starting with the next release.
+     *
+     * @param releaseRate The new release rate.
+     * @throws IllegalArgumentException if the release rate is less than or equal to 0.
+     */
+    public void setReleaseRate(int releaseRate) {
+        if (releaseRate <= 0) {
+            throw new IllegalArgumentException("Release rate must be greater than 0.");
+        }
+        this.releaseRate = releaseRate;
+    }
+
+    /**
+     * Returns the interval (in milliseconds) between ticket releases.
+     *
+     * @return The release interval.
+     */
+    public int getReleaseInterval() {
+        return releaseInterval;
+    }
+
+    /**
+     * Changes the interval between releases. A vendor running on its own thread picks it up at once; one run by a
+     * {@link com.realtime.ticketing.util.RateScheduler} picks it up when its task is woken.
+     *
+     * @param releaseInterval The new release interval, in milliseconds.
+     * @throws IllegalArgumentException if the release interval is negative.
+     */
+    public void setReleaseInterval(int releaseInterval) {
+        pacer.setInterval(releaseInterval);
+        this.releaseInterval = releaseInterval;
+    }
+
+    /**
+     * Returns the token bucket that paces this vendor's releases.
+     *
+     * @return The pacer.
+     */
+    public TokenBucket getPacer() {
+        return pacer;
+    }
+
+    /**
+     * Returns the number of tickets per second this vendor is paced to release.
+     *
+     * @return The target release rate.
+     */
+    public double getTargetTicketsPerSecond() {
+        return releaseRate * pacer.getRatePerSecond();
+    }
+
+    /**
+     * Returns the name identifying this vendor.
+     *
+     * @return The vendor name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of tickets this vendor has released to the pool so far.
+     *
+     * @return The number of tickets released.
+     */
+    public long getTicketsReleased() {
+        return ticketsReleased.get();
+    }
 }
@@ -0,0 +1,261 @@
+package com.realtime.ticketing.model;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * A virtual waiting room in front of a {@link TicketPool}: customers take a queue number, wait their turn, and
+ * only a limited number of them are admitted to buy from the pool at once. Customers are admitted strictly in the
+ * order they joined, and each admitted customer frees its place by leaving once served, which admits the next.
+ *
+ * <p>Without a waiting room, whichever thread wins the pool's lock gets the tickets, and every customer keeps
+ * trying while the pool is empty. With one, the customers still in the queue leave the pool alone, so the pool sees
+ * the same few purchasers however large the crowd grows.</p>
+ *
+ * <p>The room keeps no record of each waiting customer. Queue numbers are handed out by a counter, and everyone
+ * whose number is below a second counter has been admitted, so a queue of millions takes no more memory than an
+ * empty one. Only customers who give up before being admitted are remembered, until their turn comes round.</p>
+ *
+ * <p>Joining and checking for admission are lock-free. Leaving takes a lock, but only admitted customers leave
+ * in the normal course of things, and there are few of them.</p>
+ *
+ * @author Dharshan
+ */
+public class WaitingRoom {
+    // Weight of the latest gap between admissions in the moving average behind the wait estimates
+    private static final double ADMISSION_GAP_WEIGHT = 0.05;
+
+    private final int maxAdmitted;
+    private final LongSupplier clock;
+
+    // The next queue number to hand out
+    private final AtomicLong nextNumber = new AtomicLong();
+    // Every number below this has been admitted; always maxAdmitted more than the customers who have left
+    private volatile long admittedBelow;
+    private final LongAccumulator peakWaiting = new LongAccumulator(Math::max, 0);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition admission = lock.newCondition();
+    private final AtomicLong waitingThreads = new AtomicLong();
+    // Guarded by lock
+    private final PriorityQueue<Long> abandoned = new PriorityQueue<>();
+    private long departed = 0;
+    private long lastAdmissionNanos = -1;
+    private double admissionGapNanos = -1; // No estimate until two customers have been let in
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a waiting room that admits the given number of customers at once.
+     *
+     * @param maxAdmitted the most customers admitted to the pool at once
+     * @throws IllegalArgumentException if fewer than one customer would be admitted
+     */
+    public WaitingRoom(int maxAdmitted) {
+        this(maxAdmitted, System::nanoTime);
+    }
+
+    /**
+     * Creates a waiting room that reads the time for its wait estimates from the given clock, so that a
+     * discrete-event simulation can run it on its virtual clock.
+     *
+     * @param maxAdmitted the most customers admitted to the pool at once
+     * @param clock       the clock, returning nanoseconds
+     * @throws IllegalArgumentException if fewer than one customer would be admitted
+     */
+    public WaitingRoom(int maxAdmitted, LongSupplier clock) {
+        if (maxAdmitted < 1) {
+            throw new IllegalArgumentException("A waiting room must admit at least one customer.");
+        }
+        this.maxAdmitted = maxAdmitted;
+        this.clock = clock;
+        this.admittedBelow = maxAdmitted;
+    }
+
+    /**
+     * Joins the back of the queue.
+     *
+     * @return the customer's queue number, to check for admission with and to leave with
+     */
+    public long join() {
+        long number = nextNumber.getAndIncrement();
+        peakWaiting.accumulate(number + 1 - admittedBelow);
+        return number;
+    }
+
+    /**
+     * Checks whether a customer has been admitted to buy from the pool.
+     *
+     * @param number the customer's queue number
+     * @return true if it is the customer's turn
+     */
+    public boolean isAdmitted(long number) {
+        return number < admittedBelow;
+    }
+
+    /**
+     * Waits for a customer to be admitted, for customers on threads of their own.
+     *
+     * @param number  the customer's queue number
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return true if the customer has been admitted, false if the wait timed out or the room was closed
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public boolean awaitAdmission(long number, long timeout, TimeUnit unit) throws InterruptedException {
+        if (isAdmitted(number)) {
+            return true;
+        }
+
+        long remainingNanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        waitingThreads.incrementAndGet();
+        try {
+            while (!isAdmitted(number) && !closed) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = admission.awaitNanos(remainingNanos);
+            }
+            return isAdmitted(number);
+        } finally {
+            waitingThreads.decrementAndGet();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Leaves the room: once served, if the customer was admitted, which lets the next customer in, or when giving
+     * up, if not, in which case the customer's place is skipped when its turn comes. Each queue number must leave
+     * once only.
+     *
+     * @param number the customer's queue number
+     */
+    public void leave(long number) {
+        lock.lock();
+        try {
+            if (!isAdmitted(number)) {
+                abandoned.add(number);
+                return;
+            }
+            depart();
+            // Customers who gave up leave as soon as they are admitted, letting the next one in
+            while (!abandoned.isEmpty() && isAdmitted(abandoned.peek())) {
+                abandoned.poll();
+                depart();
+            }
+            if (waitingThreads.get() > 0) {
+                admission.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Frees one admitted place, admitting the next number; called with the lock held
+    private void depart() {
+        departed++;
+        admittedBelow = departed + maxAdmitted;
+
+        long now = clock.getAsLong();
+        if (lastAdmissionNanos >= 0) {
+            long gap = now - lastAdmissionNanos;
+            admissionGapNanos = admissionGapNanos < 0 ? gap
+                    : admissionGapNanos + ADMISSION_GAP_WEIGHT * (gap - admissionGapNanos);
+        }
+        lastAdmissionNanos = now;
+    }
+
+    /**
+     * Returns a customer's place in the queue.
+     *
+     * @param number the customer's queue number
+     * @return 0 once admitted, otherwise 1 for the next customer to be admitted, 2 for the one after, and so on
+     */
+    public long getPosition(long number) {
+        return Math.max(0, number - admittedBelow + 1);
+    }
+
+    /**
+     * Estimates how long a customer has left to wait, from its place in the queue and the average time between
+     * recent admissions.
+     *
+     * @param number the customer's queue number
+     * @return the estimated wait in nanoseconds, 0 once admitted, or -1 until enough customers have left to
+     *         estimate from
+     */
+    public long estimateWaitNanos(long number) {
+        long position = getPosition(number);
+        if (position == 0) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            return admissionGapNanos < 0 ? -1 : (long) (position * admissionGapNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wakes every customer waiting for admission and stops them from waiting again, once the sale is over.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            admission.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the most customers admitted to the pool at once.
+     *
+     * @return the admission limit
+     */
+    public int getMaxAdmitted() {
+        return maxAdmitted;
+    }
+
+    /**
+     * Returns the number of customers who have joined the queue.
+     *
+     * @return the customers who joined
+     */
+    public long getJoined() {
+        return nextNumber.get();
+    }
+
+    /**
+     * Returns the number of customers who are waiting to be admitted.
+     *
+     * @return the queue length, counting customers who gave up until their turn comes
+     */
+    public long getWaiting() {
+        return Math.max(0, nextNumber.get() - admittedBelow);
+    }
+
+    /**
+     * Returns the longest the queue has been.
+     *
+     * @return the peak queue length
+     */
+    public long getPeakWaiting() {
+        return peakWaiting.get();
+    }
+
+    /**
+     * Returns the number of customers who have been admitted so far, including those who have since left.
+     *
+     * @return the customers admitted
+     */
+    public long getAdmitted() {
+        return Math.min(nextNumber.get(), admittedBelow);
+    }
+}
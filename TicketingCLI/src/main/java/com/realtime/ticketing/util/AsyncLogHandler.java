@@ -0,0 +1,187 @@
+package com.realtime.ticketing.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * A log handler that hands records to a background thread instead of writing them on the caller's thread.
+ *
+ * <p>Records are placed on a bounded queue. A single daemon thread drains the queue in batches, passes each
+ * record to the wrapped handlers and flushes them once per batch, so a burst of log records costs one disk
+ * flush instead of one per record. When the queue is full, records below {@link Level#WARNING} are handled
+ * according to the {@link OverflowPolicy}; warnings and errors always wait for space so they are never lost.</p>
+ *
+ * @author Dharshan
+ */
+public class AsyncLogHandler extends Handler {
+
+    /**
+     * What to do with an INFO-or-lower record when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /** Discard the record and count it; the count is logged once the queue drains. */
+        DROP,
+        /** Wait for space in the queue, slowing the caller down to the speed of the disk. */
+        BLOCK
+    }
+
+    private final Handler[] delegates;
+    private final BlockingQueue<LogRecord> queue;
+    private final int maxBatchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicLong droppedRecords = new AtomicLong(); // Dropped since the last batch was written
+    private final AtomicLong totalDroppedRecords = new AtomicLong();
+    // Records accepted onto the queue and records written out, so flush can wait for a batch still being written
+    private final AtomicLong queuedRecords = new AtomicLong();
+    private final AtomicLong writtenRecords = new AtomicLong();
+    private final Thread drainThread;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates a handler and starts its drain thread.
+     *
+     * @param queueCapacity  the maximum number of records waiting to be written
+     * @param maxBatchSize   the maximum number of records written between two flushes
+     * @param overflowPolicy what to do with low-priority records when the queue is full
+     * @param delegates      the handlers that write the records
+     */
+    public AsyncLogHandler(int queueCapacity, int maxBatchSize, OverflowPolicy overflowPolicy, Handler... delegates) {
+        this.delegates = delegates.clone();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.overflowPolicy = overflowPolicy;
+
+        drainThread = new Thread(this::drain, "async-log-writer");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+
+        // Resolve the source here rather than letting the formatter walk the writer thread's stack.
+        // The logger name is used instead of a stack walk, which would cost more than the write itself.
+        record.setSourceClassName(record.getLoggerName());
+        record.setSourceMethodName(null);
+
+        if (queue.offer(record)) {
+            queuedRecords.incrementAndGet();
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.DROP && record.getLevel().intValue() < Level.WARNING.intValue()) {
+            droppedRecords.incrementAndGet();
+            totalDroppedRecords.incrementAndGet();
+            return;
+        }
+        try {
+            queue.put(record); // Back-pressure: wait for the writer to catch up
+            queuedRecords.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until every record queued so far has been written and flushed, including records the drain thread has
+     * already taken off the queue but not yet written.
+     */
+    @Override
+    public void flush() {
+        long queuedSoFar = queuedRecords.get();
+        while (writtenRecords.get() < queuedSoFar && drainThread.isAlive()) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        synchronized (this) {
+            for (Handler delegate : delegates) {
+                delegate.flush();
+            }
+        }
+    }
+
+    /**
+     * Writes every queued record, then closes the wrapped handlers.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        drainThread.interrupt();
+        try {
+            drainThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            writeBatch(drainRemaining());
+            for (Handler delegate : delegates) {
+                delegate.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of records discarded because the queue was full.
+     *
+     * @return the number of dropped records
+     */
+    public long getDroppedRecords() {
+        return totalDroppedRecords.get();
+    }
+
+    private void drain() {
+        List<LogRecord> batch = new ArrayList<>(maxBatchSize);
+        while (!closed) {
+            try {
+                // Block for the first record, then take whatever else is already waiting
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - 1);
+            } catch (InterruptedException e) {
+                break; // close() writes the rest
+            }
+            synchronized (this) {
+                writeBatch(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    private List<LogRecord> drainRemaining() {
+        List<LogRecord> remaining = new ArrayList<>(queue.size());
+        queue.drainTo(remaining);
+        return remaining;
+    }
+
+    private void writeBatch(List<LogRecord> batch) {
+        int records = batch.size();
+        long dropped = droppedRecords.getAndSet(0);
+        if (dropped > 0) {
+            LogRecord droppedRecord = new LogRecord(Level.WARNING, dropped + " log record(s) dropped because the log queue was full.");
+            droppedRecord.setLoggerName(AsyncLogHandler.class.getName());
+            droppedRecord.setSourceClassName(AsyncLogHandler.class.getName());
+            batch.add(droppedRecord);
+        }
+
+        for (LogRecord record : batch) {
+            for (Handler delegate : delegates) {
+                delegate.publish(record);
+            }
+        }
+        for (Handler delegate : delegates) {
+            delegate.flush();
+        }
+        writtenRecords.addAndGet(records);
+    }
+}
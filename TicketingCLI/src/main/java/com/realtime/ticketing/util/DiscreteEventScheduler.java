@@ -0,0 +1,99 @@
+package com.realtime.ticketing.util;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs actions in the order of a virtual clock instead of in real time.
+ *
+ * <p>Actions wait in a priority queue keyed by the virtual time they are due. Running the scheduler takes the
+ * earliest action, moves the clock straight to its time and runs it, so waiting between actions costs nothing and
+ * an hour of simulated time passes as fast as the actions themselves run. Actions due at the same time run in the
+ * order they were scheduled, which together with running everything on one thread makes a run reproducible.</p>
+ *
+ * <p>Not thread-safe: actions are scheduled and run on the thread that calls {@link #run}.</p>
+ *
+ * @author Dharshan
+ */
+public class DiscreteEventScheduler {
+    private final PriorityQueue<ScheduledAction> queue = new PriorityQueue<>(
+            Comparator.comparingLong(ScheduledAction::timeNanos).thenComparingLong(ScheduledAction::sequence));
+    private long nowNanos = 0;
+    private long sequence = 0;
+    private long actionsRun = 0;
+
+    /**
+     * Returns the virtual time, which starts at 0 and only moves forward when an action is run.
+     *
+     * @return the virtual time in nanoseconds
+     */
+    public long now() {
+        return nowNanos;
+    }
+
+    /**
+     * Schedules an action to run after a delay in virtual time.
+     *
+     * @param delayNanos how long after the current virtual time the action is due
+     * @param action     the action to run
+     * @throws IllegalArgumentException if the delay is negative
+     */
+    public void schedule(long delayNanos, Runnable action) {
+        if (delayNanos < 0) {
+            throw new IllegalArgumentException("Delay must not be negative.");
+        }
+        scheduleAt(nowNanos + delayNanos, action);
+    }
+
+    /**
+     * Schedules an action to run at a virtual time. A time in the past runs the action at the current time.
+     *
+     * @param timeNanos the virtual time the action is due, in nanoseconds
+     * @param action    the action to run
+     */
+    public void scheduleAt(long timeNanos, Runnable action) {
+        queue.add(new ScheduledAction(Math.max(timeNanos, nowNanos), sequence++, action));
+    }
+
+    /**
+     * Runs the scheduled actions in order until the given condition holds, no action is due by the end time, or
+     * no action is left. If an action is still waiting when the end time is reached, the clock stops at the end time.
+     *
+     * @param endNanos the virtual time to stop at
+     * @param done     checked after every action; the run stops once it returns true
+     */
+    public void run(long endNanos, BooleanSupplier done) {
+        while (!queue.isEmpty() && !done.getAsBoolean()) {
+            if (queue.peek().timeNanos() > endNanos) {
+                nowNanos = endNanos;
+                return;
+            }
+            ScheduledAction next = queue.poll();
+            nowNanos = next.timeNanos();
+            next.action().run();
+            actionsRun++;
+        }
+    }
+
+    /**
+     * Returns the number of actions run so far.
+     *
+     * @return the actions run
+     */
+    public long getActionsRun() {
+        return actionsRun;
+    }
+
+    /**
+     * Returns the number of actions waiting to run.
+     *
+     * @return the pending actions
+     */
+    public int getPendingActions() {
+        return queue.size();
+    }
+
+    private record ScheduledAction(long timeNanos, long sequence, Runnable action) {
+    }
+}
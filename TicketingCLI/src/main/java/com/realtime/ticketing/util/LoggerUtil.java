@@ -4,56 +4,100 @@ import java.io.IOException;
 import java.util.logging.*;
 
 /**
- * Utility class to configure and return a logger with both file and console handlers.
+ * Utility class to configure and return a logger with both file and console output.
  * This class ensures that logs are captured both in a file and on the console.
  * It provides a simple logging setup for different components in the application.
  *
- * <p>The logger is configured to log all levels of messages to both the console and a log file,
- * 'application.log'.</p>
+ * <p>Every logger shares one {@link AsyncLogHandler}, which writes to 'application.log' and the console
+ * on a background thread, so logging never makes a ticket release or purchase wait for the disk.</p>
+ *
+ * <p>The pipeline can be tuned with system properties:</p>
+ * <ul>
+ *     <li>{@code ticketing.log.level} - the minimum level that is logged (default INFO)</li>
+ *     <li>{@code ticketing.log.queueCapacity} - the number of records that can wait to be written (default 8192)</li>
+ *     <li>{@code ticketing.log.batchSize} - the maximum number of records written per flush (default 512)</li>
+ *     <li>{@code ticketing.log.overflow} - DROP or BLOCK, what happens to INFO records when the queue is full (default DROP)</li>
+ * </ul>
  *
  * @author Dharshan
  */
 public class LoggerUtil {
+    private static final Level LOG_LEVEL = Level.parse(System.getProperty("ticketing.log.level", "INFO"));
+    private static final int QUEUE_CAPACITY = Integer.getInteger("ticketing.log.queueCapacity", 8192);
+    private static final int BATCH_SIZE = Integer.getInteger("ticketing.log.batchSize", 512);
+    private static final AsyncLogHandler.OverflowPolicy OVERFLOW_POLICY =
+            AsyncLogHandler.OverflowPolicy.valueOf(System.getProperty("ticketing.log.overflow", "DROP").toUpperCase());
+
+    // Created on first use and shared by every logger, so the log file is opened only once
+    private static AsyncLogHandler sharedHandler;
 
     /**
-     * Initializes a logger with both file and console handlers.
+     * Returns a logger for the given class that writes through the shared asynchronous handler.
      *
-     * <p>This method sets up two handlers for logging: one that writes logs to a file and
-     * another that outputs logs to the console. Both handlers use a simple text format
-     * for the logs.</p>
+     * <p>Callers should prefer the {@code Supplier} overloads (for example {@code logger.info(() -> ...)})
+     * so that messages are only built when their level is enabled.</p>
      *
      * @param clazz The class for which the logger is being created. The logger's name will
      *              be the fully qualified name of this class.
      * @return A configured Logger instance for the specified class.
      */
-    public static Logger getLogger(Class<?> clazz) {
+    public static synchronized Logger getLogger(Class<?> clazz) {
         // Create a logger instance for the specified class
         Logger logger = Logger.getLogger(clazz.getName());
 
+        AsyncLogHandler handler = getSharedHandler();
+        if (handler != null) {
+            for (Handler existing : logger.getHandlers()) {
+                if (existing == handler) {
+                    return logger; // Already configured
+                }
+            }
+            logger.addHandler(handler);
+
+            // Disable the default console handler to avoid duplicate logs
+            logger.setUseParentHandlers(false);
+        }
+        logger.setLevel(LOG_LEVEL);
+
+        // Return the configured logger instance
+        return logger;
+    }
+
+    /**
+     * Writes every log record queued so far.
+     */
+    public static synchronized void flush() {
+        if (sharedHandler != null) {
+            sharedHandler.flush();
+        }
+    }
+
+    private static AsyncLogHandler getSharedHandler() {
+        if (sharedHandler != null) {
+            return sharedHandler;
+        }
+
         try {
             // Set up File Handler to log events to a file ('application.log')
             Handler fileHandler = new FileHandler("application.log", true); // true to append to the file
             fileHandler.setFormatter(new SimpleFormatter()); // Simple text format for log messages
-            fileHandler.setLevel(Level.ALL); // Log all levels of messages (from INFO to SEVERE)
+            fileHandler.setLevel(Level.ALL);
 
             // Set up Console Handler to log events to the console
             Handler consoleHandler = new ConsoleHandler(); // Console output
             consoleHandler.setFormatter(new SimpleFormatter()); // Simple text format for log messages
-            consoleHandler.setLevel(Level.ALL); // Log all levels of messages to the console
+            consoleHandler.setLevel(Level.ALL);
 
-            // Add both the file and console handlers to the logger
-            logger.addHandler(fileHandler);
-            logger.addHandler(consoleHandler);
-
-            // Disable the default console handler to avoid duplicate logs
-            logger.setUseParentHandlers(false);
+            sharedHandler = new AsyncLogHandler(QUEUE_CAPACITY, BATCH_SIZE, OVERFLOW_POLICY, fileHandler, consoleHandler);
+            sharedHandler.setLevel(Level.ALL);
 
+            // Write out anything still queued when the application exits
+            AsyncLogHandler handler = sharedHandler;
+            Runtime.getRuntime().addShutdownHook(new Thread(handler::close, "async-log-shutdown"));
         } catch (IOException e) {
             // If file handler setup fails, print an error message
             System.err.println("Failed to initialize logger: " + e.getMessage());
         }
-
-        // Return the configured logger instance
-        return logger;
+        return sharedHandler;
     }
 }
@@ -0,0 +1,100 @@
+package com.realtime.ticketing.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe counter that also reports how fast it has been growing.
+ *
+ * <p>Events are counted in one-second buckets kept in a small ring, so the rate over the last few seconds
+ * can be read at any time without the reader having to remember a previous sample. Several readers (the
+ * menu, the HTTP endpoint and JMX) can therefore watch the same meter without disturbing each other.</p>
+ *
+ * @author Dharshan
+ */
+public class RateMeter {
+    private static final int SLOTS = 64;
+
+    // nanoTime may be negative; measuring from class load keeps the seconds non-negative
+    private static final long ORIGIN = System.nanoTime();
+
+    /** Number of whole seconds averaged by {@link #getRatePerSecond()}. */
+    public static final int DEFAULT_WINDOW_SECONDS = 5;
+
+    private final AtomicLongArray seconds = new AtomicLongArray(SLOTS);
+    private final AtomicLongArray counts = new AtomicLongArray(SLOTS);
+    private final LongAdder total = new LongAdder();
+    private final long createdSecond = currentSecond();
+
+    /**
+     * Creates a meter with every bucket empty.
+     */
+    public RateMeter() {
+        for (int i = 0; i < SLOTS; i++) {
+            seconds.set(i, -1);
+        }
+    }
+
+    /**
+     * Records the given number of events at the current time.
+     *
+     * @param count the number of events
+     */
+    public void mark(long count) {
+        long second = currentSecond();
+        int slot = (int) (second % SLOTS);
+        long stamp = seconds.get(slot);
+        if (stamp != second && seconds.compareAndSet(slot, stamp, second)) {
+            // First event of a new second reuses the bucket; a concurrent mark may be lost, which a rate tolerates
+            counts.set(slot, 0);
+        }
+        counts.addAndGet(slot, count);
+        total.add(count);
+    }
+
+    /**
+     * Returns the number of events recorded since the meter was created.
+     *
+     * @return the total count
+     */
+    public long getCount() {
+        return total.sum();
+    }
+
+    /**
+     * Returns the average number of events per second over the last {@value #DEFAULT_WINDOW_SECONDS} whole seconds.
+     *
+     * @return the rate in events per second
+     */
+    public double getRatePerSecond() {
+        return getRatePerSecond(DEFAULT_WINDOW_SECONDS);
+    }
+
+    /**
+     * Returns the average number of events per second over the given number of whole seconds.
+     * The current, still incomplete second is not included, and neither are seconds before the meter was created.
+     *
+     * @param windowSeconds the number of seconds to average, between 1 and 60
+     * @return the rate in events per second
+     */
+    public double getRatePerSecond(int windowSeconds) {
+        long now = currentSecond();
+        if (now <= createdSecond) {
+            return 0; // No whole second has passed yet
+        }
+        int window = (int) Math.max(1, Math.min(Math.min(windowSeconds, SLOTS - 4), now - createdSecond));
+        long sum = 0;
+        for (long second = now - window; second < now; second++) {
+            int slot = (int) (second % SLOTS);
+            if (seconds.get(slot) == second) {
+                sum += counts.get(slot);
+            }
+        }
+        return (double) sum / window;
+    }
+
+    private static long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - ORIGIN);
+    }
+}
@@ -0,0 +1,137 @@
+package com.realtime.ticketing.util;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs paced actions on a shared {@link ScheduledExecutorService}, each at the rate of its own {@link TokenBucket}.
+ *
+ * <p>No action holds a thread between runs. A {@link PacedTask} wakes up, runs its action once for every token its
+ * bucket has earned and schedules its next wake-up for the moment the next token is due, so thousands of paced
+ * actions share the executor's few threads. Because the wake-ups follow the bucket rather than a fixed delay after
+ * each run, the time the actions take does not slow the rate down, and a wake-up that comes late is made up by
+ * the tokens saved in the meantime.</p>
+ *
+ * @author Dharshan
+ */
+public class RateScheduler {
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Creates a rate scheduler on the given executor.
+     *
+     * @param executor the executor that runs the paced actions
+     */
+    public RateScheduler(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Starts running an action at the rate of a token bucket. The first run happens straight away if the bucket
+     * has a token.
+     *
+     * @param bucket the bucket pacing the action
+     * @param action the action to run once per token
+     * @return the task, for cancelling it
+     */
+    public PacedTask schedule(TokenBucket bucket, Runnable action) {
+        PacedTask task = new PacedTask(bucket, action);
+        task.wakeUp();
+        return task;
+    }
+
+    /**
+     * Returns the executor the paced actions run on, for other periodic work that should share its threads.
+     *
+     * @return the executor
+     */
+    public ScheduledExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * One action being run at the rate of its bucket.
+     */
+    public final class PacedTask {
+        private final TokenBucket bucket;
+        private final Runnable action;
+        private volatile boolean cancelled = false;
+        // Wake-ups of an older generation were replaced by wakeUp() and are dropped
+        private long generation = 0;
+        private ScheduledFuture<?> next;
+        // Guarded by this: a run is in progress, and wakeUp() was called during it
+        private boolean running = false;
+        private boolean wakeUpRequested = false;
+
+        private PacedTask(TokenBucket bucket, Runnable action) {
+            this.bucket = bucket;
+            this.action = action;
+        }
+
+        private void run(long scheduledGeneration) {
+            synchronized (this) {
+                if (cancelled || scheduledGeneration != generation) {
+                    return;
+                }
+                running = true;
+            }
+            try {
+                int tokens = bucket.tryAcquireAll();
+                for (int i = 0; i < tokens && !cancelled; i++) {
+                    try {
+                        action.run();
+                    } catch (RuntimeException e) {
+                        System.err.println("Paced task failed: " + e.getMessage());
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    running = false;
+                    // A wake-up asked for during the run is made now, so the two runs never overlap
+                    long delayNanos = wakeUpRequested ? 0 : bucket.nanosUntilNextToken();
+                    wakeUpRequested = false;
+                    scheduleNext(scheduledGeneration, delayNanos);
+                }
+            }
+        }
+
+        private synchronized void scheduleNext(long scheduledGeneration, long delayNanos) {
+            if (cancelled || scheduledGeneration != generation) {
+                return;
+            }
+            try {
+                next = executor.schedule(() -> run(scheduledGeneration), delayNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                cancelled = true; // The executor is shutting down
+            }
+        }
+
+        /**
+         * Replaces the pending wake-up with one now, so a change to the bucket's interval takes effect at once
+         * instead of after the wait worked out under the old interval. If the action is running, the wake-up
+         * happens as soon as the run finishes.
+         */
+        public synchronized void wakeUp() {
+            if (running) {
+                wakeUpRequested = true;
+                return;
+            }
+            if (next != null) {
+                next.cancel(false);
+            }
+            scheduleNext(++generation, 0);
+        }
+
+        /**
+         * Stops running the action. A run already in progress finishes its current action.
+         */
+        public synchronized void cancel() {
+            cancelled = true;
+            if (next != null) {
+                next.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.realtime.ticketing.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Paces an action to a target rate: one token is earned every interval, and each action spends one.
+ *
+ * <p>Tokens are earned from elapsed {@link System#nanoTime()}, not counted from the end of the previous action,
+ * so the rate does not drift by however long the actions themselves take. Unspent tokens are saved up to the
+ * bucket's capacity, which lets a caller that woke up late catch up with a short burst instead of falling behind
+ * for good. The bucket starts with one token, so the first action can run straight away.</p>
+ *
+ * <p>Intervals shorter than {@link #MIN_INTERVAL_NANOS}, including an interval of 0, are paced at that minimum,
+ * so an unpaced configuration cannot turn into a hot spin. The interval can be changed at any time; a thread
+ * waiting in {@link #acquire()} re-checks at once.</p>
+ *
+ * <p>Thread-safe. The lock is only held for a few arithmetic operations, so it is practically uncontended.</p>
+ *
+ * @author Dharshan
+ */
+public class TokenBucket {
+    /** Shortest interval a bucket paces at: 1 ms, or at most 1000 actions per second. */
+    public static final long MIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /** Tokens a bucket saves up for a burst unless told otherwise; set with {@code ticketing.rate.burst}. */
+    public static final int DEFAULT_CAPACITY = Math.max(1, Integer.getInteger("ticketing.rate.burst", 4));
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition intervalChanged = lock.newCondition();
+    private final int capacity;
+    private long intervalNanos;
+    private long creditNanos;    // Time earned but not yet spent; one token is worth intervalNanos
+    private long lastRefillNanos;
+
+    /**
+     * Creates a bucket that earns one token per interval and saves up to {@link #DEFAULT_CAPACITY} tokens.
+     *
+     * @param intervalMillis the interval between tokens, in milliseconds
+     * @throws IllegalArgumentException if the interval is negative
+     */
+    public TokenBucket(int intervalMillis) {
+        this(TimeUnit.MILLISECONDS.toNanos(intervalMillis), DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a bucket that earns one token per interval.
+     *
+     * @param intervalNanos the interval between tokens, in nanoseconds
+     * @param capacity      the most tokens the bucket saves up
+     * @throws IllegalArgumentException if the interval is negative or the capacity is less than 1
+     */
+    public TokenBucket(long intervalNanos, int capacity) {
+        if (intervalNanos < 0) {
+            throw new IllegalArgumentException("Interval must not be negative.");
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1.");
+        }
+        this.capacity = capacity;
+        this.intervalNanos = Math.max(MIN_INTERVAL_NANOS, intervalNanos);
+        this.creditNanos = this.intervalNanos;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes one token if one is available.
+     *
+     * @return true if a token was taken
+     */
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            refill();
+            if (creditNanos < intervalNanos) {
+                return false;
+            }
+            creditNanos -= intervalNanos;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes every token that is available.
+     *
+     * @return the number of tokens taken, at most the capacity
+     */
+    public int tryAcquireAll() {
+        lock.lock();
+        try {
+            refill();
+            int tokens = (int) (creditNanos / intervalNanos);
+            creditNanos -= tokens * intervalNanos;
+            return tokens;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until a token is available and takes it.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            while (true) {
+                refill();
+                if (creditNanos >= intervalNanos) {
+                    creditNanos -= intervalNanos;
+                    return;
+                }
+                intervalChanged.awaitNanos(intervalNanos - creditNanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns how long it will be until the next token is earned.
+     *
+     * @return the wait in nanoseconds, or 0 if a token is available now
+     */
+    public long nanosUntilNextToken() {
+        lock.lock();
+        try {
+            refill();
+            return Math.max(0, intervalNanos - creditNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Changes the interval between tokens. Progress towards the next token is kept in proportion, so a change
+     * does not hand out a burst or lose the time already waited.
+     *
+     * @param intervalMillis the new interval, in milliseconds
+     * @throws IllegalArgumentException if the interval is negative
+     */
+    public void setInterval(int intervalMillis) {
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("Interval must not be negative.");
+        }
+        long newIntervalNanos = Math.max(MIN_INTERVAL_NANOS, TimeUnit.MILLISECONDS.toNanos(intervalMillis));
+        lock.lock();
+        try {
+            refill();
+            creditNanos = (long) (creditNanos * ((double) newIntervalNanos / intervalNanos));
+            intervalNanos = newIntervalNanos;
+            creditNanos = Math.min(creditNanos, maxCreditNanos());
+            intervalChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the rate tokens are earned at.
+     *
+     * @return tokens per second
+     */
+    public double getRatePerSecond() {
+        lock.lock();
+        try {
+            return TimeUnit.SECONDS.toNanos(1) / (double) intervalNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the most tokens the bucket saves up.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        creditNanos = Math.min(maxCreditNanos(), creditNanos + (now - lastRefillNanos));
+        lastRefillNanos = now;
+    }
+
+    private long maxCreditNanos() {
+        return capacity > Long.MAX_VALUE / intervalNanos ? Long.MAX_VALUE : capacity * intervalNanos;
+    }
+}
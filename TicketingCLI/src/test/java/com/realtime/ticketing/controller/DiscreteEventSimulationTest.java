@@ -0,0 +1,98 @@
+package com.realtime.ticketing.controller;
+
+import com.realtime.ticketing.model.ArrivalProcess;
+import com.realtime.ticketing.model.Configuration;
+import com.realtime.ticketing.model.ConfigurationStore;
+import com.realtime.ticketing.model.PoissonArrivals;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a {@link DiscreteEventSimulation} is reproducible: the same configuration and seed give the same outcome.
+ *
+ * @author Dharshan
+ */
+class DiscreteEventSimulationTest {
+    private static final long MAX_VIRTUAL_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    @TempDir
+    Path configurationDirectory;
+
+    @Test
+    void sameSeedGivesTheSameOutcome() throws IOException {
+        Configuration configuration = configuration(3, 4);
+
+        DiscreteEventSimulation.Result first = run(configuration, 42, null);
+        DiscreteEventSimulation.Result second = run(configuration, 42, null);
+        assertTrue(first.ticketsSold() > 0);
+        assertSameOutcome(first, second);
+    }
+
+    @Test
+    void sameSeedGivesTheSameArrivalTimeline() throws IOException {
+        Configuration configuration = configuration(2, 1);
+
+        DiscreteEventSimulation.Result first = run(configuration, 7, new PoissonArrivals(50));
+        DiscreteEventSimulation.Result second = run(configuration, 7, new PoissonArrivals(50));
+        assertNotNull(first.arrivalStats());
+        assertFalse(first.arrivalStats().timeline().isEmpty());
+        assertSameOutcome(first, second);
+        assertEquals(first.arrivalStats().customersArrived(), second.arrivalStats().customersArrived());
+        assertEquals(first.arrivalStats().customersServed(), second.arrivalStats().customersServed());
+        assertEquals(first.arrivalStats().fifoViolations(), second.arrivalStats().fifoViolations());
+        assertEquals(first.arrivalStats().timeline(), second.arrivalStats().timeline());
+    }
+
+    @Test
+    void anotherSeedChangesRandomArrivals() throws IOException {
+        Configuration configuration = configuration(2, 1);
+
+        DiscreteEventSimulation.Result first = run(configuration, 1, new PoissonArrivals(50));
+        DiscreteEventSimulation.Result second = run(configuration, 2, new PoissonArrivals(50));
+        // The same tickets are sold either way, but not to customers arriving at the same moments
+        assertNotEquals(first.arrivalStats().timeline(), second.arrivalStats().timeline());
+        assertNotEquals(first.virtualNanos(), second.virtualNanos());
+    }
+
+    private static DiscreteEventSimulation.Result run(Configuration configuration, long seed,
+                                                      ArrivalProcess arrivalProcess) {
+        DiscreteEventSimulation.Result result = new DiscreteEventSimulation(configuration, SimulationOptions.defaults(),
+                seed, arrivalProcess).run(MAX_VIRTUAL_NANOS);
+        assertTrue(result.soldOut(), "The simulation ran out of virtual time");
+        return result;
+    }
+
+    // Everything but the wall-clock time, which varies from run to run
+    private static void assertSameOutcome(DiscreteEventSimulation.Result expected, DiscreteEventSimulation.Result actual) {
+        assertEquals(expected.ticketsSold(), actual.ticketsSold());
+        assertEquals(expected.virtualNanos(), actual.virtualNanos());
+        assertEquals(expected.virtualSeconds(), actual.virtualSeconds());
+        assertEquals(expected.actionsRun(), actual.actionsRun());
+        assertEquals(expected.ticketsReleased(), actual.ticketsReleased());
+        assertEquals(expected.releaseAttempts(), actual.releaseAttempts());
+        assertEquals(expected.purchaseAttempts(), actual.purchaseAttempts());
+        assertEquals(expected.emptyPoolRejections(), actual.emptyPoolRejections());
+        assertEquals(expected.fullPoolRejections(), actual.fullPoolRejections());
+        assertEquals(expected.releaseToSaleLatency().getSumNanos(), actual.releaseToSaleLatency().getSumNanos());
+    }
+
+    private Configuration configuration(int vendorCount, int customerCount) throws IOException {
+        Path file = configurationDirectory.resolve("configurations.json");
+        Files.writeString(file, "[{\"eventTicketId\": 9002, \"vendorName\": \"Vendor\", \"title\": \"Concert\", "
+                + "\"maxTicketCapacity\": 20, \"ticketReleaseRate\": 3, \"customerRetrievalRate\": 2, "
+                + "\"ticketReleaseInterval\": 100, \"customerRetrievalInterval\": 70, \"totalTickets\": 300, "
+                + "\"price\": 10.0, \"vendorCount\": " + vendorCount + ", \"customerCount\": " + customerCount + "}]");
+        return ConfigurationStore.readAll(file).get(0);
+    }
+}
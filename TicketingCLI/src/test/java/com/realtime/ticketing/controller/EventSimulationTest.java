@@ -0,0 +1,105 @@
+package com.realtime.ticketing.controller;
+
+import com.realtime.ticketing.model.Configuration;
+import com.realtime.ticketing.model.ConfigurationStore;
+import com.realtime.ticketing.model.JournalDurability;
+import com.realtime.ticketing.model.TicketJournal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests how an {@link EventSimulation} picks up the journal of an earlier sale of its event.
+ *
+ * @author Dharshan
+ */
+class EventSimulationTest {
+    private static final int EVENT = 9001;
+
+    @TempDir
+    Path configurationDirectory;
+
+    @Test
+    void resumesAJournalThatFitsTheConfiguration() throws IOException {
+        deleteJournal();
+        try (TicketJournal journal = TicketJournal.open(TicketJournal.DEFAULT_DIRECTORY, EVENT, JournalDurability.SYNC)) {
+            journal.recordRelease(ticketIds(3), 3);
+            journal.recordSale(ticketIds(1), 1);
+        }
+
+        EventSimulation simulation = new EventSimulation(configuration(10, 100), SimulationOptions.defaults());
+        try {
+            assertEquals(2, simulation.getTicketPool().getTicketPoolSize());
+            assertEquals(1, simulation.getTicketPool().getTicketsSold());
+        } finally {
+            simulation.stop(); // Closes the journal and its flusher thread
+        }
+        // Even a simulation that never started finishes its sale when stopped
+        try (TicketJournal reopened = TicketJournal.open(TicketJournal.DEFAULT_DIRECTORY, EVENT, JournalDurability.SYNC)) {
+            assertTrue(reopened.getRecoveredState().isEmpty());
+        }
+    }
+
+    @Test
+    void discardsAJournalThatDoesNotFitTheConfiguration() throws IOException {
+        deleteJournal();
+        try (TicketJournal journal = TicketJournal.open(TicketJournal.DEFAULT_DIRECTORY, EVENT, JournalDurability.SYNC)) {
+            journal.recordRelease(ticketIds(10), 10);
+            journal.recordSale(ticketIds(1), 1);
+        }
+
+        // The pool now holds at most 5 tickets, so the 9 journaled in it cannot be restored
+        EventSimulation simulation = new EventSimulation(configuration(5, 100), SimulationOptions.defaults());
+        try {
+            assertEquals(0, simulation.getTicketPool().getTicketPoolSize());
+            assertEquals(0, simulation.getTicketPool().getTicketsSold());
+
+            // Only the new sale's empty segment is left, so a restart starts afresh too
+            try (Stream<Path> files = Files.list(TicketJournal.DEFAULT_DIRECTORY.resolve("event-" + EVENT))) {
+                assertEquals(1, files.count());
+            }
+        } finally {
+            simulation.suspend(); // Keeps the new sale's journal for the reopen below
+        }
+        try (TicketJournal reopened = TicketJournal.open(TicketJournal.DEFAULT_DIRECTORY, EVENT, JournalDurability.SYNC)) {
+            assertTrue(reopened.getRecoveredState().isEmpty());
+        }
+    }
+
+    private Configuration configuration(int maxTicketCapacity, int totalTickets) throws IOException {
+        Path file = configurationDirectory.resolve("configurations.json");
+        Files.writeString(file, "[{\"eventTicketId\": " + EVENT + ", \"vendorName\": \"Vendor\", \"title\": \"Concert\", "
+                + "\"maxTicketCapacity\": " + maxTicketCapacity + ", \"ticketReleaseRate\": 2, \"customerRetrievalRate\": 1, "
+                + "\"ticketReleaseInterval\": 100, \"customerRetrievalInterval\": 100, \"totalTickets\": " + totalTickets
+                + ", \"price\": 10.0}]");
+        return ConfigurationStore.readAll(file).get(0);
+    }
+
+    private static long[] ticketIds(int count) {
+        long[] ticketIds = new long[count];
+        for (int i = 0; i < count; i++) {
+            ticketIds[i] = (long) EVENT << 32 | (i + 1);
+        }
+        return ticketIds;
+    }
+
+    // The simulation always uses the default journal directory, so clear out this event's journal from earlier runs
+    private static void deleteJournal() throws IOException {
+        Path directory = TicketJournal.DEFAULT_DIRECTORY.resolve("event-" + EVENT);
+        if (Files.exists(directory)) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+}
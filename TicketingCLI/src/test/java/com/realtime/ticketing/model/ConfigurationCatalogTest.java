@@ -0,0 +1,157 @@
+package com.realtime.ticketing.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.realtime.ticketing.model.ConfigurationFixtures.assertSameSettings;
+import static com.realtime.ticketing.model.ConfigurationFixtures.configuration;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the binary layout, lookups and validation of a {@link ConfigurationCatalog}.
+ *
+ * @author Dharshan
+ */
+class ConfigurationCatalogTest {
+    // Header, record and field sizes of the file format
+    private static final int HEADER_BYTES = 24;
+    private static final int RECORD_BYTES = 52;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackEverySettingInEventOrder() throws IOException {
+        Path file = directory.resolve("catalog.bin");
+        ConfigurationCatalog.write(file, List.of(configuration(3), configuration(1), configuration(2, "Vendör", "Ünïcode")));
+
+        ConfigurationCatalog catalog = ConfigurationCatalog.open(file);
+        assertEquals(3, catalog.size());
+        assertSameSettings(List.of(configuration(1), configuration(2, "Vendör", "Ünïcode"), configuration(3)), catalog.records());
+        assertSameSettings(configuration(3), catalog.record(2).toConfiguration());
+        assertThrows(IndexOutOfBoundsException.class, () -> catalog.record(3));
+    }
+
+    @Test
+    void storesEachDistinctStringOnce() throws IOException {
+        Path file = directory.resolve("catalog.bin");
+        ConfigurationCatalog.write(file, List.of(
+                configuration(1, "Acme", "Show"), configuration(2, "Acme", "Show"), configuration(3, "Show", "Acme")));
+
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertEquals(2, data.getInt(12), "string count");
+        int strings = 2 * Integer.BYTES + (Integer.BYTES + "Acme".length()) + (Integer.BYTES + "Show".length());
+        assertEquals(HEADER_BYTES + 3 * RECORD_BYTES + strings, data.limit());
+
+        ConfigurationCatalog catalog = ConfigurationCatalog.open(file);
+        assertEquals("Show", catalog.find(3).getVendorName());
+        assertEquals("Acme", catalog.find(3).getTitle());
+    }
+
+    @Test
+    void storesAMissingVendorOrTitleAsNoString() throws IOException {
+        Path file = directory.resolve("catalog.bin");
+        ConfigurationCatalog.write(file, List.of(configuration(1, null, null), configuration(2, "Acme", null)));
+
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertEquals(-1, data.getInt(HEADER_BYTES + 4), "vendor name");
+        assertEquals(-1, data.getInt(HEADER_BYTES + 8), "title");
+        assertEquals(1, data.getInt(12), "string count");
+
+        ConfigurationCatalog catalog = ConfigurationCatalog.open(file);
+        assertNull(catalog.find(1).getVendorName());
+        assertNull(catalog.find(1).getTitle());
+        assertEquals("Acme", catalog.find(2).getVendorName());
+        assertNull(catalog.find(2).getTitle());
+    }
+
+    @Test
+    void findsPresentAndAbsentIds() throws IOException {
+        List<Configuration> configurations = new ArrayList<>();
+        for (int id = 2; id <= 40; id += 2) {
+            configurations.add(configuration(id));
+        }
+        Path file = directory.resolve("catalog.bin");
+        ConfigurationCatalog.write(file, configurations);
+        ConfigurationCatalog catalog = ConfigurationCatalog.open(file);
+
+        for (Configuration configuration : configurations) {
+            assertSameSettings(configuration, catalog.find(configuration.getEventTicketId()));
+        }
+        for (int id : new int[]{Integer.MIN_VALUE, -1, 0, 1, 3, 21, 39, 41, Integer.MAX_VALUE}) {
+            assertNull(catalog.find(id), "ID " + id);
+        }
+
+        ConfigurationCatalog.write(file, List.of());
+        assertNull(ConfigurationCatalog.open(file).find(2), "An empty catalog finds nothing");
+    }
+
+    @Test
+    void keepsTheLastConfigurationOfADuplicateId() throws IOException {
+        Path file = directory.resolve("catalog.bin");
+        ConfigurationCatalog.write(file, List.of(
+                configuration(1, "First", "Event"), configuration(2), configuration(1, "Second", "Event")));
+
+        ConfigurationCatalog catalog = ConfigurationCatalog.open(file);
+        assertEquals(2, catalog.size());
+        assertSameSettings(configuration(1, "Second", "Event"), catalog.find(1));
+    }
+
+    @Test
+    void rejectsATruncatedOrCorruptFile() throws IOException {
+        Path file = directory.resolve("catalog.bin");
+        ConfigurationCatalog.write(file, List.of(configuration(1), configuration(2)));
+        byte[] valid = Files.readAllBytes(file);
+
+        // Cut off inside the records, so the string table the header points at is missing
+        Files.write(file, Arrays.copyOf(valid, HEADER_BYTES + RECORD_BYTES));
+        assertTrue(assertThrows(IOException.class, () -> ConfigurationCatalog.open(file))
+                .getMessage().contains("truncated or corrupt"));
+
+        // A record count that does not match the string table offset
+        byte[] miscounted = valid.clone();
+        ByteBuffer.wrap(miscounted).putInt(8, 3);
+        Files.write(file, miscounted);
+        assertTrue(assertThrows(IOException.class, () -> ConfigurationCatalog.open(file))
+                .getMessage().contains("truncated or corrupt"));
+
+        Files.write(file, Arrays.copyOf(valid, HEADER_BYTES - 1));
+        assertTrue(assertThrows(IOException.class, () -> ConfigurationCatalog.open(file))
+                .getMessage().contains("is not a configuration catalog"));
+
+        byte[] newer = valid.clone();
+        ByteBuffer.wrap(newer).putInt(4, 2);
+        Files.write(file, newer);
+        assertTrue(assertThrows(IOException.class, () -> ConfigurationCatalog.open(file))
+                .getMessage().contains("unsupported catalog version"));
+    }
+
+    @Test
+    @DisabledOnOs(value = OS.WINDOWS, disabledReason = "Windows does not allow replacing a mapped file")
+    void openCatalogKeepsReadingTheFileItMapped() throws IOException {
+        Path file = directory.resolve("catalog.bin");
+        ConfigurationCatalog.write(file, List.of(configuration(1)));
+        ConfigurationCatalog open = ConfigurationCatalog.open(file);
+
+        ConfigurationCatalog.write(file, List.of(configuration(1, "Replaced", "Event"), configuration(2)));
+        assertSameSettings(configuration(1), open.find(1));
+        assertEquals(2, ConfigurationCatalog.open(file).size());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(file), files.toList(), "No temporary file is left behind");
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.realtime.ticketing.model;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Builds configurations for tests and compares them setting by setting.
+ *
+ * @author Dharshan
+ */
+final class ConfigurationFixtures {
+
+    private ConfigurationFixtures() {
+    }
+
+    /**
+     * Creates a configuration whose settings all derive from its ID, so that every configuration differs.
+     *
+     * @param eventTicketId the event ticket ID
+     * @param vendorName    the vendor, may be null
+     * @param title         the title, may be null
+     * @return the configuration
+     */
+    static Configuration configuration(int eventTicketId, String vendorName, String title) {
+        return new Configuration(eventTicketId, vendorName, title, 100 + eventTicketId, 1 + eventTicketId % 7,
+                1 + eventTicketId % 5, 10 * eventTicketId, 20 * eventTicketId, 1000 + eventTicketId,
+                eventTicketId + 0.25, 1 + eventTicketId % 3, 2 + eventTicketId % 11);
+    }
+
+    /**
+     * Creates a configuration with a vendor and title of its own.
+     *
+     * @param eventTicketId the event ticket ID
+     * @return the configuration
+     */
+    static Configuration configuration(int eventTicketId) {
+        return configuration(eventTicketId, "Vendor " + eventTicketId, "Event " + eventTicketId);
+    }
+
+    /**
+     * Checks that two configurations hold the same settings, through every getter of the view.
+     *
+     * @param expected the configuration expected
+     * @param actual   the configuration found
+     */
+    static void assertSameSettings(ConfigurationView expected, ConfigurationView actual) {
+        assertEquals(expected.getEventTicketId(), actual.getEventTicketId(), "eventTicketId");
+        assertEquals(expected.getVendorName(), actual.getVendorName(), "vendorName");
+        assertEquals(expected.getTitle(), actual.getTitle(), "title");
+        assertEquals(expected.getMaxTicketCapacity(), actual.getMaxTicketCapacity(), "maxTicketCapacity");
+        assertEquals(expected.getTotalTickets(), actual.getTotalTickets(), "totalTickets");
+        assertEquals(expected.getTicketReleaseRate(), actual.getTicketReleaseRate(), "ticketReleaseRate");
+        assertEquals(expected.getCustomerRetrievalRate(), actual.getCustomerRetrievalRate(), "customerRetrievalRate");
+        assertEquals(expected.getTicketReleaseInterval(), actual.getTicketReleaseInterval(), "ticketReleaseInterval");
+        assertEquals(expected.getCustomerRetrievalInterval(), actual.getCustomerRetrievalInterval(), "customerRetrievalInterval");
+        assertEquals(expected.getVendorCount(), actual.getVendorCount(), "vendorCount");
+        assertEquals(expected.getCustomerCount(), actual.getCustomerCount(), "customerCount");
+        assertEquals(expected.getPrice(), actual.getPrice(), "price");
+    }
+
+    /**
+     * Checks that two lists hold configurations with the same settings, in the same order.
+     *
+     * @param expected the configurations expected
+     * @param actual   the configurations found
+     */
+    static void assertSameSettings(List<? extends ConfigurationView> expected,
+                                   List<? extends ConfigurationView> actual) {
+        assertEquals(expected.size(), actual.size(), "number of configurations");
+        for (int i = 0; i < expected.size(); i++) {
+            assertSameSettings(expected.get(i), actual.get(i));
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.realtime.ticketing.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.realtime.ticketing.model.ConfigurationFixtures.assertSameSettings;
+import static com.realtime.ticketing.model.ConfigurationFixtures.configuration;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the indexes and copy-on-write snapshots of a {@link ConfigurationRepository}.
+ *
+ * @author Dharshan
+ */
+class ConfigurationRepositoryTest {
+
+    @Test
+    void addsReplacesInPlaceAndRemoves() {
+        ConfigurationRepository repository = new ConfigurationRepository(
+                List.of(configuration(1), configuration(2), configuration(3)));
+        assertEquals(1, repository.getVersion(), "Adding several configurations is one change");
+
+        // A replaced configuration keeps its place in the order they were added
+        repository.add(configuration(2, "Renamed", "Event 2"));
+        assertSameSettings(List.of(configuration(1), configuration(2, "Renamed", "Event 2"), configuration(3)),
+                repository.getAll());
+        assertEquals("Renamed", repository.findById(2).getVendorName());
+
+        assertSameSettings(configuration(1), repository.remove(1));
+        assertNull(repository.remove(1));
+        assertEquals(3, repository.getVersion(), "Removing a missing configuration is not a change");
+        assertNull(repository.findById(1));
+        assertNull(repository.findConfiguration(1));
+        assertSameSettings(List.of(configuration(2, "Renamed", "Event 2"), configuration(3)), repository.getAll());
+
+        repository.add(configuration(1));
+        assertSameSettings(configuration(1), repository.getAll().get(2));
+        assertEquals(3, repository.size());
+
+        repository.clear();
+        assertTrue(repository.isEmpty());
+    }
+
+    @Test
+    void rangeBoundsAreInclusive() {
+        // Prices are the ID plus a quarter and capacities are 100 plus the ID
+        ConfigurationRepository repository = new ConfigurationRepository(
+                List.of(configuration(4), configuration(1), configuration(3), configuration(2), configuration(5)));
+
+        assertIds(List.of(2, 3, 4), repository.findByPriceRange(2.25, 4.25));
+        assertIds(List.of(3), repository.findByPriceRange(2.26, 4.24));
+        assertIds(List.of(1), repository.findByPriceRange(1.25, 1.25));
+        assertIds(List.of(), repository.findByPriceRange(4.25, 2.25));
+
+        assertIds(List.of(1, 2, 3), repository.findByCapacityRange(101, 103));
+        assertIds(List.of(5), repository.findByCapacityRange(105, 200));
+        assertIds(List.of(), repository.findByCapacityRange(103, 101));
+        assertIds(List.of(), repository.findByCapacityRange(0, 100));
+    }
+
+    @Test
+    void matchesVendorsAndTitlesIgnoringCaseAndSurroundingSpaces() {
+        ConfigurationRepository repository = new ConfigurationRepository(List.of(
+                configuration(3, "Acme Events", "Summer Fest"),
+                configuration(1, " ACME events ", "Winter Fest"),
+                configuration(2, "Other", "summer fest  "),
+                configuration(4, null, null)));
+
+        assertIds(List.of(1, 3), repository.findByVendor("acme EVENTS"));
+        assertIds(List.of(1, 3), repository.findByVendor("  Acme Events"));
+        assertIds(List.of(2, 3), repository.findByTitle("SUMMER FEST"));
+        assertIds(List.of(), repository.findByVendor("Acme"), "Names are matched whole");
+        assertIds(List.of(4), repository.findByVendor(""), "A missing vendor is indexed as empty");
+        assertIds(List.of(4), repository.findByTitle(null));
+
+        // The indexes follow changes
+        repository.remove(3);
+        assertIds(List.of(1), repository.findByVendor("acme events"));
+        assertIds(List.of(2), repository.findByTitle("summer fest"));
+    }
+
+    @Test
+    void snapshotsDoNotChangeAndListenersSeeEveryVersion() {
+        ConfigurationRepository repository = new ConfigurationRepository(List.of(configuration(1)));
+        List<Long> versions = new ArrayList<>();
+        repository.addListener(snapshot -> versions.add(snapshot.getVersion()));
+
+        ConfigurationRepository.Snapshot before = repository.snapshot();
+        repository.add(configuration(2));
+        repository.remove(1);
+
+        assertEquals(1, before.size());
+        assertSameSettings(configuration(1), before.findById(1));
+        assertIds(List.of(1), before.findByVendor("Vendor 1"));
+        assertEquals(List.of(2L, 3L), versions);
+        assertSame(repository.snapshot(), repository.snapshot());
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void readersNeverSeeHalfOfAnAddAll() throws InterruptedException {
+        int batchSize = 50;
+        int generations = 2000;
+        ConfigurationRepository repository = new ConfigurationRepository();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> readers = new ArrayList<>();
+
+        for (int r = 0; r < 3; r++) {
+            readers.add(new Thread(() -> {
+                await(start);
+                long lastVersion = 0;
+                while (writing.get()) {
+                    ConfigurationRepository.Snapshot snapshot = repository.snapshot();
+                    if (snapshot.getVersion() < lastVersion) {
+                        throw new AssertionError("Version went back from " + lastVersion + " to "
+                                + snapshot.getVersion());
+                    }
+                    lastVersion = snapshot.getVersion();
+                    if (snapshot.size() == 0) {
+                        continue;
+                    }
+
+                    // Every configuration of a snapshot comes from the same batch, by ID and by title
+                    String title = snapshot.getAll().get(0).getTitle();
+                    assertEquals(batchSize, snapshot.size());
+                    for (ConfigurationView configuration : snapshot.getAll()) {
+                        assertEquals(title, configuration.getTitle());
+                        assertEquals(title, snapshot.findById(configuration.getEventTicketId()).getTitle());
+                    }
+                    assertEquals(batchSize, snapshot.findByTitle(title).size());
+                }
+            }));
+        }
+        for (Thread reader : readers) {
+            reader.setDaemon(true);
+            reader.setUncaughtExceptionHandler((t, e) -> failure.compareAndSet(null, e));
+            reader.start();
+        }
+
+        start.countDown();
+        for (int generation = 1; generation <= generations; generation++) {
+            List<Configuration> batch = new ArrayList<>();
+            for (int id = 1; id <= batchSize; id++) {
+                batch.add(configuration(id, "Vendor " + id, "Generation " + generation));
+            }
+            repository.addAll(batch);
+            if (generation % 100 == 0) {
+                Thread.yield(); // Give the readers a turn on a single processor
+            }
+        }
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get(), () -> "Reader failed: " + failure.get());
+        assertEquals(generations, repository.getVersion());
+        assertEquals(batchSize, repository.findByTitle("Generation " + generations).size());
+    }
+
+    private static void assertIds(List<Integer> expected, List<ConfigurationView> matches) {
+        assertIds(expected, matches, null);
+    }
+
+    private static void assertIds(List<Integer> expected, List<ConfigurationView> matches, String message) {
+        assertEquals(expected, matches.stream().map(ConfigurationView::getEventTicketId).toList(), message);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.realtime.ticketing.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.realtime.ticketing.model.ConfigurationFixtures.assertSameSettings;
+import static com.realtime.ticketing.model.ConfigurationFixtures.configuration;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the JSON file and patch log of a {@link ConfigurationStore}, including recovery from a torn log.
+ *
+ * @author Dharshan
+ */
+class ConfigurationStoreTest {
+    private static final int COMPACT_AFTER = Integer.getInteger("ticketing.config.compactAfter", 1000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesAndReadsAJsonArray() throws IOException {
+        Path file = directory.resolve("configurations.json");
+        List<Configuration> configurations = List.of(configuration(1), configuration(2, null, null), configuration(3));
+        ConfigurationStore.writeAll(file, configurations);
+        assertSameSettings(configurations, ConfigurationStore.readAll(file));
+
+        // A second write replaces the file as a whole
+        ConfigurationStore.writeAll(file, List.of(configuration(4)));
+        assertSameSettings(List.of(configuration(4)), ConfigurationStore.readAll(file));
+        assertEquals(List.of(file), listDirectory(), "No temporary file is left behind");
+    }
+
+    @Test
+    void failedWriteKeepsThePreviousFile() throws IOException {
+        Path file = directory.resolve("configurations.json");
+        ConfigurationStore.writeAll(file, List.of(configuration(1)));
+
+        // JSON has no NaN, so Gson gives up halfway through the temporary file
+        Configuration unwritable = new Configuration(2, "Vendor", "Event", 10, 1, 1, 10, 10, 100, Double.NaN, 1, 1);
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfigurationStore.writeAll(file, List.of(configuration(3), unwritable)));
+
+        assertSameSettings(List.of(configuration(1)), ConfigurationStore.readAll(file));
+        assertEquals(List.of(file), listDirectory(), "The temporary file is removed");
+    }
+
+    @Test
+    void appendsChangesToThePatchLogAndReplaysThem() throws IOException {
+        ConfigurationStore store = new ConfigurationStore(directory.resolve("configurations.json"));
+        assertTrue(store.load().isEmpty());
+        store.put(configuration(1));
+        store.put(configuration(2));
+        store.put(configuration(3));
+        store.remove(2);
+        store.put(configuration(1, "Renamed", "Event 1"));
+
+        assertFalse(Files.exists(store.getFile()), "Changes only go to the log until it is compacted");
+        assertEquals(5, Files.readAllLines(store.getPatchLog()).size());
+        assertEquals(5, store.getPendingPatches());
+        assertFalse(store.hasChangedOnDisk());
+
+        ConfigurationStore reopened = new ConfigurationStore(store.getFile());
+        // A replaced configuration keeps its place
+        assertSameSettings(List.of(configuration(1, "Renamed", "Event 1"), configuration(3)), reopened.load());
+        assertEquals(5, reopened.getPendingPatches());
+    }
+
+    @Test
+    void appliesThePatchLogOnTopOfTheFile() throws IOException {
+        Path file = directory.resolve("configurations.json");
+        ConfigurationStore.writeAll(file, List.of(configuration(1), configuration(2)));
+        ConfigurationStore store = new ConfigurationStore(file);
+        store.load();
+        store.remove(1);
+        store.put(configuration(3));
+
+        assertSameSettings(List.of(configuration(2), configuration(3)), new ConfigurationStore(file).load());
+    }
+
+    @Test
+    void recoversFromATornLastLineAndCompacts() throws IOException {
+        ConfigurationStore store = new ConfigurationStore(directory.resolve("configurations.json"));
+        store.load();
+        store.put(configuration(1));
+        store.put(configuration(2));
+        store.put(configuration(3));
+
+        // A crash in the middle of appending the last patch leaves half a line
+        byte[] log = Files.readAllBytes(store.getPatchLog());
+        Files.write(store.getPatchLog(), Arrays.copyOf(log, log.length - 20));
+
+        ConfigurationStore reopened = new ConfigurationStore(store.getFile());
+        assertSameSettings(List.of(configuration(1), configuration(2)), reopened.load());
+        // The torn log is folded into the file, so the next patch is not appended after the torn line
+        assertFalse(Files.exists(reopened.getPatchLog()));
+        assertEquals(0, reopened.getPendingPatches());
+        assertSameSettings(List.of(configuration(1), configuration(2)), ConfigurationStore.readAll(reopened.getFile()));
+
+        reopened.put(configuration(4));
+        assertSameSettings(List.of(configuration(1), configuration(2), configuration(4)),
+                new ConfigurationStore(store.getFile()).load());
+    }
+
+    @Test
+    void ignoresEverythingAfterAnUnreadableLine() throws IOException {
+        ConfigurationStore store = new ConfigurationStore(directory.resolve("configurations.json"));
+        store.load();
+        store.put(configuration(1));
+        Files.writeString(store.getPatchLog(), "{\"op\":\"put\",\"configuration\":{\"eventTick\n"
+                + "{\"op\":\"remove\",\"eventTicketId\":1}\n", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        assertSameSettings(List.of(configuration(1)), new ConfigurationStore(store.getFile()).load());
+    }
+
+    @Test
+    void compactsThePatchLogOnceItIsLongEnough() throws IOException {
+        ConfigurationStore store = new ConfigurationStore(directory.resolve("configurations.json"));
+        store.load();
+        for (int id = 1; id < COMPACT_AFTER; id++) {
+            store.put(configuration(id));
+        }
+        assertEquals(COMPACT_AFTER - 1, store.getPendingPatches());
+        assertFalse(Files.exists(store.getFile()));
+
+        store.put(configuration(COMPACT_AFTER));
+        assertEquals(0, store.getPendingPatches());
+        assertFalse(Files.exists(store.getPatchLog()));
+        assertEquals(COMPACT_AFTER, ConfigurationStore.readAll(store.getFile()).size());
+        assertEquals(COMPACT_AFTER, new ConfigurationStore(store.getFile()).load().size());
+    }
+
+    @Test
+    void keepsThePreviousConfigurationsWhenLoadingFails() throws IOException {
+        Path file = directory.resolve("configurations.json");
+        ConfigurationStore.writeAll(file, List.of(configuration(1), configuration(2)));
+        ConfigurationStore store = new ConfigurationStore(file);
+        store.load();
+
+        // Another program is halfway through writing the file
+        Files.writeString(file, "[{\"eventTicketId\": 5, \"title\": ");
+        assertTrue(store.hasChangedOnDisk());
+        assertThrows(IOException.class, store::load);
+
+        // The store still holds what it loaded before, which the next compaction writes back out
+        do {
+            store.put(configuration(3));
+        } while (store.getPendingPatches() > 0);
+        assertSameSettings(List.of(configuration(1), configuration(2), configuration(3)), ConfigurationStore.readAll(file));
+    }
+
+    @Test
+    void saveAllReplacesEverythingAndClearsTheLog() throws IOException {
+        ConfigurationStore store = new ConfigurationStore(directory.resolve("configurations.json"));
+        store.load();
+        store.put(configuration(1));
+        store.saveAll(List.of(configuration(7), configuration(8)));
+
+        assertFalse(Files.exists(store.getPatchLog()));
+        assertSameSettings(List.of(configuration(7), configuration(8)), new ConfigurationStore(store.getFile()).load());
+    }
+
+    private List<Path> listDirectory() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.realtime.ticketing.model;
+
+/**
+ * Runs the engine contract against the lock-free ring buffer engine.
+ *
+ * @author Dharshan
+ */
+class RingBufferTicketPoolEngineTest extends TicketPoolEngineContractTest {
+
+    @Override
+    TicketPoolEngine newEngine(int maxTicketCapacity, int totalTickets) {
+        return TicketPoolEngineType.RING_BUFFER.create(maxTicketCapacity, totalTickets);
+    }
+}
@@ -0,0 +1,118 @@
+package com.realtime.ticketing.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the engine contract against the sharded engine split into several shards, whatever the machine's processor
+ * count, and checks that customers steal tickets from shards other than their own.
+ *
+ * @author Dharshan
+ */
+class ShardedTicketPoolEngineTest extends TicketPoolEngineContractTest {
+    private static final int SHARDS = 4;
+
+    @Override
+    TicketPoolEngine newEngine(int maxTicketCapacity, int totalTickets) {
+        return new ShardedTicketPoolEngine(maxTicketCapacity, totalTickets, SHARDS);
+    }
+
+    @Override
+    boolean preservesReleaseOrder() {
+        // Each shard is first-in first-out, but a customer empties its own shard before the others
+        return false;
+    }
+
+    @Test
+    void sellsInReleaseOrderWithOneShard() {
+        TicketPoolEngine engine = new ShardedTicketPoolEngine(10, 100, 1);
+        assertTrue(engine.offer(new long[]{1, 2, 3, 4, 5}, 5));
+        assertArrayEquals(new long[]{1, 2, 3, 4, 5}, pollAll(engine, 2));
+    }
+
+    @Test
+    void neverHasMoreShardsThanTickets() {
+        assertEquals(3, new ShardedTicketPoolEngine(3, 10, SHARDS).getShardCount());
+        assertEquals(SHARDS, new ShardedTicketPoolEngine(10, 10, SHARDS).getShardCount());
+    }
+
+    @Test
+    void customersStealFromEveryOtherShard() throws InterruptedException {
+        ShardedTicketPoolEngine engine = new ShardedTicketPoolEngine(SHARDS * 2, 100, SHARDS);
+        assertEquals(SHARDS, engine.getShardCount());
+
+        // One vendor per shard fills its own shard exactly
+        for (int shard = 0; shard < SHARDS; shard++) {
+            long first = shard * 2L + 1;
+            runOnShard(shard, () -> assertTrue(engine.offer(new long[]{first, first + 1}, 2)));
+        }
+        assertEquals(SHARDS * 2, engine.size());
+
+        // A customer on the first shard buys one ticket at a time, and still empties every shard
+        long[] bought = new long[SHARDS * 2];
+        runOnShard(0, () -> {
+            int count = 0;
+            long[] ticket = new long[1];
+            while (engine.poll(ticket, 1) == 1) {
+                bought[count++] = ticket[0];
+            }
+        });
+        Arrays.sort(bought);
+        assertArrayEquals(new long[]{1, 2, 3, 4, 5, 6, 7, 8}, bought);
+        assertEquals(0, engine.size());
+        assertInvariant(engine, 100);
+    }
+
+    @Test
+    void vendorsSpillIntoOtherShardsForCustomersElsewhere() throws InterruptedException {
+        ShardedTicketPoolEngine engine = new ShardedTicketPoolEngine(SHARDS * 2, 100, SHARDS);
+
+        // A single vendor fills the whole pool, overflowing its own shard into the rest
+        runOnShard(1, () -> assertTrue(engine.offer(new long[]{1, 2, 3, 4, 5, 6, 7, 8}, 8)));
+        assertEquals(SHARDS * 2, engine.size());
+
+        // Customers on the other shards take everything between them, in one reservation each
+        long[][] held = new long[SHARDS][SHARDS * 2];
+        int[] taken = new int[SHARDS];
+        for (int shard : new int[]{2, 3, 0}) {
+            runOnShard(shard, () -> taken[shard] = engine.reserve(held[shard], 1, 2));
+        }
+        assertEquals(2, engine.size());
+        runOnShard(3, () -> taken[1] = engine.reserve(held[1], 1, SHARDS * 2));
+        assertEquals(0, engine.size());
+        assertEquals(SHARDS * 2, engine.reserved());
+
+        long[] all = new long[SHARDS * 2];
+        int count = 0;
+        for (int shard = 0; shard < SHARDS; shard++) {
+            System.arraycopy(held[shard], 0, all, count, taken[shard]);
+            count += taken[shard];
+        }
+        Arrays.sort(all);
+        assertArrayEquals(new long[]{1, 2, 3, 4, 5, 6, 7, 8}, all);
+
+        engine.commit(SHARDS * 2);
+        assertEquals(SHARDS * 2, engine.ticketsSold());
+        assertInvariant(engine, 100);
+    }
+
+    // Runs the action on a thread whose home shard is the given one, since the home shard follows the thread ID
+    private static void runOnShard(int shard, Runnable action) throws InterruptedException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread;
+        do {
+            thread = new Thread(action);
+        } while (thread.getId() % SHARDS != shard);
+        thread.setUncaughtExceptionHandler((t, e) -> failure.set(e));
+        thread.start();
+        thread.join();
+        assertNull(failure.get(), () -> "Shard " + shard + " failed: " + failure.get());
+    }
+}
@@ -0,0 +1,14 @@
+package com.realtime.ticketing.model;
+
+/**
+ * Runs the engine contract against the single-lock reference engine.
+ *
+ * @author Dharshan
+ */
+class SynchronizedTicketPoolEngineTest extends TicketPoolEngineContractTest {
+
+    @Override
+    TicketPoolEngine newEngine(int maxTicketCapacity, int totalTickets) {
+        return TicketPoolEngineType.SYNCHRONIZED.create(maxTicketCapacity, totalTickets);
+    }
+}
@@ -0,0 +1,141 @@
+package com.realtime.ticketing.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the layout, uniqueness, rollback and recovery of the ticket IDs a {@link TicketIdGenerator} hands out.
+ *
+ * @author Dharshan
+ */
+class TicketIdGeneratorTest {
+    private static final int EVENT = 77;
+
+    @Test
+    void putsTheEventAboveTheSequence() {
+        TicketIdGenerator generator = new TicketIdGenerator(EVENT);
+        long[] ids = new long[3];
+        generator.nextIds(ids, 3);
+
+        assertEquals((long) EVENT << 32 | 1, ids[0], "Sequence numbers start at 1");
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(EVENT, TicketIdGenerator.eventOf(ids[i]));
+            assertEquals(i + 1, TicketIdGenerator.sequenceOf(ids[i]));
+        }
+        assertEquals("77-3", TicketIdGenerator.format(ids[2]));
+
+        // The sign bit of a large event ID does not spill into the sequence
+        long id = (long) Integer.MAX_VALUE << 32 | 0xFFFF_FFFFL;
+        assertEquals(Integer.MAX_VALUE, TicketIdGenerator.eventOf(id));
+        assertEquals(0xFFFF_FFFFL, TicketIdGenerator.sequenceOf(id));
+    }
+
+    @Test
+    void rollbackReusesTheIdsOfTheCurrentBlockOnly() {
+        TicketIdGenerator generator = new TicketIdGenerator(EVENT);
+        long[] ids = new long[TicketIdGenerator.BLOCK_SIZE];
+
+        generator.nextIds(ids, 5);
+        generator.rollback(2);
+        generator.nextIds(ids, 1);
+        assertEquals(4, TicketIdGenerator.sequenceOf(ids[0]), "A rejected release leaves no gap");
+
+        // Use up the rest of the first block and start the second
+        generator.nextIds(ids, TicketIdGenerator.BLOCK_SIZE - 4);
+        assertEquals(TicketIdGenerator.BLOCK_SIZE, TicketIdGenerator.sequenceOf(ids[TicketIdGenerator.BLOCK_SIZE - 5]));
+        generator.nextIds(ids, 2);
+        assertEquals(TicketIdGenerator.BLOCK_SIZE + 2, TicketIdGenerator.sequenceOf(ids[1]));
+
+        // Taking back three would reach into the first block, so nothing is taken back
+        generator.rollback(3);
+        generator.nextIds(ids, 1);
+        assertEquals(TicketIdGenerator.BLOCK_SIZE + 3, TicketIdGenerator.sequenceOf(ids[0]));
+
+        generator.rollback(3);
+        generator.nextIds(ids, 1);
+        assertEquals(TicketIdGenerator.BLOCK_SIZE + 1, TicketIdGenerator.sequenceOf(ids[0]));
+        generator.rollback(0);
+        generator.nextIds(ids, 1);
+        assertEquals(TicketIdGenerator.BLOCK_SIZE + 2, TicketIdGenerator.sequenceOf(ids[0]));
+    }
+
+    @Test
+    void skipPastStartsAfterTheRecoveredSequence() {
+        TicketIdGenerator generator = new TicketIdGenerator(EVENT);
+        generator.skipPast(5000);
+        generator.skipPast(20); // An older, lower sequence number does not move it back
+        long[] ids = new long[2];
+        generator.nextIds(ids, 2);
+
+        assertEquals(5001, TicketIdGenerator.sequenceOf(ids[0]));
+        assertEquals(5002, TicketIdGenerator.sequenceOf(ids[1]));
+        assertEquals(EVENT, TicketIdGenerator.eventOf(ids[0]));
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void idsAreUniqueAcrossThreads() throws InterruptedException {
+        TicketIdGenerator generator = new TicketIdGenerator(EVENT);
+        Set<Long> allIds = ConcurrentHashMap.newKeySet();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> vendors = new ArrayList<>();
+        int threads = 8;
+        int releases = 2_000;
+
+        for (int v = 0; v < threads; v++) {
+            vendors.add(new Thread(() -> {
+                try {
+                    start.await();
+                    Set<Long> ownIds = new HashSet<>();
+                    long[] ids = new long[3];
+                    long last = 0;
+                    for (int r = 0; r < releases; r++) {
+                        generator.nextIds(ids, 3);
+                        if (r % 7 == 0) {
+                            generator.rollback(3); // As a rejected release does, whether or not it crossed a block
+                            continue;
+                        }
+                        for (long id : ids) {
+                            if (id <= last) {
+                                throw new AssertionError("IDs went backwards on one thread: " + id + " after " + last);
+                            }
+                            last = id;
+                            ownIds.add(id);
+                        }
+                    }
+                    allIds.addAll(ownIds);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (Thread vendor : vendors) {
+            vendor.setDaemon(true);
+            vendor.setUncaughtExceptionHandler((t, e) -> failure.compareAndSet(null, e));
+            vendor.start();
+        }
+        start.countDown();
+        for (Thread vendor : vendors) {
+            vendor.join();
+        }
+
+        assertNull(failure.get(), () -> "Vendor failed: " + failure.get());
+        int kept = releases - (releases + 6) / 7;
+        assertEquals(threads * kept * 3, allIds.size(), "Two threads were handed the same ID");
+        assertTrue(allIds.stream().allMatch(id -> TicketIdGenerator.eventOf(id) == EVENT));
+    }
+}
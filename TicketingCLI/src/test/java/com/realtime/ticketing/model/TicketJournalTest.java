@@ -0,0 +1,376 @@
+package com.realtime.ticketing.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a {@link TicketJournal} rebuilds an interrupted sale from its snapshot and segments, ignoring torn
+ * records.
+ *
+ * @author Dharshan
+ */
+class TicketJournalTest {
+    private static final int EVENT = 7;
+    private static final int SEGMENT_BYTES = Integer.getInteger("ticketing.journal.segmentBytes", 16 * 1024 * 1024);
+
+    // Record types and layout, as written by the journal
+    private static final byte RELEASE = 1;
+    private static final byte SALE = 2;
+    private static final byte CLOSED = 3;
+    private static final int RECORD_OVERHEAD = 13;
+
+    @TempDir
+    Path baseDirectory;
+
+    @Test
+    void resumesAnInterruptedSale() throws IOException {
+        try (TicketJournal journal = open()) {
+            assertTrue(journal.getRecoveredState().isEmpty());
+            journal.recordRelease(ids(1, 2, 3), 3);
+            journal.recordSale(ids(2), 1);
+            journal.recordRelease(ids(4, 5), 2);
+        }
+
+        TicketJournal.RecoveredState state = recover();
+        assertArrayEquals(ids(1, 3, 4, 5), state.ticketsInPool());
+        assertEquals(1, state.ticketsSold());
+        assertEquals(5, state.lastSequence());
+    }
+
+    @Test
+    void ignoresATailRecordTornByTruncation() throws IOException {
+        try (TicketJournal journal = open()) {
+            journal.recordRelease(ids(1, 2, 3), 3);
+            journal.recordSale(ids(1), 1);
+            journal.recordRelease(ids(4, 5), 2);
+        }
+
+        // Cut the segment in the middle of the last record's ticket IDs
+        Path segment = segments().get(0);
+        int intact = recordLength(3) + recordLength(1);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(intact + RECORD_OVERHEAD);
+        }
+
+        TicketJournal.RecoveredState state = recover();
+        assertArrayEquals(ids(2, 3), state.ticketsInPool());
+        assertEquals(1, state.ticketsSold());
+        assertEquals(3, state.lastSequence());
+    }
+
+    @Test
+    void rejectsATailRecordWhoseChecksumDoesNotMatch() throws IOException {
+        try (TicketJournal journal = open()) {
+            journal.recordRelease(ids(1, 2, 3), 3);
+            journal.recordSale(ids(1), 1);
+        }
+
+        // Flip a bit of the sold ticket's ID, leaving the length and count intact so only the CRC catches it
+        Path segment = segments().get(0);
+        long idOffset = recordLength(3) + Integer.BYTES + Byte.BYTES + Integer.BYTES;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, idOffset + 7);
+            b.put(0, (byte) (b.get(0) ^ 1)).rewind();
+            channel.write(b, idOffset + 7);
+        }
+
+        TicketJournal.RecoveredState state = recover();
+        assertArrayEquals(ids(1, 2, 3), state.ticketsInPool());
+        assertEquals(0, state.ticketsSold());
+    }
+
+    @Test
+    void replaysASaleJournaledBeforeItsRelease() throws IOException {
+        try (TicketJournal journal = open()) {
+            // A customer can buy a ticket and journal the sale before the vendor journals the release
+            journal.recordSale(ids(7), 1);
+            journal.recordRelease(ids(6, 7, 8), 3);
+        }
+        TicketJournal.RecoveredState state = recover();
+        assertArrayEquals(ids(6, 8), state.ticketsInPool());
+        assertEquals(1, state.ticketsSold());
+
+        // The same across an interruption: the release is only journaled after the sale resumed
+        try (TicketJournal journal = open()) {
+            journal.recordSale(ids(9), 1);
+        }
+        try (TicketJournal journal = open()) {
+            TicketJournal.RecoveredState resumed = journal.getRecoveredState();
+            assertFalse(resumed.isEmpty());
+            assertEquals(2, resumed.ticketsSold());
+            assertArrayEquals(ids(6, 8), resumed.ticketsInPool());
+            journal.recordRelease(ids(9, 10), 2);
+        }
+        state = recover();
+        assertArrayEquals(ids(6, 8, 10), state.ticketsInPool());
+        assertEquals(2, state.ticketsSold());
+        assertEquals(10, state.lastSequence());
+    }
+
+    @Test
+    void finishedSaleDeletesItsJournal() throws IOException {
+        TicketJournal journal = open();
+        journal.recordRelease(ids(1, 2), 2);
+        journal.recordSale(ids(1, 2), 2);
+        journal.close(true);
+
+        assertTrue(segments().isEmpty());
+        assertTrue(recover().isEmpty());
+    }
+
+    @Test
+    void ignoresEverythingBeforeAClosingRecord() throws IOException {
+        // A finished sale whose segment could not be deleted, followed by a new sale of the same event
+        Files.createDirectories(eventDirectory());
+        writeSegment(1, record(RELEASE, ids(1, 2, 3)), record(SALE, ids(1)), record(CLOSED), record(RELEASE, ids(4)));
+
+        TicketJournal.RecoveredState state = recover();
+        assertArrayEquals(ids(4), state.ticketsInPool());
+        assertEquals(0, state.ticketsSold());
+        assertEquals(4, state.lastSequence());
+    }
+
+    @Test
+    void deletesAJournalThatEndsWithAClosingRecord() throws IOException {
+        Files.createDirectories(eventDirectory());
+        writeSegment(1, record(RELEASE, ids(1, 2)));
+        writeSegment(2, record(SALE, ids(1)), record(CLOSED));
+
+        try (TicketJournal journal = open()) {
+            assertTrue(journal.getRecoveredState().isEmpty());
+            // The old segments are gone and the new sale starts again from the first segment
+            assertEquals(List.of(eventDirectory().resolve("segment-00000001.log")), segments());
+        }
+    }
+
+    @Test
+    void rollsToANewSegmentWhenTheCurrentOneIsFull() throws IOException {
+        int idsPerRecord = 100;
+        int records = 2 * SEGMENT_BYTES / recordLength(idsPerRecord) + 1;
+        long sequence = 1;
+        try (TicketJournal journal = open()) {
+            for (int r = 0; r < records; r++) {
+                long[] batch = new long[idsPerRecord];
+                for (int i = 0; i < idsPerRecord; i++) {
+                    batch[i] = id(sequence++);
+                }
+                journal.recordRelease(batch, idsPerRecord);
+            }
+        }
+        assertTrue(segments().size() >= 3, "Segments: " + segments());
+
+        TicketJournal.RecoveredState state = recover();
+        assertEquals(records * idsPerRecord, state.ticketsInPool().length);
+        for (int i = 0; i < state.ticketsInPool().length; i++) {
+            assertEquals(id(i + 1), state.ticketsInPool()[i], "Tickets come back in release order");
+        }
+    }
+
+    @Test
+    void givesARecordLargerThanASegmentASegmentOfItsOwn() throws IOException {
+        long[] batch = new long[SEGMENT_BYTES / Long.BYTES + 1];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = id(i + 2);
+        }
+        try (TicketJournal journal = open()) {
+            journal.recordRelease(ids(1), 1);
+            journal.recordRelease(batch, batch.length);
+            journal.recordSale(ids(1), 1);
+        }
+
+        TicketJournal.RecoveredState state = recover();
+        assertEquals(batch.length, state.ticketsInPool().length);
+        assertEquals(1, state.ticketsSold());
+        assertTrue(Files.size(segments().get(1)) > SEGMENT_BYTES);
+    }
+
+    @Test
+    void listsOnlyEventsWithAJournalLeft() throws IOException {
+        try (TicketJournal journal = open()) {
+            journal.recordRelease(ids(1), 1);
+        }
+        TicketJournal.open(baseDirectory, EVENT + 1, JournalDurability.SYNC).close(true);
+
+        assertEquals(List.of(EVENT), TicketJournal.findJournaledEvents(baseDirectory));
+    }
+
+    @Test
+    void snapshotAndTailReplayTheSameAsTheWholeJournal() throws IOException {
+        Path unsnapshotted = baseDirectory.resolve("whole");
+        try (TicketJournal journal = open();
+             TicketJournal whole = TicketJournal.open(unsnapshotted, EVENT, JournalDurability.SYNC)) {
+            for (TicketJournal target : List.of(journal, whole)) {
+                target.recordRelease(ids(1, 2, 3, 4), 4);
+                target.recordSale(ids(2, 9), 2); // 9 is sold before its release, across the snapshot
+            }
+            assertTrue(journal.checkpoint());
+            for (TicketJournal target : List.of(journal, whole)) {
+                target.recordRelease(ids(5, 9), 2);
+                target.recordSale(ids(1), 1);
+            }
+        }
+
+        TicketJournal.RecoveredState fromSnapshot = recover();
+        TicketJournal.RecoveredState fromSegments;
+        try (TicketJournal whole = TicketJournal.open(unsnapshotted, EVENT, JournalDurability.SYNC)) {
+            fromSegments = whole.getRecoveredState();
+        }
+        assertArrayEquals(ids(3, 4, 5), fromSnapshot.ticketsInPool());
+        assertArrayEquals(fromSegments.ticketsInPool(), fromSnapshot.ticketsInPool());
+        assertEquals(fromSegments.ticketsSold(), fromSnapshot.ticketsSold());
+        assertEquals(fromSegments.lastSequence(), fromSnapshot.lastSequence());
+    }
+
+    @Test
+    void checkpointReplacesOlderSnapshotsAndSegments() throws IOException {
+        try (TicketJournal journal = open()) {
+            journal.recordRelease(ids(1, 2), 2);
+            assertTrue(journal.checkpoint());
+            assertEquals(List.of("snapshot-00000002.snap"), snapshotNames());
+            assertEquals(List.of(eventDirectory().resolve("segment-00000002.log")), segments());
+            assertFalse(journal.checkpoint(), "Nothing was journaled since the last snapshot");
+
+            journal.recordSale(ids(1), 1);
+            assertTrue(journal.checkpoint());
+            assertEquals(List.of("snapshot-00000003.snap"), snapshotNames());
+            assertEquals(List.of(eventDirectory().resolve("segment-00000003.log")), segments());
+        }
+
+        TicketJournal.RecoveredState state = recover();
+        assertArrayEquals(ids(2), state.ticketsInPool());
+        assertEquals(1, state.ticketsSold());
+    }
+
+    @Test
+    void failedCheckpointKeepsThePreviousSnapshotAndSegments() throws IOException {
+        try (TicketJournal journal = open()) {
+            journal.recordRelease(ids(1, 2, 3), 3);
+            assertTrue(journal.checkpoint());
+            journal.recordSale(ids(1), 1);
+
+            // A directory in the way of the temporary file makes writing the next snapshot fail
+            Files.createDirectory(eventDirectory().resolve("snapshot-00000003.snap.tmp"));
+            assertThrows(IOException.class, journal::checkpoint);
+            assertEquals(List.of("snapshot-00000002.snap"), snapshotNames());
+            assertEquals(2, segments().size(), "Nothing is deleted until the new snapshot is in place");
+            journal.recordRelease(ids(4), 1);
+        }
+
+        TicketJournal.RecoveredState state = recover();
+        assertArrayEquals(ids(2, 3, 4), state.ticketsInPool());
+        assertEquals(1, state.ticketsSold());
+    }
+
+    @Test
+    void ignoresALeftoverTemporarySnapshot() throws IOException {
+        try (TicketJournal journal = open()) {
+            journal.recordRelease(ids(1, 2), 2);
+            assertTrue(journal.checkpoint());
+            journal.recordSale(ids(2), 1);
+        }
+        // A crash while writing a later snapshot leaves half a temporary file behind
+        Files.write(eventDirectory().resolve("snapshot-00000009.snap.tmp"), new byte[]{1, 2, 3});
+
+        TicketJournal.RecoveredState state = recover();
+        assertArrayEquals(ids(1), state.ticketsInPool());
+        assertEquals(1, state.ticketsSold());
+        assertEquals(List.of("snapshot-00000002.snap"), snapshotNames());
+    }
+
+    @Test
+    void refusesACorruptSnapshot() throws IOException {
+        try (TicketJournal journal = open()) {
+            journal.recordRelease(ids(1, 2), 2);
+            assertTrue(journal.checkpoint());
+        }
+        Path snapshot = eventDirectory().resolve("snapshot-00000002.snap");
+        byte[] data = Files.readAllBytes(snapshot);
+        data[data.length / 2] ^= 1;
+        Files.write(snapshot, data);
+
+        assertThrows(IOException.class, this::open);
+    }
+
+    private TicketJournal open() throws IOException {
+        return TicketJournal.open(baseDirectory, EVENT, JournalDurability.SYNC);
+    }
+
+    // Opens the journal as a restarted application would, and closes it again without finishing the sale
+    private TicketJournal.RecoveredState recover() throws IOException {
+        try (TicketJournal journal = open()) {
+            return journal.getRecoveredState();
+        }
+    }
+
+    private Path eventDirectory() {
+        return baseDirectory.resolve("event-" + EVENT);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(eventDirectory())) {
+            return files.filter(file -> file.getFileName().toString().startsWith("segment-")).sorted().toList();
+        }
+    }
+
+    private List<String> snapshotNames() throws IOException {
+        try (Stream<Path> files = Files.list(eventDirectory())) {
+            return files.map(file -> file.getFileName().toString()).filter(name -> name.endsWith(".snap")).sorted().toList();
+        }
+    }
+
+    private void writeSegment(int number, byte[]... records) throws IOException {
+        ByteBuffer segment = ByteBuffer.allocate(SEGMENT_BYTES);
+        for (byte[] record : records) {
+            segment.put(record);
+        }
+        Files.write(eventDirectory().resolve(String.format("segment-%08d.log", number)), segment.array());
+    }
+
+    // Encodes a record the way the journal does: length, type, count, ticket IDs and a CRC of all but the length
+    private static byte[] record(byte type, long... ticketIds) {
+        ByteBuffer record = ByteBuffer.allocate(recordLength(ticketIds.length));
+        record.putInt(record.capacity() - Integer.BYTES);
+        record.put(type);
+        record.putInt(ticketIds.length);
+        for (long ticketId : ticketIds) {
+            record.putLong(ticketId);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), Integer.BYTES, record.position() - Integer.BYTES);
+        record.putInt((int) crc.getValue());
+        return record.array();
+    }
+
+    private static int recordLength(int ticketCount) {
+        return RECORD_OVERHEAD + ticketCount * Long.BYTES;
+    }
+
+    private static long id(long sequence) {
+        return (long) EVENT << 32 | sequence;
+    }
+
+    private static long[] ids(long... sequences) {
+        long[] ticketIds = new long[sequences.length];
+        for (int i = 0; i < sequences.length; i++) {
+            ticketIds[i] = id(sequences[i]);
+        }
+        return ticketIds;
+    }
+}
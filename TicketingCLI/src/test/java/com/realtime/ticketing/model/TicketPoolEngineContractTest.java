@@ -0,0 +1,275 @@
+package com.realtime.ticketing.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The behaviour every {@link TicketPoolEngine} must share, run against each engine by its subclasses.
+ *
+ * @author Dharshan
+ */
+abstract class TicketPoolEngineContractTest {
+
+    /**
+     * Creates an empty engine of the type under test.
+     *
+     * @param maxTicketCapacity the maximum number of tickets the pool can hold
+     * @param totalTickets      the total number of tickets to be sold for the event
+     * @return the engine
+     */
+    abstract TicketPoolEngine newEngine(int maxTicketCapacity, int totalTickets);
+
+    /**
+     * Returns whether the engine sells tickets in the order they were released, even from a single thread.
+     *
+     * @return true if the engine is first-in first-out
+     */
+    boolean preservesReleaseOrder() {
+        return true;
+    }
+
+    @Test
+    void sellsTicketsInReleaseOrder() {
+        TicketPoolEngine engine = newEngine(10, 100);
+        assertTrue(engine.offer(new long[]{1, 2, 3}, 3));
+        assertTrue(engine.offer(new long[]{4, 5, 99}, 2)); // Only the first count IDs are released
+
+        assertTickets(new long[]{1, 2, 3, 4, 5}, pollAll(engine, 2));
+        assertEquals(5, engine.ticketsSold());
+        assertEquals(0, engine.size());
+    }
+
+    @Test
+    void rejectsReleasesThatDoNotFitThePool() {
+        TicketPoolEngine engine = newEngine(4, 100);
+        assertTrue(engine.offer(new long[]{1, 2, 3}, 3));
+        assertFalse(engine.offer(new long[]{4, 5}, 2), "A release is all-or-nothing");
+        assertEquals(3, engine.size());
+        assertEquals(97, engine.ticketsRemainingToBeReleased(), "A rejected release gives its budget back");
+
+        assertEquals(1, engine.poll(new long[1], 1));
+        assertTrue(engine.offer(new long[]{4, 5}, 2), "Selling a ticket frees its room");
+        assertEquals(4, engine.size());
+        assertEquals(4, engine.capacity());
+    }
+
+    @Test
+    void neverReleasesMoreThanTheTotalTickets() {
+        TicketPoolEngine engine = newEngine(10, 5);
+        assertTrue(engine.offer(new long[]{1, 2, 3}, 3));
+        assertFalse(engine.offer(new long[]{4, 5, 6}, 3));
+        assertEquals(2, engine.ticketsRemainingToBeReleased());
+        assertTrue(engine.offer(new long[]{4, 5}, 2));
+        assertEquals(0, engine.ticketsRemainingToBeReleased());
+        assertFalse(engine.offer(new long[]{6}, 1));
+
+        pollAll(engine, 5);
+        assertFalse(engine.offer(new long[]{6}, 1), "Sold tickets still count against the total");
+        assertEquals(5, engine.ticketsSold());
+    }
+
+    @Test
+    void rejectsEmptyReleasesAndPurchasesFromAnEmptyPool() {
+        TicketPoolEngine engine = newEngine(4, 10);
+        assertFalse(engine.offer(new long[]{1}, 0));
+        assertEquals(0, engine.poll(new long[4], 4));
+        assertEquals(0, engine.reserve(new long[4], 1, 4));
+        assertEquals(10, engine.ticketsRemainingToBeReleased());
+    }
+
+    @Test
+    void keepsTicketsWhenWrappingAroundThePoolManyTimes() {
+        // A capacity that is not a power of two leaves the ring with spare slots, so positions wrap unevenly
+        int capacity = 3;
+        int rounds = 1000;
+        TicketPoolEngine engine = newEngine(capacity, capacity * rounds);
+        long nextId = 1;
+        for (int round = 0; round < rounds; round++) {
+            long[] batch = {nextId, nextId + 1, nextId + 2};
+            nextId += capacity;
+            assertTrue(engine.offer(batch, capacity), "Round " + round);
+            assertTickets(batch, pollAll(engine, 2));
+        }
+        assertEquals(capacity * rounds, engine.ticketsSold());
+        assertEquals(0, engine.ticketsRemainingToBeReleased());
+        assertEquals(0, engine.size());
+    }
+
+    @Test
+    void reservedTicketsKeepTheirRoomUntilCommittedOrRequeued() {
+        TicketPoolEngine engine = newEngine(4, 100);
+        assertTrue(engine.offer(new long[]{1, 2, 3, 4}, 4));
+
+        long[] held = new long[4];
+        assertEquals(0, engine.reserve(held, 5, 5), "Fewer than the minimum are available");
+        assertEquals(3, engine.reserve(held, 2, 3));
+        assertEquals(1, engine.size());
+        assertEquals(3, engine.reserved());
+        assertFalse(engine.offer(new long[]{5}, 1), "Reserved tickets still take up room");
+
+        engine.requeue(held, 1, 2);
+        assertEquals(3, engine.size());
+        assertEquals(1, engine.reserved());
+        assertEquals(0, engine.ticketsSold());
+
+        engine.commit(1);
+        assertEquals(0, engine.reserved());
+        assertEquals(1, engine.ticketsSold());
+        assertTrue(engine.offer(new long[]{5}, 1), "A committed ticket frees its room");
+        assertInvariant(engine, 100);
+
+        long[] rest = pollAll(engine, 4);
+        Arrays.sort(rest);
+        long[] expected = {held[1], held[2], 4, 5};
+        Arrays.sort(expected);
+        assertArrayEquals(expected, rest, "Requeued tickets can be bought again");
+    }
+
+    @Test
+    void restoresAnInterruptedSale() {
+        TicketPoolEngine engine = newEngine(5, 20);
+        engine.restore(new long[]{7, 8, 9}, 2, 6);
+        assertEquals(2, engine.size());
+        assertEquals(6, engine.ticketsSold());
+        assertEquals(12, engine.ticketsRemainingToBeReleased());
+        assertFalse(engine.offer(new long[]{1, 2, 3, 4}, 4), "Restored tickets take up room");
+        assertTrue(engine.offer(new long[]{1, 2, 3}, 3));
+        assertTickets(new long[]{7, 8, 1, 2, 3}, pollAll(engine, 5));
+
+        assertThrows(IllegalStateException.class, () -> newEngine(5, 20).restore(new long[6], 6, 0));
+        assertThrows(IllegalStateException.class, () -> newEngine(5, 20).restore(new long[3], 3, 18));
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void sellsEveryReleasedTicketExactlyOnceUnderContention() throws InterruptedException {
+        int totalTickets = 100_000;
+        TicketPoolEngine engine = newEngine(64, totalTickets);
+        Set<Long> released = ConcurrentHashMap.newKeySet();
+        Set<Long> sold = ConcurrentHashMap.newKeySet();
+        AtomicLong nextId = new AtomicLong(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int p = 0; p < 4; p++) {
+            threads.add(new Thread(() -> {
+                long[] batch = new long[4];
+                await(start);
+                while (engine.ticketsRemainingToBeReleased() > 0) {
+                    int count = ThreadLocalRandom.current().nextInt(1, 5);
+                    for (int i = 0; i < count; i++) {
+                        batch[i] = nextId.getAndIncrement();
+                    }
+                    if (engine.offer(batch, count)) {
+                        for (int i = 0; i < count; i++) {
+                            released.add(batch[i]);
+                        }
+                    } else {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+        for (int c = 0; c < 4; c++) {
+            threads.add(new Thread(() -> {
+                long[] tickets = new long[5];
+                await(start);
+                while (engine.ticketsSold() < totalTickets) {
+                    int taken = engine.reserve(tickets, 1, 5);
+                    if (taken == 0) {
+                        Thread.yield();
+                        continue;
+                    }
+                    // Buy some of the reservation and put the rest back, as an abandoned checkout would
+                    int bought = ThreadLocalRandom.current().nextInt(0, taken + 1);
+                    for (int i = 0; i < bought; i++) {
+                        if (!sold.add(tickets[i])) {
+                            failure.compareAndSet(null, new AssertionError("Ticket " + tickets[i] + " sold twice"));
+                        }
+                    }
+                    if (bought > 0) {
+                        engine.commit(bought);
+                    }
+                    if (bought < taken) {
+                        engine.requeue(tickets, bought, taken - bought);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.setDaemon(true); // A worker stuck after a timeout must not keep the test JVM alive
+            thread.setUncaughtExceptionHandler((t, e) -> failure.compareAndSet(null, e));
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get(), () -> "Worker failed: " + failure.get());
+        assertEquals(totalTickets, released.size());
+        assertEquals(released, sold, "Every released ticket is sold exactly once");
+        assertEquals(0, engine.size());
+        assertEquals(0, engine.reserved());
+        assertInvariant(engine, totalTickets);
+    }
+
+    // Everything released is in the pool, reserved or sold, and the rest is still to be released
+    static void assertInvariant(TicketPoolEngine engine, int totalTickets) {
+        assertEquals(totalTickets,
+                engine.ticketsSold() + engine.size() + engine.reserved() + engine.ticketsRemainingToBeReleased());
+    }
+
+    // Buys every ticket in the pool, a few at a time, in the order the engine hands them out
+    static long[] pollAll(TicketPoolEngine engine, int perPurchase) {
+        long[] all = new long[engine.size()];
+        long[] purchase = new long[perPurchase];
+        int count = 0;
+        int taken;
+        while ((taken = engine.poll(purchase, perPurchase)) > 0) {
+            System.arraycopy(purchase, 0, all, count, taken);
+            count += taken;
+        }
+        return Arrays.copyOf(all, count);
+    }
+
+    // Compares tickets in order for first-in first-out engines, and as sets for the others
+    void assertTickets(long[] expected, long[] actual) {
+        if (preservesReleaseOrder()) {
+            assertArrayEquals(expected, actual);
+        } else {
+            long[] sortedExpected = expected.clone();
+            long[] sortedActual = actual.clone();
+            Arrays.sort(sortedExpected);
+            Arrays.sort(sortedActual);
+            assertArrayEquals(sortedExpected, sortedActual);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
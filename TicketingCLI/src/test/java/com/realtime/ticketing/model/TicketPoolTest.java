@@ -0,0 +1,146 @@
+package com.realtime.ticketing.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests purchases and reservations on a {@link TicketPool}.
+ *
+ * @author Dharshan
+ */
+class TicketPoolTest {
+
+    @Test
+    void purchaseFromAnEmptyPoolIsCountedAsARejection() {
+        TicketPool pool = newPool(10, 20);
+        assertEquals(0, pool.purchaseTicket(3).length);
+        assertEquals(1, pool.getMetrics().getEmptyPoolRejections());
+
+        assertEquals(2, pool.addTickets(2));
+        assertEquals(2, pool.purchaseTicket(3).length, "A purchase takes what there is, up to the count");
+        assertEquals(1, pool.getMetrics().getEmptyPoolRejections());
+        assertEquals(2, pool.getTicketsSold());
+    }
+
+    @Test
+    void purchaseTakesTheCountItIsGiven() {
+        TicketPool pool = newPool(10, 20);
+        pool.addTickets(5);
+        assertEquals(1, pool.purchaseTicket(1).length);
+        assertEquals(4, pool.purchaseTicket(4).length);
+        assertEquals(0, pool.getTicketPoolSize());
+    }
+
+    @Test
+    void commitAfterTheSaleEndedReleasesTheReservation() {
+        TicketPool pool = newPool(10, 20);
+        pool.addTickets(4);
+        Reservation reservation = pool.reserve(3, 1, TimeUnit.HOURS, true);
+        assertNotNull(reservation);
+
+        pool.interruptSimulation(); // The sale is stopped while the reservation is held
+        assertFalse(reservation.commit());
+        assertEquals(Reservation.State.RELEASED, reservation.getState());
+        assertEquals(0, pool.getOpenReservations());
+        assertEquals(4, pool.getTicketPoolSize(), "The held tickets are back in the pool");
+        assertEquals(0, pool.getTicketsSold());
+        assertFalse(reservation.release(), "A reservation ends once only");
+    }
+
+    @Test
+    void commitSellsTheReservedTickets() {
+        TicketPool pool = newPool(10, 20);
+        pool.addTickets(4);
+        Reservation reservation = pool.reserve(3, 1, TimeUnit.HOURS, true);
+
+        assertTrue(reservation.commit());
+        assertEquals(Reservation.State.COMMITTED, reservation.getState());
+        assertEquals(3, pool.getTicketsSold());
+        assertEquals(1, pool.getTicketPoolSize());
+        assertFalse(reservation.commit());
+    }
+
+    @Test
+    void servesGroupsInOrderAndPutsTheLeftoverBack() {
+        TicketPool pool = newPool(10, 20);
+        pool.addTickets(6);
+
+        // The first two groups fit; the third does not, so its share of the tickets goes back into the pool
+        List<Reservation> reservations = pool.reserveBatch(new int[]{2, 3, 4}, 1, TimeUnit.HOURS, false);
+        assertEquals(List.of(2, 3), reservations.stream().map(Reservation::getTicketCount).toList());
+        assertEquals(1, pool.getTicketPoolSize());
+        assertEquals(2, pool.getOpenReservations());
+        assertEquals(0, pool.getMetrics().getEmptyPoolRejections());
+
+        assertTrue(reservations.get(1).release());
+        assertEquals(4, pool.getTicketPoolSize());
+        assertTrue(reservations.get(0).commit());
+        assertEquals(2, pool.getTicketsSold());
+        assertEquals(4, pool.purchaseTicket(5).length, "Requeued and released tickets can be bought");
+    }
+
+    @Test
+    void refusesBatchesThatDoNotFitWithoutCountingAnEmptyPool() {
+        TicketPool pool = newPool(10, 20);
+        pool.addTickets(4);
+
+        assertTrue(pool.reserveBatch(new int[]{3, 2}, 1, TimeUnit.HOURS, true).isEmpty(), "All or nothing");
+        assertTrue(pool.reserveBatch(new int[]{5, 3}, 1, TimeUnit.HOURS, false).isEmpty(), "The first group must fit");
+        assertEquals(4, pool.getTicketPoolSize());
+        assertEquals(0, pool.getOpenReservations());
+        assertEquals(0, pool.getMetrics().getEmptyPoolRejections(), "The pool was not empty");
+
+        // A batch the pool could never hold is a mistake, not a rejection
+        assertThrows(IllegalArgumentException.class, () -> pool.reserveBatch(new int[]{6, 6}, 1, TimeUnit.HOURS, true));
+        assertThrows(IllegalArgumentException.class, () -> pool.reserve(11, 1, TimeUnit.HOURS, false));
+        assertThrows(IllegalArgumentException.class, () -> pool.reserve(0, 1, TimeUnit.HOURS, false));
+
+        assertEquals(4, pool.purchaseTicket(4).length);
+        assertNull(pool.reserve(1, 1, TimeUnit.HOURS, false));
+        assertEquals(1, pool.getMetrics().getEmptyPoolRejections());
+    }
+
+    @Test
+    void expiredReservationsGoBackIntoThePool() {
+        AtomicLong clock = new AtomicLong();
+        TicketPool pool = newPool(10, 20);
+        pool.useClock(clock::get);
+        pool.addTickets(5);
+        Reservation shortHold = pool.reserve(2, 10, TimeUnit.SECONDS, true);
+        Reservation longHold = pool.reserve(2, 60, TimeUnit.SECONDS, true);
+        assertEquals(0, pool.expireReservations());
+
+        clock.set(TimeUnit.SECONDS.toNanos(30));
+        assertEquals(1, pool.expireReservations());
+        assertEquals(Reservation.State.EXPIRED, shortHold.getState());
+        assertEquals(Reservation.State.HELD, longHold.getState());
+        assertEquals(3, pool.getTicketPoolSize());
+        assertEquals(1, pool.getOpenReservations());
+        assertEquals(1, pool.getMetrics().getExpiredReservations());
+        assertFalse(shortHold.commit());
+
+        // A holder who comes back too late finds the reservation expired
+        clock.set(TimeUnit.SECONDS.toNanos(61));
+        assertFalse(longHold.commit());
+        assertEquals(Reservation.State.EXPIRED, longHold.getState());
+        assertEquals(5, pool.getTicketPoolSize());
+        assertEquals(0, pool.getTicketsSold());
+        assertEquals(0, pool.expireReservations());
+    }
+
+    private static TicketPool newPool(int maxTicketCapacity, int totalTickets) {
+        TicketPool pool = new TicketPool("Vendor", maxTicketCapacity, totalTickets, 2, 1, "Event");
+        pool.useSilentLogging();
+        return pool;
+    }
+}
@@ -0,0 +1,208 @@
+package com.realtime.ticketing.model;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests admission order, abandoned places and wait estimates of a {@link WaitingRoom}, on a clock the test moves.
+ *
+ * @author Dharshan
+ */
+class WaitingRoomTest {
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void admitsAsManyMoreAsHaveLeft() {
+        WaitingRoom room = new WaitingRoom(2, clock::get);
+        long first = room.join();
+        long second = room.join();
+        long third = room.join();
+        long fourth = room.join();
+
+        assertTrue(room.isAdmitted(first));
+        assertTrue(room.isAdmitted(second));
+        assertFalse(room.isAdmitted(third));
+        assertEquals(2, room.getWaiting());
+        assertEquals(2, room.getAdmitted());
+
+        // Everyone below departed + maxAdmitted is admitted, whoever it was that left
+        room.leave(second);
+        assertTrue(room.isAdmitted(third));
+        assertFalse(room.isAdmitted(fourth));
+        room.leave(first);
+        assertTrue(room.isAdmitted(fourth));
+        assertEquals(0, room.getWaiting());
+        assertEquals(4, room.getAdmitted());
+        assertEquals(2, room.getPeakWaiting());
+        assertEquals(4, room.getJoined());
+
+        assertThrows(IllegalArgumentException.class, () -> new WaitingRoom(0));
+    }
+
+    @Test
+    void givesThePositionInTheQueue() {
+        WaitingRoom room = new WaitingRoom(2, clock::get);
+        long[] numbers = new long[5];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = room.join();
+        }
+
+        assertEquals(0, room.getPosition(numbers[0]));
+        assertEquals(0, room.getPosition(numbers[1]));
+        assertEquals(1, room.getPosition(numbers[2]));
+        assertEquals(3, room.getPosition(numbers[4]));
+
+        room.leave(numbers[0]);
+        assertEquals(0, room.getPosition(numbers[2]));
+        assertEquals(2, room.getPosition(numbers[4]));
+    }
+
+    @Test
+    void skipsTheNumbersOfCustomersWhoGaveUp() {
+        WaitingRoom room = new WaitingRoom(1, clock::get);
+        long served = room.join();
+        long gaveUp = room.join();
+        long alsoGaveUp = room.join();
+        long next = room.join();
+
+        room.leave(alsoGaveUp);
+        room.leave(gaveUp);
+        assertFalse(room.isAdmitted(gaveUp), "Giving up does not admit anyone");
+        assertEquals(3, room.getWaiting(), "Customers who gave up are counted until their turn comes");
+
+        // When the served customer leaves, both abandoned places are skipped in one go
+        room.leave(served);
+        assertTrue(room.isAdmitted(next));
+        assertEquals(0, room.getPosition(next));
+        assertEquals(0, room.getWaiting());
+
+        long last = room.join();
+        assertFalse(room.isAdmitted(last));
+        room.leave(next);
+        assertTrue(room.isAdmitted(last));
+    }
+
+    @Test
+    void estimatesTheWaitFromTheGapBetweenAdmissions() {
+        WaitingRoom room = new WaitingRoom(1, clock::get);
+        long[] numbers = new long[6];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = room.join();
+        }
+        assertEquals(0, room.estimateWaitNanos(numbers[0]));
+        assertEquals(-1, room.estimateWaitNanos(numbers[5]), "Nothing to estimate from before anyone leaves");
+
+        clock.set(1_000);
+        room.leave(numbers[0]);
+        assertEquals(-1, room.estimateWaitNanos(numbers[5]), "One admission gives no gap");
+
+        clock.set(3_000);
+        room.leave(numbers[1]);
+        // Three places to go at 2,000 ns each
+        assertEquals(3, room.getPosition(numbers[5]));
+        assertEquals(6_000, room.estimateWaitNanos(numbers[5]));
+        assertEquals(0, room.estimateWaitNanos(numbers[2]));
+
+        // A longer gap moves the average only a little: 2,000 + 5% of the 2,000 difference, for two places
+        clock.set(7_000);
+        room.leave(numbers[2]);
+        assertEquals(4_200, room.estimateWaitNanos(numbers[5]));
+    }
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void closingWakesCustomersWaitingForAdmission() throws InterruptedException {
+        WaitingRoom room = new WaitingRoom(1, clock::get);
+        room.join();
+        long waiting = room.join();
+        AtomicReference<Boolean> admitted = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(1);
+
+        Thread customer = new Thread(() -> {
+            try {
+                started.countDown();
+                admitted.set(room.awaitAdmission(waiting, 1, TimeUnit.HOURS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        customer.setDaemon(true);
+        customer.start();
+        started.await();
+
+        room.close();
+        customer.join();
+        assertEquals(Boolean.FALSE, admitted.get());
+        assertFalse(room.awaitAdmission(waiting, 1, TimeUnit.HOURS), "A closed room does not wait again");
+        assertFalse(room.awaitAdmission(waiting, 0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void admitsManyThreadsStrictlyInTheOrderTheyJoined() throws InterruptedException {
+        WaitingRoom room = new WaitingRoom(1);
+        List<Long> admissionOrder = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean inside = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> customers = new ArrayList<>();
+
+        for (int c = 0; c < 64; c++) {
+            boolean givesUp = c % 5 == 4;
+            customers.add(new Thread(() -> {
+                try {
+                    start.await();
+                    for (int visit = 0; visit < 20; visit++) {
+                        long number = room.join();
+                        if (givesUp && !room.isAdmitted(number)) {
+                            room.leave(number);
+                            continue;
+                        }
+                        if (!room.awaitAdmission(number, 30, TimeUnit.SECONDS)) {
+                            throw new AssertionError("Customer " + number + " was never admitted");
+                        }
+                        if (!inside.compareAndSet(false, true)) {
+                            throw new AssertionError("Customer " + number + " admitted while another was inside");
+                        }
+                        admissionOrder.add(number);
+                        inside.set(false);
+                        room.leave(number);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (Thread customer : customers) {
+            customer.setDaemon(true);
+            customer.setUncaughtExceptionHandler((t, e) -> failure.compareAndSet(null, e));
+            customer.start();
+        }
+        start.countDown();
+        for (Thread customer : customers) {
+            customer.join();
+        }
+
+        assertNull(failure.get(), () -> "Customer failed: " + failure.get());
+        List<Long> expected = new ArrayList<>(admissionOrder);
+        Collections.sort(expected);
+        assertEquals(expected, admissionOrder, "Customers are served in the order of their queue numbers");
+        assertEquals(64 * 20, room.getJoined());
+        assertEquals(0, room.getWaiting());
+    }
+}
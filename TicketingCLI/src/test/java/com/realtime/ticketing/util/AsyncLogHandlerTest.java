@@ -0,0 +1,85 @@
+package com.realtime.ticketing.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that an {@link AsyncLogHandler} writes every record it accepted before flush returns.
+ *
+ * @author Dharshan
+ */
+class AsyncLogHandlerTest {
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void flushWaitsForTheBatchBeingWritten() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch diskReady = new CountDownLatch(1);
+        RecordingHandler delegate = new RecordingHandler(writing, diskReady);
+        AsyncLogHandler handler = new AsyncLogHandler(16, 16, AsyncLogHandler.OverflowPolicy.BLOCK, delegate);
+
+        handler.publish(new LogRecord(Level.INFO, "first"));
+        assertTrue(writing.await(10, TimeUnit.SECONDS));
+        // The drain thread is in the middle of writing the record, so the queue is already empty
+        CountDownLatch flushed = new CountDownLatch(1);
+        Thread flusher = new Thread(() -> {
+            handler.flush();
+            flushed.countDown();
+        });
+        flusher.setDaemon(true);
+        flusher.start();
+
+        assertFalse(flushed.await(200, TimeUnit.MILLISECONDS), "flush returned before the record was written");
+        diskReady.countDown();
+        assertTrue(flushed.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of("first"), delegate.messages);
+
+        handler.publish(new LogRecord(Level.INFO, "second"));
+        handler.flush();
+        assertEquals(List.of("first", "second"), delegate.messages);
+        handler.close();
+    }
+
+    // Records messages, holding up the first write until the test lets it through
+    private static final class RecordingHandler extends Handler {
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+        private final CountDownLatch writing;
+        private final CountDownLatch diskReady;
+
+        private RecordingHandler(CountDownLatch writing, CountDownLatch diskReady) {
+            this.writing = writing;
+            this.diskReady = diskReady;
+        }
+
+        @Override
+        public void publish(LogRecord record) {
+            writing.countDown();
+            try {
+                diskReady.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            messages.add(record.getMessage());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.realtime.ticketing.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that a {@link RateScheduler.PacedTask} never runs its action twice at once, however often it is woken.
+ *
+ * @author Dharshan
+ */
+class RateSchedulerTest {
+
+    @Test
+    @Timeout(value = 30, unit = TimeUnit.SECONDS)
+    void wakeUpNeverOverlapsARunInProgress() throws InterruptedException {
+        ScheduledExecutorService executor = Executors.newScheduledThreadPool(4);
+        try {
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger overlaps = new AtomicInteger();
+            AtomicInteger runs = new AtomicInteger();
+            RateScheduler.PacedTask task = new RateScheduler(executor).schedule(
+                    new TokenBucket(TokenBucket.MIN_INTERVAL_NANOS, 4), () -> {
+                        if (running.incrementAndGet() > 1) {
+                            overlaps.incrementAndGet();
+                        }
+                        runs.incrementAndGet();
+                        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200)); // Long enough to be woken during
+                        running.decrementAndGet();
+                    });
+
+            // As a configuration change does, but far more often
+            long endNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+            while (System.nanoTime() < endNanos) {
+                task.wakeUp();
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(50));
+            }
+            task.cancel();
+
+            assertEquals(0, overlaps.get(), "Runs of one task overlapped");
+            assertTrue(runs.get() > 0);
+        } finally {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}